@@ -0,0 +1,56 @@
+package com.banquito.core.carga;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.apache.activemq.ActiveMQConnectionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumidor de prueba para las colas de transacciones. Sustituye al MS2:
+ * descarta los mensajes y registra el tiempo entre el envío (JMSTimestamp,
+ * fijado por el producer al aceptar la petición) y la extracción de la cola.
+ * No usar contra el broker real, se llevaría los mensajes del MS2.
+ */
+final class ConsumidorStub implements AutoCloseable {
+
+    private final Connection conexion;
+    private final List<Session> sesiones = new ArrayList<>();
+
+    ConsumidorStub(String brokerUrl, String usuario, String clave, List<String> colas,
+                   RegistroLatencias registro) throws JMSException {
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(usuario, clave, brokerUrl);
+        this.conexion = factory.createConnection();
+        for (String cola : colas) {
+            // Una sesión por cola: cada una entrega sus mensajes en su propio hilo
+            Session sesion = conexion.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+            MessageConsumer consumidor = sesion.createConsumer(sesion.createQueue(cola));
+            String etiqueta = "cola:" + cola;
+            consumidor.setMessageListener(mensaje -> {
+                try {
+                    long enviado = mensaje.getJMSTimestamp();
+                    if (enviado > 0) {
+                        registro.registrar(etiqueta,
+                                TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - enviado));
+                    }
+                } catch (JMSException e) {
+                    registro.error(etiqueta);
+                }
+            });
+            sesiones.add(sesion);
+        }
+        conexion.start();
+    }
+
+    @Override
+    public void close() throws JMSException {
+        for (Session sesion : sesiones) {
+            sesion.close();
+        }
+        conexion.close();
+    }
+}
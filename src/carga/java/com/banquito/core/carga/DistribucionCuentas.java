@@ -0,0 +1,91 @@
+package com.banquito.core.carga;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Elige el número de cuenta de cada petición. La uniforme reparte la carga por
+ * igual; la Zipf concentra el tráfico en pocas cuentas calientes (la cuenta de
+ * rango k recibe peso 1/k^s), que es lo que provoca contención real en
+ * cuentas_clientes.
+ */
+abstract class DistribucionCuentas {
+
+    protected final List<String> cuentas;
+
+    protected DistribucionCuentas(List<String> cuentas) {
+        if (cuentas.isEmpty()) {
+            throw new IllegalArgumentException("No hay cuentas para generar carga");
+        }
+        this.cuentas = cuentas;
+    }
+
+    abstract String siguiente(SplittableRandom aleatorio);
+
+    /** Cuenta distinta de la indicada, para el destino de las transferencias. */
+    String otra(SplittableRandom aleatorio, String excluida) {
+        if (cuentas.size() == 1) {
+            return excluida;
+        }
+        String cuenta;
+        do {
+            cuenta = siguiente(aleatorio);
+        } while (cuenta.equals(excluida));
+        return cuenta;
+    }
+
+    static DistribucionCuentas crear(String tipo, double exponente, List<String> cuentas) {
+        return switch (tipo) {
+            case "uniforme" -> new Uniforme(cuentas);
+            case "zipf" -> new Zipf(cuentas, exponente);
+            default -> throw new IllegalArgumentException("Distribución no soportada: " + tipo);
+        };
+    }
+
+    private static final class Uniforme extends DistribucionCuentas {
+
+        private Uniforme(List<String> cuentas) {
+            super(cuentas);
+        }
+
+        @Override
+        String siguiente(SplittableRandom aleatorio) {
+            return cuentas.get(aleatorio.nextInt(cuentas.size()));
+        }
+    }
+
+    /** Muestreo por búsqueda binaria sobre la CDF precalculada. */
+    private static final class Zipf extends DistribucionCuentas {
+
+        private final double[] acumulada;
+
+        private Zipf(List<String> cuentas, double exponente) {
+            super(cuentas);
+            this.acumulada = new double[cuentas.size()];
+            double suma = 0;
+            for (int k = 0; k < acumulada.length; k++) {
+                suma += 1.0 / Math.pow(k + 1, exponente);
+                acumulada[k] = suma;
+            }
+            for (int k = 0; k < acumulada.length; k++) {
+                acumulada[k] /= suma;
+            }
+        }
+
+        @Override
+        String siguiente(SplittableRandom aleatorio) {
+            double u = aleatorio.nextDouble();
+            int bajo = 0;
+            int alto = acumulada.length - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (acumulada[medio] < u) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return cuentas.get(bajo);
+        }
+    }
+}
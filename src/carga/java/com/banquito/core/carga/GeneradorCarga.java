@@ -0,0 +1,426 @@
+package com.banquito.core.carga;
+
+import com.banquito.core.Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de modelo abierto: las peticiones salen a tasa constante
+ * (o con llegadas de Poisson) sin esperar a que terminen las anteriores, y la
+ * latencia se mide desde el instante en que cada petición debía salir, de modo
+ * que un servidor lento no frena al generador ni esconde su propia cola.
+ *
+ * <pre>
+ * ./mvnw -Pcarga test-compile exec:java -Dexec.args="--embebido --sembrar=1000 --tasa=500 --duracion=60"
+ * ./mvnw -Pcarga test-compile exec:java -Dexec.args="--embebido --modo=virtual --sembrar=1000 --tasa=500 --duracion=60"
+ * ./mvnw -Pcarga test-compile exec:java -Dexec.args="--url=http://localhost/api/cuentas --cuentas=cuentas.txt --distribucion=zipf"
+ * </pre>
+ *
+ * Opciones (--clave=valor):
+ * <ul>
+ *   <li>url: base del servicio; por defecto la de la instancia embebida o http://localhost/api/cuentas</li>
+ *   <li>tasa: peticiones por segundo (100); llegadas: constante | poisson</li>
+ *   <li>duracion, calentamiento: segundos medidos y segundos descartados al inicio (60, 10)</li>
+ *   <li>mezcla: pesos por operación, DEPOSITO=40,RETIRO=30,TRANSFERENCIA=20,LECTURA=10</li>
+ *   <li>cuentas: rango 9000000000-9000000999 o archivo con un número por línea</li>
+ *   <li>sembrar: crea N cuentas de prueba vía JDBC antes de empezar (jdbc-url, jdbc-usuario, jdbc-clave)</li>
+ *   <li>distribucion: uniforme | zipf; zipf-exponente (1.1)</li>
+ *   <li>max-pendientes: peticiones en vuelo antes de descartar (10000)</li>
+ *   <li>embebido: arranca la aplicación con el perfil carga (broker en memoria y Postgres local)</li>
+ *   <li>modo: servlet | virtual, pool de hilos de Tomcat o hilos virtuales en la instancia embebida (servlet)</li>
+ *   <li>logs: ninguno | desarrollo | produccion, logging de la instancia embebida (ninguno: solo WARN);
+ *   desarrollo es texto sincrónico con SQL en DEBUG y produccion agrega el perfil produccion</li>
+ *   <li>consumidor: consume las colas y mide aceptación-a-extracción (activo con embebido)</li>
+ *   <li>broker-url, broker-usuario, broker-clave: broker del consumidor cuando no es embebido</li>
+ *   <li>hdr: archivo donde volcar la distribución completa de cada serie</li>
+ * </ul>
+ */
+public final class GeneradorCarga {
+
+    private static final String RUTA_TRANSACCIONES = "/v1/transacciones/";
+    private static final String RUTA_LECTURA = "/v1/cuentas-clientes/numero-cuenta/";
+    private static final String PREFIJO_SEMBRADAS = "9";
+    private static final int REPORTE_SEGUNDOS = 5;
+
+    private enum Operacion { DEPOSITO, RETIRO, TRANSFERENCIA, LECTURA }
+
+    private final Map<String, String> opciones;
+    private final PrintStream salida = System.out;
+
+    private GeneradorCarga(Map<String, String> opciones) {
+        this.opciones = opciones;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new GeneradorCarga(leerOpciones(args)).ejecutar();
+        System.exit(0);
+    }
+
+    private void ejecutar() throws Exception {
+        boolean embebido = bandera("embebido");
+        ConfigurableApplicationContext aplicacion = embebido ? arrancarAplicacion() : null;
+        String url = opcion("url", aplicacion != null
+                ? "http://localhost:" + aplicacion.getEnvironment().getProperty("local.server.port") + contexto(aplicacion.getEnvironment())
+                : "http://localhost/api/cuentas");
+
+        List<String> cuentas = opciones.containsKey("sembrar")
+                ? sembrar(Integer.parseInt(opciones.get("sembrar")), aplicacion)
+                : leerCuentas(opcion("cuentas", "9000000000-9000000999"));
+        DistribucionCuentas distribucion = DistribucionCuentas.crear(
+                opcion("distribucion", "uniforme"), Double.parseDouble(opcion("zipf-exponente", "1.1")), cuentas);
+        Operacion[] mezcla = leerMezcla(opcion("mezcla", "DEPOSITO=40,RETIRO=30,TRANSFERENCIA=20,LECTURA=10"));
+
+        RegistroLatencias registro = new RegistroLatencias();
+        ConsumidorStub consumidor = null;
+        if (opciones.containsKey("consumidor") ? bandera("consumidor") : embebido) {
+            Environment env = aplicacion != null ? aplicacion.getEnvironment() : null;
+            consumidor = new ConsumidorStub(
+                    opcion("broker-url", env != null ? env.getProperty("spring.activemq.broker-url") : "tcp://localhost:61616"),
+                    opcion("broker-usuario", env != null ? env.getProperty("spring.activemq.user") : "admin"),
+                    opcion("broker-clave", env != null ? env.getProperty("spring.activemq.password") : "admin"),
+                    List.of(propiedad(env, "colas.transacciones.deposito", "transacciones.deposito"),
+                            propiedad(env, "colas.transacciones.retiro", "transacciones.retiro")),
+                    registro);
+        }
+
+        double tasa = Double.parseDouble(opcion("tasa", "100"));
+        long calentamiento = TimeUnit.SECONDS.toNanos(Long.parseLong(opcion("calentamiento", "10")));
+        long duracion = TimeUnit.SECONDS.toNanos(Long.parseLong(opcion("duracion", "60")));
+        int maxPendientes = Integer.parseInt(opcion("max-pendientes", "10000"));
+        boolean poisson = "poisson".equals(opcion("llegadas", "constante"));
+
+        salida.printf(Locale.ROOT, "Carga contra %s: %.0f pet/s, %d cuentas (%s), calentamiento %ds, medición %ds%n",
+                url, tasa, cuentas.size(), opcion("distribucion", "uniforme"),
+                TimeUnit.NANOSECONDS.toSeconds(calentamiento), TimeUnit.NANOSECONDS.toSeconds(duracion));
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        Semaphore pendientes = new Semaphore(maxPendientes);
+        ScheduledExecutorService reportes = Executors.newSingleThreadScheduledExecutor();
+        reportes.scheduleAtFixedRate(() -> registro.reportarIntervalo(salida, REPORTE_SEGUNDOS),
+                REPORTE_SEGUNDOS, REPORTE_SEGUNDOS, TimeUnit.SECONDS);
+        if (calentamiento > 0) {
+            reportes.schedule(() -> {
+                registro.reiniciar();
+                salida.println("---- fin del calentamiento ----");
+            }, calentamiento, TimeUnit.NANOSECONDS);
+        }
+
+        SplittableRandom aleatorio = new SplittableRandom();
+        double intervalo = 1_000_000_000.0 / tasa;
+        long inicio = System.nanoTime();
+        long fin = inicio + calentamiento + duracion;
+        double desplazamiento = 0;
+        for (long i = 0; ; i++) {
+            desplazamiento = poisson ? desplazamiento - Math.log(1.0 - aleatorio.nextDouble()) * intervalo : i * intervalo;
+            long previsto = inicio + (long) desplazamiento;
+            if (previsto >= fin) {
+                break;
+            }
+            long espera;
+            while ((espera = previsto - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+
+            Operacion operacion = mezcla[aleatorio.nextInt(mezcla.length)];
+            String etiqueta = operacion.name();
+            if (!pendientes.tryAcquire()) {
+                registro.descartada(etiqueta);
+                continue;
+            }
+            cliente.sendAsync(peticion(url, operacion, distribucion, aleatorio), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((respuesta, error) -> {
+                        long latencia = System.nanoTime() - previsto;
+                        pendientes.release();
+                        if (error != null) {
+                            registro.error(etiqueta);
+                            return;
+                        }
+                        registro.registrar(etiqueta, latencia);
+                        if (respuesta.statusCode() >= 400) {
+                            registro.error(etiqueta);
+                        }
+                    });
+        }
+
+        // Esperar a las respuestas en vuelo y a que el consumidor vacíe las colas
+        pendientes.tryAcquire(maxPendientes, 30, TimeUnit.SECONDS);
+        TimeUnit.SECONDS.sleep(consumidor != null ? 2 : 0);
+        reportes.shutdownNow();
+        reportes.awaitTermination(5, TimeUnit.SECONDS);
+        registro.reportarFinal(salida, TimeUnit.NANOSECONDS.toSeconds(duracion));
+        if (aplicacion != null) {
+            reportarRecursos();
+        }
+        if (opciones.containsKey("hdr")) {
+            exportar(registro, Path.of(opciones.get("hdr")));
+        }
+
+        if (consumidor != null) {
+            consumidor.close();
+        }
+        if (aplicacion != null) {
+            aplicacion.close();
+        }
+    }
+
+    private static HttpRequest peticion(String url, Operacion operacion, DistribucionCuentas distribucion,
+                                        SplittableRandom aleatorio) {
+        String origen = distribucion.siguiente(aleatorio);
+        if (operacion == Operacion.LECTURA) {
+            return HttpRequest.newBuilder(URI.create(url + RUTA_LECTURA + origen))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+        }
+        String destino = operacion == Operacion.TRANSFERENCIA
+                ? "\"" + distribucion.otra(aleatorio, origen) + "\""
+                : "null";
+        // Montos pequeños para que los retiros no agoten el saldo de las cuentas calientes
+        String cuerpo = String.format(Locale.ROOT,
+                "{\"numeroCuentaOrigen\":\"%s\",\"numeroCuentaDestino\":%s,\"tipoTransaccion\":\"%s\",\"monto\":%.2f,\"descripcion\":\"carga\"}",
+                origen, destino, operacion.name(), 1 + aleatorio.nextInt(10_000) / 100.0);
+        return HttpRequest.newBuilder(URI.create(url + RUTA_TRANSACCIONES + operacion.name().toLowerCase(Locale.ROOT)))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+    }
+
+    private ConfigurableApplicationContext arrancarAplicacion() {
+        String modo = opcion("modo", "servlet");
+        String logs = opcion("logs", "ninguno");
+        salida.println("Arrancando la aplicación con el perfil carga (modo " + modo + ", logs " + logs + ")...");
+        List<String> argumentos = new ArrayList<>(List.of("--server.port=" + opcion("puerto", "0"),
+                "--spring.threads.virtual.enabled=" + "virtual".equals(modo)));
+        List<String> perfiles = new ArrayList<>(List.of("carga"));
+        switch (logs) {
+            case "ninguno" -> { }
+            case "desarrollo" -> argumentos.addAll(List.of("--logging.level.com.banquito.core.cuentas=INFO",
+                    "--logging.level.org.hibernate.SQL=DEBUG"));
+            case "produccion" -> {
+                perfiles.add("produccion");
+                argumentos.addAll(List.of("--logging.level.com.banquito.core.cuentas=INFO",
+                        "--logging.level.org.hibernate.SQL=INFO"));
+            }
+            default -> throw new IllegalArgumentException("logs desconocido: " + logs);
+        }
+        return new SpringApplicationBuilder(Application.class)
+                .profiles(perfiles.toArray(String[]::new))
+                .run(argumentos.toArray(String[]::new));
+    }
+
+    /**
+     * Hilos de plataforma y memoria del proceso, para comparar los modos servlet y
+     * virtual con la misma carga. El generador comparte la JVM, pero su parte es
+     * igual en ambos modos (sus peticiones salen en hilos virtuales).
+     */
+    private void reportarRecursos() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        salida.printf(Locale.ROOT, "Hilos de plataforma: %d activos, %d pico; heap usado %d MiB, no-heap %d MiB%n",
+                hilos.getThreadCount(), hilos.getPeakThreadCount(),
+                memoria.getHeapMemoryUsage().getUsed() >> 20, memoria.getNonHeapMemoryUsage().getUsed() >> 20);
+    }
+
+    private static String contexto(Environment env) {
+        return env.getProperty("server.servlet.context-path", "");
+    }
+
+    private static String propiedad(Environment env, String clave, String porDefecto) {
+        return env != null ? env.getProperty(clave, porDefecto) : porDefecto;
+    }
+
+    /**
+     * Crea las cuentas de prueba 9000000000.. que falten bajo un producto "CARGA".
+     * Saldo alto para que los retiros no se rechacen por fondos durante la prueba.
+     */
+    private List<String> sembrar(int cantidad, ConfigurableApplicationContext aplicacion) throws SQLException {
+        Environment env = aplicacion != null ? aplicacion.getEnvironment() : null;
+        String jdbcUrl = opcion("jdbc-url", propiedad(env, "spring.datasource.url", "jdbc:postgresql://localhost:5432/core"));
+        String usuario = opcion("jdbc-usuario", propiedad(env, "spring.datasource.username", "postgres"));
+        String clave = opcion("jdbc-clave", propiedad(env, "spring.datasource.password", "root"));
+
+        List<String> cuentas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            cuentas.add(PREFIJO_SEMBRADAS + String.format("%09d", i));
+        }
+        try (Connection conexion = DriverManager.getConnection(jdbcUrl, usuario, clave)) {
+            conexion.setAutoCommit(false);
+            int idCuenta = productoCarga(conexion);
+            Set<String> existentes = new HashSet<>();
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "SELECT numero_cuenta FROM account.cuentas_clientes WHERE numero_cuenta LIKE ?")) {
+                ps.setString(1, PREFIJO_SEMBRADAS + "%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        existentes.add(rs.getString(1));
+                    }
+                }
+            }
+            int creadas = 0;
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "INSERT INTO account.cuentas_clientes (id_cuenta, id_cliente, numero_cuenta, saldo_disponible,"
+                            + " saldo_contable, fecha_apertura, estado, version) VALUES (?, ?, ?, ?, ?, ?, 'ACTIVO', 0)")) {
+                Timestamp ahora = Timestamp.from(Instant.now());
+                for (String numero : cuentas) {
+                    if (existentes.contains(numero)) {
+                        continue;
+                    }
+                    ps.setInt(1, idCuenta);
+                    ps.setString(2, "CARGA-" + numero);
+                    ps.setString(3, numero);
+                    ps.setBigDecimal(4, new BigDecimal("1000000000.00"));
+                    ps.setBigDecimal(5, new BigDecimal("1000000000.00"));
+                    ps.setTimestamp(6, ahora);
+                    ps.addBatch();
+                    if (++creadas % 500 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            conexion.commit();
+            salida.printf("Cuentas sembradas: %d nuevas, %d existentes%n", creadas, cantidad - creadas);
+        }
+        return cuentas;
+    }
+
+    private static int productoCarga(Connection conexion) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "SELECT id_cuenta FROM account.cuentas WHERE codigo_cuenta = 'CARGA'")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO account.cuentas (id_tipo_cuenta, id_tasa_interes, codigo_cuenta, nombre, descripcion,"
+                        + " fecha_creacion, fecha_modificacion, estado, version)"
+                        + " VALUES ('CARGA', 'CARGA', 'CARGA', 'Cuenta de prueba de carga', 'Generada por GeneradorCarga', ?, ?, 'ACTIVO', 0)",
+                new String[] {"id_cuenta"})) {
+            Timestamp ahora = Timestamp.from(Instant.now());
+            ps.setTimestamp(1, ahora);
+            ps.setTimestamp(2, ahora);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static List<String> leerCuentas(String especificacion) throws IOException {
+        int guion = especificacion.indexOf('-');
+        if (guion > 0 && especificacion.chars().allMatch(c -> c == '-' || Character.isDigit(c))) {
+            long desde = Long.parseLong(especificacion.substring(0, guion));
+            long hasta = Long.parseLong(especificacion.substring(guion + 1));
+            List<String> cuentas = new ArrayList<>();
+            for (long n = desde; n <= hasta; n++) {
+                cuentas.add(String.format("%010d", n));
+            }
+            return cuentas;
+        }
+        return Files.readAllLines(Path.of(especificacion)).stream()
+                .map(String::trim)
+                .filter(linea -> !linea.isEmpty() && !linea.startsWith("#"))
+                .toList();
+    }
+
+    /** Expande los pesos en una tabla de 100 entradas para elegir la operación con un solo nextInt. */
+    private static Operacion[] leerMezcla(String mezcla) {
+        Map<Operacion, Integer> pesos = new LinkedHashMap<>();
+        int total = 0;
+        for (String parte : mezcla.split(",")) {
+            String[] kv = parte.split("=");
+            int peso = Integer.parseInt(kv[1].trim());
+            pesos.put(Operacion.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), peso);
+            total += peso;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("La mezcla debe tener al menos un peso positivo: " + mezcla);
+        }
+        List<Operacion> tabla = new ArrayList<>();
+        for (Map.Entry<Operacion, Integer> entrada : pesos.entrySet()) {
+            long casillas = Math.round(entrada.getValue() * 100.0 / total);
+            for (int i = 0; i < casillas; i++) {
+                tabla.add(entrada.getKey());
+            }
+        }
+        return tabla.toArray(Operacion[]::new);
+    }
+
+    private static void exportar(RegistroLatencias registro, Path archivo) throws IOException {
+        try (PrintStream hdr = new PrintStream(Files.newOutputStream(archivo))) {
+            for (String etiqueta : registro.etiquetas()) {
+                hdr.println("# " + etiqueta + " (ms)");
+                registro.exportar(etiqueta, hdr);
+            }
+        }
+        System.out.println("Distribuciones escritas en " + archivo.toAbsolutePath());
+    }
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Opción inválida: " + arg);
+            }
+            int igual = arg.indexOf('=');
+            if (igual < 0) {
+                opciones.put(arg.substring(2), "true");
+            } else {
+                opciones.put(arg.substring(2, igual), arg.substring(igual + 1));
+            }
+        }
+        return opciones;
+    }
+
+    private String opcion(String clave, String porDefecto) {
+        return opciones.getOrDefault(clave, porDefecto);
+    }
+
+    private boolean bandera(String clave) {
+        return Boolean.parseBoolean(opciones.getOrDefault(clave, "false"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.banquito.core.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramas HdrHistogram por etiqueta (tipo de petición o cola). Cada etiqueta
+ * tiene un Recorder que se vacía en cada reporte de intervalo y se acumula en un
+ * histograma total para el reporte final.
+ */
+final class RegistroLatencias {
+
+    private static final long MAXIMO_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<String, Serie> series = new ConcurrentHashMap<>();
+
+    void registrar(String etiqueta, long nanos) {
+        serie(etiqueta).recorder.recordValue(Math.min(Math.max(nanos, 0), MAXIMO_NANOS));
+    }
+
+    void error(String etiqueta) {
+        serie(etiqueta).errores.increment();
+    }
+
+    void descartada(String etiqueta) {
+        serie(etiqueta).descartadas.increment();
+    }
+
+    /** Olvida lo registrado hasta ahora; se usa al terminar el calentamiento. */
+    void reiniciar() {
+        for (Serie serie : series.values()) {
+            serie.intervalo = serie.recorder.getIntervalHistogram(serie.intervalo);
+            serie.total.reset();
+            serie.errores.reset();
+            serie.descartadas.reset();
+        }
+    }
+
+    void reportarIntervalo(PrintStream salida, double segundos) {
+        for (Map.Entry<String, Serie> entrada : new TreeMap<>(series).entrySet()) {
+            Serie serie = entrada.getValue();
+            serie.intervalo = serie.recorder.getIntervalHistogram(serie.intervalo);
+            serie.total.add(serie.intervalo);
+            Histogram h = serie.intervalo;
+            salida.printf(Locale.ROOT, "%-14s %8.1f/s  p50=%8.2fms p99=%8.2fms max=%8.2fms errores=%d%n",
+                    entrada.getKey(), h.getTotalCount() / segundos,
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(99)), ms(h.getMaxValue()),
+                    serie.errores.sum());
+        }
+    }
+
+    void reportarFinal(PrintStream salida, double segundos) {
+        salida.println("==== Resumen (" + Math.round(segundos) + " s medidos) ====");
+        for (Map.Entry<String, Serie> entrada : new TreeMap<>(series).entrySet()) {
+            Serie serie = entrada.getValue();
+            serie.intervalo = serie.recorder.getIntervalHistogram(serie.intervalo);
+            serie.total.add(serie.intervalo);
+            Histogram h = serie.total;
+            StringBuilder linea = new StringBuilder(String.format(Locale.ROOT, "%-14s n=%d (%.1f/s)",
+                    entrada.getKey(), h.getTotalCount(), h.getTotalCount() / segundos));
+            for (double p : PERCENTILES) {
+                linea.append(String.format(Locale.ROOT, " p%s=%.2fms", formato(p), ms(h.getValueAtPercentile(p))));
+            }
+            linea.append(String.format(Locale.ROOT, " max=%.2fms errores=%d descartadas=%d",
+                    ms(h.getMaxValue()), serie.errores.sum(), serie.descartadas.sum()));
+            salida.println(linea);
+        }
+    }
+
+    /** Distribución completa en formato HdrHistogram, para graficar con plotFiles.html. */
+    void exportar(String etiqueta, PrintStream salida) {
+        Serie serie = series.get(etiqueta);
+        if (serie != null) {
+            serie.total.outputPercentileDistribution(salida, 1_000_000.0);
+        }
+    }
+
+    Iterable<String> etiquetas() {
+        return new TreeMap<>(series).keySet();
+    }
+
+    private Serie serie(String etiqueta) {
+        return series.computeIfAbsent(etiqueta, e -> new Serie());
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String formato(double percentil) {
+        return percentil == Math.rint(percentil) ? String.valueOf((long) percentil) : String.valueOf(percentil);
+    }
+
+    private static final class Serie {
+        private final Recorder recorder = new Recorder(MAXIMO_NANOS, 3);
+        private final Histogram total = new Histogram(MAXIMO_NANOS, 3);
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder descartadas = new LongAdder();
+        private Histogram intervalo;
+    }
+}
@@ -0,0 +1,121 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.servicio.AlmacenSaldos;
+import com.banquito.core.cuentas.servicio.AlmacenSaldosMapeado;
+import com.banquito.core.cuentas.servicio.AlmacenSaldosMemoria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura y escritura de saldos por número de cuenta en el almacén en heap y
+ * en el mapeado a archivo, con el almacén ya cargado con "cuentas" cuentas.
+ * Las lecturas recorren números al azar, así que con millones de cuentas
+ * incluyen fallos de caché (y de TLB en el mapeado).
+ * <p>
+ * El heap con 10M cuentas necesita unos 3 GB: ejecutar con
+ * -p almacen=mapeado -p cuentas=10000000, o subir -Xmx.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx3g" })
+public class AlmacenSaldosBenchmark {
+
+    private static final int MUESTRA = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Datos {
+        @Param({ "memoria", "mapeado" })
+        String almacen;
+
+        @Param({ "1000000" })
+        int cuentas;
+
+        AlmacenSaldos saldos;
+        Path archivo;
+        String[] numeros;
+        SaldoCuentaDTO[] actualizaciones;
+        int siguiente;
+
+        @Setup
+        public void preparar() throws IOException {
+            if ("mapeado".equals(almacen)) {
+                archivo = Files.createTempFile("saldos-benchmark", ".dat");
+                Files.delete(archivo);
+                saldos = new AlmacenSaldosMapeado(archivo, cuentas, 0.75);
+            } else {
+                saldos = new AlmacenSaldosMemoria(cuentas);
+            }
+            Instant ahora = Instant.now();
+            for (int i = 0; i < cuentas; i++) {
+                saldos.guardar(saldo(numero(i), i, 1L, ahora), ahora.toEpochMilli());
+            }
+            SplittableRandom azar = new SplittableRandom(42);
+            numeros = new String[MUESTRA];
+            actualizaciones = new SaldoCuentaDTO[MUESTRA];
+            for (int i = 0; i < MUESTRA; i++) {
+                int cuenta = azar.nextInt(cuentas);
+                numeros[i] = numero(cuenta);
+                actualizaciones[i] = saldo(numeros[i], cuenta + 100, 2L + i, ahora);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws IOException {
+            if (saldos instanceof AlmacenSaldosMapeado mapeado) {
+                mapeado.close();
+                Files.deleteIfExists(archivo);
+            }
+        }
+
+        int indice() {
+            return siguiente++ & (MUESTRA - 1);
+        }
+
+        private static String numero(int cuenta) {
+            return String.format("%010d", 2_000_000_000L + cuenta);
+        }
+
+        private static SaldoCuentaDTO saldo(String numero, long centavos, long version, Instant fecha) {
+            return SaldoCuentaDTO.builder()
+                    .numeroCuenta(numero)
+                    .saldoDisponibleCentavos(centavos)
+                    .saldoContableCentavos(centavos)
+                    .estado(EstadoCuentaClienteEnum.ACTIVO)
+                    .version(version)
+                    .fechaActualizacion(fecha)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public AlmacenSaldos.EntradaSaldo leer(Datos datos) {
+        return datos.saldos.leer(datos.numeros[datos.indice()]);
+    }
+
+    @Benchmark
+    public SaldoCuentaDTO guardar(Datos datos) {
+        return datos.saldos.guardar(datos.actualizaciones[datos.indice()], 1L);
+    }
+}
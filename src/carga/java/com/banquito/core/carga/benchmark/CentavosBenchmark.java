@@ -0,0 +1,117 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.dto.EventoSaldoCuentaDTO;
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.servicio.ReglasTransaccion;
+import com.banquito.core.cuentas.servicio.TablaComisiones;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saldos en centavos frente a BigDecimal en los dos puntos calientes: la regla
+ * de saldo suficiente con la cuenta ya en el modelo de lectura y la lectura del
+ * evento de saldo que publica el MS2. "decimal" reproduce la forma anterior
+ * (BigDecimal.compareTo y campos BigDecimal en el evento).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CentavosBenchmark {
+
+    private static final byte[] EVENTO = ("{\"numeroCuenta\":\"1000000001\",\"saldoDisponible\":15230.75,"
+            + "\"saldoContable\":15480.75,\"estado\":\"ACTIVO\",\"version\":42}").getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Datos {
+        ReglasTransaccion reglas;
+        TransaccionesSolicitudDTO solicitud;
+        SaldoCuentaDTO origen;
+        SaldoDecimal origenDecimal;
+        ObjectReader lectorEvento;
+        ObjectReader lectorEventoDecimal;
+
+        @Setup
+        public void preparar() {
+            reglas = new ReglasTransaccion(new MetricasTransacciones(new SimpleMeterRegistry()),
+                    () -> TablaComisiones.VACIA);
+            solicitud = TransaccionesSolicitudDTO.builder()
+                    .numeroCuentaOrigen("1000000001")
+                    .tipoTransaccion(TipoTransaccionEnum.RETIRO)
+                    .monto(new BigDecimal("125.50"))
+                    .build();
+            origen = SaldoCuentaDTO.builder()
+                    .numeroCuenta("1000000001")
+                    .saldoDisponibleCentavos(1_523_075)
+                    .saldoContableCentavos(1_548_075)
+                    .estado(EstadoCuentaClienteEnum.ACTIVO)
+                    .version(42L)
+                    .build();
+            origenDecimal = new SaldoDecimal(new BigDecimal("15230.75"), EstadoCuentaClienteEnum.ACTIVO);
+            ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+            lectorEvento = mapper.readerFor(EventoSaldoCuentaDTO.class);
+            lectorEventoDecimal = mapper.readerFor(EventoDecimal.class);
+        }
+    }
+
+    record SaldoDecimal(BigDecimal saldoDisponible, EstadoCuentaClienteEnum estado) {
+    }
+
+    /** El evento de saldo tal como se leía antes, con BigDecimal. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class EventoDecimal {
+        public String numeroCuenta;
+        public BigDecimal saldoDisponible;
+        public BigDecimal saldoContable;
+        public EstadoCuentaClienteEnum estado;
+        public Long version;
+    }
+
+    @Benchmark
+    public boolean validarDecimal(Datos d) {
+        // Misma secuencia que la regla anterior: estado, monto > 0 y saldo suficiente
+        TransaccionesSolicitudDTO dto = d.solicitud;
+        return d.origenDecimal.estado() == EstadoCuentaClienteEnum.ACTIVO
+                && dto.getMonto().compareTo(BigDecimal.ZERO) > 0
+                && d.origenDecimal.saldoDisponible().compareTo(dto.getMonto()) >= 0;
+    }
+
+    @Benchmark
+    public boolean validarCentavos(Datos d) {
+        long monto = d.reglas.validarSolicitud(d.solicitud);
+        d.reglas.validarCuentas(d.solicitud, monto, d.origen, null);
+        return true;
+    }
+
+    @Benchmark
+    public EventoDecimal eventoDecimal(Datos d) throws Exception {
+        return d.lectorEventoDecimal.readValue(EVENTO);
+    }
+
+    @Benchmark
+    public EventoSaldoCuentaDTO eventoCentavos(Datos d) throws Exception {
+        return d.lectorEvento.readValue(EVENTO);
+    }
+}
@@ -0,0 +1,114 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.servicio.DiarioTransacciones;
+import com.banquito.core.cuentas.servicio.RegistroDiario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Escritura de una transferencia en el diario de transacciones desde 4 hilos,
+ * con la distribución de latencias (p99 y p99.9 en la salida de SampleTime).
+ * Los segmentos son de 64 MB para que la medición incluya rotaciones; con
+ * esperar=true cada escritura espera el msync compartido.
+ * <p>
+ * Lecturas de los últimos 50 movimientos de una cuenta con ~1000 registros.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class DiarioTransaccionesBenchmark {
+
+    private static final int CUENTAS = 1 << 12;
+
+    @State(Scope.Benchmark)
+    public static class Datos {
+        @Param({ "false" })
+        boolean esperar;
+
+        Path directorio;
+        DiarioTransacciones diario;
+        String[] numeros;
+        RegistroDiario[] registros;
+
+        @Setup
+        public void preparar() throws IOException {
+            directorio = Files.createTempDirectory("diario-benchmark");
+            diario = new DiarioTransacciones(directorio, 64 << 20, 4, 5);
+            numeros = new String[CUENTAS];
+            registros = new RegistroDiario[CUENTAS];
+            for (int i = 0; i < CUENTAS; i++) {
+                numeros[i] = String.format("%010d", 2_000_000_000L + i);
+            }
+            for (int i = 0; i < CUENTAS; i++) {
+                TransaccionesSolicitudDTO dto = TransaccionesSolicitudDTO.builder()
+                        .tipoTransaccion(TipoTransaccionEnum.TRANSFERENCIA)
+                        .numeroCuentaOrigen(numeros[i])
+                        .numeroCuentaDestino(numeros[(i + 1) % CUENTAS])
+                        .monto(new BigDecimal("125.50"))
+                        .descripcion("Pago de servicios")
+                        .build();
+                registros[i] = RegistroDiario.aceptada(UUID.randomUUID().toString(), dto, 0L);
+            }
+            for (int i = 0; i < 1000 * CUENTAS / 2; i++) {
+                agregar(i);
+            }
+        }
+
+        long agregar(int i) {
+            RegistroDiario registro = registros[i & (CUENTAS - 1)];
+            return diario.agregar(registro, esperar, registro.numeroCuentaOrigen(), registro.numeroCuentaDestino());
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws IOException {
+            diario.close();
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                for (Path archivo : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(archivo);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Hilo {
+        int siguiente;
+    }
+
+    @Benchmark
+    public long agregar(Datos datos, Hilo hilo) {
+        return datos.agregar(hilo.siguiente++);
+    }
+
+    @Benchmark
+    public List<RegistroDiario> ultimos(Datos datos, Hilo hilo) {
+        return datos.diario.ultimos(datos.numeros[hilo.siguiente++ & (CUENTAS - 1)], 50);
+    }
+}
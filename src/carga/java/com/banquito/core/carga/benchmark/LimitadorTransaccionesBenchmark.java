@@ -0,0 +1,79 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.config.LimitesTransaccionesPropiedades;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.resiliencia.LimitadorTransacciones;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del limitador en el camino admitido (el que pagan todas las peticiones):
+ * 10 000 cuentas repartidas entre hilos y una sola cuenta caliente compartida,
+ * que es el peor caso de contención del compareAndSet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LimitadorTransaccionesBenchmark {
+
+    private static final int CUENTAS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Limitador {
+        LimitadorTransacciones limitador;
+        String[] cuentas;
+
+        @Setup
+        public void preparar() {
+            LimitesTransaccionesPropiedades propiedades = new LimitesTransaccionesPropiedades();
+            propiedades.setHabilitado(true);
+            // Tasa y ráfaga (1 s de tolerancia) altas para medir siempre el camino admitido,
+            // aun con hilos desalojados por el planificador entre leer el reloj y el CAS
+            propiedades.getCuenta().put(TipoTransaccionEnum.RETIRO, limite(1e9, 1_000_000_000));
+            propiedades.getCliente().put(TipoTransaccionEnum.RETIRO, limite(1e9, 1_000_000_000));
+            limitador = new LimitadorTransacciones(propiedades, new SimpleMeterRegistry());
+            cuentas = new String[CUENTAS];
+            for (int i = 0; i < CUENTAS; i++) {
+                cuentas[i] = String.format("%010d", i);
+            }
+        }
+
+        private static LimitesTransaccionesPropiedades.Limite limite(double tasa, int rafaga) {
+            LimitesTransaccionesPropiedades.Limite limite = new LimitesTransaccionesPropiedades.Limite();
+            limite.setTasa(tasa);
+            limite.setRafaga(rafaga);
+            return limite;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Hilo {
+        int siguiente;
+    }
+
+    @Benchmark
+    public void cuentasDistintas(Limitador estado, Hilo hilo) {
+        String cuenta = estado.cuentas[hilo.siguiente++ % CUENTAS];
+        estado.limitador.verificar(TipoTransaccionEnum.RETIRO, cuenta, "cliente-carga");
+    }
+
+    @Benchmark
+    public void cuentaCaliente(Limitador estado) {
+        estado.limitador.verificar(TipoTransaccionEnum.RETIRO, "0000000001", "cliente-carga");
+    }
+}
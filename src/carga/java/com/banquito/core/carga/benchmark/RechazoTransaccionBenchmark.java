@@ -0,0 +1,111 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.dto.ErrorRespuestaDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.CrearEntidadExcepcion;
+import com.banquito.core.cuentas.excepcion.RechazoTransaccionExcepcion;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.servicio.ReglasTransaccion;
+import com.banquito.core.cuentas.servicio.TablaComisiones;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de CPU de rechazar una solicitud con monto inválido, desde la regla
+ * hasta los bytes del cuerpo 400. "antes" reproduce el camino anterior
+ * (CrearEntidadExcepcion con traza, mapa nuevo, Instant.now().toString() y el
+ * ObjectMapper genérico); "despues" usa la prevalidación de ReglasTransaccion,
+ * la excepción sin traza y ErrorRespuestaDTO con su escritor reutilizado.
+ * <p>
+ * La profundidad simula los marcos de Tomcat, filtros y Spring MVC que hay
+ * sobre el servicio, que son los que paga fillInStackTrace. No incluye las
+ * búsquedas de cuentas que el camino anterior hacía antes de revisar el monto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RechazoTransaccionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Rechazo {
+        @Param({ "20", "120" })
+        int profundidad;
+
+        ReglasTransaccion reglas;
+        ObjectMapper mapper;
+        ObjectWriter escritorError;
+        TransaccionesSolicitudDTO solicitud;
+
+        @Setup
+        public void preparar() {
+            reglas = new ReglasTransaccion(new MetricasTransacciones(new SimpleMeterRegistry()),
+                    () -> TablaComisiones.VACIA);
+            mapper = Jackson2ObjectMapperBuilder.json().build();
+            escritorError = mapper.writerFor(ErrorRespuestaDTO.class);
+            solicitud = TransaccionesSolicitudDTO.builder()
+                    .numeroCuentaOrigen("1000000001")
+                    .tipoTransaccion(TipoTransaccionEnum.RETIRO)
+                    .monto(BigDecimal.ZERO)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public byte[] antes(Rechazo r) throws Exception {
+        try {
+            apilar(r.profundidad, () -> {
+                throw new CrearEntidadExcepcion("Monto",
+                        "El monto debe ser mayor que cero. Monto recibido: " + r.solicitud.getMonto());
+            });
+            return null;
+        } catch (CrearEntidadExcepcion ex) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "VALIDACION_FALLIDA");
+            response.put("mensaje", ex.getMessage());
+            response.put("timestamp", Instant.now().toString());
+            response.put("status", 400);
+            return r.mapper.writeValueAsBytes(response);
+        }
+    }
+
+    @Benchmark
+    public byte[] despues(Rechazo r) throws Exception {
+        try {
+            apilar(r.profundidad, () -> r.reglas.validarSolicitud(r.solicitud));
+            return null;
+        } catch (RechazoTransaccionExcepcion ex) {
+            return r.escritorError.writeValueAsBytes(
+                    ErrorRespuestaDTO.de("VALIDACION_FALLIDA", ex.getMessage(), 400));
+        }
+    }
+
+    private static void apilar(int marcos, Runnable accion) {
+        if (marcos == 0) {
+            accion.run();
+            return;
+        }
+        apilar(marcos - 1, accion);
+    }
+}
@@ -0,0 +1,113 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.dto.TransaccionRespuestaAsincronaDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de la solicitud y escritura de la respuesta 202 del camino de
+ * transacciones. "generico" es lo que hacía el conversor de Jackson por defecto
+ * (ObjectMapper por reflexión y serializador de bean); "rapido" usa el
+ * ObjectMapper con Blackbird, el lector/escritor reutilizados del
+ * TransaccionesJsonConverter y el serializador con constantes precodificadas. Con -prof gc se obtienen también los bytes por
+ * operación (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionJsonBenchmark {
+
+    private static final byte[] SOLICITUD = ("{\"numeroCuentaOrigen\":\"1000000001\","
+            + "\"numeroCuentaDestino\":\"1000000002\",\"tipoTransaccion\":\"TRANSFERENCIA\","
+            + "\"monto\":125.50,\"descripcion\":\"Pago de servicios\"}").getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Mapeadores {
+        ObjectMapper generico;
+        ObjectReader lector;
+        ObjectWriter escritor;
+        TransaccionRespuestaAsincronaDTO respuesta;
+        RespuestaBean respuestaBean;
+
+        @Setup
+        public void preparar() {
+            // Mismos módulos que registra Spring Boot (parameter names, JSR-310)
+            generico = Jackson2ObjectMapperBuilder.json().build();
+            ObjectMapper rapido = Jackson2ObjectMapperBuilder.json().build().registerModule(new BlackbirdModule());
+            lector = rapido.readerFor(TransaccionesSolicitudDTO.class);
+            escritor = rapido.writerFor(TransaccionRespuestaAsincronaDTO.class);
+            respuesta = TransaccionRespuestaAsincronaDTO.builder()
+                    .mensaje(TransaccionRespuestaAsincronaDTO.MENSAJE_TRANSFERENCIA)
+                    .transaccionId("3f2b9c1e-7a4d-4e8f-9b21-5c6d7e8f9a0b")
+                    .estado(TransaccionRespuestaAsincronaDTO.EN_COLA)
+                    .tipoTransaccion(TipoTransaccionEnum.TRANSFERENCIA.name())
+                    .build();
+            respuestaBean = new RespuestaBean(respuesta);
+        }
+    }
+
+    /** Mismos campos que la respuesta, sin serializador propio. */
+    public static class RespuestaBean {
+        private final TransaccionRespuestaAsincronaDTO dto;
+
+        RespuestaBean(TransaccionRespuestaAsincronaDTO dto) {
+            this.dto = dto;
+        }
+
+        public String getMensaje() {
+            return dto.getMensaje();
+        }
+
+        public String getTransaccionId() {
+            return dto.getTransaccionId();
+        }
+
+        public String getEstado() {
+            return dto.getEstado();
+        }
+
+        public String getTipoTransaccion() {
+            return dto.getTipoTransaccion();
+        }
+    }
+
+    @Benchmark
+    public TransaccionesSolicitudDTO leerGenerico(Mapeadores m) throws Exception {
+        return m.generico.readValue(SOLICITUD, TransaccionesSolicitudDTO.class);
+    }
+
+    @Benchmark
+    public TransaccionesSolicitudDTO leerRapido(Mapeadores m) throws Exception {
+        return m.lector.readValue(SOLICITUD);
+    }
+
+    @Benchmark
+    public byte[] escribirGenerico(Mapeadores m) throws Exception {
+        return m.generico.writeValueAsBytes(m.respuestaBean);
+    }
+
+    @Benchmark
+    public byte[] escribirRapido(Mapeadores m) throws Exception {
+        return m.escritor.writeValueAsBytes(m.respuesta);
+    }
+}
@@ -0,0 +1,143 @@
+package com.banquito.core.carga.benchmark;
+
+import com.banquito.core.cuentas.config.FeignTransporteConfig;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Feign;
+import feign.Param;
+import feign.RequestLine;
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente Feign contra un servidor de prueba local que responde como el
+ * servicio de tipos de cuenta, desde 16 hilos. "defecto" es el cliente de
+ * Feign sobre HttpURLConnection (lo que había antes); "hc5" es el pool de
+ * FeignTransporteConfig con la configuración por defecto. retrasoMs simula el
+ * tiempo de respuesta del servicio remoto para que las conexiones queden
+ * ocupadas como en producción. Al terminar la variante hc5 se imprimen las
+ * conexiones que abrió el pool (cuentas.feign.conexiones.creadas); el cliente
+ * por defecto solo guarda 5 conexiones vivas por host (http.maxConnections) y
+ * con más hilos abre y cierra conexiones en cada ráfaga.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Sin TCP_NODELAY el servidor del JDK escribe cabeceras y cuerpo por separado y el ACK retardado suma ~40 ms
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@Threads(16)
+public class TransporteFeignBenchmark {
+
+    private static final byte[] RESPUESTA = ("{\"id\":\"TC01\",\"nombre\":\"Ahorros\",\"tipoCuenta\":\"AHORROS\","
+            + "\"estado\":\"ACTIVO\"}").getBytes(StandardCharsets.UTF_8);
+
+    /** Mismo contrato que TipoCuentaCliente, sin las anotaciones de Spring MVC. */
+    public interface TiposCuenta {
+        @RequestLine("GET /v1/tipos-cuentas/{id}")
+        String obtenerPorId(@Param("id") String id);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Servidor {
+        @org.openjdk.jmh.annotations.Param({ "defecto", "hc5" })
+        String transporte;
+
+        @org.openjdk.jmh.annotations.Param({ "0", "5" })
+        long retrasoMs;
+
+        HttpServer servidor;
+        ExecutorService atencion;
+        CloseableHttpClient httpClient;
+        TiposCuenta cliente;
+        SimpleMeterRegistry registry;
+
+        @Setup
+        public void preparar() throws IOException {
+            servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+            servidor.createContext("/v1/tipos-cuentas", intercambio -> {
+                try (intercambio) {
+                    if (retrasoMs > 0) {
+                        Thread.sleep(retrasoMs);
+                    }
+                    intercambio.getResponseHeaders().set("Content-Type", "application/json");
+                    intercambio.sendResponseHeaders(200, RESPUESTA.length);
+                    try (OutputStream cuerpo = intercambio.getResponseBody()) {
+                        cuerpo.write(RESPUESTA);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            atencion = Executors.newVirtualThreadPerTaskExecutor();
+            servidor.setExecutor(atencion);
+            servidor.start();
+
+            registry = new SimpleMeterRegistry();
+            Client client;
+            if ("hc5".equals(transporte)) {
+                FeignTransporteConfig config = new FeignTransporteConfig();
+                // Valores por defecto de application.properties
+                ReflectionTestUtils.setField(config, "maxConexiones", 200);
+                ReflectionTestUtils.setField(config, "maxConexionesPorHost", 50);
+                ReflectionTestUtils.setField(config, "ociosasSegundos", 30L);
+                ReflectionTestUtils.setField(config, "vidaMaximaSegundos", 300L);
+                ReflectionTestUtils.setField(config, "timeoutSocketMs", 5000L);
+                ReflectionTestUtils.setField(config, "dnsTtlSegundos", 30L);
+                HttpClientConnectionManager manager = config.feignConnectionManager(registry);
+                httpClient = HttpClients.custom()
+                        .setConnectionManager(manager)
+                        .evictIdleConnections(TimeValue.ofSeconds(30))
+                        .build();
+                client = new ApacheHttp5Client(httpClient);
+            } else {
+                client = new Client.Default(null, null);
+            }
+            cliente = Feign.builder()
+                    .client(client)
+                    .target(TiposCuenta.class, "http://localhost:" + servidor.getAddress().getPort());
+        }
+
+        @TearDown
+        public void cerrar() throws IOException {
+            if ("hc5".equals(transporte)) {
+                System.out.printf("%nConexiones creadas por el pool: %.0f%n",
+                        registry.get("cuentas.feign.conexiones.creadas").counter().count());
+                httpClient.close();
+            }
+            servidor.stop(0);
+            atencion.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public String obtenerTipoCuenta(Servidor servidor) {
+        return servidor.cliente.obtenerPorId("TC01");
+    }
+}
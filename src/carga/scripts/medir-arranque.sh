@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+# Mide el arranque de una imagen del servicio: tiempo hasta que /health responde
+# 200 y latencia de la primera y de la décima petición a un endpoint de lectura.
+#
+#   src/carga/scripts/medir-arranque.sh banquito-banco-cuentas:actual
+#   src/carga/scripts/medir-arranque.sh banquito-banco-cuentas:rapido
+#
+# Variables: PUERTO (8080), RUTA_LECTURA (/api/cuentas/v1/cuentas-clientes/numero-cuenta/9000000000),
+# REPETICIONES (5) y DOCKER_ARGS (p. ej. --env-file con la BD y el broker de pruebas).
+set -euo pipefail
+
+IMAGEN=${1:?uso: medir-arranque.sh <imagen>}
+PUERTO=${PUERTO:-8080}
+RUTA_LECTURA=${RUTA_LECTURA:-/api/cuentas/v1/cuentas-clientes/numero-cuenta/9000000000}
+REPETICIONES=${REPETICIONES:-5}
+BASE="http://localhost:${PUERTO}"
+
+ms() { echo $(( $(date +%s%N) / 1000000 )); }
+
+latencia() {
+  curl -s -o /dev/null -w '%{time_total}' "${BASE}${RUTA_LECTURA}" | awk '{ printf "%.1f", $1 * 1000 }'
+}
+
+printf 'imagen\tlisto_ms\tprimera_ms\tdecima_ms\n'
+for ((i = 1; i <= REPETICIONES; i++)); do
+  inicio=$(ms)
+  # shellcheck disable=SC2086
+  contenedor=$(docker run -d --rm -p "${PUERTO}:80" ${DOCKER_ARGS:-} "${IMAGEN}")
+  until curl -sf -o /dev/null "${BASE}/api/cuentas/health"; do
+    sleep 0.05
+  done
+  listo=$(( $(ms) - inicio ))
+  primera=$(latencia)
+  for ((j = 2; j < 10; j++)); do latencia > /dev/null; done
+  decima=$(latencia)
+  docker stop "${contenedor}" > /dev/null
+  printf '%s\t%d\t%s\t%s\n' "${IMAGEN}" "${listo}" "${primera}" "${decima}"
+done
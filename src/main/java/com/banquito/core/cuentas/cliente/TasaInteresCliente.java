@@ -1,5 +1,6 @@
 package com.banquito.core.cuentas.cliente;
 
+import com.banquito.core.cuentas.dto.TasaInteresDTO;
 import com.banquito.core.cuentas.dto.TasaInteresRespuestaDTO_IdOnly;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,4 +13,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 public interface TasaInteresCliente {
     @GetMapping("/v1/tasas-intereses/{id}")
     TasaInteresRespuestaDTO_IdOnly obtenerPorId(@PathVariable("id") String id);
+
+    // Mismo recurso con los datos de cálculo, para el devengo de intereses
+    @GetMapping("/v1/tasas-intereses/{id}")
+    TasaInteresDTO obtenerDetallePorId(@PathVariable("id") String id);
 }
@@ -1,14 +1,18 @@
 package com.banquito.core.cuentas.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Session;
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.jms.annotation.EnableJms;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
+import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
@@ -17,6 +21,9 @@ import org.springframework.jms.support.converter.MessageType;
 @EnableJms
 public class ActiveMQConfig {
 
+    /** Propiedad JMS con el tipo del cuerpo JSON, la que lee el conversor del MS2. */
+    public static final String PROPIEDAD_TIPO = "_type";
+
     @Value("${spring.activemq.broker-url:tcp://localhost:61616}")
     private String brokerUrl;
 
@@ -26,7 +33,11 @@ public class ActiveMQConfig {
     @Value("${spring.activemq.password:admin}")
     private String password;
 
+    @Value("${jms.productor.sesiones-cache:10}")
+    private int sesionesCache;
+
     @Bean
+    @Primary
     public ActiveMQConnectionFactory connectionFactory() {
         ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory();
         connectionFactory.setBrokerURL(brokerUrl);
@@ -36,19 +47,37 @@ public class ActiveMQConfig {
         return connectionFactory;
     }
 
+    /**
+     * Conexión compartida y sesiones/productores en caché para los envíos: sin esto
+     * JmsTemplate abre y cierra una conexión SSL al broker por mensaje. Los
+     * listeners siguen con la fábrica sin caché, que sus contenedores administran.
+     */
+    @Bean
+    public CachingConnectionFactory productorConnectionFactory() {
+        CachingConnectionFactory caching = new CachingConnectionFactory(connectionFactory());
+        caching.setSessionCacheSize(sesionesCache);
+        caching.setReconnectOnException(true);
+        return caching;
+    }
+
     @Bean
-    public JmsTemplate jmsTemplate() {
+    public JmsTemplate jmsTemplate(MappingJackson2MessageConverter jacksonJmsMessageConverter) {
         JmsTemplate template = new JmsTemplate();
-        template.setConnectionFactory(connectionFactory());
-        template.setMessageConverter(jacksonJmsMessageConverter());
+        template.setConnectionFactory(productorConnectionFactory());
+        template.setMessageConverter(jacksonJmsMessageConverter);
         return template;
     }
 
+    /**
+     * Usa el ObjectMapper de Spring (Blackbird, fechas java.time) en lugar del
+     * ObjectMapper propio que el conversor crea sin módulos.
+     */
     @Bean
-    public MappingJackson2MessageConverter jacksonJmsMessageConverter() {
+    public MappingJackson2MessageConverter jacksonJmsMessageConverter(ObjectMapper objectMapper) {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
         converter.setTargetType(MessageType.TEXT);
-        converter.setTypeIdPropertyName("_type");
+        converter.setTypeIdPropertyName(PROPIEDAD_TIPO);
         return converter;
     }
 
@@ -59,4 +88,28 @@ public class ActiveMQConfig {
         configurer.configure(factory, connectionFactory);
         return factory;
     }
+
+    /**
+     * Eventos de saldo: sin transacción y con DUPS_OK_ACKNOWLEDGE, que en ActiveMQ
+     * confirma por lotes. Un reenvío tras una caída solo repite eventos ya aplicados.
+     */
+    @Bean
+    public JmsListenerContainerFactory<?> saldosFactory(ConnectionFactory connectionFactory,
+                                                        DefaultJmsListenerContainerFactoryConfigurer configurer) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setSessionTransacted(false);
+        factory.setSessionAcknowledgeMode(Session.DUPS_OK_ACKNOWLEDGE);
+        return factory;
+    }
+
+    /** Listeners de tópicos (notificaciones entre instancias). */
+    @Bean
+    public JmsListenerContainerFactory<?> topicoFactory(ConnectionFactory connectionFactory,
+                                                        DefaultJmsListenerContainerFactoryConfigurer configurer) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPubSubDomain(true);
+        return factory;
+    }
 }
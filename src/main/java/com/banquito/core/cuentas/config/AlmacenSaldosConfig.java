@@ -0,0 +1,42 @@
+package com.banquito.core.cuentas.config;
+
+import com.banquito.core.cuentas.servicio.AlmacenSaldos;
+import com.banquito.core.cuentas.servicio.AlmacenSaldosMapeado;
+import com.banquito.core.cuentas.servicio.AlmacenSaldosMemoria;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Almacén del modelo de lectura de saldos según saldos.modelo.almacen:
+ * "memoria" (heap, se pierde al reiniciar) o "mapeado" (archivo mapeado fuera
+ * del heap, la instancia arranca con los saldos que tenía).
+ */
+@Configuration
+public class AlmacenSaldosConfig {
+
+    @Bean
+    public AlmacenSaldos almacenSaldos(
+            MeterRegistry registry,
+            @Value("${saldos.modelo.almacen:memoria}") String almacen,
+            @Value("${saldos.modelo.max-cuentas:1000000}") int maxCuentas,
+            @Value("${saldos.mapeado.archivo:./datos/saldos.dat}") String archivo,
+            @Value("${saldos.mapeado.max-cuentas:12000000}") long maxCuentasMapeado,
+            @Value("${saldos.mapeado.factor-carga:0.75}") double factorCarga) throws IOException {
+        if (!"mapeado".equalsIgnoreCase(almacen)) {
+            return new AlmacenSaldosMemoria(maxCuentas);
+        }
+        AlmacenSaldosMapeado mapeado = new AlmacenSaldosMapeado(Path.of(archivo), maxCuentasMapeado, factorCarga);
+        Gauge.builder("cuentas.saldos.modelo.bytes", mapeado, AlmacenSaldosMapeado::bytes)
+                .description("Tamaño del archivo mapeado del modelo de saldos")
+                .baseUnit("bytes")
+                .register(registry);
+        // Spring llama a close() al detenerse: baja las páginas a disco y marca el archivo limpio
+        return mapeado;
+    }
+}
@@ -0,0 +1,31 @@
+package com.banquito.core.cuentas.config;
+
+import com.banquito.core.cuentas.dto.EstadoDependenciaDTO;
+import com.banquito.core.cuentas.servicio.SaludDependenciasServicio;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/health con el resultado en caché de las sondas, en lugar de los
+ * indicadores db y jms de Spring Boot que consultan la BD y abren una conexión
+ * al broker en cada llamada (deshabilitados en application.properties).
+ */
+@Component
+public class DependenciasHealthIndicator implements HealthIndicator {
+
+    private final SaludDependenciasServicio salud;
+
+    public DependenciasHealthIndicator(SaludDependenciasServicio salud) {
+        this.salud = salud;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = salud.criticasDisponibles() ? Health.up() : Health.down();
+        for (EstadoDependenciaDTO estado : salud.estados()) {
+            builder.withDetail(estado.getDependencia(), estado);
+        }
+        return builder.build();
+    }
+}
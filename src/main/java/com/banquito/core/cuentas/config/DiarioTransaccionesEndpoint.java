@@ -0,0 +1,49 @@
+package com.banquito.core.cuentas.config;
+
+import com.banquito.core.cuentas.dto.MovimientoCuentaDTO;
+import com.banquito.core.cuentas.servicio.DiarioTransaccionesServicio;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * /actuator/diario/{numeroCuenta}: últimos movimientos de la cuenta en el diario
+ * local de ESTA instancia. Cada instancia solo ve lo que aceptó ella, así que no
+ * es el historial de la cuenta y no se publica en /v1; la respuesta dice qué
+ * instancia contestó. No viene en management.endpoints.web.exposure.include: se
+ * agrega para diagnosticar una instancia concreta, de preferencia con un
+ * management.server.port que no pase por el balanceador.
+ */
+@Component
+@Endpoint(id = "diario")
+public class DiarioTransaccionesEndpoint {
+
+    static final int LIMITE_DEFECTO = 50;
+    static final int LIMITE_MAXIMO = 500;
+
+    private final DiarioTransaccionesServicio diario;
+    private final String instancia;
+
+    public DiarioTransaccionesEndpoint(DiarioTransaccionesServicio diario) {
+        this.diario = diario;
+        this.instancia = Objects.requireNonNullElse(System.getenv("HOSTNAME"), "instancia");
+    }
+
+    /** Null (404) con el diario apagado. */
+    @ReadOperation
+    public MovimientosInstancia movimientos(@Selector String numeroCuenta, @Nullable Integer limite) {
+        if (!diario.habilitado()) {
+            return null;
+        }
+        int acotado = Math.max(1, Math.min(limite == null ? LIMITE_DEFECTO : limite, LIMITE_MAXIMO));
+        return new MovimientosInstancia(instancia, numeroCuenta, diario.movimientos(numeroCuenta, acotado));
+    }
+
+    public record MovimientosInstancia(String instancia, String numeroCuenta, List<MovimientoCuentaDTO> movimientos) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.banquito.core.cuentas.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Transporte HTTP de los clientes Feign: pool Apache HttpClient 5 con límites
+ * por host, expulsión de conexiones ociosas, caché DNS y métricas del pool.
+ * Con spring.cloud.openfeign.http2client.enabled=true (y hc5 deshabilitado)
+ * Feign usa en su lugar el cliente HTTP/2 del JDK.
+ */
+@Configuration
+@ConditionalOnProperty(value = "spring.cloud.openfeign.httpclient.hc5.enabled", matchIfMissing = true)
+public class FeignTransporteConfig {
+
+    @Value("${feign.transporte.max-conexiones:200}")
+    private int maxConexiones;
+
+    @Value("${feign.transporte.max-conexiones-por-host:50}")
+    private int maxConexionesPorHost;
+
+    @Value("${feign.transporte.ociosas-segundos:30}")
+    private long ociosasSegundos;
+
+    @Value("${feign.transporte.vida-maxima-segundos:300}")
+    private long vidaMaximaSegundos;
+
+    @Value("${feign.transporte.timeout-socket-ms:5000}")
+    private long timeoutSocketMs;
+
+    @Value("${feign.transporte.dns-ttl-segundos:30}")
+    private long dnsTtlSegundos;
+
+    @Bean
+    public HttpClientConnectionManager feignConnectionManager(MeterRegistry registry) {
+        Counter creadas = Counter.builder("cuentas.feign.conexiones.creadas")
+                .description("Conexiones HTTP abiertas por los clientes Feign")
+                .register(registry);
+
+        PoolingHttpClientConnectionManager manager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConexiones)
+                .setMaxConnPerRoute(maxConexionesPorHost)
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                // LIFO mantiene calientes pocas conexiones y deja expirar el resto
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setDnsResolver(new ResolutorDnsCache(dnsTtlSegundos))
+                .setConnectionFactory(new FabricaConexionesContadas(creadas))
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setSoTimeout(Timeout.ofMilliseconds(timeoutSocketMs))
+                        .setTcpNoDelay(true)
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setTimeToLive(TimeValue.ofSeconds(vidaMaximaSegundos))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(manager, "feign").bindTo(registry);
+        return manager;
+    }
+
+    @Bean
+    public HttpClient5FeignConfiguration.HttpClientBuilderCustomizer expulsionConexionesOciosas() {
+        return builder -> builder.evictIdleConnections(TimeValue.ofSeconds(ociosasSegundos));
+    }
+
+    /** Cuenta cada conexión física creada para exponer la tasa de recambio. */
+    private static final class FabricaConexionesContadas implements HttpConnectionFactory<ManagedHttpClientConnection> {
+
+        private final HttpConnectionFactory<ManagedHttpClientConnection> delegada = ManagedHttpClientConnectionFactory.INSTANCE;
+        private final Counter creadas;
+
+        private FabricaConexionesContadas(Counter creadas) {
+            this.creadas = creadas;
+        }
+
+        @Override
+        public ManagedHttpClientConnection createConnection(Socket socket) throws IOException {
+            creadas.increment();
+            return delegada.createConnection(socket);
+        }
+
+        @Override
+        public ManagedHttpClientConnection createConnection(SSLSocket sslSocket, Socket socket) throws IOException {
+            creadas.increment();
+            return delegada.createConnection(sslSocket, socket);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.banquito.core.cuentas.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Marca como perezosos los beans que no están en el camino de las transacciones
+ * (por defecto springdoc/Swagger): se crean con la primera petición que los usa
+ * y no en el arranque. Un bean con @Lazy(false) explícito se respeta. Con AOT la
+ * marca queda registrada en las definiciones generadas en el build.
+ */
+@Configuration(proxyBeanMethods = false)
+public class InicializacionDiferidaConfig {
+
+    @Bean
+    static BeanFactoryPostProcessor inicializacionDiferida(Environment env) {
+        List<String> paquetes = List.of(env.getProperty("arranque.diferido.paquetes", String[].class,
+                new String[] { "org.springdoc." }));
+        return beanFactory -> {
+            for (String nombre : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definicion = beanFactory.getBeanDefinition(nombre);
+                if (definicion instanceof AbstractBeanDefinition abstracta && abstracta.getLazyInit() == null
+                        && diferible(definicion, paquetes)) {
+                    definicion.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    private static boolean diferible(BeanDefinition definicion, List<String> paquetes) {
+        String clase = definicion.getBeanClassName();
+        if (clase == null) {
+            // Bean de método @Bean: se decide por el tipo que devuelve
+            clase = definicion.getResolvableType().toClass().getName();
+        }
+        for (String paquete : paquetes) {
+            if (clase.startsWith(paquete)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.banquito.core.cuentas.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Módulos del ObjectMapper de Spring (HTTP, listeners y mensajes JMS): Blackbird
+ * reemplaza los getters, setters y constructores invocados por reflexión con
+ * accesores generados en tiempo de ejecución.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
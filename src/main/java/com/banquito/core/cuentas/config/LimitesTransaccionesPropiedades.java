@@ -0,0 +1,55 @@
+package com.banquito.core.cuentas.config;
+
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Límites de tasa de los endpoints de transacciones, por tipo de transacción:
+ * <pre>
+ * limites.transacciones.cuenta.RETIRO.tasa=5
+ * limites.transacciones.cuenta.RETIRO.rafaga=10
+ * limites.transacciones.cliente.DEPOSITO.tasa=200
+ * </pre>
+ * Un tipo sin entrada no se limita en esa dimensión. Viene apagado: detrás del
+ * gateway todas las peticiones llegan con la misma IP remota, así que el cliente
+ * se identifica por el usuario autenticado o por cabecera-cliente y, sin
+ * ninguno de los dos, solo rige el límite por cuenta.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "limites.transacciones")
+public class LimitesTransaccionesPropiedades {
+
+    private boolean habilitado = false;
+
+    /**
+     * Cabecera con el id del cliente que pone el gateway (p. ej. X-Client-Id). Solo
+     * debe configurarse si el gateway la sobrescribe siempre: el servicio no puede
+     * distinguir un valor propio del gateway de uno enviado por quien llama.
+     */
+    private String cabeceraCliente;
+
+    /** Máximo de cubetas por regla; las ociosas se expulsan al llegar al tope. */
+    private int maxClaves = 200_000;
+
+    private long expulsionMs = 30_000;
+
+    /** Límites por numeroCuentaOrigen. */
+    private Map<TipoTransaccionEnum, Limite> cuenta = new EnumMap<>(TipoTransaccionEnum.class);
+
+    /** Límites por cliente de la API: usuario autenticado o valor de cabecera-cliente. */
+    private Map<TipoTransaccionEnum, Limite> cliente = new EnumMap<>(TipoTransaccionEnum.class);
+
+    @Data
+    public static class Limite {
+        /** Peticiones por segundo sostenidas. */
+        private double tasa;
+        /** Peticiones seguidas admitidas con la cubeta llena. */
+        private int rafaga = 1;
+    }
+}
@@ -0,0 +1,60 @@
+package com.banquito.core.cuentas.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Filtro de logback que muestrea los eventos INFO/DEBUG del camino de éxito
+ * de las transacciones. WARN y ERROR (rechazos, fallos de cola) siempre pasan.
+ * Si el evento trae transaccionId en el MDC la decisión se toma por su hash,
+ * de modo que una transacción muestreada conserva todas sus líneas.
+ */
+public class MuestreoLogFiltro extends Filter<ILoggingEvent> {
+
+    public static final String MDC_TRANSACCION_ID = "transaccionId";
+
+    private final List<String> prefijos = new ArrayList<>();
+    private double tasa = 1.0;
+    private int umbral = Integer.MAX_VALUE;
+
+    public void setTasa(double tasa) {
+        this.tasa = tasa;
+        this.umbral = (int) Math.round(Math.max(0.0, Math.min(1.0, tasa)) * Integer.MAX_VALUE);
+    }
+
+    /** Prefijos de logger separados por coma a los que aplica el muestreo. */
+    public void setLoggers(String loggers) {
+        for (String prefijo : loggers.split(",")) {
+            if (!prefijo.isBlank()) {
+                prefijos.add(prefijo.trim());
+            }
+        }
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (tasa >= 1.0 || event.getLevel().isGreaterOrEqual(Level.WARN) || !aplica(event.getLoggerName())) {
+            return FilterReply.NEUTRAL;
+        }
+        String transaccionId = event.getMDCPropertyMap().get(MDC_TRANSACCION_ID);
+        int muestra = transaccionId != null
+                ? (transaccionId.hashCode() * 0x9E3779B9) >>> 1
+                : ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        return muestra < umbral ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean aplica(String logger) {
+        for (int i = 0; i < prefijos.size(); i++) {
+            if (logger.startsWith(prefijos.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
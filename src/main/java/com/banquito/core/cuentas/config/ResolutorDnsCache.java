@@ -0,0 +1,65 @@
+package com.banquito.core.cuentas.config;
+
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolutor DNS con caché de TTL corto para los clientes Feign.
+ * El ALB rota sus IPs, por lo que el TTL debe ser bajo; además se rotan
+ * las direcciones devueltas para repartir conexiones nuevas entre nodos del ALB.
+ */
+public class ResolutorDnsCache implements DnsResolver {
+
+    private final long ttlNanos;
+    private final Map<String, Entrada> cache = new ConcurrentHashMap<>();
+
+    public ResolutorDnsCache(long ttlSegundos) {
+        this.ttlNanos = ttlSegundos * 1_000_000_000L;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long ahora = System.nanoTime();
+        Entrada entrada = cache.get(host);
+        if (entrada == null || ahora - entrada.resuelto > ttlNanos) {
+            entrada = new Entrada(SystemDefaultDnsResolver.INSTANCE.resolve(host), ahora);
+            cache.put(host, entrada);
+        }
+        return entrada.rotar();
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+    }
+
+    private static final class Entrada {
+        private final InetAddress[] direcciones;
+        private final long resuelto;
+        private final AtomicInteger siguiente = new AtomicInteger();
+
+        private Entrada(InetAddress[] direcciones, long resuelto) {
+            this.direcciones = direcciones;
+            this.resuelto = resuelto;
+        }
+
+        InetAddress[] rotar() {
+            int n = direcciones.length;
+            if (n <= 1) {
+                return direcciones.clone();
+            }
+            int inicio = Math.floorMod(siguiente.getAndIncrement(), n);
+            InetAddress[] rotadas = new InetAddress[n];
+            for (int i = 0; i < n; i++) {
+                rotadas[i] = direcciones[(inicio + i) % n];
+            }
+            return rotadas;
+        }
+    }
+}
@@ -38,7 +38,7 @@ public class SecurityConfig {
         cfg.setAllowedOriginPatterns(List.of("*")); // o lista concreta: "http://localhost:5173", "https://tu-dominio"
         cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         cfg.setAllowedHeaders(List.of("*"));
-        cfg.setExposedHeaders(List.of("Content-Disposition"));
+        cfg.setExposedHeaders(List.of("Content-Disposition", "Retry-After", "ETag"));
         cfg.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource src = new UrlBasedCorsConfigurationSource();
         src.registerCorsConfiguration("/**", cfg);
@@ -0,0 +1,73 @@
+package com.banquito.core.cuentas.config;
+
+import com.banquito.core.cuentas.dto.ErrorRespuestaDTO;
+import com.banquito.core.cuentas.dto.TransaccionRespuestaAsincronaDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Conversor del camino de transacciones: lee TransaccionesSolicitudDTO y escribe
+ * TransaccionRespuestaAsincronaDTO (y ErrorRespuestaDTO, el cuerpo de los
+ * rechazos) con un ObjectReader y ObjectWriters creados una sola vez sobre el
+ * ObjectMapper de Spring, en lugar de resolverlos por petición como el
+ * conversor genérico de Jackson. La respuesta se serializa a bytes y sale con
+ * Content-Length en una sola escritura.
+ */
+public class TransaccionesJsonConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final ObjectReader lector;
+    private final ObjectWriter escritor;
+    private final ObjectWriter escritorError;
+
+    public TransaccionesJsonConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.lector = objectMapper.readerFor(TransaccionesSolicitudDTO.class)
+                .without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        this.escritor = objectMapper.writerFor(TransaccionRespuestaAsincronaDTO.class);
+        this.escritorError = objectMapper.writerFor(ErrorRespuestaDTO.class);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == TransaccionesSolicitudDTO.class || clazz == TransaccionRespuestaAsincronaDTO.class
+                || clazz == ErrorRespuestaDTO.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == TransaccionesSolicitudDTO.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return (clazz == TransaccionRespuestaAsincronaDTO.class || clazz == ErrorRespuestaDTO.class)
+                && canWrite(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return lector.readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object respuesta, HttpOutputMessage outputMessage) throws IOException {
+        byte[] json = (respuesta instanceof ErrorRespuestaDTO ? escritorError : escritor).writeValueAsBytes(respuesta);
+        outputMessage.getHeaders().setContentLength(json.length);
+        outputMessage.getBody().write(json);
+    }
+}
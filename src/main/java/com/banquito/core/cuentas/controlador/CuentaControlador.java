@@ -3,19 +3,24 @@ package com.banquito.core.cuentas.controlador;
 import com.banquito.core.cuentas.dto.CuentaRespuestaDTO;
 import com.banquito.core.cuentas.dto.CuentaSolicitudDTO;
 import com.banquito.core.cuentas.servicio.CuentaServicio;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/v1/cuentas")
@@ -24,30 +29,41 @@ import java.util.List;
 public class CuentaControlador {
 
   private final CuentaServicio servicio;
+  private final ListaJsonStreaming<CuentaRespuestaDTO> listaCuentas;
 
-  public CuentaControlador(CuentaServicio servicio) {
+  public CuentaControlador(CuentaServicio servicio, ObjectMapper objectMapper) {
     this.servicio = servicio;
+    this.listaCuentas = new ListaJsonStreaming<>(objectMapper, CuentaRespuestaDTO.class);
   }
 
-  @Operation(summary = "Listar todas las cuentas", description = "Devuelve todas las cuentas registradas")
-  @ApiResponse(responseCode = "200", description = "Listado exitoso")
+  @Operation(summary = "Listar todas las cuentas", description = "Devuelve todas las cuentas registradas (se escriben a medida que se leen)")
+  @ApiResponse(responseCode = "200", description = "Listado exitoso", content = @Content(array = @ArraySchema(schema = @Schema(implementation = CuentaRespuestaDTO.class))))
   @GetMapping
-  public ResponseEntity<List<CuentaRespuestaDTO>> listarTodas() {
+  public void listarTodas(HttpServletResponse response) throws IOException {
     log.info("GET /api/cuentas/v1/cuentas - listar todas");
-    return ResponseEntity.ok(servicio.listarTodas());
+    listaCuentas.escribir(response, servicio::recorrerTodas);
   }
 
   @Operation(summary = "Obtener cuenta por ID", description = "Devuelve los datos de una cuenta existente")
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta encontrada", content = @Content(schema = @Schema(implementation = CuentaRespuestaDTO.class))),
+      @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado en If-None-Match"),
       @ApiResponse(responseCode = "404", description = "Cuenta no encontrada")
   })
   @GetMapping("/{id}")
   public ResponseEntity<CuentaRespuestaDTO> obtenerPorId(
-      @Parameter(description = "ID de la cuenta", required = true) @PathVariable Integer id) {
+      @Parameter(description = "ID de la cuenta", required = true) @PathVariable Integer id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     log.info("GET /api/cuentas/v1/cuentas/{} - obtener cuenta", id);
+    // Con If-None-Match basta la versión para responder 304, sin armar el DTO ni llamar a los catálogos
+    if (ifNoneMatch != null) {
+      String etag = EtagVersion.de(id, servicio.version(id));
+      if (EtagVersion.coincide(ifNoneMatch, etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+    }
     CuentaRespuestaDTO dto = servicio.obtener(id);
-    return ResponseEntity.ok(dto);
+    return ResponseEntity.ok().eTag(EtagVersion.de(dto.getId(), dto.getVersion())).body(dto);
   }
 
   @Operation(summary = "Crear nueva cuenta", description = "Registra una nueva cuenta bancaria")
@@ -67,15 +83,18 @@ public class CuentaControlador {
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta actualizada"),
       @ApiResponse(responseCode = "404", description = "Cuenta no encontrada"),
-      @ApiResponse(responseCode = "400", description = "Solicitud inválida")
+      @ApiResponse(responseCode = "400", description = "Solicitud inválida"),
+      @ApiResponse(responseCode = "412", description = "La cuenta cambió desde el ETag enviado en If-Match")
   })
   @PutMapping("/{id}")
   public ResponseEntity<CuentaRespuestaDTO> actualizar(
       @Parameter(description = "ID de la cuenta", required = true) @PathVariable Integer id,
-      @Parameter(description = "Datos a actualizar", required = true) @Valid @RequestBody CuentaSolicitudDTO solicitud) {
+      @Parameter(description = "Datos a actualizar", required = true) @Valid @RequestBody CuentaSolicitudDTO solicitud,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     log.info("PUT /api/cuentas/v1/cuentas/{} - actualizar cuenta", id);
-    CuentaRespuestaDTO actualizado = servicio.actualizar(id, solicitud);
-    return ResponseEntity.ok(actualizado);
+    CuentaRespuestaDTO actualizado = servicio.actualizar(id, solicitud,
+        EtagVersion.versionEsperada(ifMatch, "Cuentas", id));
+    return ResponseEntity.ok().eTag(EtagVersion.de(actualizado.getId(), actualizado.getVersion())).body(actualizado);
   }
 
   @Operation(summary = "Eliminar cuenta (lógico)", description = "Marca la cuenta como eliminada")
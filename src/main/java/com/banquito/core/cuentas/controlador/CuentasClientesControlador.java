@@ -2,23 +2,32 @@ package com.banquito.core.cuentas.controlador;
 
 import com.banquito.core.cuentas.dto.CuentasClientesRespuestaDTO;
 import com.banquito.core.cuentas.dto.CuentasClientesSolicitudDTO;
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
 
 import com.banquito.core.cuentas.mapper.CuentasClientesMapper;
 import com.banquito.core.cuentas.modelo.CuentasClientes;
+import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
 import com.banquito.core.cuentas.servicio.CuentasClientesServicio;
+import com.banquito.core.cuentas.servicio.SaldosCuentasServicio;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.*;
+import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/cuentas-clientes")
@@ -27,18 +36,23 @@ import java.util.*;
 public class CuentasClientesControlador {
 
   private final CuentasClientesServicio service;
+  private final SaldosCuentasServicio saldos;
+  private final ListaJsonStreaming<CuentasClientesRespuestaDTO> listaCuentasClientes;
 
-  public CuentasClientesControlador(CuentasClientesServicio service) {
+  public CuentasClientesControlador(CuentasClientesServicio service, SaldosCuentasServicio saldos,
+      ObjectMapper objectMapper) {
     this.service = service;
+    this.saldos = saldos;
+    this.listaCuentasClientes = new ListaJsonStreaming<>(objectMapper, CuentasClientesRespuestaDTO.class);
   }
 
 
+  @ApiResponse(responseCode = "200", description = "Cuentas del cliente", content = @Content(array = @ArraySchema(schema = @Schema(implementation = CuentasClientesRespuestaDTO.class))))
   @GetMapping("/cliente/{idCliente}")
-  public ResponseEntity<List<CuentasClientesRespuestaDTO>> listarPorCliente(@PathVariable String idCliente) {
-    var lista = service.listarPorIdCliente(idCliente).stream()
-        .map(CuentasClientesMapper::toCuentasClientesRespuestaDTO)
-        .toList();
-    return ResponseEntity.ok(lista);
+  public void listarPorCliente(@PathVariable String idCliente, HttpServletResponse response) throws IOException {
+    List<CuentasClientes> cuentas = service.buscarPorIdCliente(idCliente);
+    listaCuentasClientes.escribir(response, destino -> cuentas.forEach(
+        cuenta -> destino.accept(CuentasClientesMapper.toCuentasClientesRespuestaDTO(cuenta))));
   }
 
 
@@ -46,27 +60,55 @@ public class CuentasClientesControlador {
   @Operation(summary = "Obtener cuenta-cliente por ID", description = "Devuelve los datos de la cuenta-cliente especificada por su ID")
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta-cliente encontrada", content = @Content(schema = @Schema(implementation = CuentasClientesRespuestaDTO.class))),
+      @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado en If-None-Match"),
       @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente")
   })
   @GetMapping("/{id}")
   public ResponseEntity<CuentasClientesRespuestaDTO> obtenerPorId(
-      @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id) {
+      @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     log.info("GET /api/cuentas/v1/cuentas-clientes/{} - obtener por ID", id);
-    CuentasClientes entidad = service.buscarPorId(id);
-    return ResponseEntity.ok(CuentasClientesMapper.toCuentasClientesRespuestaDTO(entidad));
+    if (ifNoneMatch != null) {
+      String etag = etag(service.versionesPorId(id));
+      if (EtagVersion.coincide(ifNoneMatch, etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+    }
+    return respuesta(service.buscarPorId(id));
   }
 
   @Operation(summary = "Obtener cuenta-cliente por número de cuenta", description = "Devuelve los datos de la cuenta-cliente a partir de su número de cuenta")
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta-cliente encontrada", content = @Content(schema = @Schema(implementation = CuentasClientesRespuestaDTO.class))),
+      @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado en If-None-Match"),
       @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente")
   })
   @GetMapping("/numero-cuenta/{numeroCuenta}")
   public ResponseEntity<CuentasClientesRespuestaDTO> obtenerPorNumeroCuenta(
-      @Parameter(description = "Número de cuenta", required = true) @PathVariable String numeroCuenta) {
+      @Parameter(description = "Número de cuenta", required = true) @PathVariable String numeroCuenta,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     log.info("GET /api/cuentas/v1/cuentas-clientes/numero-cuenta/{} - obtener por número", numeroCuenta);
-    CuentasClientes entidad = service.buscarPorNumeroCuenta(numeroCuenta);
-    return ResponseEntity.ok(CuentasClientesMapper.toCuentasClientesRespuestaDTO(entidad));
+    // Sondeo de tableros: con If-None-Match basta una consulta de versiones para el 304
+    if (ifNoneMatch != null) {
+      String etag = etag(service.versionesPorNumeroCuenta(numeroCuenta));
+      if (EtagVersion.coincide(ifNoneMatch, etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+    }
+    return respuesta(service.buscarPorNumeroCuenta(numeroCuenta));
+  }
+
+  @Operation(summary = "Obtener saldo por número de cuenta", description = "Saldos y estado de la cuenta servidos desde el modelo de lectura (actualizado por eventos del MS2)")
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "Saldo encontrado", content = @Content(schema = @Schema(implementation = SaldoCuentaDTO.class))),
+      @ApiResponse(responseCode = "404", description = "No se encontró la cuenta")
+  })
+  @GetMapping("/numero-cuenta/{numeroCuenta}/saldo")
+  public ResponseEntity<SaldoCuentaDTO> obtenerSaldo(
+      @Parameter(description = "Número de cuenta", required = true) @PathVariable String numeroCuenta) {
+    return saldos.obtener(numeroCuenta)
+        .map(ResponseEntity::ok)
+        .orElseThrow(() -> new EntidadNoEncontradaExcepcion("Cuenta", "Número de cuenta " + numeroCuenta + " no encontrada"));
   }
 
   @Operation(summary = "Obtener cuenta-cliente por cliente y número", description = "Devuelve la cuenta-cliente filtrando por ID de cliente y número de cuenta")
@@ -104,42 +146,61 @@ public class CuentasClientesControlador {
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta-cliente actualizada", content = @Content(schema = @Schema(implementation = CuentasClientesRespuestaDTO.class))),
       @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente"),
-      @ApiResponse(responseCode = "400", description = "Datos inválidos")
+      @ApiResponse(responseCode = "400", description = "Datos inválidos"),
+      @ApiResponse(responseCode = "412", description = "La cuenta-cliente cambió desde el ETag enviado en If-Match")
   })
   @PutMapping("/{id}")
   public ResponseEntity<CuentasClientesRespuestaDTO> actualizar(
       @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id,
-      @Parameter(description = "Payload con datos a actualizar", required = true) @Valid @RequestBody CuentasClientesSolicitudDTO dto) {
+      @Parameter(description = "Payload con datos a actualizar", required = true) @Valid @RequestBody CuentasClientesSolicitudDTO dto,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     log.info("PUT /api/cuentas/v1/cuentas-clientes/{} - actualizar", id);
     CuentasClientes entidad = CuentasClientesMapper.toCuentasClientes(dto);
-    CuentasClientes actualizado = service.actualizarCuentasClientes(id, entidad);
-    return ResponseEntity.ok(CuentasClientesMapper.toCuentasClientesRespuestaDTO(actualizado));
+    CuentasClientes actualizado = service.actualizarCuentasClientes(id, entidad,
+        EtagVersion.versionEsperada(ifMatch, "CuentasClientes", id));
+    return respuesta(actualizado);
   }
 
   @Operation(summary = "Desactivar cuenta-cliente", description = "Marca la cuenta-cliente como inactiva")
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta-cliente desactivada"),
-      @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente")
+      @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente"),
+      @ApiResponse(responseCode = "412", description = "La cuenta-cliente cambió desde el ETag enviado en If-Match")
   })
   @PutMapping("/{id}/desactivar")
   public ResponseEntity<CuentasClientesRespuestaDTO> desactivar(
-      @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id) {
+      @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     log.info("PUT /api/cuentas/v1/cuentas-clientes/{}/desactivar", id);
-    CuentasClientes desactivada = service.desactivarCuentasClientes(id);
-    return ResponseEntity.ok(CuentasClientesMapper.toCuentasClientesRespuestaDTO(desactivada));
+    CuentasClientes desactivada = service.desactivarCuentasClientes(id,
+        EtagVersion.versionEsperada(ifMatch, "CuentasClientes", id));
+    return respuesta(desactivada);
   }
 
   @Operation(summary = "Activar cuenta-cliente", description = "Marca la cuenta-cliente como activa")
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Cuenta-cliente activada"),
-      @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente")
+      @ApiResponse(responseCode = "404", description = "No se encontró la cuenta-cliente"),
+      @ApiResponse(responseCode = "412", description = "La cuenta-cliente cambió desde el ETag enviado en If-Match")
   })
   @PutMapping("/{id}/activar")
   public ResponseEntity<CuentasClientesRespuestaDTO> activar(
-      @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id) {
+      @Parameter(description = "ID de la cuenta-cliente", required = true) @PathVariable Integer id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     log.info("PUT /api/cuentas/v1/cuentas-clientes/{}/activar", id);
-    CuentasClientes activada = service.activarCuentasClientes(id);
-    return ResponseEntity.ok(CuentasClientesMapper.toCuentasClientesRespuestaDTO(activada));
+    CuentasClientes activada = service.activarCuentasClientes(id,
+        EtagVersion.versionEsperada(ifMatch, "CuentasClientes", id));
+    return respuesta(activada);
+  }
+
+  private ResponseEntity<CuentasClientesRespuestaDTO> respuesta(CuentasClientes entidad) {
+    return ResponseEntity.ok()
+        .eTag(EtagVersion.de(entidad.getId(), entidad.getVersion(), entidad.getIdCuenta().getVersion()))
+        .body(CuentasClientesMapper.toCuentasClientesRespuestaDTO(entidad));
+  }
+
+  private static String etag(CuentasClientesRepositorio.Versiones versiones) {
+    return EtagVersion.de(versiones.getId(), versiones.getVersion(), versiones.getVersionCuenta());
   }
 
 }
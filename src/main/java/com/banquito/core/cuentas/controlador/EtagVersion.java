@@ -0,0 +1,65 @@
+package com.banquito.core.cuentas.controlador;
+
+import com.banquito.core.cuentas.excepcion.PrecondicionFallidaExcepcion;
+
+/**
+ * ETags fuertes de las entidades versionadas: "id-version" y, en cuentas-clientes,
+ * "id-version-versionCuenta" porque la respuesta incluye código y nombre de la
+ * cuenta maestra. La versión es el @Version de JPA, así que todo cambio guardado
+ * produce otra etiqueta; los catálogos remotos (tipo de cuenta, tasa) no entran.
+ */
+final class EtagVersion {
+
+    private EtagVersion() {
+    }
+
+    static String de(Integer id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    static String de(Integer id, Long version, Long versionCuenta) {
+        return "\"" + id + "-" + version + "-" + versionCuenta + "\"";
+    }
+
+    /** If-None-Match con comparación débil: "*" o alguna etiqueta igual, con o sin W/. */
+    static boolean coincide(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        for (String etiqueta : ifNoneMatch.split(",")) {
+            etiqueta = etiqueta.trim();
+            if (etiqueta.startsWith("W/")) {
+                etiqueta = etiqueta.substring(2);
+            }
+            if (etiqueta.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Versión exigida por If-Match, o null sin cabecera o con "*". If-Match usa
+     * comparación fuerte: una etiqueta débil (W/) o de otra entidad da 412.
+     */
+    static Long versionEsperada(String ifMatch, String entidad, Integer id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        for (String etiqueta : ifMatch.split(",")) {
+            etiqueta = etiqueta.trim();
+            if (etiqueta.length() < 2 || etiqueta.charAt(0) != '"' || etiqueta.charAt(etiqueta.length() - 1) != '"') {
+                continue;
+            }
+            String[] partes = etiqueta.substring(1, etiqueta.length() - 1).split("-");
+            if (partes.length >= 2 && partes[0].equals(String.valueOf(id))) {
+                try {
+                    return Long.valueOf(partes[1]);
+                } catch (NumberFormatException e) {
+                    // Etiqueta ajena: se siguen revisando las demás
+                }
+            }
+        }
+        throw new PrecondicionFallidaExcepcion(entidad, "If-Match " + ifMatch + " no corresponde a la entidad " + id);
+    }
+}
@@ -1,37 +1,72 @@
 package com.banquito.core.cuentas.controlador;
 
+import com.banquito.core.cuentas.dto.EstadoDependenciaDTO;
+import com.banquito.core.cuentas.servicio.SaludDependenciasServicio;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 public class HomeController {
 
-    @Autowired
-    JdbcTemplate jdbcTemplate;
-
     /// CHECK THE STATUS OF SERVER IS OK
     @GetMapping
     public ResponseEntity<String> home() {
         return new ResponseEntity<>("Welcome to CUENTAS TRANSACTIONAL project, SERVER ✅", HttpStatus.OK);
     }
 
-    /// SIMPLE HEALTHCHECK FOR ALB
+    @Autowired
+    ApplicationAvailability availability;
+
+    @Autowired
+    SaludDependenciasServicio salud;
+
+    /// SIMPLE HEALTHCHECK FOR ALB (readiness: 503 durante el calentamiento o con la BD/broker caídos)
     @GetMapping("/health")
     public ResponseEntity<String> health() {
+        if (availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            return new ResponseEntity<>("WARMING UP", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (!salud.criticasDisponibles()) {
+            return new ResponseEntity<>("DEPENDENCIES DOWN", HttpStatus.SERVICE_UNAVAILABLE);
+        }
         return ResponseEntity.ok("OK");
     }
 
-    /// CHECK THE STATUS OF DB IS OK
+    /// LIVENESS: solo el proceso; una dependencia caída no se arregla reiniciando
+    @GetMapping("/health/liveness")
+    public ResponseEntity<String> liveness() {
+        if (availability.getLivenessState() != LivenessState.CORRECT) {
+            return new ResponseEntity<>("BROKEN", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.ok("OK");
+    }
+
+    /// READINESS con el detalle de las dependencias (resultado en caché de las sondas)
+    @GetMapping("/health/readiness")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        boolean calentado = availability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC;
+        boolean listo = calentado && salud.criticasDisponibles();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("estado", listo ? "OK" : calentado ? "DEPENDENCIES DOWN" : "WARMING UP");
+        body.put("dependencias", salud.estados());
+        return new ResponseEntity<>(body, listo ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /// CHECK THE STATUS OF DB, BROKER Y SERVICIOS (sin consultar tablas)
     @GetMapping("/check")
-    public List<Map<String, Object>> checkDB() {
-        return jdbcTemplate.queryForList("SELECT * FROM transacciones");
+    public ResponseEntity<List<EstadoDependenciaDTO>> checkDB() {
+        return new ResponseEntity<>(salud.estados(),
+                salud.criticasDisponibles() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
     }
 
 }
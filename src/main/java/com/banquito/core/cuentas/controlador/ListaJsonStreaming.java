@@ -0,0 +1,43 @@
+package com.banquito.core.cuentas.controlador;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Escribe un arreglo JSON elemento por elemento mientras se recorren los
+ * resultados, sin armar la lista de DTOs en memoria. La respuesta se confirma
+ * cuando se llena el primer búfer: un error a mitad del recorrido corta la
+ * respuesta en lugar de devolver el JSON de error.
+ * <p>
+ * La escritura va al ritmo del cliente: el recorrido no debe entregar elementos
+ * con un cursor o una transacción abiertos (leer por páginas cortas o antes).
+ */
+final class ListaJsonStreaming<T> {
+
+    private final ObjectWriter escritor;
+
+    ListaJsonStreaming(ObjectMapper objectMapper, Class<T> tipo) {
+        this.escritor = objectMapper.writerFor(tipo).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    void escribir(HttpServletResponse response, Consumer<Consumer<T>> recorrido) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (SequenceWriter lista = escritor.writeValuesAsArray(response.getOutputStream())) {
+            recorrido.accept(elemento -> {
+                try {
+                    lista.write(elemento);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
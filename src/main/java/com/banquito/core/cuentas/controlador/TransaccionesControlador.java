@@ -1,10 +1,19 @@
 package com.banquito.core.cuentas.controlador;
 
+import com.banquito.core.cuentas.dto.EstadoTransaccionDTO;
 import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
 import com.banquito.core.cuentas.dto.TransaccionRespuestaAsincronaDTO;
+import com.banquito.core.cuentas.servicio.CompensacionTransferenciasServicio;
+import com.banquito.core.cuentas.servicio.DiarioTransaccionesServicio;
+import com.banquito.core.cuentas.servicio.EstadoTransaccionServicio;
+import com.banquito.core.cuentas.servicio.NotificacionesTransaccionesServicio;
 import com.banquito.core.cuentas.servicio.TransaccionesServicio;
 import com.banquito.core.cuentas.producer.TransaccionesProducer;
 import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.CrearEntidadExcepcion;
+import com.banquito.core.cuentas.excepcion.EnvioParcialExcepcion;
+import com.banquito.core.cuentas.filtro.TransaccionIdFiltro;
+import com.banquito.core.cuentas.resiliencia.LimitadorTransacciones;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,12 +21,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.UUID;
+import java.security.Principal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/transacciones")
@@ -27,35 +40,54 @@ public class TransaccionesControlador {
 
         private final TransaccionesServicio servicio;
         private final TransaccionesProducer producer;
+        private final EstadoTransaccionServicio estados;
+        private final DiarioTransaccionesServicio diario;
+        private final CompensacionTransferenciasServicio compensacion;
+        private final NotificacionesTransaccionesServicio notificaciones;
+        private final LimitadorTransacciones limitador;
 
         public TransaccionesControlador(
                         TransaccionesServicio servicio,
-                        TransaccionesProducer producer) {
+                        TransaccionesProducer producer,
+                        EstadoTransaccionServicio estados,
+                        DiarioTransaccionesServicio diario,
+                        CompensacionTransferenciasServicio compensacion,
+                        NotificacionesTransaccionesServicio notificaciones,
+                        LimitadorTransacciones limitador) {
                 this.servicio = servicio;
                 this.producer = producer;
+                this.estados = estados;
+                this.diario = diario;
+                this.compensacion = compensacion;
+                this.notificaciones = notificaciones;
+                this.limitador = limitador;
         }
 
         @Operation(summary = "Realizar depósito", description = "Valida y envía depósito a cola para procesamiento")
         @ApiResponses({
                         @ApiResponse(responseCode = "202", description = "Depósito enviado para procesamiento", content = @Content(schema = @Schema(implementation = TransaccionRespuestaAsincronaDTO.class))),
-                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación")
+                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación"),
+                        @ApiResponse(responseCode = "429", description = "Límite de transacciones excedido (ver Retry-After)")
         })
         @PostMapping("/deposito")
         public ResponseEntity<TransaccionRespuestaAsincronaDTO> deposito(
-                        @Parameter(description = "Datos para el depósito. Ejemplo: {\"numeroCuentaOrigen\":\"1234567890\",\"tipoTransaccion\":\"DEPOSITO\",\"monto\":100.00,\"descripcion\":\"Depósito ATM\"}", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto) {
+                        @Parameter(description = "Datos para el depósito. Ejemplo: {\"numeroCuentaOrigen\":\"1234567890\",\"tipoTransaccion\":\"DEPOSITO\",\"monto\":100.00,\"descripcion\":\"Depósito ATM\"}", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto,
+                        @Parameter(hidden = true) @RequestAttribute(TransaccionIdFiltro.ATRIBUTO) String transaccionId,
+                        HttpServletRequest request) {
                 log.info("POST /api/cuentas/v1/transacciones/deposito - enviando a cola");
                 dto.setTipoTransaccion(TipoTransaccionEnum.DEPOSITO);
 
-                // Validar antes de enviar a cola
+                // Limitar y validar antes de enviar a cola
+                limitador.verificar(dto.getTipoTransaccion(), dto.getNumeroCuentaOrigen(), clienteApi(request));
                 servicio.validarTransaccion(dto);
 
                 // Enviar a cola específica de depósitos
-                producer.enviarDeposito(dto);
+                encolar(dto, transaccionId, () -> producer.enviarDeposito(dto, transaccionId));
 
                 TransaccionRespuestaAsincronaDTO response = TransaccionRespuestaAsincronaDTO.builder()
-                                .mensaje("Depósito enviado para procesamiento")
-                                .transaccionId(UUID.randomUUID().toString())
-                                .estado("EN_COLA")
+                                .mensaje(TransaccionRespuestaAsincronaDTO.MENSAJE_DEPOSITO)
+                                .transaccionId(transaccionId)
+                                .estado(TransaccionRespuestaAsincronaDTO.EN_COLA)
                                 .tipoTransaccion("DEPOSITO")
                                 .build();
 
@@ -65,24 +97,28 @@ public class TransaccionesControlador {
         @Operation(summary = "Realizar retiro", description = "Valida y envía retiro a cola para procesamiento")
         @ApiResponses({
                         @ApiResponse(responseCode = "202", description = "Retiro enviado para procesamiento", content = @Content(schema = @Schema(implementation = TransaccionRespuestaAsincronaDTO.class))),
-                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación")
+                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación"),
+                        @ApiResponse(responseCode = "429", description = "Límite de transacciones excedido (ver Retry-After)")
         })
         @PostMapping("/retiro")
         public ResponseEntity<TransaccionRespuestaAsincronaDTO> retiro(
-                        @Parameter(description = "Datos para el retiro. Ejemplo: {\"numeroCuentaOrigen\":\"1234567890\",\"tipoTransaccion\":\"RETIRO\",\"monto\":50.00,\"descripcion\":\"Retiro ATM\"}", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto) {
+                        @Parameter(description = "Datos para el retiro. Ejemplo: {\"numeroCuentaOrigen\":\"1234567890\",\"tipoTransaccion\":\"RETIRO\",\"monto\":50.00,\"descripcion\":\"Retiro ATM\"}", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto,
+                        @Parameter(hidden = true) @RequestAttribute(TransaccionIdFiltro.ATRIBUTO) String transaccionId,
+                        HttpServletRequest request) {
                 log.info("POST /api/cuentas/v1/transacciones/retiro - enviando a cola");
                 dto.setTipoTransaccion(TipoTransaccionEnum.RETIRO);
 
-                // Validar antes de enviar a cola
+                // Limitar y validar antes de enviar a cola
+                limitador.verificar(dto.getTipoTransaccion(), dto.getNumeroCuentaOrigen(), clienteApi(request));
                 servicio.validarTransaccion(dto);
 
                 // Enviar a cola específica de retiros
-                producer.enviarRetiro(dto);
+                encolar(dto, transaccionId, () -> producer.enviarRetiro(dto, transaccionId));
 
                 TransaccionRespuestaAsincronaDTO response = TransaccionRespuestaAsincronaDTO.builder()
-                                .mensaje("Retiro enviado para procesamiento")
-                                .transaccionId(UUID.randomUUID().toString())
-                                .estado("EN_COLA")
+                                .mensaje(TransaccionRespuestaAsincronaDTO.MENSAJE_RETIRO)
+                                .transaccionId(transaccionId)
+                                .estado(TransaccionRespuestaAsincronaDTO.EN_COLA)
                                 .tipoTransaccion("RETIRO")
                                 .build();
 
@@ -92,24 +128,28 @@ public class TransaccionesControlador {
         @Operation(summary = "Realizar transferencia", description = "Valida y envía transferencia a cola para procesamiento")
         @ApiResponses({
                         @ApiResponse(responseCode = "202", description = "Transferencia enviada para procesamiento", content = @Content(schema = @Schema(implementation = TransaccionRespuestaAsincronaDTO.class))),
-                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación")
+                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación"),
+                        @ApiResponse(responseCode = "429", description = "Límite de transacciones excedido (ver Retry-After)")
         })
         @PostMapping("/transferencia")
         public ResponseEntity<TransaccionRespuestaAsincronaDTO> transferencia(
-                        @Parameter(description = "Datos para la transferencia. Ejemplo: {\"numeroCuentaOrigen\":\"1234567890\",\"numeroCuentaDestino\":\"0987654321\",\"tipoTransaccion\":\"TRANSFERENCIA\",\"monto\":25.00,\"descripcion\":\"Pago servicios\"}", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto) {
+                        @Parameter(description = "Datos para la transferencia. Ejemplo: {\"numeroCuentaOrigen\":\"1234567890\",\"numeroCuentaDestino\":\"0987654321\",\"tipoTransaccion\":\"TRANSFERENCIA\",\"monto\":25.00,\"descripcion\":\"Pago servicios\"}", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto,
+                        @Parameter(hidden = true) @RequestAttribute(TransaccionIdFiltro.ATRIBUTO) String transaccionId,
+                        HttpServletRequest request) {
                 log.info("POST /api/cuentas/v1/transacciones/transferencia - enviando a cola");
                 dto.setTipoTransaccion(TipoTransaccionEnum.TRANSFERENCIA);
 
-                // Validar antes de enviar a cola
+                // Limitar y validar antes de enviar a cola
+                limitador.verificar(dto.getTipoTransaccion(), dto.getNumeroCuentaOrigen(), clienteApi(request));
                 servicio.validarTransaccion(dto);
 
                 // Enviar a cola específica de transferencias
-                producer.enviarTransferencia(dto);
+                encolar(dto, transaccionId, () -> producer.enviarTransferencia(dto, transaccionId));
 
                 TransaccionRespuestaAsincronaDTO response = TransaccionRespuestaAsincronaDTO.builder()
-                                .mensaje("Transferencia procesada: RETIRO y DEPÓSITO enviados para procesamiento")
-                                .transaccionId(UUID.randomUUID().toString())
-                                .estado("EN_COLA")
+                                .mensaje(TransaccionRespuestaAsincronaDTO.MENSAJE_TRANSFERENCIA)
+                                .transaccionId(transaccionId)
+                                .estado(TransaccionRespuestaAsincronaDTO.EN_COLA)
                                 .tipoTransaccion("TRANSFERENCIA")
                                 .build();
 
@@ -123,26 +163,125 @@ public class TransaccionesControlador {
         @Operation(summary = "Procesar transacción unificada", description = "Valida y envía cualquier tipo de transacción a cola para procesamiento")
         @ApiResponses({
                         @ApiResponse(responseCode = "202", description = "Transacción enviada para procesamiento", content = @Content(schema = @Schema(implementation = TransaccionRespuestaAsincronaDTO.class))),
-                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación")
+                        @ApiResponse(responseCode = "400", description = "Error en datos de entrada o validación"),
+                        @ApiResponse(responseCode = "429", description = "Límite de transacciones excedido (ver Retry-After)")
         })
         @PostMapping("/procesar")
         public ResponseEntity<TransaccionRespuestaAsincronaDTO> procesarTransaccion(
-                        @Parameter(description = "Datos de la transacción (el tipoTransaccion determina la operación). Para transferencias incluir numeroCuentaDestino", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto) {
+                        @Parameter(description = "Datos de la transacción (el tipoTransaccion determina la operación). Para transferencias incluir numeroCuentaDestino", required = true) @Valid @RequestBody TransaccionesSolicitudDTO dto,
+                        @Parameter(hidden = true) @RequestAttribute(TransaccionIdFiltro.ATRIBUTO) String transaccionId,
+                        HttpServletRequest request) {
                 log.info("POST /api/cuentas/v1/transacciones/procesar - tipo: {} - enviando a cola", dto.getTipoTransaccion());
 
-                // Validar antes de enviar a cola
+                // Limitar y validar antes de enviar a cola
+                limitador.verificar(dto.getTipoTransaccion(), dto.getNumeroCuentaOrigen(), clienteApi(request));
                 servicio.validarTransaccion(dto);
 
                 // Enviar a cola
-                producer.enviarTransaccion(dto);
+                encolar(dto, transaccionId, () -> producer.enviarTransaccion(dto, transaccionId));
 
                 TransaccionRespuestaAsincronaDTO response = TransaccionRespuestaAsincronaDTO.builder()
-                                .mensaje(dto.getTipoTransaccion() + " enviado para procesamiento")
-                                .transaccionId(UUID.randomUUID().toString())
-                                .estado("EN_COLA")
-                                .tipoTransaccion(dto.getTipoTransaccion().toString())
+                                .mensaje(TransaccionRespuestaAsincronaDTO.mensajeProcesar(dto.getTipoTransaccion()))
+                                .transaccionId(transaccionId)
+                                .estado(TransaccionRespuestaAsincronaDTO.EN_COLA)
+                                .tipoTransaccion(dto.getTipoTransaccion().name())
                                 .build();
 
                 return ResponseEntity.accepted().body(response);
         }
+
+        @Operation(summary = "Consultar estado de transacción", description = "Estado de una transacción enviada a cola: ENVIADO, PENDIENTE, COMPLETADO o RECHAZADO")
+        @ApiResponses({
+                        @ApiResponse(responseCode = "200", description = "Estado de la transacción", content = @Content(schema = @Schema(implementation = EstadoTransaccionDTO.class))),
+                        @ApiResponse(responseCode = "404", description = "Transacción no encontrada")
+        })
+        @GetMapping("/{transaccionId}")
+        public ResponseEntity<EstadoTransaccionDTO> consultarEstado(
+                        @Parameter(description = "transaccionId devuelto al enviar la transacción", required = true) @PathVariable String transaccionId) {
+                return ResponseEntity.ok(estados.consultar(transaccionId));
+        }
+
+        @Operation(summary = "Suscribirse a resultados de transacciones", description = "Stream SSE (evento 'transaccion') con los cambios de estado de los transaccionId indicados y/o de todas las transacciones de una cuenta. Si solo se indican transaccionId el stream se cierra al recibir todos sus estados finales")
+        @ApiResponses({
+                        @ApiResponse(responseCode = "200", description = "Stream de eventos abierto"),
+                        @ApiResponse(responseCode = "400", description = "No se indicó transaccionId ni numeroCuenta"),
+                        @ApiResponse(responseCode = "403", description = "La cuenta no pertenece al usuario autenticado o no hay usuario")
+        })
+        @GetMapping(path = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public SseEmitter suscribir(
+                        @Parameter(description = "transaccionId a seguir (se puede repetir)") @RequestParam(required = false) List<String> transaccionId,
+                        @Parameter(description = "Número de cuenta cuyas transacciones se siguen; solo cuentas del usuario autenticado") @RequestParam(required = false) String numeroCuenta,
+                        @Parameter(hidden = true) Principal usuario) {
+                List<String> ids = transaccionId != null ? transaccionId : List.of();
+                if (ids.isEmpty() && numeroCuenta == null) {
+                        throw new CrearEntidadExcepcion("Suscripcion", "Debe indicar al menos un transaccionId o un numeroCuenta");
+                }
+                return notificaciones.suscribir(ids, numeroCuenta, usuario);
+        }
+
+        /**
+         * Cliente de la API para el límite por canal: el usuario autenticado o, sin él, la IP
+         * remota. Nada que el cliente pueda elegir en la petición; detrás de un proxy la IP sale
+         * de X-Forwarded-For solo si lo agrega un proxy de confianza (server.forward-headers-strategy).
+         */
+        private String clienteApi(HttpServletRequest request) {
+                Principal usuario = request.getUserPrincipal();
+                if (usuario != null) {
+                        return "usuario:" + usuario.getName();
+                }
+                // Sin la IP remota: detrás del gateway es la misma para todos los clientes
+                String cabecera = limitador.getCabeceraCliente();
+                String cliente = cabecera != null ? request.getHeader(cabecera) : null;
+                return cliente != null && !cliente.isBlank() ? "cliente:" + cliente.trim() : null;
+        }
+
+        /**
+         * Registra la transacción como ENVIADO y la agrega al diario antes de encolarla, así el
+         * resultado del MS2 siempre la encuentra. Si falla el diario o el envío, la transacción
+         * queda RECHAZADO con el motivo (y si ya estaba en el diario, se anula); si de una transferencia solo
+         * salió el retiro, queda PENDIENTE y se reenvía el depósito. Con la operación ya enviada se cobra la
+         * comisión, si tiene.
+         */
+        private void encolar(TransaccionesSolicitudDTO dto, String transaccionId, Runnable envio) {
+                estados.registrarEnvio(transaccionId, dto);
+                try {
+                        diario.registrar(transaccionId, dto);
+                } catch (RuntimeException e) {
+                        estados.registrarFalloEnvio(transaccionId, "Error registrando en el diario: " + e.getMessage());
+                        throw e;
+                }
+                try {
+                        envio.run();
+                } catch (EnvioParcialExcepcion e) {
+                        // El MS2 aplicará el retiro: ni rechazo ni anulación, el depósito se reintenta
+                        compensacion.programar(transaccionId, e.getDepositoPendiente(), e.getCause().getMessage());
+                } catch (RuntimeException e) {
+                        diario.anular(transaccionId, dto);
+                        estados.registrarFalloEnvio(transaccionId, "Error enviando a cola: " + e.getMessage());
+                        throw e;
+                }
+                cobrarComision(dto, transaccionId);
+        }
+
+        /**
+         * Envía la comisión como un RETIRO aparte de la cuenta origen, con su propio estado bajo
+         * TransaccionesProducer.idComision(transaccionId). La operación ya salió, así que si este envío
+         * falla no se rechaza: el cobro queda RECHAZADO con el motivo y se registra un error para hacerlo
+         * a mano.
+         */
+        private void cobrarComision(TransaccionesSolicitudDTO dto, String transaccionId) {
+                if (dto.getComision() == null) {
+                        return;
+                }
+                String idComision = TransaccionesProducer.idComision(transaccionId);
+                TransaccionesSolicitudDTO cargo = TransaccionesProducer.cargoComision(dto, transaccionId);
+                estados.registrarEnvio(idComision, cargo);
+                try {
+                        producer.enviarRetiro(cargo, idComision);
+                } catch (RuntimeException e) {
+                        estados.registrarFalloEnvio(idComision, "Error enviando a cola: " + e.getMessage());
+                        log.error("Comisión de ${} de la transacción {} sin enviar ({}); cobrarla a mano: {}",
+                                        dto.getComision(), transaccionId, idComision, e.getMessage());
+                }
+        }
 }
@@ -0,0 +1,83 @@
+package com.banquito.core.cuentas.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.Value;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cuerpo de las respuestas de error: error, mensaje, timestamp y status. El
+ * timestamp se formatea una vez por milisegundo y se comparte entre todas las
+ * respuestas de ese milisegundo.
+ */
+@Value
+@JsonSerialize(using = ErrorRespuestaDTO.Serializador.class)
+public class ErrorRespuestaDTO {
+
+    private static volatile MarcaTiempo ultimaMarca = new MarcaTiempo(0, Instant.EPOCH.toString());
+
+    String error;
+    String mensaje;
+    String timestamp;
+    int status;
+
+    public static ErrorRespuestaDTO de(String error, String mensaje, int status) {
+        return new ErrorRespuestaDTO(error, mensaje, timestamp(), status);
+    }
+
+    /** Instant.now().toString() con precisión de milisegundos, reutilizado dentro del mismo milisegundo. */
+    public static String timestamp() {
+        long ahora = System.currentTimeMillis();
+        MarcaTiempo marca = ultimaMarca;
+        if (marca.milis != ahora) {
+            marca = new MarcaTiempo(ahora, Instant.ofEpochMilli(ahora).toString());
+            ultimaMarca = marca;
+        }
+        return marca.texto;
+    }
+
+    private record MarcaTiempo(long milis, String texto) {
+    }
+
+    /**
+     * Escribe el error sin introspección: nombres de campo y códigos de error
+     * (VALIDACION_FALLIDA, LIMITE_EXCEDIDO, ...) van ya codificados; los códigos
+     * se codifican la primera vez que aparecen.
+     */
+    static final class Serializador extends StdSerializer<ErrorRespuestaDTO> {
+
+        private static final SerializableString ERROR = new SerializedString("error");
+        private static final SerializableString MENSAJE = new SerializedString("mensaje");
+        private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+        private static final SerializableString STATUS = new SerializedString("status");
+
+        private static final Map<String, SerializableString> CODIGOS = new ConcurrentHashMap<>();
+
+        Serializador() {
+            super(ErrorRespuestaDTO.class);
+        }
+
+        @Override
+        public void serialize(ErrorRespuestaDTO dto, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject(dto);
+            gen.writeFieldName(ERROR);
+            gen.writeString(CODIGOS.computeIfAbsent(dto.getError(), SerializedString::new));
+            gen.writeFieldName(MENSAJE);
+            gen.writeString(dto.getMensaje());
+            gen.writeFieldName(TIMESTAMP);
+            gen.writeString(dto.getTimestamp());
+            gen.writeFieldName(STATUS);
+            gen.writeNumber(dto.getStatus());
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.banquito.core.cuentas.dto;
+
+import com.banquito.core.cuentas.enums.EstadoDependenciaEnum;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Último resultado de la sonda de una dependencia. Inmutable: las sondas lo
+ * reemplazan y los endpoints de salud solo lo leen.
+ */
+@Value
+@Builder
+public class EstadoDependenciaDTO {
+    String dependencia;
+    boolean critica;
+    EstadoDependenciaEnum estado;
+    long latenciaMs;
+    String detalle;
+    Instant verificado;
+}
@@ -0,0 +1,29 @@
+package com.banquito.core.cuentas.dto;
+
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Estado consultable de una transacción. Inmutable: se comparte desde la caché en memoria
+ * y viaja por el tópico de notificaciones entre instancias.
+ */
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class EstadoTransaccionDTO {
+    String transaccionId;
+    TipoTransaccionEnum tipoTransaccion;
+    String numeroCuentaOrigen;
+    String numeroCuentaDestino;
+    BigDecimal monto;
+    EstadoEspecificoTransaccionEnum estado;
+    String mensaje;
+    Instant fechaCreacion;
+    Instant fechaActualizacion;
+}
@@ -0,0 +1,31 @@
+package com.banquito.core.cuentas.dto;
+
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.util.Centavos;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Cambio de saldo o estado publicado por el MS2 al completar una operación.
+ * Los saldos se leen del JSON directamente a centavos.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EventoSaldoCuentaDTO {
+    private String numeroCuenta;
+    @JsonProperty("saldoDisponible")
+    @JsonDeserialize(using = Centavos.Deserializador.class)
+    private Long saldoDisponibleCentavos;
+    @JsonProperty("saldoContable")
+    @JsonDeserialize(using = Centavos.Deserializador.class)
+    private Long saldoContableCentavos;
+    private EstadoCuentaClienteEnum estado;
+    private Long version;       // @Version de cuentas_clientes tras el cambio
+    private Instant fechaEvento;
+}
@@ -0,0 +1,29 @@
+package com.banquito.core.cuentas.dto;
+
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Transacción aceptada y encolada por esta instancia, leída del diario local.
+ * Es lo que se envió al MS2, no su resultado (ver /v1/transacciones/{transaccionId}).
+ * Lo devuelve /actuator/diario/{numeroCuenta}.
+ */
+@Value
+@Builder
+@Jacksonized
+public class MovimientoCuentaDTO {
+    long secuencia;
+    String transaccionId;
+    TipoTransaccionEnum tipoTransaccion;
+    String numeroCuentaOrigen;
+    String numeroCuentaDestino;
+    BigDecimal monto;
+    BigDecimal comision;
+    String descripcion;
+    Instant fecha;
+}
@@ -0,0 +1,16 @@
+package com.banquito.core.cuentas.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Resultado publicado por el MS2 en la cola de resultados al procesar cada operación. */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResultadoTransaccionDTO {
+    private String transaccionId;
+    private String tipoTransaccion; // operación procesada: DEPOSITO o RETIRO
+    private String estado;          // COMPLETADO / PROCESADO o RECHAZADO
+    private String mensaje;
+}
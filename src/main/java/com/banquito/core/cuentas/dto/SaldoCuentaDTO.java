@@ -0,0 +1,36 @@
+package com.banquito.core.cuentas.dto;
+
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.util.Centavos;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Saldos y estado de una cuenta según el modelo de lectura. Inmutable. Los
+ * saldos se guardan en centavos; en el JSON salen como decimales (1000.00).
+ * idCuenta es el producto (cuenta maestra), para las comisiones; no se publica.
+ */
+@Value
+@Builder
+public class SaldoCuentaDTO {
+    String numeroCuenta;
+    @JsonProperty("saldoDisponible")
+    @JsonSerialize(using = Centavos.Serializador.class)
+    @Schema(name = "saldoDisponible", type = "number", example = "1000.00")
+    long saldoDisponibleCentavos;
+    @JsonProperty("saldoContable")
+    @JsonSerialize(using = Centavos.Serializador.class)
+    @Schema(name = "saldoContable", type = "number", example = "1000.00")
+    long saldoContableCentavos;
+    EstadoCuentaClienteEnum estado;
+    @JsonIgnore
+    Integer idCuenta;
+    Long version;
+    Instant fechaActualizacion;
+}
@@ -0,0 +1,25 @@
+package com.banquito.core.cuentas.dto;
+
+import com.banquito.core.cuentas.enums.BaseCalculoTasaEnum;
+import com.banquito.core.cuentas.enums.FrecuenciaEnum;
+import com.banquito.core.cuentas.enums.MetodoCalculoTasaEnum;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/** Tasa de interés del servicio de configuración con lo necesario para devengar. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TasaInteresDTO {
+    private String id;
+    /** Tasa nominal anual en porcentaje (5.25 = 5,25 %). */
+    private BigDecimal tasa;
+    private BaseCalculoTasaEnum baseCalculo;
+    private MetodoCalculoTasaEnum metodoCalculo;
+    private FrecuenciaEnum frecuenciaCapitalizacion;
+}
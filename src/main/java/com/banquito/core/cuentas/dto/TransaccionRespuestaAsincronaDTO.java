@@ -1,17 +1,103 @@
 package com.banquito.core.cuentas.dto;
 
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = TransaccionRespuestaAsincronaDTO.Serializador.class)
 public class TransaccionRespuestaAsincronaDTO {
+
+    public static final String EN_COLA = "EN_COLA";
+    public static final String MENSAJE_DEPOSITO = "Depósito enviado para procesamiento";
+    public static final String MENSAJE_RETIRO = "Retiro enviado para procesamiento";
+    public static final String MENSAJE_TRANSFERENCIA = "Transferencia procesada: RETIRO y DEPÓSITO enviados para procesamiento";
+
+    private static final Map<TipoTransaccionEnum, String> MENSAJES_PROCESAR = new EnumMap<>(TipoTransaccionEnum.class);
+
+    static {
+        for (TipoTransaccionEnum tipo : TipoTransaccionEnum.values()) {
+            MENSAJES_PROCESAR.put(tipo, tipo + " enviado para procesamiento");
+        }
+    }
+
     private String mensaje;
     private String transaccionId;
     private String estado;
     private String tipoTransaccion;
+
+    /** Mensaje del endpoint unificado /procesar, sin concatenar en cada petición. */
+    public static String mensajeProcesar(TipoTransaccionEnum tipo) {
+        return MENSAJES_PROCESAR.get(tipo);
+    }
+
+    /**
+     * Escribe la respuesta 202 sin introspección: nombres de campo y valores
+     * constantes (estado, tipos y mensajes fijos) van ya codificados en UTF-8 y
+     * escapados; solo el transaccionId se codifica en cada respuesta.
+     */
+    static final class Serializador extends StdSerializer<TransaccionRespuestaAsincronaDTO> {
+
+        private static final SerializableString MENSAJE = new SerializedString("mensaje");
+        private static final SerializableString TRANSACCION_ID = new SerializedString("transaccionId");
+        private static final SerializableString ESTADO = new SerializedString("estado");
+        private static final SerializableString TIPO_TRANSACCION = new SerializedString("tipoTransaccion");
+
+        private static final Map<String, SerializableString> CONSTANTES = new HashMap<>();
+
+        static {
+            for (String valor : new String[] { EN_COLA, MENSAJE_DEPOSITO, MENSAJE_RETIRO, MENSAJE_TRANSFERENCIA }) {
+                CONSTANTES.put(valor, new SerializedString(valor));
+            }
+            for (TipoTransaccionEnum tipo : TipoTransaccionEnum.values()) {
+                CONSTANTES.put(tipo.name(), new SerializedString(tipo.name()));
+                CONSTANTES.put(mensajeProcesar(tipo), new SerializedString(mensajeProcesar(tipo)));
+            }
+        }
+
+        Serializador() {
+            super(TransaccionRespuestaAsincronaDTO.class);
+        }
+
+        @Override
+        public void serialize(TransaccionRespuestaAsincronaDTO dto, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject(dto);
+            campo(gen, MENSAJE, dto.getMensaje());
+            campo(gen, TRANSACCION_ID, dto.getTransaccionId());
+            campo(gen, ESTADO, dto.getEstado());
+            campo(gen, TIPO_TRANSACCION, dto.getTipoTransaccion());
+            gen.writeEndObject();
+        }
+
+        private static void campo(JsonGenerator gen, SerializableString nombre, String valor) throws IOException {
+            gen.writeFieldName(nombre);
+            if (valor == null) {
+                gen.writeNull();
+                return;
+            }
+            SerializableString constante = CONSTANTES.get(valor);
+            if (constante != null) {
+                gen.writeString(constante);
+            } else {
+                gen.writeString(valor);
+            }
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.banquito.core.cuentas.dto;
 
 import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.NotBlank;
@@ -30,4 +31,12 @@ public class TransaccionesSolicitudDTO {
 
     @Size(max = 150, message = "La descripción no puede exceder los 150 caracteres")
     private String descripcion;
+
+    /**
+     * Comisión calculada en la validación; la fija el servicio, no el cliente de la
+     * API. No viaja en el mensaje al MS2 (su contrato no la tiene): se cobra con un
+     * RETIRO aparte de la cuenta origen (TransaccionesProducer.cargoComision).
+     */
+    @JsonIgnore
+    private BigDecimal comision;
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.banquito.core.cuentas.enums;
+
+public enum EstadoDependenciaEnum {
+    DESCONOCIDO,
+    DISPONIBLE,
+    NO_DISPONIBLE
+}
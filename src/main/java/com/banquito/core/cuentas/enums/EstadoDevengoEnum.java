@@ -0,0 +1,16 @@
+package com.banquito.core.cuentas.enums;
+
+public enum EstadoDevengoEnum {
+    EN_CURSO("EN_CURSO"),
+    COMPLETADO("COMPLETADO");
+
+    private final String valor;
+
+    EstadoDevengoEnum(String valor) {
+        this.valor = valor;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+}
@@ -0,0 +1,17 @@
+package com.banquito.core.cuentas.enums;
+
+public enum MotivoDescuadreEnum {
+    DISPONIBLE_MAYOR_CONTABLE("DISPONIBLE_MAYOR_CONTABLE"),
+    RETENCION_SIN_PENDIENTE("RETENCION_SIN_PENDIENTE"),
+    PENDIENTE_SIN_RETENCION("PENDIENTE_SIN_RETENCION");
+
+    private final String valor;
+
+    MotivoDescuadreEnum(String valor) {
+        this.valor = valor;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+}
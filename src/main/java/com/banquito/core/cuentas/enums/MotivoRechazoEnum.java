@@ -0,0 +1,21 @@
+package com.banquito.core.cuentas.enums;
+
+public enum MotivoRechazoEnum {
+    TIPO_INVALIDO("TIPO INVALIDO"),
+    MONTO_INVALIDO("MONTO INVALIDO"),
+    CUENTA_NO_ENCONTRADA("CUENTA NO ENCONTRADA"),
+    CUENTA_INACTIVA("CUENTA INACTIVA"),
+    SALDO_INSUFICIENTE("SALDO INSUFICIENTE"),
+    CUENTA_DESTINO_REQUERIDA("CUENTA DESTINO REQUERIDA"),
+    MISMA_CUENTA("MISMA CUENTA");
+
+    private final String valor;
+
+    MotivoRechazoEnum(String valor) {
+        this.valor = valor;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+}
@@ -0,0 +1,17 @@
+package com.banquito.core.cuentas.enums;
+
+public enum MotivoSpoolEnum {
+    FALLO_ENVIO("FALLO_ENVIO"),
+    CIRCUITO_ABIERTO("CIRCUITO_ABIERTO"),
+    ORDEN_CUENTA("ORDEN_CUENTA");
+
+    private final String valor;
+
+    MotivoSpoolEnum(String valor) {
+        this.valor = valor;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+}
@@ -0,0 +1,7 @@
+package com.banquito.core.cuentas.evento;
+
+import com.banquito.core.cuentas.dto.EstadoTransaccionDTO;
+
+/** Publicado cuando el estado de una transacción cambia por un resultado del MS2 o un fallo de envío. */
+public record EstadoTransaccionActualizadoEvento(EstadoTransaccionDTO estado) {
+}
@@ -0,0 +1,5 @@
+package com.banquito.core.cuentas.evento;
+
+/** Publicado tras confirmar la creación de una cuenta o el cambio de su numero_cuenta. */
+public record NumeroCuentaRegistradoEvento(String numeroCuenta) {
+}
@@ -0,0 +1,17 @@
+package com.banquito.core.cuentas.excepcion;
+
+/**
+ * Cuenta inexistente al validar una transacción. Como RechazoTransaccionExcepcion,
+ * es un rechazo esperado y no captura la traza de la pila.
+ */
+public class CuentaNoEncontradaExcepcion extends EntidadNoEncontradaExcepcion {
+
+    public CuentaNoEncontradaExcepcion(String numeroCuenta) {
+        super("Cuenta", "Número de cuenta " + numeroCuenta + " no encontrada");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,21 @@
+package com.banquito.core.cuentas.excepcion;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+
+/**
+ * Una transferencia cuyo retiro ya se publicó pero cuyo depósito no: el MS2 va a
+ * aplicar el retiro, así que la transacción no se puede dar por rechazada.
+ * Lleva el depósito pendiente para reenviarlo.
+ */
+public class EnvioParcialExcepcion extends RuntimeException {
+    private final TransaccionesSolicitudDTO depositoPendiente;
+
+    public EnvioParcialExcepcion(TransaccionesSolicitudDTO depositoPendiente, Throwable causa) {
+        super("Retiro de la transferencia enviado, depósito pendiente: " + causa.getMessage(), causa);
+        this.depositoPendiente = depositoPendiente;
+    }
+
+    public TransaccionesSolicitudDTO getDepositoPendiente() {
+        return depositoPendiente;
+    }
+}
@@ -1,6 +1,9 @@
 package com.banquito.core.cuentas.excepcion;
 
+import com.banquito.core.cuentas.dto.ErrorRespuestaDTO;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -9,7 +12,6 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
-import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,29 +20,64 @@ import java.util.Map;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(EntidadNoEncontradaExcepcion.class)
-    public ResponseEntity<Map<String, Object>> handleEntidadNoEncontrada(EntidadNoEncontradaExcepcion ex) {
+    public ResponseEntity<ErrorRespuestaDTO> handleEntidadNoEncontrada(EntidadNoEncontradaExcepcion ex) {
         log.error("Entidad no encontrada: {}", ex.getMessage());
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("error", "ENTIDAD_NO_ENCONTRADA");
-        response.put("mensaje", ex.getMessage());
-        response.put("timestamp", Instant.now().toString());
-        response.put("status", 404);
-        
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        return error(HttpStatus.NOT_FOUND, "ENTIDAD_NO_ENCONTRADA", ex.getMessage());
     }
 
     @ExceptionHandler(CrearEntidadExcepcion.class)
-    public ResponseEntity<Map<String, Object>> handleCrearEntidad(CrearEntidadExcepcion ex) {
+    public ResponseEntity<ErrorRespuestaDTO> handleCrearEntidad(CrearEntidadExcepcion ex) {
         log.error("Error de validación: {}", ex.getMessage());
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("error", "VALIDACION_FALLIDA");
-        response.put("mensaje", ex.getMessage());
-        response.put("timestamp", Instant.now().toString());
-        response.put("status", 400);
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        return error(HttpStatus.BAD_REQUEST, "VALIDACION_FALLIDA", ex.getMessage());
+    }
+
+    /**
+     * Rechazos de las reglas de transacción: mismo cuerpo que VALIDACION_FALLIDA
+     * pero sin log por petición (ya se cuentan en cuentas.transacciones.rechazos).
+     */
+    @ExceptionHandler(RechazoTransaccionExcepcion.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleRechazoTransaccion(RechazoTransaccionExcepcion ex) {
+        String mensaje = ex.getMessage();
+        log.debug("Transacción rechazada ({}): {}", ex.getMotivo(), mensaje);
+        return error(HttpStatus.BAD_REQUEST, "VALIDACION_FALLIDA", mensaje);
+    }
+
+    @ExceptionHandler(CuentaNoEncontradaExcepcion.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleCuentaNoEncontrada(CuentaNoEncontradaExcepcion ex) {
+        String mensaje = ex.getMessage();
+        log.debug("Transacción rechazada (CUENTA_NO_ENCONTRADA): {}", mensaje);
+        return error(HttpStatus.NOT_FOUND, "ENTIDAD_NO_ENCONTRADA", mensaje);
+    }
+
+    @ExceptionHandler(LimiteExcedidoExcepcion.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleLimiteExcedido(LimiteExcedidoExcepcion ex) {
+        log.warn("Límite de transacciones excedido: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarSegundos()))
+                .body(ErrorRespuestaDTO.de("LIMITE_EXCEDIDO", ex.getMessage(), 429));
+    }
+
+    @ExceptionHandler(PrecondicionFallidaExcepcion.class)
+    public ResponseEntity<ErrorRespuestaDTO> handlePrecondicionFallida(PrecondicionFallidaExcepcion ex) {
+        log.warn("Precondición fallida: {}", ex.getMessage());
+        return precondicionFallida(ex.getMessage());
+    }
+
+    @ExceptionHandler(AccesoDenegadoExcepcion.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleAccesoDenegado(AccesoDenegadoExcepcion ex) {
+        log.warn("Acceso denegado: {}", ex.getMessage());
+        return error(HttpStatus.FORBIDDEN, "ACCESO_DENEGADO", ex.getMessage());
+    }
+
+    /** Otra petición guardó la entidad entre la lectura y la escritura (@Version de JPA). */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorRespuestaDTO> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        log.warn("Conflicto de versión: {}", ex.getMessage());
+        return precondicionFallida("La entidad fue modificada por otra operación; vuelva a consultarla");
+    }
+
+    private ResponseEntity<ErrorRespuestaDTO> precondicionFallida(String mensaje) {
+        return error(HttpStatus.PRECONDITION_FAILED, "PRECONDICION_FALLIDA", mensaje);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -58,7 +95,7 @@ public class GlobalExceptionHandler {
         response.put("error", "CAMPOS_INVALIDOS");
         response.put("mensaje", "Errores en los datos enviados");
         response.put("errores", errores);
-        response.put("timestamp", Instant.now().toString());
+        response.put("timestamp", ErrorRespuestaDTO.timestamp());
         response.put("status", 400);
         
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
@@ -71,7 +108,7 @@ public class GlobalExceptionHandler {
         Map<String, Object> response = new HashMap<>();
         response.put("error", "ERROR_COLA");
         response.put("mensaje", "Error enviando transacción a cola: " + ex.getMessage());
-        response.put("timestamp", Instant.now().toString());
+        response.put("timestamp", ErrorRespuestaDTO.timestamp());
         response.put("status", 500);
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
@@ -84,7 +121,7 @@ public class GlobalExceptionHandler {
         Map<String, Object> response = new HashMap<>();
         response.put("error", "NO_ENCONTRADO");
         response.put("mensaje", ex.getMessage());
-        response.put("timestamp", Instant.now().toString());
+        response.put("timestamp", ErrorRespuestaDTO.timestamp());
         response.put("status", 404);
 
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -97,9 +134,13 @@ public class GlobalExceptionHandler {
         Map<String, Object> response = new HashMap<>();
         response.put("error", "ERROR_INTERNO");
         response.put("mensaje", "Error interno del servidor");
-        response.put("timestamp", Instant.now().toString());
+        response.put("timestamp", ErrorRespuestaDTO.timestamp());
         response.put("status", 500);
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
+
+    private static ResponseEntity<ErrorRespuestaDTO> error(HttpStatus status, String error, String mensaje) {
+        return ResponseEntity.status(status).body(ErrorRespuestaDTO.de(error, mensaje, status.value()));
+    }
 }
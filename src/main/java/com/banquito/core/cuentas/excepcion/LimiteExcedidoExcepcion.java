@@ -0,0 +1,37 @@
+package com.banquito.core.cuentas.excepcion;
+
+public class LimiteExcedidoExcepcion extends RuntimeException {
+    private final Integer errorCode;
+    private final String entidad;
+    private final long reintentarSegundos;
+
+    public LimiteExcedidoExcepcion(String entidad, String mensaje, long reintentarSegundos) {
+        super(mensaje);
+        this.errorCode = 5;
+        this.entidad = entidad;
+        this.reintentarSegundos = reintentarSegundos;
+    }
+
+    // Se lanza con cada petición limitada; la traza de la pila no aporta nada
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Error code: " + this.errorCode + ", Entidad: " + this.entidad + ", Mensaje: " + super.getMessage();
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getEntidad() {
+        return entidad;
+    }
+
+    public long getReintentarSegundos() {
+        return reintentarSegundos;
+    }
+}
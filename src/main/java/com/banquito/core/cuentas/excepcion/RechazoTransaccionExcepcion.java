@@ -0,0 +1,26 @@
+package com.banquito.core.cuentas.excepcion;
+
+import com.banquito.core.cuentas.enums.MotivoRechazoEnum;
+
+/**
+ * Rechazo de negocio de una transacción (regla de MS1). Es un flujo esperado,
+ * no un error del servicio: no captura la traza de la pila, que nadie imprime
+ * y que era la mayor parte del costo de rechazar.
+ */
+public class RechazoTransaccionExcepcion extends CrearEntidadExcepcion {
+    private final MotivoRechazoEnum motivo;
+
+    public RechazoTransaccionExcepcion(MotivoRechazoEnum motivo, String entidad, String mensaje) {
+        super(entidad, mensaje);
+        this.motivo = motivo;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    public MotivoRechazoEnum getMotivo() {
+        return motivo;
+    }
+}
@@ -0,0 +1,101 @@
+package com.banquito.core.cuentas.filtro;
+
+import com.banquito.core.cuentas.dto.ErrorRespuestaDTO;
+import com.banquito.core.cuentas.resiliencia.LimitadorConcurrencia;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aplica el límite adaptativo de concurrencia a los endpoints /v1 (cuentas,
+ * cuentas-clientes y transacciones). Va primero en la cadena para que una
+ * petición descartada no llegue a tocar la BD ni el broker; /health y
+ * /actuator quedan fuera y siguen respondiendo aunque el servicio se sature.
+ * Cada descarte se cuenta en cuentas.concurrencia.descartadas; el log solo
+ * resume los descartes una vez cada 10 s, para no sumar carga justo cuando
+ * el servicio está saturado.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ConcurrenciaAdaptativaFiltro extends OncePerRequestFilter {
+
+    private static final String RUTA_API = "/v1/";
+
+    private static final String MENSAJE_SATURADO = "El servicio está saturado, reintente en unos segundos";
+
+    private static final long INTERVALO_LOG_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final LimitadorConcurrencia limitador;
+    private final ObjectWriter escritor;
+    private final AtomicLong descartadasSinLog = new AtomicLong();
+    private final AtomicLong proximoLog = new AtomicLong(System.nanoTime());
+
+    public ConcurrenciaAdaptativaFiltro(LimitadorConcurrencia limitador, ObjectMapper objectMapper) {
+        this.limitador = limitador;
+        this.escritor = objectMapper.writerFor(ErrorRespuestaDTO.class);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(RUTA_API, request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean escritura = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+        if (!limitador.adquirir(escritura)) {
+            descartar(request, response);
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean exito = false;
+        try {
+            chain.doFilter(request, response);
+            exito = true;
+        } finally {
+            // Un fallo rápido (excepción) no representa la latencia normal del servicio
+            limitador.liberar(System.nanoTime() - inicio, exito && !request.isAsyncStarted());
+        }
+    }
+
+    private void descartar(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        registrarDescarte(request);
+
+        byte[] body = escritor.writeValueAsBytes(ErrorRespuestaDTO.de("SERVICIO_SATURADO", MENSAJE_SATURADO, 503));
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void registrarDescarte(HttpServletRequest request) {
+        descartadasSinLog.incrementAndGet();
+        long ahora = System.nanoTime();
+        long proximo = proximoLog.get();
+        // Un solo hilo por intervalo gana el CAS y escribe el resumen
+        if (ahora - proximo >= 0 && proximoLog.compareAndSet(proximo, ahora + INTERVALO_LOG_NANOS)) {
+            log.warn("{} peticiones descartadas por límite de concurrencia desde el último aviso "
+                            + "(última: {} {}, {} en curso, límite {})",
+                    descartadasSinLog.getAndSet(0), request.getMethod(), request.getRequestURI(),
+                    limitador.getEnCurso(), limitador.getLimite());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.banquito.core.cuentas.filtro;
+
+import com.banquito.core.cuentas.config.MuestreoLogFiltro;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Asigna el transaccionId al inicio de cada POST de /v1/transacciones y lo deja
+ * en el MDC para que todas las líneas de log de la petición lo incluyan.
+ * El controlador lo obtiene del atributo de la petición.
+ */
+@Component
+public class TransaccionIdFiltro extends OncePerRequestFilter {
+
+    public static final String ATRIBUTO = "transaccionId";
+
+    private static final String RUTA_TRANSACCIONES = "/v1/transacciones/";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(RUTA_TRANSACCIONES, request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String transaccionId = UUID.randomUUID().toString();
+        request.setAttribute(ATRIBUTO, transaccionId);
+        MDC.put(MuestreoLogFiltro.MDC_TRANSACCION_ID, transaccionId);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(MuestreoLogFiltro.MDC_TRANSACCION_ID);
+        }
+    }
+}
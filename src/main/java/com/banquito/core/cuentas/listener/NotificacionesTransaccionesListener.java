@@ -0,0 +1,51 @@
+package com.banquito.core.cuentas.listener;
+
+import com.banquito.core.cuentas.dto.EstadoTransaccionDTO;
+import com.banquito.core.cuentas.evento.EstadoTransaccionActualizadoEvento;
+import com.banquito.core.cuentas.servicio.NotificacionesTransaccionesServicio;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reparte los cambios de estado entre instancias. El resultado del MS2 lo
+ * consume una sola instancia, pero el suscriptor SSE puede estar conectado a
+ * cualquiera: el cambio se publica en un tópico que todas escuchan.
+ */
+@Component
+@Slf4j
+public class NotificacionesTransaccionesListener {
+
+    private final JmsTemplate jmsTemplate;
+    private final NotificacionesTransaccionesServicio notificaciones;
+    private final ActiveMQTopic topico;
+
+    public NotificacionesTransaccionesListener(
+            JmsTemplate jmsTemplate,
+            NotificacionesTransaccionesServicio notificaciones,
+            @Value("${colas.transacciones.notificaciones:transacciones.notificaciones}") String topico) {
+        this.jmsTemplate = jmsTemplate;
+        this.notificaciones = notificaciones;
+        this.topico = new ActiveMQTopic(topico);
+    }
+
+    @EventListener
+    public void publicar(EstadoTransaccionActualizadoEvento evento) {
+        try {
+            jmsTemplate.convertAndSend(topico, evento.estado());
+        } catch (RuntimeException e) {
+            // Al menos los suscriptores de esta instancia reciben el cambio
+            log.warn("No se pudo publicar la notificación de {}: {}", evento.estado().getTransaccionId(), e.getMessage());
+            notificaciones.notificar(evento.estado());
+        }
+    }
+
+    @JmsListener(destination = "${colas.transacciones.notificaciones:transacciones.notificaciones}", containerFactory = "topicoFactory")
+    public void recibir(EstadoTransaccionDTO estado) {
+        notificaciones.notificar(estado);
+    }
+}
@@ -0,0 +1,51 @@
+package com.banquito.core.cuentas.listener;
+
+import com.banquito.core.cuentas.evento.NumeroCuentaRegistradoEvento;
+import com.banquito.core.cuentas.servicio.FiltroNumerosCuentaServicio;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reparte entre instancias los numero_cuenta creados o cambiados, para que el
+ * filtro de números de todas los conozca en milisegundos y no responda "no
+ * encontrada" hasta su refresco. Si el tópico no está disponible el número
+ * queda en el filtro de esta instancia; las demás lo recogen con el refresco
+ * por id (altas) o con la reconstrucción periódica (cambios de número).
+ */
+@Component
+@Slf4j
+public class NumerosCuentaListener {
+
+    private final JmsTemplate jmsTemplate;
+    private final FiltroNumerosCuentaServicio filtro;
+    private final ActiveMQTopic topico;
+
+    public NumerosCuentaListener(
+            JmsTemplate jmsTemplate,
+            FiltroNumerosCuentaServicio filtro,
+            @Value("${colas.cuentas.numeros:cuentas.numeros}") String topico) {
+        this.jmsTemplate = jmsTemplate;
+        this.filtro = filtro;
+        this.topico = new ActiveMQTopic(topico);
+    }
+
+    @EventListener
+    public void publicar(NumeroCuentaRegistradoEvento evento) {
+        filtro.agregar(evento.numeroCuenta());
+        try {
+            jmsTemplate.convertAndSend(topico, evento.numeroCuenta());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo difundir el número de cuenta {}: {}", evento.numeroCuenta(), e.getMessage());
+        }
+    }
+
+    @JmsListener(destination = "${colas.cuentas.numeros:cuentas.numeros}", containerFactory = "topicoFactory")
+    public void recibir(String numeroCuenta) {
+        filtro.agregar(numeroCuenta);
+    }
+}
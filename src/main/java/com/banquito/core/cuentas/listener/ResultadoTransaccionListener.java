@@ -0,0 +1,52 @@
+package com.banquito.core.cuentas.listener;
+
+import com.banquito.core.cuentas.dto.ResultadoTransaccionDTO;
+import com.banquito.core.cuentas.producer.TransaccionesProducer;
+import com.banquito.core.cuentas.servicio.EstadoTransaccionServicio;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Consume los resultados que publica el MS2 tras procesar cada operación.
+ * Se lee el mensaje crudo porque el MS2 no envía la cabecera _type del
+ * convertidor; el transaccionId puede venir en el cuerpo, en la propiedad
+ * transaccionId o como JMSCorrelationID.
+ */
+@Component
+@Slf4j
+public class ResultadoTransaccionListener {
+
+    private final EstadoTransaccionServicio estados;
+    private final ObjectReader lector;
+
+    public ResultadoTransaccionListener(EstadoTransaccionServicio estados, ObjectMapper objectMapper) {
+        this.estados = estados;
+        this.lector = objectMapper.readerFor(ResultadoTransaccionDTO.class);
+    }
+
+    @JmsListener(destination = "${colas.transacciones.resultado:transacciones.resultado}", containerFactory = "myFactory")
+    public void recibir(Message mensaje) throws JMSException, IOException {
+        if (!(mensaje instanceof TextMessage texto)) {
+            log.warn("Resultado descartado, tipo de mensaje no soportado: {}", mensaje.getClass().getSimpleName());
+            return;
+        }
+        ResultadoTransaccionDTO resultado = lector.readValue(texto.getText());
+        if (resultado.getTransaccionId() == null) {
+            String transaccionId = mensaje.getStringProperty(TransaccionesProducer.PROPIEDAD_TRANSACCION_ID);
+            resultado.setTransaccionId(transaccionId != null ? transaccionId : mensaje.getJMSCorrelationID());
+        }
+        if (resultado.getTransaccionId() == null) {
+            log.warn("Resultado descartado, sin transaccionId: {}", texto.getText());
+            return;
+        }
+        estados.registrarResultado(resultado);
+    }
+}
@@ -0,0 +1,58 @@
+package com.banquito.core.cuentas.listener;
+
+import com.banquito.core.cuentas.dto.EventoSaldoCuentaDTO;
+import com.banquito.core.cuentas.servicio.SaldosCuentasServicio;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Consume los eventos de saldo del MS2 y los aplica al modelo de lectura.
+ * Los eventos son idempotentes por versión, por eso el factory usa
+ * DUPS_OK_ACKNOWLEDGE (confirmación por lotes) y varios consumidores.
+ */
+@Component
+@Slf4j
+public class SaldosCuentasListener {
+
+    private final SaldosCuentasServicio saldos;
+    private final ObjectReader lector;
+
+    public SaldosCuentasListener(SaldosCuentasServicio saldos, ObjectMapper objectMapper) {
+        this.saldos = saldos;
+        this.lector = objectMapper.readerFor(EventoSaldoCuentaDTO.class);
+    }
+
+    @JmsListener(destination = "${colas.cuentas.saldos:cuentas.saldos}", containerFactory = "saldosFactory",
+            concurrency = "${saldos.listener.concurrencia:1-4}")
+    public void recibir(Message mensaje) throws JMSException {
+        if (!(mensaje instanceof TextMessage texto)) {
+            log.warn("Evento de saldo descartado, tipo de mensaje no soportado: {}", mensaje.getClass().getSimpleName());
+            return;
+        }
+        EventoSaldoCuentaDTO evento;
+        try {
+            evento = lector.readValue(texto.getText());
+        } catch (IOException e) {
+            // Sin transacción no hay reintento útil: se descarta el evento mal formado
+            log.warn("Evento de saldo inválido: {}", e.getMessage());
+            return;
+        }
+        if (evento.getNumeroCuenta() == null) {
+            log.warn("Evento de saldo sin numeroCuenta: {}", texto.getText());
+            return;
+        }
+        Instant fechaEvento = evento.getFechaEvento() != null
+                ? evento.getFechaEvento()
+                : Instant.ofEpochMilli(mensaje.getJMSTimestamp());
+        saldos.aplicar(evento, fechaEvento);
+    }
+}
@@ -0,0 +1,81 @@
+package com.banquito.core.cuentas.metricas;
+
+import com.banquito.core.cuentas.enums.MotivoRechazoEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Medidores del camino caliente de transacciones. Todos los timers y contadores
+ * se registran una sola vez y se indexan por ordinal para que medir una etapa
+ * cueste un System.nanoTime() y una actualización atómica.
+ * Histogramas y SLOs se configuran con management.metrics.distribution.*.
+ */
+@Component
+public class MetricasTransacciones {
+
+    public static final String VALIDACION = "cuentas.transacciones.validacion";
+    public static final String ENVIO_COLA = "cuentas.transacciones.envio.cola";
+    public static final String RECHAZOS = "cuentas.transacciones.rechazos";
+
+    private final MeterRegistry registry;
+    private final Timer[] validacionAceptada;
+    private final Timer[] validacionRechazada;
+    private final Counter[][] rechazos;
+    private final Map<String, Timer> envioCola = new ConcurrentHashMap<>();
+
+    public MetricasTransacciones(MeterRegistry registry) {
+        this.registry = registry;
+        TipoTransaccionEnum[] tipos = TipoTransaccionEnum.values();
+        MotivoRechazoEnum[] motivos = MotivoRechazoEnum.values();
+        this.validacionAceptada = new Timer[tipos.length];
+        this.validacionRechazada = new Timer[tipos.length];
+        this.rechazos = new Counter[tipos.length][motivos.length];
+        for (TipoTransaccionEnum tipo : tipos) {
+            validacionAceptada[tipo.ordinal()] = timerValidacion(tipo, "aceptada");
+            validacionRechazada[tipo.ordinal()] = timerValidacion(tipo, "rechazada");
+            for (MotivoRechazoEnum motivo : motivos) {
+                rechazos[tipo.ordinal()][motivo.ordinal()] = Counter.builder(RECHAZOS)
+                        .description("Transacciones rechazadas en validación")
+                        .tag("tipo", tipo.name())
+                        .tag("motivo", motivo.name())
+                        .register(registry);
+            }
+        }
+    }
+
+    public void registrarValidacion(TipoTransaccionEnum tipo, long inicioNanos, boolean aceptada) {
+        Timer[] timers = aceptada ? validacionAceptada : validacionRechazada;
+        timers[tipo.ordinal()].record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registrarRechazo(TipoTransaccionEnum tipo, MotivoRechazoEnum motivo) {
+        rechazos[tipo.ordinal()][motivo.ordinal()].increment();
+    }
+
+    public void registrarEnvioCola(String cola, long inicioNanos) {
+        envioCola.computeIfAbsent(cola, this::timerEnvioCola)
+                .record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timerValidacion(TipoTransaccionEnum tipo, String resultado) {
+        return Timer.builder(VALIDACION)
+                .description("Duración de la validación de transacciones, incluidas las consultas a BD")
+                .tag("tipo", tipo.name())
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    private Timer timerEnvioCola(String cola) {
+        return Timer.builder(ENVIO_COLA)
+                .description("Duración del envío JMS por cola")
+                .tag("cola", cola)
+                .register(registry);
+    }
+}
@@ -0,0 +1,92 @@
+package com.banquito.core.cuentas.modelo;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Arriendo de una tarea programada: la instancia propietaria es la única que la
+ * ejecuta hasta que el arriendo expira o lo libera. Lo maneja ArriendoTareas.
+ */
+@Entity
+@Table(name = "arriendos_tareas", schema = "account")
+public class ArriendoTarea {
+    @Id
+    @Column(name = "nombre", nullable = false, length = 50)
+    private String nombre;
+
+    @Column(name = "propietario", nullable = false, length = 100)
+    private String propietario;
+
+    @Column(name = "expira", nullable = false)
+    private Instant expira;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private Instant fechaActualizacion;
+
+    public ArriendoTarea() {
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getPropietario() {
+        return propietario;
+    }
+
+    public void setPropietario(String propietario) {
+        this.propietario = propietario;
+    }
+
+    public Instant getExpira() {
+        return expira;
+    }
+
+    public void setExpira(Instant expira) {
+        this.expira = expira;
+    }
+
+    public Instant getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(Instant fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((nombre == null) ? 0 : nombre.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ArriendoTarea other = (ArriendoTarea) obj;
+        if (nombre == null) {
+            if (other.nombre != null)
+                return false;
+        } else if (!nombre.equals(other.nombre))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ArriendoTarea [nombre=" + nombre + ", propietario=" + propietario + ", expira=" + expira + "]";
+    }
+
+}
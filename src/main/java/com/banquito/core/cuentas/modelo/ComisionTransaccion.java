@@ -0,0 +1,188 @@
+package com.banquito.core.cuentas.modelo;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.banquito.core.cuentas.enums.BaseCalculoComisionEnum;
+import com.banquito.core.cuentas.enums.EstadoGeneralCuentasEnum;
+import com.banquito.core.cuentas.enums.TipoComisionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+
+/**
+ * Regla de comisión por producto y tipo de transacción. Las activas de tipo
+ * TRANSACCION se compilan en TablaComisiones; un cambio en la tabla se toma en el
+ * siguiente refresco de ComisionesServicio.
+ */
+@Entity
+@Table(name = "comisiones_transacciones", schema = "account")
+public class ComisionTransaccion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_comision", nullable = false)
+    private Integer id;
+
+    /** Producto (cuenta maestra) al que aplica; null = todos los productos sin una regla propia */
+    @Column(name = "id_cuenta")
+    private Integer idCuenta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_transaccion", nullable = false, length = 15)
+    private TipoTransaccionEnum tipoTransaccion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_comision", nullable = false, length = 15)
+    private TipoComisionEnum tipoComision;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "base_calculo", nullable = false, length = 15)
+    private BaseCalculoComisionEnum baseCalculo;
+
+    /** FIJO: monto de la comisión; PORCENTAJE: porcentaje del monto (1.25 = 1,25 %) */
+    @Column(name = "valor", nullable = false, precision = 15, scale = 4)
+    private BigDecimal valor;
+
+    /** Solo PORCENTAJE: comisión mínima y máxima, opcionales */
+    @Column(name = "monto_minimo", precision = 15, scale = 2)
+    private BigDecimal montoMinimo;
+
+    @Column(name = "monto_maximo", precision = 15, scale = 2)
+    private BigDecimal montoMaximo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 15)
+    private EstadoGeneralCuentasEnum estado;
+
+    @Column(name = "fecha_modificacion", nullable = false)
+    private Instant fechaModificacion;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public ComisionTransaccion() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getIdCuenta() {
+        return idCuenta;
+    }
+
+    public void setIdCuenta(Integer idCuenta) {
+        this.idCuenta = idCuenta;
+    }
+
+    public TipoTransaccionEnum getTipoTransaccion() {
+        return tipoTransaccion;
+    }
+
+    public void setTipoTransaccion(TipoTransaccionEnum tipoTransaccion) {
+        this.tipoTransaccion = tipoTransaccion;
+    }
+
+    public TipoComisionEnum getTipoComision() {
+        return tipoComision;
+    }
+
+    public void setTipoComision(TipoComisionEnum tipoComision) {
+        this.tipoComision = tipoComision;
+    }
+
+    public BaseCalculoComisionEnum getBaseCalculo() {
+        return baseCalculo;
+    }
+
+    public void setBaseCalculo(BaseCalculoComisionEnum baseCalculo) {
+        this.baseCalculo = baseCalculo;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public void setValor(BigDecimal valor) {
+        this.valor = valor;
+    }
+
+    public BigDecimal getMontoMinimo() {
+        return montoMinimo;
+    }
+
+    public void setMontoMinimo(BigDecimal montoMinimo) {
+        this.montoMinimo = montoMinimo;
+    }
+
+    public BigDecimal getMontoMaximo() {
+        return montoMaximo;
+    }
+
+    public void setMontoMaximo(BigDecimal montoMaximo) {
+        this.montoMaximo = montoMaximo;
+    }
+
+    public EstadoGeneralCuentasEnum getEstado() {
+        return estado;
+    }
+
+    public void setEstado(EstadoGeneralCuentasEnum estado) {
+        this.estado = estado;
+    }
+
+    public Instant getFechaModificacion() {
+        return fechaModificacion;
+    }
+
+    public void setFechaModificacion(Instant fechaModificacion) {
+        this.fechaModificacion = fechaModificacion;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((id == null) ? 0 : id.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ComisionTransaccion other = (ComisionTransaccion) obj;
+        if (id == null) {
+            if (other.id != null)
+                return false;
+        } else if (!id.equals(other.id))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ComisionTransaccion [id=" + id + ", idCuenta=" + idCuenta + ", tipoTransaccion=" + tipoTransaccion
+                + ", tipoComision=" + tipoComision + ", baseCalculo=" + baseCalculo + ", valor=" + valor
+                + ", montoMinimo=" + montoMinimo + ", montoMaximo=" + montoMaximo + ", estado=" + estado
+                + ", version=" + version + "]";
+    }
+
+}
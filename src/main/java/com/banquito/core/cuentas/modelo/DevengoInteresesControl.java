@@ -0,0 +1,144 @@
+package com.banquito.core.cuentas.modelo;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import com.banquito.core.cuentas.enums.EstadoDevengoEnum;
+
+/**
+ * Punto de control del devengo de cada fecha. Cada lote de intereses se escribe en
+ * la misma transacción que avanza ultimoIdCuentaCliente, así que tras una caída el
+ * devengo continúa desde el último lote confirmado sin repetir ni saltar cuentas.
+ */
+@Entity
+@Table(name = "devengo_intereses_control", schema = "account")
+public class DevengoInteresesControl {
+    @Id
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 15)
+    private EstadoDevengoEnum estado;
+
+    /** Último id_cuenta_cliente con el interés ya escrito; el devengo sigue desde aquí */
+    @Column(name = "ultimo_id_cuenta_cliente", nullable = false)
+    private Integer ultimoIdCuentaCliente;
+
+    @Column(name = "filas", nullable = false)
+    private Long filas;
+
+    /** Cuentas sin devengar porque la tasa de su producto no se pudo usar (null en filas anteriores) */
+    @Column(name = "omitidas")
+    private Long omitidas;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    private Instant fechaInicio;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private Instant fechaActualizacion;
+
+    @Column(name = "fecha_fin")
+    private Instant fechaFin;
+
+    public DevengoInteresesControl() {
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public EstadoDevengoEnum getEstado() {
+        return estado;
+    }
+
+    public void setEstado(EstadoDevengoEnum estado) {
+        this.estado = estado;
+    }
+
+    public Integer getUltimoIdCuentaCliente() {
+        return ultimoIdCuentaCliente;
+    }
+
+    public void setUltimoIdCuentaCliente(Integer ultimoIdCuentaCliente) {
+        this.ultimoIdCuentaCliente = ultimoIdCuentaCliente;
+    }
+
+    public Long getFilas() {
+        return filas;
+    }
+
+    public void setFilas(Long filas) {
+        this.filas = filas;
+    }
+
+    public Long getOmitidas() {
+        return omitidas;
+    }
+
+    public void setOmitidas(Long omitidas) {
+        this.omitidas = omitidas;
+    }
+
+    public Instant getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public void setFechaInicio(Instant fechaInicio) {
+        this.fechaInicio = fechaInicio;
+    }
+
+    public Instant getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(Instant fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+
+    public Instant getFechaFin() {
+        return fechaFin;
+    }
+
+    public void setFechaFin(Instant fechaFin) {
+        this.fechaFin = fechaFin;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((fecha == null) ? 0 : fecha.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        DevengoInteresesControl other = (DevengoInteresesControl) obj;
+        if (fecha == null) {
+            if (other.fecha != null)
+                return false;
+        } else if (!fecha.equals(other.fecha))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "DevengoInteresesControl [fecha=" + fecha + ", estado=" + estado + ", ultimoIdCuentaCliente="
+                + ultimoIdCuentaCliente + ", filas=" + filas + ", omitidas=" + omitidas + ", fechaInicio=" + fechaInicio + ", fechaFin=" + fechaFin + "]";
+    }
+
+}
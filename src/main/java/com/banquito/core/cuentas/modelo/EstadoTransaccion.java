@@ -0,0 +1,217 @@
+package com.banquito.core.cuentas.modelo;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+
+@Entity
+@Table(name = "estado_transacciones", schema = "account",
+        indexes = @Index(name = "idx_estado_transacciones_reenvio", columnList = "deposito_por_reenviar"))
+public class EstadoTransaccion {
+    @Id
+    @Column(name = "id_transaccion", nullable = false, length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_transaccion", nullable = false, length = 15)
+    private TipoTransaccionEnum tipoTransaccion;
+
+    @Column(name = "numero_cuenta_origen", nullable = false, length = 10)
+    private String numeroCuentaOrigen;
+
+    @Column(name = "numero_cuenta_destino", length = 10)
+    private String numeroCuentaDestino;
+
+    @Column(name = "monto", nullable = false, precision = 15, scale = 2)
+    private BigDecimal monto;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 15)
+    private EstadoEspecificoTransaccionEnum estado;
+
+    @Column(name = "mensaje", length = 250)
+    private String mensaje;
+
+    /** Operaciones en cola aún sin resultado (2 para transferencias: retiro y depósito) */
+    @Column(name = "operaciones_pendientes", nullable = false)
+    private Integer operacionesPendientes;
+
+    /** Operaciones con resultado COMPLETADO, separadas por coma (DEPOSITO,RETIRO); null en filas anteriores */
+    @Column(name = "operaciones_confirmadas", length = 30)
+    private String operacionesConfirmadas;
+
+    /** Transferencia con el retiro publicado y el depósito aún sin publicar */
+    @Column(name = "deposito_por_reenviar")
+    private Boolean depositoPorReenviar;
+
+    /** Descripción del depósito por reenviar (solo en transferencias enviadas a medias) */
+    @Column(name = "descripcion_deposito", length = 200)
+    private String descripcionDeposito;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private Instant fechaCreacion;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private Instant fechaActualizacion;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public EstadoTransaccion() {
+    }
+
+    public EstadoTransaccion(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public TipoTransaccionEnum getTipoTransaccion() {
+        return tipoTransaccion;
+    }
+
+    public void setTipoTransaccion(TipoTransaccionEnum tipoTransaccion) {
+        this.tipoTransaccion = tipoTransaccion;
+    }
+
+    public String getNumeroCuentaOrigen() {
+        return numeroCuentaOrigen;
+    }
+
+    public void setNumeroCuentaOrigen(String numeroCuentaOrigen) {
+        this.numeroCuentaOrigen = numeroCuentaOrigen;
+    }
+
+    public String getNumeroCuentaDestino() {
+        return numeroCuentaDestino;
+    }
+
+    public void setNumeroCuentaDestino(String numeroCuentaDestino) {
+        this.numeroCuentaDestino = numeroCuentaDestino;
+    }
+
+    public BigDecimal getMonto() {
+        return monto;
+    }
+
+    public void setMonto(BigDecimal monto) {
+        this.monto = monto;
+    }
+
+    public EstadoEspecificoTransaccionEnum getEstado() {
+        return estado;
+    }
+
+    public void setEstado(EstadoEspecificoTransaccionEnum estado) {
+        this.estado = estado;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+
+    public Integer getOperacionesPendientes() {
+        return operacionesPendientes;
+    }
+
+    public void setOperacionesPendientes(Integer operacionesPendientes) {
+        this.operacionesPendientes = operacionesPendientes;
+    }
+
+    public String getOperacionesConfirmadas() {
+        return operacionesConfirmadas;
+    }
+
+    public void setOperacionesConfirmadas(String operacionesConfirmadas) {
+        this.operacionesConfirmadas = operacionesConfirmadas;
+    }
+
+    public Boolean getDepositoPorReenviar() {
+        return depositoPorReenviar;
+    }
+
+    public void setDepositoPorReenviar(Boolean depositoPorReenviar) {
+        this.depositoPorReenviar = depositoPorReenviar;
+    }
+
+    public String getDescripcionDeposito() {
+        return descripcionDeposito;
+    }
+
+    public void setDescripcionDeposito(String descripcionDeposito) {
+        this.descripcionDeposito = descripcionDeposito;
+    }
+
+    public Instant getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(Instant fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public Instant getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(Instant fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((id == null) ? 0 : id.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        EstadoTransaccion other = (EstadoTransaccion) obj;
+        if (id == null) {
+            if (other.id != null)
+                return false;
+        } else if (!id.equals(other.id))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "EstadoTransaccion [id=" + id + ", tipoTransaccion=" + tipoTransaccion + ", numeroCuentaOrigen="
+                + numeroCuentaOrigen + ", numeroCuentaDestino=" + numeroCuentaDestino + ", monto=" + monto
+                + ", estado=" + estado + ", operacionesPendientes=" + operacionesPendientes + ", operacionesConfirmadas="
+                + operacionesConfirmadas + ", depositoPorReenviar=" + depositoPorReenviar + ", version=" + version + "]";
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.banquito.core.cuentas.modelo;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Interés devengado por cuenta-cliente y día. Lo escribe DevengoInteresesServicio
+ * con JDBC por lotes; la entidad define la tabla (ddl-auto) y su restricción única.
+ */
+@Entity
+@Table(name = "intereses_devengados", schema = "account",
+        uniqueConstraints = @UniqueConstraint(name = "uk_intereses_devengados_cuenta_fecha",
+                columnNames = { "id_cuenta_cliente", "fecha" }))
+public class InteresDevengado {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_interes_devengado", nullable = false)
+    private Long id;
+
+    @Column(name = "id_cuenta_cliente", nullable = false)
+    private Integer idCuentaCliente;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "id_tasa_interes", nullable = false)
+    private String idTasaInteres;
+
+    /** Saldo contable sobre el que se devengó el día */
+    @Column(name = "saldo", nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldo;
+
+    /** Tasa nominal anual en porcentaje */
+    @Column(name = "tasa", nullable = false, precision = 9, scale = 4)
+    private BigDecimal tasa;
+
+    /** Días que cuenta la fecha según la base (30/360: 0 el día 31, 2 o 3 al cierre de febrero) */
+    @Column(name = "dias", nullable = false)
+    private Integer dias;
+
+    @Column(name = "interes", nullable = false, precision = 19, scale = 6)
+    private BigDecimal interes;
+
+    /** Suma de los saldos diarios del período de capitalización, para SALDO_PROMEDIO */
+    @Column(name = "saldo_acumulado", nullable = false, precision = 21, scale = 2)
+    private BigDecimal saldoAcumulado;
+
+    @Column(name = "dias_periodo", nullable = false)
+    private Integer diasPeriodo;
+
+    public InteresDevengado() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getIdCuentaCliente() {
+        return idCuentaCliente;
+    }
+
+    public void setIdCuentaCliente(Integer idCuentaCliente) {
+        this.idCuentaCliente = idCuentaCliente;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public String getIdTasaInteres() {
+        return idTasaInteres;
+    }
+
+    public void setIdTasaInteres(String idTasaInteres) {
+        this.idTasaInteres = idTasaInteres;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public void setSaldo(BigDecimal saldo) {
+        this.saldo = saldo;
+    }
+
+    public BigDecimal getTasa() {
+        return tasa;
+    }
+
+    public void setTasa(BigDecimal tasa) {
+        this.tasa = tasa;
+    }
+
+    public Integer getDias() {
+        return dias;
+    }
+
+    public void setDias(Integer dias) {
+        this.dias = dias;
+    }
+
+    public BigDecimal getInteres() {
+        return interes;
+    }
+
+    public void setInteres(BigDecimal interes) {
+        this.interes = interes;
+    }
+
+    public BigDecimal getSaldoAcumulado() {
+        return saldoAcumulado;
+    }
+
+    public void setSaldoAcumulado(BigDecimal saldoAcumulado) {
+        this.saldoAcumulado = saldoAcumulado;
+    }
+
+    public Integer getDiasPeriodo() {
+        return diasPeriodo;
+    }
+
+    public void setDiasPeriodo(Integer diasPeriodo) {
+        this.diasPeriodo = diasPeriodo;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((id == null) ? 0 : id.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        InteresDevengado other = (InteresDevengado) obj;
+        if (id == null) {
+            if (other.id != null)
+                return false;
+        } else if (!id.equals(other.id))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "InteresDevengado [id=" + id + ", idCuentaCliente=" + idCuentaCliente + ", fecha=" + fecha
+                + ", idTasaInteres=" + idTasaInteres + ", saldo=" + saldo + ", tasa=" + tasa + ", dias=" + dias
+                + ", interes=" + interes + ", saldoAcumulado=" + saldoAcumulado + ", diasPeriodo=" + diasPeriodo + "]";
+    }
+
+}
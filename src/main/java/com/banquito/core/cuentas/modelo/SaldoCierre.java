@@ -0,0 +1,108 @@
+package com.banquito.core.cuentas.modelo;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Saldo contable de una cuenta-cliente activa al cierre de una fecha. Lo copia
+ * DevengoInteresesServicio a la medianoche con un solo INSERT ... SELECT (una
+ * misma vista de la BD para todas las cuentas) y el devengo de esa fecha lee de
+ * aquí, no del saldo actual, que ya tiene los movimientos de la madrugada.
+ */
+@Entity
+@Table(name = "saldos_cierre", schema = "account")
+@IdClass(SaldoCierre.Clave.class)
+public class SaldoCierre {
+    @Id
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Id
+    @Column(name = "id_cuenta_cliente", nullable = false)
+    private Integer idCuentaCliente;
+
+    @Column(name = "saldo_contable", nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldoContable;
+
+    public SaldoCierre() {
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Integer getIdCuentaCliente() {
+        return idCuentaCliente;
+    }
+
+    public void setIdCuentaCliente(Integer idCuentaCliente) {
+        this.idCuentaCliente = idCuentaCliente;
+    }
+
+    public BigDecimal getSaldoContable() {
+        return saldoContable;
+    }
+
+    public void setSaldoContable(BigDecimal saldoContable) {
+        this.saldoContable = saldoContable;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fecha, idCuentaCliente);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        SaldoCierre other = (SaldoCierre) obj;
+        return Objects.equals(fecha, other.fecha) && Objects.equals(idCuentaCliente, other.idCuentaCliente);
+    }
+
+    @Override
+    public String toString() {
+        return "SaldoCierre [fecha=" + fecha + ", idCuentaCliente=" + idCuentaCliente + ", saldoContable="
+                + saldoContable + "]";
+    }
+
+    /** Clave compuesta (fecha, id_cuenta_cliente). */
+    public static class Clave implements Serializable {
+        private LocalDate fecha;
+        private Integer idCuentaCliente;
+
+        public Clave() {
+        }
+
+        public Clave(LocalDate fecha, Integer idCuentaCliente) {
+            this.fecha = fecha;
+            this.idCuentaCliente = idCuentaCliente;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fecha, idCuentaCliente);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Clave other))
+                return false;
+            return Objects.equals(fecha, other.fecha) && Objects.equals(idCuentaCliente, other.idCuentaCliente);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.banquito.core.cuentas.producer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mensaje guardado en el spool: la cola destino, el transaccionId, la cuenta que
+ * define su orden y el cuerpo JSON tal como lo habría publicado el conversor. La
+ * secuencia la asigna el spool al escribir (0 antes de escribirlo).
+ * <p>
+ * Formato binario: fecha en ms (8), tres textos UTF-8 con su largo en 2 bytes
+ * (cola, transaccionId, cuenta) y el cuerpo con su largo en 4 bytes.
+ */
+public record MensajeSpool(long secuencia, long fechaMs, String cola, String transaccionId, String numeroCuenta,
+                           byte[] cuerpo) {
+
+    byte[] codificar() {
+        byte[] destino = bytes(cola);
+        byte[] id = bytes(transaccionId);
+        byte[] cuenta = bytes(numeroCuenta);
+        ByteBuffer salida = ByteBuffer.allocate(8 + 6 + destino.length + id.length + cuenta.length + 4 + cuerpo.length);
+        salida.putLong(fechaMs);
+        texto(salida, destino);
+        texto(salida, id);
+        texto(salida, cuenta);
+        salida.putInt(cuerpo.length).put(cuerpo);
+        return salida.array();
+    }
+
+    static MensajeSpool decodificar(long secuencia, ByteBuffer entrada) {
+        long fecha = entrada.getLong();
+        String cola = texto(entrada);
+        String id = texto(entrada);
+        String cuenta = texto(entrada);
+        byte[] cuerpo = new byte[entrada.getInt()];
+        entrada.get(cuerpo);
+        return new MensajeSpool(secuencia, fecha, cola, id, cuenta, cuerpo);
+    }
+
+    private static byte[] bytes(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Texto de " + bytes.length + " bytes no cabe en el spool");
+        }
+        return bytes;
+    }
+
+    private static void texto(ByteBuffer salida, byte[] texto) {
+        salida.putShort((short) texto.length).put(texto);
+    }
+
+    private static String texto(ByteBuffer entrada) {
+        byte[] texto = new byte[entrada.getShort()];
+        entrada.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,594 @@
+package com.banquito.core.cuentas.producer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Spool en disco de los mensajes que no se pudieron publicar: una cola FIFO de
+ * solo agregado sobre archivos de segmento (spool-NNNNNNNNNNNN.dat) que rotan al
+ * llegar a tamanoSegmento. Un solo lector (el reenvío) los consume en orden de
+ * escritura, que es también el orden de cada cuenta.
+ * <p>
+ * Confirmación en grupo: guardar escribe el registro con el candado tomado y
+ * espera a que un hilo propio haga el fsync; quienes escriben mientras corre un
+ * fsync se confirman juntos en el siguiente. Al volver, el mensaje sobrevive a
+ * una caída de la máquina. El lector solo ve registros ya sincronizados.
+ * <p>
+ * Cada registro es: largo (4 bytes), CRC32C de secuencia y contenido (4),
+ * secuencia (8) y el contenido de MensajeSpool. La última secuencia reenviada
+ * se guarda en spool.cursor; al abrir se recorren los segmentos, se corta en el
+ * primer registro incompleto, con CRC inválido o fuera de secuencia, y se
+ * recuperan como pendientes los posteriores al cursor. Un segmento se borra
+ * cuando el cursor guardado pasó su último registro.
+ * <p>
+ * Si un fsync falla el spool queda averiado: deja de aceptar mensajes (guardar
+ * lanza) y el reenvío sigue con lo ya sincronizado.
+ */
+@Slf4j
+public class SpoolMensajes implements Closeable {
+
+    private static final int MAGICO = 0x4258_5350; // "BXSP"
+    private static final int FORMATO = 1;
+    private static final int CABECERA = 16;
+    private static final int CABECERA_REGISTRO = 16;
+    private static final String PREFIJO = "spool-";
+    private static final String EXTENSION = ".dat";
+    private static final String CURSOR = "spool.cursor";
+
+    private final Path directorio;
+    private final long tamanoSegmento;
+    private final int maxSegmentos;
+
+    private final ReentrantLock escritura = new ReentrantLock();
+    private final Condition pendiente = escritura.newCondition();
+    private final Condition sincronizado = escritura.newCondition();
+    private final ConcurrentSkipListMap<Long, Segmento> segmentos = new ConcurrentSkipListMap<>();
+    private final Map<String, Integer> porCuenta = new ConcurrentHashMap<>();
+    private final AtomicLong profundidad = new AtomicLong();
+    private final CRC32C crc = new CRC32C();
+    private final FileChannel cursor;
+    private final Thread sincronizador;
+
+    // Protegidos por escritura
+    private Segmento actual;
+    private long ultimaSecuencia;
+    private long secuenciaSincronizada;
+    private long desdeSincronizacion;
+    private IOException averia;
+    private volatile boolean cerrado;
+
+    // Solo desde el hilo de reenvío
+    private final ArrayDeque<MensajeSpool> leidos = new ArrayDeque<>();
+    private final CRC32C crcCursor = new CRC32C();
+    private long segmentoLectura;
+    private long posicionLectura;
+    private long ultimaConfirmada;
+    private long cursorGuardado;
+
+    private volatile long fechaCabeza;
+    private volatile long guardados;
+    private volatile long reenviados;
+    private volatile long sincronizaciones;
+
+    /** Abre (o crea) el spool en el directorio y recupera los mensajes pendientes. */
+    public SpoolMensajes(Path directorio, long tamanoSegmento, int maxSegmentos) throws IOException {
+        if (tamanoSegmento < 64 * 1024) {
+            throw new IllegalArgumentException("Segmento del spool demasiado pequeño: " + tamanoSegmento);
+        }
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.maxSegmentos = Math.max(2, maxSegmentos);
+        Files.createDirectories(directorio);
+        this.cursor = FileChannel.open(directorio.resolve(CURSOR),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ultimaConfirmada = leerCursor();
+        cursorGuardado = ultimaConfirmada;
+
+        recuperar();
+        if (actual == null) {
+            actual = crearSegmento(1);
+            segmentos.put(actual.numero, actual);
+        }
+        if (segmentoLectura == 0) {
+            segmentoLectura = actual.numero;
+            posicionLectura = actual.escrito;
+        }
+        ultimaSecuencia = Math.max(ultimaSecuencia, ultimaConfirmada);
+        secuenciaSincronizada = ultimaSecuencia;
+        desdeSincronizacion = actual.numero;
+        this.sincronizador = Thread.ofPlatform().daemon().name("spool-sincronizacion").start(this::sincronizar);
+        log.info("Spool de mensajes {}: {} segmentos, {} mensajes pendientes de {} cuentas",
+                directorio, segmentos.size(), profundidad.get(), porCuenta.size());
+    }
+
+    /**
+     * Reserva el turno de la cuenta antes de guardar. Con soloSiPendiente solo
+     * reserva (y devuelve true) si la cuenta ya tiene mensajes en el spool: así
+     * un envío nuevo no se adelanta a los que esperan. Cada reserva se libera al
+     * reenviar el mensaje o, si guardar falla, con liberar.
+     */
+    public boolean reservar(String numeroCuenta, boolean soloSiPendiente) {
+        if (soloSiPendiente) {
+            return porCuenta.computeIfPresent(numeroCuenta, (cuenta, reservas) -> reservas + 1) != null;
+        }
+        porCuenta.merge(numeroCuenta, 1, Integer::sum);
+        return true;
+    }
+
+    public void liberar(String numeroCuenta) {
+        porCuenta.computeIfPresent(numeroCuenta, (cuenta, reservas) -> reservas == 1 ? null : reservas - 1);
+    }
+
+    /** Guarda el mensaje (ya reservado) y vuelve cuando está en disco; devuelve su secuencia. */
+    public long guardar(MensajeSpool mensaje) {
+        byte[] contenido = mensaje.codificar();
+        int largo = CABECERA_REGISTRO + contenido.length;
+        if (largo > tamanoSegmento - CABECERA) {
+            throw new IllegalArgumentException("Mensaje de " + largo + " bytes no cabe en un segmento del spool");
+        }
+        escritura.lock();
+        try {
+            disponible();
+            if (actual.escrito + largo > tamanoSegmento) {
+                rotar();
+            }
+            long secuencia = ultimaSecuencia + 1;
+            ByteBuffer registro = ByteBuffer.allocate(largo)
+                    .putInt(contenido.length)
+                    .putInt(crc(crc, secuencia, contenido))
+                    .putLong(secuencia)
+                    .put(contenido)
+                    .flip();
+            try {
+                escribir(actual.canal, registro, actual.escrito);
+            } catch (IOException e) {
+                averia = e;
+                throw new UncheckedIOException("No se pudo escribir en el spool", e);
+            }
+            actual.escrito += largo;
+            actual.ultimaSecuencia = secuencia;
+            ultimaSecuencia = secuencia;
+            if (profundidad.getAndIncrement() == 0) {
+                fechaCabeza = mensaje.fechaMs();
+            }
+            guardados++;
+            pendiente.signal();
+            while (secuenciaSincronizada < secuencia) {
+                // Al cerrar, el hilo de sincronización termina la ronda pendiente antes de salir
+                if (averia != null) {
+                    throw new UncheckedIOException("Spool averiado", averia);
+                }
+                sincronizado.awaitUninterruptibly();
+            }
+            return secuencia;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Siguiente lote (hasta maximo) en orden de escritura, solo con registros ya
+     * sincronizados. Mientras queden mensajes del lote anterior sin confirmar se
+     * devuelven esos, para reintentarlos en el mismo orden.
+     */
+    public List<MensajeSpool> leer(int maximo) {
+        if (!leidos.isEmpty()) {
+            return List.copyOf(leidos);
+        }
+        List<MensajeSpool> lote = new ArrayList<>(Math.min(maximo, 1024));
+        try {
+            while (lote.size() < maximo) {
+                Segmento segmento = segmentos.get(segmentoLectura);
+                if (segmento == null || (segmento.finalizado && posicionLectura >= segmento.escrito)) {
+                    Long siguiente = segmentos.higherKey(segmentoLectura);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    segmentoLectura = siguiente;
+                    posicionLectura = CABECERA;
+                    continue;
+                }
+                if (posicionLectura >= segmento.durable) {
+                    break;
+                }
+                ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_REGISTRO);
+                leer(segmento.canal, cabecera, posicionLectura);
+                int largo = cabecera.getInt(0);
+                ByteBuffer contenido = ByteBuffer.allocate(largo);
+                leer(segmento.canal, contenido, posicionLectura + CABECERA_REGISTRO);
+                lote.add(MensajeSpool.decodificar(cabecera.getLong(8), contenido.flip()));
+                posicionLectura += CABECERA_REGISTRO + largo;
+            }
+        } catch (IOException e) {
+            log.error("No se pudo leer el spool en el segmento {} posición {}: {}",
+                    segmentoLectura, posicionLectura, e.getMessage());
+        }
+        leidos.addAll(lote);
+        if (!lote.isEmpty()) {
+            fechaCabeza = lote.get(0).fechaMs();
+        }
+        return lote;
+    }
+
+    /** Confirma el primer mensaje del lote leído: ya se publicó. */
+    public void confirmar() {
+        MensajeSpool mensaje = leidos.poll();
+        if (mensaje == null) {
+            throw new IllegalStateException("No hay mensajes leídos del spool por confirmar");
+        }
+        ultimaConfirmada = mensaje.secuencia();
+        liberar(mensaje.numeroCuenta());
+        reenviados++;
+        if (profundidad.decrementAndGet() > 0 && !leidos.isEmpty()) {
+            fechaCabeza = leidos.peek().fechaMs();
+        }
+    }
+
+    /** Guarda el cursor con lo confirmado hasta ahora y borra los segmentos ya reenviados. */
+    public void guardarCursor() {
+        if (ultimaConfirmada == cursorGuardado) {
+            return;
+        }
+        ByteBuffer contenido = ByteBuffer.allocate(16)
+                .putInt(MAGICO)
+                .putLong(ultimaConfirmada)
+                .putInt(crc(crcCursor, ultimaConfirmada, new byte[0]))
+                .flip();
+        try {
+            escribir(cursor, contenido, 0);
+            cursor.force(false);
+            cursorGuardado = ultimaConfirmada;
+        } catch (IOException e) {
+            log.warn("No se pudo guardar el cursor del spool: {}", e.getMessage());
+            return;
+        }
+        List<Segmento> reenviados = new ArrayList<>();
+        escritura.lock();
+        try {
+            // Los segmentos desde desdeSincronizacion todavía pueden recibir un fsync
+            for (Segmento segmento : segmentos.headMap(desdeSincronizacion, false).values()) {
+                if (segmento.finalizado && segmento.ultimaSecuencia <= cursorGuardado) {
+                    segmentos.remove(segmento.numero);
+                    reenviados.add(segmento);
+                }
+            }
+        } finally {
+            escritura.unlock();
+        }
+        for (Segmento segmento : reenviados) {
+            try {
+                segmento.canal.close();
+                Files.deleteIfExists(segmento.archivo);
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el segmento {} del spool: {}", segmento.archivo, e.getMessage());
+            }
+        }
+    }
+
+    public long profundidad() {
+        return profundidad.get();
+    }
+
+    /** Segundos desde que se guardó el mensaje pendiente más viejo; 0 si no hay pendientes. */
+    public double antiguedadSegundos() {
+        if (profundidad.get() <= 0) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - fechaCabeza) / 1000.0;
+    }
+
+    public int cuentasPendientes() {
+        return porCuenta.size();
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Segmento segmento : segmentos.values()) {
+            bytes += segmento.escrito;
+        }
+        return bytes;
+    }
+
+    public long guardados() {
+        return guardados;
+    }
+
+    public long reenviados() {
+        return reenviados;
+    }
+
+    public long sincronizaciones() {
+        return sincronizaciones;
+    }
+
+    @Override
+    public void close() throws IOException {
+        escritura.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            pendiente.signal();
+        } finally {
+            escritura.unlock();
+        }
+        try {
+            sincronizador.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segmento segmento : segmentos.values()) {
+            segmento.canal.close();
+        }
+        cursor.close();
+        log.info("Spool de mensajes cerrado con {} mensajes pendientes", profundidad.get());
+    }
+
+    private void disponible() {
+        if (averia != null) {
+            throw new UncheckedIOException("Spool averiado", averia);
+        }
+        if (cerrado) {
+            throw new IllegalStateException("Spool de mensajes cerrado");
+        }
+    }
+
+    private void rotar() {
+        if (segmentos.size() >= maxSegmentos) {
+            throw new IllegalStateException("Spool lleno: " + segmentos.size() + " segmentos pendientes de reenvío");
+        }
+        Segmento nuevo;
+        try {
+            nuevo = crearSegmento(actual.numero + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el segmento " + (actual.numero + 1) + " del spool", e);
+        }
+        actual.finalizado = true;
+        actual = nuevo;
+        segmentos.put(actual.numero, actual);
+    }
+
+    /**
+     * Hilo de confirmación en grupo: espera escrituras, hace un fsync por cada
+     * segmento con datos nuevos y despierta a todos los que quedaron cubiertos.
+     */
+    private void sincronizar() {
+        while (true) {
+            long hasta;
+            List<Segmento> tramos = new ArrayList<>();
+            List<Long> posiciones = new ArrayList<>();
+            escritura.lock();
+            try {
+                while (ultimaSecuencia == secuenciaSincronizada && !cerrado) {
+                    pendiente.awaitUninterruptibly();
+                }
+                if (ultimaSecuencia == secuenciaSincronizada) {
+                    return;
+                }
+                hasta = ultimaSecuencia;
+                for (Segmento segmento : segmentos.tailMap(desdeSincronizacion, true).values()) {
+                    if (segmento.durable < segmento.escrito) {
+                        tramos.add(segmento);
+                        posiciones.add(segmento.escrito);
+                    }
+                }
+            } finally {
+                escritura.unlock();
+            }
+            IOException error = null;
+            try {
+                for (Segmento segmento : tramos) {
+                    segmento.canal.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            escritura.lock();
+            try {
+                if (error != null) {
+                    averia = error;
+                    log.error("No se pudo sincronizar el spool; deja de aceptar mensajes: {}", error.getMessage());
+                } else {
+                    for (int i = 0; i < tramos.size(); i++) {
+                        tramos.get(i).durable = posiciones.get(i);
+                    }
+                    secuenciaSincronizada = hasta;
+                    desdeSincronizacion = actual.numero;
+                    sincronizaciones++;
+                }
+                sincronizado.signalAll();
+            } finally {
+                escritura.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    private Segmento crearSegmento(long numero) throws IOException {
+        Path archivo = directorio.resolve(String.format("%s%012d%s", PREFIJO, numero, EXTENSION));
+        FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).putInt(MAGICO).putInt(FORMATO).putLong(numero).flip();
+        escribir(canal, cabecera, 0);
+        sincronizarDirectorio();
+        Segmento segmento = new Segmento(numero, archivo, canal);
+        segmento.escrito = CABECERA;
+        segmento.durable = CABECERA;
+        return segmento;
+    }
+
+    /** fsync del directorio para que el archivo nuevo también sobreviva a una caída de la máquina. */
+    private void sincronizarDirectorio() {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // No todos los sistemas permiten abrir un directorio; el archivo se sincroniza igual
+            log.debug("No se pudo sincronizar el directorio del spool: {}", e.getMessage());
+        }
+    }
+
+    private long leerCursor() throws IOException {
+        if (cursor.size() < 16) {
+            return 0;
+        }
+        ByteBuffer contenido = ByteBuffer.allocate(16);
+        leer(cursor, contenido, 0);
+        long confirmada = contenido.getLong(4);
+        if (contenido.getInt(0) != MAGICO || contenido.getInt(12) != crc(crcCursor, confirmada, new byte[0])) {
+            // Se reenvía desde el principio de lo que quede, con duplicados (ver SpoolTransacciones)
+            log.warn("Cursor del spool inválido; se reenvía todo lo que queda en los segmentos");
+            return 0;
+        }
+        return confirmada;
+    }
+
+    /** Abre los segmentos existentes en orden y cuenta como pendientes los posteriores al cursor. */
+    private void recuperar() throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            archivos = listado
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+                            && p.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+        for (Path archivo : archivos) {
+            FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            long numero = -1;
+            if (canal.size() >= CABECERA) {
+                leer(canal, cabecera, 0);
+                numero = cabecera.getLong(8);
+            }
+            if (numero < 0 || cabecera.getInt(0) != MAGICO || cabecera.getInt(4) != FORMATO
+                    || (actual != null && numero <= actual.numero)) {
+                log.warn("Segmento {} del spool inválido o fuera de orden; se descarta", archivo);
+                canal.close();
+                Files.delete(archivo);
+                continue;
+            }
+            Segmento segmento = new Segmento(numero, archivo, canal);
+            recorrerAlAbrir(segmento);
+            if (actual != null) {
+                actual.finalizado = true;
+            }
+            segmentos.put(numero, segmento);
+            actual = segmento;
+        }
+        // Los segmentos ya reenviados que no alcanzaron a borrarse
+        for (Segmento segmento : new ArrayList<>(segmentos.values())) {
+            if (segmento != actual && segmento.ultimaSecuencia <= ultimaConfirmada) {
+                segmentos.remove(segmento.numero);
+                segmento.canal.close();
+                Files.delete(segmento.archivo);
+            }
+        }
+    }
+
+    private void recorrerAlAbrir(Segmento segmento) throws IOException {
+        ByteBuffer contenido = ByteBuffer.allocate(Math.toIntExact(segmento.canal.size()));
+        leer(segmento.canal, contenido, 0);
+        int fin = contenido.capacity();
+        int posicion = CABECERA;
+        while (posicion + CABECERA_REGISTRO <= fin) {
+            int largo = contenido.getInt(posicion);
+            if (largo <= 0 || posicion + CABECERA_REGISTRO + largo > fin) {
+                break;
+            }
+            long secuencia = contenido.getLong(posicion + 8);
+            byte[] datos = new byte[largo];
+            contenido.get(posicion + CABECERA_REGISTRO, datos);
+            if ((ultimaSecuencia != 0 && secuencia != ultimaSecuencia + 1)
+                    || contenido.getInt(posicion + 4) != crc(crc, secuencia, datos)) {
+                break;
+            }
+            if (secuencia > ultimaConfirmada) {
+                MensajeSpool mensaje = MensajeSpool.decodificar(secuencia, ByteBuffer.wrap(datos));
+                if (profundidad.getAndIncrement() == 0) {
+                    fechaCabeza = mensaje.fechaMs();
+                    segmentoLectura = segmento.numero;
+                    posicionLectura = posicion;
+                }
+                reservar(mensaje.numeroCuenta(), false);
+            }
+            ultimaSecuencia = secuencia;
+            segmento.ultimaSecuencia = secuencia;
+            posicion += CABECERA_REGISTRO + largo;
+        }
+        if (posicion < fin) {
+            log.warn("Spool truncado en el segmento {} posición {} (registro incompleto o inválido)",
+                    segmento.numero, posicion);
+            segmento.canal.truncate(posicion);
+            segmento.canal.force(false);
+        }
+        segmento.escrito = posicion;
+        segmento.durable = posicion;
+    }
+
+    private static void escribir(FileChannel canal, ByteBuffer contenido, long posicion) throws IOException {
+        while (contenido.hasRemaining()) {
+            posicion += canal.write(contenido, posicion);
+        }
+    }
+
+    private static void leer(FileChannel canal, ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            int leidos = canal.read(destino, posicion);
+            if (leidos < 0) {
+                throw new EOFException("Fin del archivo del spool en la posición " + posicion);
+            }
+            posicion += leidos;
+        }
+    }
+
+    private static int crc(CRC32C crc, long secuencia, byte[] contenido) {
+        crc.reset();
+        for (int i = 56; i >= 0; i -= 8) {
+            crc.update((int) (secuencia >>> i));
+        }
+        crc.update(contenido);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segmento {
+        final long numero;
+        final Path archivo;
+        final FileChannel canal;
+        // escrito y ultimaSecuencia cambian con el candado; finalizado publica su valor final al lector
+        long escrito;
+        long ultimaSecuencia;
+        volatile long durable;
+        volatile boolean finalizado;
+
+        Segmento(long numero, Path archivo, FileChannel canal) {
+            this.numero = numero;
+            this.archivo = archivo;
+            this.canal = canal;
+        }
+    }
+}
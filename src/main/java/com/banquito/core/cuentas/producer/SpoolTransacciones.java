@@ -0,0 +1,281 @@
+package com.banquito.core.cuentas.producer;
+
+import com.banquito.core.cuentas.config.ActiveMQConfig;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.MotivoSpoolEnum;
+import com.banquito.core.cuentas.resiliencia.CircuitoBroker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Almacenar y reenviar: las solicitudes que no se pueden publicar (envío
+ * fallido o circuito del broker abierto) se guardan en un SpoolMensajes local
+ * en lugar de perderse, y la solicitud se responde como encolada. Un hilo de
+ * reenvío las publica en orden de llegada cuando el circuito lo permite, a lo
+ * sumo tasa mensajes por segundo para no saturar al broker recién recuperado.
+ * <p>
+ * Orden por cuenta: mientras una cuenta tenga mensajes en el spool, los nuevos
+ * de esa cuenta también van al spool detrás de ellos. Las demás cuentas siguen
+ * publicando directo. El productor toma el turno de la cuenta (candados
+ * repartidos por hash de la cuenta) desde que decide hasta que termina el envío
+ * directo: así otro mensaje de la misma cuenta no publica directo mientras uno
+ * anterior todavía puede terminar en el spool.
+ * <p>
+ * Solo es entrega al menos una vez si el directorio está en un volumen
+ * persistente: en el disco efímero de un contenedor lo guardado se pierde con
+ * él. Por eso viene apagado (spool.habilitado=false).
+ * <p>
+ * Cada mensaje se reenvía con el mismo cuerpo JSON, tipo y transaccionId que
+ * habría tenido, pero puede llegar dos veces: un envío directo que falla cuando
+ * el broker ya lo había aceptado también se guarda, y tras una caída entre el
+ * envío y el cursor se repite. Que el MS2 descarte el duplicado por
+ * transaccionId NO está confirmado; sin eso un depósito o retiro repetido se
+ * aplica dos veces. Hasta confirmarlo el spool no debe habilitarse, aunque
+ * haya volumen persistente.
+ */
+@Component
+@Slf4j
+public class SpoolTransacciones implements ApplicationRunner {
+
+    private static final String TIPO_CUERPO = TransaccionesSolicitudDTO.class.getName();
+    private static final long ESPERA_SINCRONIZACION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int TURNOS = 1024;
+
+    private final SpoolMensajes spool;
+    private final JmsTemplate jmsTemplate;
+    private final CircuitoBroker circuito;
+    private final ObjectWriter escritor;
+    private final int lote;
+    private final long intervaloNanos;
+    private final long reintentoNanos;
+    private final Counter[] guardados;
+    private final Timer escritura;
+    private final ReentrantLock[] turnos;
+    private volatile Thread reenvio;
+    private volatile boolean detenido;
+
+    public SpoolTransacciones(
+            JmsTemplate jmsTemplate,
+            CircuitoBroker circuito,
+            ObjectMapper objectMapper,
+            MeterRegistry registry,
+            @Value("${spool.habilitado:false}") boolean habilitado,
+            @Value("${spool.directorio:./datos/spool}") String directorio,
+            @Value("${spool.tamano-segmento-mb:16}") int tamanoSegmentoMb,
+            @Value("${spool.max-segmentos:64}") int maxSegmentos,
+            @Value("${spool.reenvio.tasa:200}") int tasa,
+            @Value("${spool.reenvio.lote:100}") int lote,
+            @Value("${spool.reenvio.reintento-ms:1000}") long reintentoMs) {
+        this.jmsTemplate = jmsTemplate;
+        this.circuito = circuito;
+        this.escritor = objectMapper.writerFor(TransaccionesSolicitudDTO.class);
+        this.lote = Math.max(1, lote);
+        this.intervaloNanos = tasa > 0 ? TimeUnit.SECONDS.toNanos(1) / tasa : 0;
+        this.reintentoNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, reintentoMs));
+        MotivoSpoolEnum[] motivos = MotivoSpoolEnum.values();
+        this.guardados = new Counter[motivos.length];
+        for (MotivoSpoolEnum motivo : motivos) {
+            guardados[motivo.ordinal()] = Counter.builder("cuentas.spool.guardados")
+                    .description("Mensajes guardados en el spool en lugar de publicarse")
+                    .tag("motivo", motivo.getValor())
+                    .register(registry);
+        }
+        this.escritura = Timer.builder("cuentas.spool.escritura")
+                .description("Escritura de un mensaje en el spool, incluido el fsync compartido")
+                .register(registry);
+        if (!habilitado) {
+            this.spool = null;
+            this.turnos = null;
+            return;
+        }
+        log.warn("Spool habilitado: un reenvío puede duplicar transacciones si el MS2 no las descarta "
+                + "por transaccionId");
+        this.turnos = new ReentrantLock[TURNOS];
+        for (int i = 0; i < TURNOS; i++) {
+            turnos[i] = new ReentrantLock();
+        }
+        try {
+            this.spool = new SpoolMensajes(Path.of(directorio), (long) tamanoSegmentoMb << 20, maxSegmentos);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el spool de mensajes en " + directorio, e);
+        }
+        Gauge.builder("cuentas.spool.profundidad", spool, SpoolMensajes::profundidad)
+                .description("Mensajes en el spool pendientes de reenvío")
+                .register(registry);
+        Gauge.builder("cuentas.spool.antiguedad", spool, SpoolMensajes::antiguedadSegundos)
+                .description("Antigüedad del mensaje pendiente más viejo del spool")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("cuentas.spool.bytes", spool, SpoolMensajes::bytes)
+                .description("Tamaño de los segmentos del spool")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cuentas.spool.cuentas", spool, SpoolMensajes::cuentasPendientes)
+                .description("Cuentas con mensajes pendientes en el spool")
+                .register(registry);
+        FunctionCounter.builder("cuentas.spool.reenviados", spool, SpoolMensajes::reenviados)
+                .description("Mensajes del spool publicados en el broker")
+                .register(registry);
+        FunctionCounter.builder("cuentas.spool.sincronizaciones", spool, SpoolMensajes::sincronizaciones)
+                .description("Rondas de confirmación en grupo (fsync) del spool")
+                .register(registry);
+    }
+
+    public boolean habilitado() {
+        return spool != null;
+    }
+
+    /**
+     * Candado del turno de la cuenta: se toma antes de reservarSiPendiente y se
+     * suelta después del envío directo o de guardar. Cuentas distintas pueden
+     * compartir candado; solo esperan si una de ellas está enviando.
+     */
+    public ReentrantLock turno(String numeroCuenta) {
+        int hash = numeroCuenta.hashCode();
+        return turnos[(hash ^ (hash >>> 16)) & (TURNOS - 1)];
+    }
+
+    /** Si la cuenta tiene mensajes esperando, reserva su turno detrás de ellos y devuelve true. */
+    public boolean reservarSiPendiente(String numeroCuenta) {
+        return spool.reservar(numeroCuenta, true);
+    }
+
+    /** Guarda el mensaje en disco (con fsync) para reenviarlo; reservado si ya se llamó a reservarSiPendiente. */
+    public void guardar(String cola, TransaccionesSolicitudDTO dto, String transaccionId, boolean reservado,
+                        MotivoSpoolEnum motivo) {
+        String cuenta = dto.getNumeroCuentaOrigen();
+        if (!reservado) {
+            spool.reservar(cuenta, false);
+        }
+        long inicio = System.nanoTime();
+        try {
+            spool.guardar(new MensajeSpool(0, System.currentTimeMillis(), cola, transaccionId, cuenta,
+                    escritor.writeValueAsBytes(dto)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            spool.liberar(cuenta);
+            throw new IllegalStateException("No se pudo guardar en el spool la transacción " + transaccionId, e);
+        } finally {
+            escritura.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+        guardados[motivo.ordinal()].increment();
+        log.debug("Transacción {} guardada en el spool para {} ({}), {} pendientes",
+                transaccionId, cola, motivo, spool.profundidad());
+        Thread hilo = reenvio;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (spool != null) {
+            reenvio = Thread.ofPlatform().daemon().name("spool-reenvio").start(this::reenviar);
+        }
+    }
+
+    @PreDestroy
+    void cerrar() throws IOException {
+        if (spool == null) {
+            return;
+        }
+        detenido = true;
+        Thread hilo = reenvio;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        spool.close();
+    }
+
+    /**
+     * Bucle de reenvío. Con el circuito abierto solo se intenta el primer mensaje
+     * cuando toca la prueba; un fallo corta el lote y se reintenta desde el mismo
+     * mensaje tras reintento-ms.
+     */
+    private void reenviar() {
+        long siguienteEnvio = System.nanoTime();
+        while (!detenido) {
+            if (spool.profundidad() <= 0 || !circuito.permiteEnvio()) {
+                LockSupport.parkNanos(reintentoNanos);
+                continue;
+            }
+            List<MensajeSpool> mensajes = spool.leer(lote);
+            if (mensajes.isEmpty()) {
+                // Lo guardado todavía no pasó el fsync
+                LockSupport.parkNanos(ESPERA_SINCRONIZACION_NANOS);
+                continue;
+            }
+            boolean fallo = false;
+            try {
+                for (MensajeSpool mensaje : mensajes) {
+                    if (detenido) {
+                        break;
+                    }
+                    if (intervaloNanos > 0) {
+                        long espera = siguienteEnvio - System.nanoTime();
+                        if (espera > 0) {
+                            LockSupport.parkNanos(espera);
+                        }
+                        siguienteEnvio = Math.max(siguienteEnvio, System.nanoTime()) + intervaloNanos;
+                    }
+                    publicar(mensaje);
+                    circuito.exito();
+                    spool.confirmar();
+                }
+            } catch (JmsException e) {
+                fallo = true;
+                circuito.fallo();
+                log.warn("Reenvío del spool interrumpido, {} mensajes pendientes: {}",
+                        spool.profundidad(), e.getMessage());
+            } catch (RuntimeException e) {
+                fallo = true;
+                log.error("Error reenviando el spool: {}", e.getMessage(), e);
+            } finally {
+                spool.guardarCursor();
+            }
+            if (fallo) {
+                LockSupport.parkNanos(reintentoNanos);
+            } else if (spool.profundidad() == 0) {
+                log.info("Spool vaciado: {} mensajes reenviados desde el arranque", spool.reenviados());
+            }
+        }
+    }
+
+    private void publicar(MensajeSpool mensaje) {
+        jmsTemplate.send(mensaje.cola(), session -> {
+            TextMessage texto = session.createTextMessage(new String(mensaje.cuerpo(), StandardCharsets.UTF_8));
+            texto.setStringProperty(ActiveMQConfig.PROPIEDAD_TIPO, TIPO_CUERPO);
+            texto.setJMSCorrelationID(mensaje.transaccionId());
+            texto.setStringProperty(TransaccionesProducer.PROPIEDAD_TRANSACCION_ID, mensaje.transaccionId());
+            return texto;
+        });
+    }
+}
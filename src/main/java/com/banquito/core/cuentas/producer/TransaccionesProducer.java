@@ -1,33 +1,55 @@
 package com.banquito.core.cuentas.producer;
 
 import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.MotivoSpoolEnum;
 import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.EnvioParcialExcepcion;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.resiliencia.CircuitoBroker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.JmsException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
 @Component
 @Slf4j
 public class TransaccionesProducer {
 
+    /** Propiedad JMS con el transaccionId; también se envía como JMSCorrelationID. */
+    public static final String PROPIEDAD_TRANSACCION_ID = "transaccionId";
+
     private final JmsTemplate jmsTemplate;
     private final String depositoQueue;
     private final String retiroQueue;
+    private final MetricasTransacciones metricas;
+    private final SpoolTransacciones spool;
+    private final CircuitoBroker circuito;
 
     public TransaccionesProducer(
             JmsTemplate jmsTemplate,
             @Value("${colas.transacciones.deposito:transacciones.deposito}") String depositoQueue,
-            @Value("${colas.transacciones.retiro:transacciones.retiro}") String retiroQueue) {
+            @Value("${colas.transacciones.retiro:transacciones.retiro}") String retiroQueue,
+            MetricasTransacciones metricas,
+            SpoolTransacciones spool,
+            CircuitoBroker circuito) {
         this.jmsTemplate = jmsTemplate;
         this.depositoQueue = depositoQueue;
         this.retiroQueue = retiroQueue;
+        this.metricas = metricas;
+        this.spool = spool;
+        this.circuito = circuito;
     }
 
-    public void enviarDeposito(TransaccionesSolicitudDTO dto) {
+    public void enviarDeposito(TransaccionesSolicitudDTO dto, String transaccionId) {
         try {
             log.info("Enviando DEPÓSITO a cola: {} para cuenta: {}", depositoQueue, dto.getNumeroCuentaOrigen());
-            jmsTemplate.convertAndSend(depositoQueue, dto);
+            enviar(depositoQueue, dto, transaccionId);
             log.info("Depósito enviado exitosamente a cola");
         } catch (Exception e) {
             log.error("Error enviando depósito a cola: {}", e.getMessage(), e);
@@ -35,10 +57,10 @@ public class TransaccionesProducer {
         }
     }
 
-    public void enviarRetiro(TransaccionesSolicitudDTO dto) {
+    public void enviarRetiro(TransaccionesSolicitudDTO dto, String transaccionId) {
         try {
             log.info("Enviando RETIRO a cola: {} para cuenta: {}", retiroQueue, dto.getNumeroCuentaOrigen());
-            jmsTemplate.convertAndSend(retiroQueue, dto);
+            enviar(retiroQueue, dto, transaccionId);
             log.info("Retiro enviado exitosamente a cola");
         } catch (Exception e) {
             log.error("Error enviando retiro a cola: {}", e.getMessage(), e);
@@ -46,7 +68,29 @@ public class TransaccionesProducer {
         }
     }
 
-    public void enviarTransferencia(TransaccionesSolicitudDTO dto) {
+    /**
+     * Id del RETIRO que cobra la comisión de una transacción: un UUID derivado del
+     * transaccionId, así que se puede recalcular y el mismo cobro reenviado lleva
+     * el mismo id.
+     */
+    public static String idComision(String transaccionId) {
+        return UUID.nameUUIDFromBytes(("comision:" + transaccionId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * RETIRO de la cuenta origen por la comisión de la transacción. Usa el mensaje
+     * de retiro que el MS2 ya procesa, sin campos nuevos.
+     */
+    public static TransaccionesSolicitudDTO cargoComision(TransaccionesSolicitudDTO dto, String transaccionId) {
+        return TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen(dto.getNumeroCuentaOrigen())
+                .tipoTransaccion(TipoTransaccionEnum.RETIRO)
+                .monto(dto.getComision())
+                .descripcion("COMISION " + dto.getTipoTransaccion() + " " + transaccionId)
+                .build();
+    }
+
+    public void enviarTransferencia(TransaccionesSolicitudDTO dto, String transaccionId) {
         try {
             log.info("Procesando TRANSFERENCIA: {} -> {} por ${}",
                     dto.getNumeroCuentaOrigen(), dto.getNumeroCuentaDestino(), dto.getMonto());
@@ -72,32 +116,93 @@ public class TransaccionesProducer {
             // 3. Enviar RETIRO a cola
             log.info("Enviando RETIRO de transferencia a cola: {} para cuenta {}",
                     retiroQueue, dto.getNumeroCuentaOrigen());
-            jmsTemplate.convertAndSend(retiroQueue, retiroDto);
+            enviar(retiroQueue, retiroDto, transaccionId);
 
-            // 4. Enviar DEPÓSITO a cola
+            // 4. Enviar DEPÓSITO a cola; si falla, el retiro ya salió y el MS2 lo aplicará
             log.info("Enviando DEPÓSITO de transferencia a cola: {} para cuenta {}",
                     depositoQueue, dto.getNumeroCuentaDestino());
-            jmsTemplate.convertAndSend(depositoQueue, depositoDto);
+            try {
+                enviar(depositoQueue, depositoDto, transaccionId);
+            } catch (RuntimeException e) {
+                log.error("Transferencia {} enviada a medias: retiro publicado, depósito falló: {}",
+                        transaccionId, e.getMessage());
+                throw new EnvioParcialExcepcion(depositoDto, e);
+            }
 
             log.info("Transferencia procesada exitosamente: 2 operaciones enviadas a colas");
 
+        } catch (EnvioParcialExcepcion e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error procesando transferencia: {}", e.getMessage(), e);
             throw new RuntimeException("Error procesando transferencia", e);
         }
     }
 
+    /**
+     * Publica en la cola o, con el spool habilitado, lo guarda para reenviarlo:
+     * si la cuenta ya tiene mensajes en el spool (para no adelantarse), si el
+     * circuito del broker está abierto o si el envío falla. Todo eso ocurre con
+     * el turno de la cuenta tomado: un mensaje posterior de la misma cuenta no
+     * publica directo mientras este todavía puede terminar en el spool.
+     */
+    private void enviar(String cola, TransaccionesSolicitudDTO dto, String transaccionId) {
+        if (!spool.habilitado()) {
+            publicar(cola, dto, transaccionId);
+            return;
+        }
+        ReentrantLock turno = spool.turno(dto.getNumeroCuentaOrigen());
+        turno.lock();
+        try {
+            if (spool.reservarSiPendiente(dto.getNumeroCuentaOrigen())) {
+                spool.guardar(cola, dto, transaccionId, true, MotivoSpoolEnum.ORDEN_CUENTA);
+                return;
+            }
+            if (!circuito.permiteEnvio()) {
+                spool.guardar(cola, dto, transaccionId, false, MotivoSpoolEnum.CIRCUITO_ABIERTO);
+                return;
+            }
+            try {
+                publicar(cola, dto, transaccionId);
+            } catch (MessageConversionException e) {
+                // El mensaje no es publicable: reenviarlo fallaría igual
+                throw e;
+            } catch (JmsException e) {
+                circuito.fallo();
+                log.warn("No se pudo publicar {} en {}: {}; se guarda en el spool",
+                        transaccionId, cola, e.getMessage());
+                spool.guardar(cola, dto, transaccionId, false, MotivoSpoolEnum.FALLO_ENVIO);
+            }
+        } finally {
+            turno.unlock();
+        }
+    }
+
+    private void publicar(String cola, TransaccionesSolicitudDTO dto, String transaccionId) {
+        long inicio = System.nanoTime();
+        try {
+            jmsTemplate.convertAndSend(cola, dto, mensaje -> {
+                mensaje.setJMSCorrelationID(transaccionId);
+                mensaje.setStringProperty(PROPIEDAD_TRANSACCION_ID, transaccionId);
+                return mensaje;
+            });
+            circuito.exito();
+        } finally {
+            metricas.registrarEnvioCola(cola, inicio);
+        }
+    }
+
     // Método unificado (mantener por compatibilidad)
-    public void enviarTransaccion(TransaccionesSolicitudDTO dto) {
+    public void enviarTransaccion(TransaccionesSolicitudDTO dto, String transaccionId) {
         switch (dto.getTipoTransaccion()) {
             case DEPOSITO:
-                enviarDeposito(dto);
+                enviarDeposito(dto, transaccionId);
                 break;
             case RETIRO:
-                enviarRetiro(dto);
+                enviarRetiro(dto, transaccionId);
                 break;
             case TRANSFERENCIA:
-                enviarTransferencia(dto);
+                enviarTransferencia(dto, transaccionId);
                 break;
             default:
                 throw new RuntimeException("Tipo de transacción no soportado: " + dto.getTipoTransaccion());
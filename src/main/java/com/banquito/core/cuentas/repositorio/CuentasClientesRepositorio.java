@@ -20,4 +20,26 @@ public interface CuentasClientesRepositorio extends JpaRepository<CuentasCliente
 
     // CuentasClientesRepositorio.java
     List<CuentasClientes> findByIdCliente(String idCliente);
+
+    // Listado con la cuenta maestra en la misma consulta (el DTO incluye código y nombre)
+    @Query("SELECT cc FROM CuentasClientes cc JOIN FETCH cc.idCuenta WHERE cc.idCliente = :idCliente ORDER BY cc.id")
+    List<CuentasClientes> findConCuentaByIdCliente(@Param("idCliente") String idCliente);
+
+    // Versiones de la cuenta-cliente y de su cuenta maestra, para responder 304 sin cargar la entidad (ETag)
+    @Query("SELECT cc.id AS id, cc.version AS version, c.version AS versionCuenta "
+            + "FROM CuentasClientes cc JOIN cc.idCuenta c WHERE cc.id = :id")
+    Optional<Versiones> findVersionesById(@Param("id") Integer id);
+
+    @Query(value = "SELECT cc.id_cuenta_cliente AS \"id\", cc.version AS \"version\", c.version AS \"versionCuenta\" "
+            + "FROM account.cuentas_clientes cc JOIN account.cuentas c ON c.id_cuenta = cc.id_cuenta "
+            + "WHERE cc.numero_cuenta = :numeroCuenta ORDER BY cc.id_cuenta_cliente ASC LIMIT 1", nativeQuery = true)
+    Optional<Versiones> findVersionesByNumeroCuenta(@Param("numeroCuenta") String numeroCuenta);
+
+    interface Versiones {
+        Integer getId();
+
+        Long getVersion();
+
+        Long getVersionCuenta();
+    }
 }
\ No newline at end of file
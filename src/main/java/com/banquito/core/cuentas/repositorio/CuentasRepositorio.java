@@ -2,7 +2,10 @@ package com.banquito.core.cuentas.repositorio;
 
 import com.banquito.core.cuentas.enums.EstadoGeneralCuentasEnum;
 import com.banquito.core.cuentas.modelo.Cuentas;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,4 +24,19 @@ public interface CuentasRepositorio extends JpaRepository<Cuentas, Integer> {
     List<Cuentas> findByTipoCuentaId(String tipoCuentaId);
     List<Cuentas> findByTasaInteresId(String tasaInteresId);
     List<Cuentas> findByEstado(EstadoGeneralCuentasEnum estado);
+
+    // Ids de catálogos remotos en uso (precarga al arrancar)
+    @Query("SELECT DISTINCT c.tipoCuentaId FROM Cuentas c")
+    List<String> findDistinctTipoCuentaIds();
+
+    @Query("SELECT DISTINCT c.tasaInteresId FROM Cuentas c")
+    List<String> findDistinctTasaInteresIds();
+
+    // Página del listado en streaming por id (keyset): cada página es una consulta corta
+    @Query("SELECT c FROM Cuentas c WHERE c.id > :desde ORDER BY c.id")
+    List<Cuentas> findPaginaDesde(@Param("desde") Integer desde, Limit limite);
+
+    // Solo la versión, para responder 304 sin cargar la entidad (ETag)
+    @Query("SELECT c.version FROM Cuentas c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Integer id);
 }
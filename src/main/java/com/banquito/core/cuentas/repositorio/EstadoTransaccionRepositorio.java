@@ -0,0 +1,13 @@
+package com.banquito.core.cuentas.repositorio;
+
+import com.banquito.core.cuentas.modelo.EstadoTransaccion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EstadoTransaccionRepositorio extends JpaRepository<EstadoTransaccion, String> {
+
+    List<EstadoTransaccion> findTop100ByDepositoPorReenviarTrueOrderByFechaActualizacionAsc();
+}
@@ -0,0 +1,89 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Arriendos de tareas programadas en account.arriendos_tareas, para que las
+ * tareas de cierre corran en una sola instancia aunque todas tengan el cron. Quien
+ * toma el arriendo lo renueva mientras trabaja; si la instancia muere, otra puede
+ * tomarlo cuando expire. Las expiraciones usan el reloj de cada instancia: la
+ * duración debe ser mucho mayor que el desfase entre relojes.
+ * <p>
+ * renovar puede llamarse dentro de la transacción que escribe el trabajo: si el
+ * arriendo ya es de otra instancia, la escritura se revierte.
+ */
+@Component
+@Slf4j
+public class ArriendoTareas {
+
+    private static final String SQL_TOMAR =
+            "UPDATE account.arriendos_tareas SET propietario = ?, expira = ?, fecha_actualizacion = ? "
+                    + "WHERE nombre = ? AND (propietario = ? OR expira < ?)";
+    private static final String SQL_CREAR =
+            "INSERT INTO account.arriendos_tareas (nombre, propietario, expira, fecha_actualizacion) "
+                    + "VALUES (?, ?, ?, ?)";
+    private static final String SQL_RENOVAR =
+            "UPDATE account.arriendos_tareas SET expira = ?, fecha_actualizacion = ? "
+                    + "WHERE nombre = ? AND propietario = ?";
+
+    private final JdbcTemplate jdbc;
+    private final long duracionMs;
+    private final String propietario;
+
+    public ArriendoTareas(
+            DataSource dataSource,
+            @Value("${arriendos.duracion-ms:600000}") long duracionMs) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.duracionMs = duracionMs;
+        this.propietario = Objects.requireNonNullElse(System.getenv("HOSTNAME"), "instancia")
+                + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String propietario() {
+        return propietario;
+    }
+
+    /** Toma el arriendo si está libre, expiró o ya es de esta instancia. */
+    public boolean tomar(String tarea) {
+        Instant ahora = Instant.now();
+        Timestamp expira = Timestamp.from(ahora.plusMillis(duracionMs));
+        if (jdbc.update(SQL_TOMAR, propietario, expira, Timestamp.from(ahora), tarea, propietario,
+                Timestamp.from(ahora)) == 1) {
+            return true;
+        }
+        try {
+            jdbc.update(SQL_CREAR, tarea, propietario, expira, Timestamp.from(ahora));
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Arriendo de {} en manos de otra instancia", tarea);
+            return false;
+        }
+    }
+
+    /** Extiende el arriendo; false si ya no es de esta instancia. */
+    public boolean renovar(String tarea) {
+        Instant ahora = Instant.now();
+        return jdbc.update(SQL_RENOVAR, Timestamp.from(ahora.plusMillis(duracionMs)), Timestamp.from(ahora),
+                tarea, propietario) == 1;
+    }
+
+    /** Deja el arriendo expirado para que otra instancia pueda tomarlo en su próximo turno. */
+    public void liberar(String tarea) {
+        try {
+            Timestamp ahora = Timestamp.from(Instant.now());
+            jdbc.update(SQL_RENOVAR, ahora, ahora, tarea, propietario);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo liberar el arriendo de {}; expirará solo: {}", tarea, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuito de los envíos al broker. Se abre tras fallosParaAbrir envíos
+ * fallidos seguidos; abierto, los envíos van directo al spool sin esperar el
+ * timeout de conexión. Cada espera deja pasar un solo intento de prueba (lo
+ * toma quien llegue primero, normalmente el reenvío del spool) y el primer
+ * envío exitoso lo cierra.
+ */
+@Component
+@Slf4j
+public class CircuitoBroker {
+
+    private final int fallosParaAbrir;
+    private final long esperaNanos;
+    private final AtomicInteger fallosSeguidos = new AtomicInteger();
+    private final AtomicLong proximaPrueba = new AtomicLong();
+    private final Counter aperturas;
+    private volatile boolean abierto;
+
+    public CircuitoBroker(
+            MeterRegistry registry,
+            @Value("${spool.circuito.fallos:3}") int fallosParaAbrir,
+            @Value("${spool.circuito.espera-ms:2000}") long esperaMs) {
+        this.fallosParaAbrir = Math.max(1, fallosParaAbrir);
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        this.aperturas = Counter.builder("cuentas.broker.circuito.aperturas")
+                .description("Veces que se abrió el circuito de envíos al broker")
+                .register(registry);
+        Gauge.builder("cuentas.broker.circuito", this, c -> c.abierto() ? 1 : 0)
+                .description("Circuito de envíos al broker (1 = abierto)")
+                .register(registry);
+    }
+
+    /** true si se puede intentar un envío: circuito cerrado o turno del intento de prueba. */
+    public boolean permiteEnvio() {
+        if (!abierto) {
+            return true;
+        }
+        long ahora = System.nanoTime();
+        long prueba = proximaPrueba.get();
+        return ahora - prueba >= 0 && proximaPrueba.compareAndSet(prueba, ahora + esperaNanos);
+    }
+
+    public void exito() {
+        // Leer antes de escribir: en el camino normal no se toca la línea de caché compartida
+        if (fallosSeguidos.get() != 0) {
+            fallosSeguidos.set(0);
+        }
+        if (abierto) {
+            abierto = false;
+            log.info("Circuito del broker cerrado: el envío de prueba tuvo éxito");
+        }
+    }
+
+    public void fallo() {
+        if (fallosSeguidos.incrementAndGet() < fallosParaAbrir) {
+            return;
+        }
+        proximaPrueba.set(System.nanoTime() + esperaNanos);
+        if (!abierto) {
+            abierto = true;
+            aperturas.increment();
+            log.warn("Circuito del broker abierto tras {} envíos fallidos seguidos", fallosSeguidos.get());
+        }
+    }
+
+    public boolean abierto() {
+        return abierto;
+    }
+}
@@ -0,0 +1,211 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta llamadas GET idempotentes a servicios remotos con "hedging":
+ * si el primer intento no responde dentro del percentil observado de la
+ * dependencia se lanza un segundo intento y gana la primera respuesta exitosa.
+ * Los intentos extra están limitados por un presupuesto relativo al tráfico.
+ */
+@Component
+public class HedgingEjecutor {
+
+    private static final long ESCALA_PRESUPUESTO = 1_000L;
+    private static final int MUESTRAS_MINIMAS = 20;
+
+    private final boolean habilitado;
+    private final long creditoPorSolicitud;
+    private final long creditoMaximo;
+    private final double percentil;
+    private final int ventana;
+    private final long retrasoMinimoNanos;
+    private final MeterRegistry registry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, EstadoDependencia> dependencias = new ConcurrentHashMap<>();
+
+    public HedgingEjecutor(
+            MeterRegistry registry,
+            @Value("${hedging.habilitado:false}") boolean habilitado,
+            @Value("${hedging.presupuesto:0.05}") double presupuesto,
+            @Value("${hedging.percentil:0.95}") double percentil,
+            @Value("${hedging.ventana:256}") int ventana,
+            @Value("${hedging.retraso-minimo-ms:5}") long retrasoMinimoMs) {
+        this.registry = registry;
+        this.habilitado = habilitado;
+        this.creditoPorSolicitud = Math.round(presupuesto * ESCALA_PRESUPUESTO);
+        // Permite una ráfaga corta de hedges sin superar el presupuesto en promedio
+        this.creditoMaximo = 10 * ESCALA_PRESUPUESTO;
+        this.percentil = percentil;
+        this.ventana = ventana;
+        this.retrasoMinimoNanos = TimeUnit.MILLISECONDS.toNanos(retrasoMinimoMs);
+    }
+
+    /**
+     * Ejecuta la llamada remota. Si el hedging está deshabilitado se invoca
+     * directamente en el hilo del llamador.
+     */
+    public <T> T ejecutar(String dependencia, Supplier<T> llamada) {
+        if (!habilitado) {
+            return llamada.get();
+        }
+        EstadoDependencia estado = dependencias.computeIfAbsent(dependencia, this::crearEstado);
+        estado.acreditar();
+
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Intentos intentos = new Intentos();
+        lanzarIntento(llamada, estado, resultado, intentos, false);
+
+        long umbral = estado.umbralNanos;
+        if (umbral > 0) {
+            try {
+                return resultado.get(umbral, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (resultado.isDone()) {
+                    return esperar(dependencia, resultado);
+                }
+                if (estado.consumirPresupuesto()) {
+                    estado.disparados.increment();
+                    lanzarIntento(llamada, estado, resultado, intentos, true);
+                } else {
+                    estado.omitidos.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Llamada a " + dependencia + " interrumpida", e);
+            } catch (ExecutionException e) {
+                throw desenvolver(e);
+            }
+        }
+        return esperar(dependencia, resultado);
+    }
+
+    private <T> void lanzarIntento(Supplier<T> llamada, EstadoDependencia estado,
+            CompletableFuture<T> resultado, Intentos intentos, boolean esCobertura) {
+        intentos.lanzados.incrementAndGet();
+        long inicio = System.nanoTime();
+        CompletableFuture.supplyAsync(llamada, executor).whenComplete((valor, error) -> {
+            if (error == null) {
+                estado.registrarLatencia(System.nanoTime() - inicio);
+                if (resultado.complete(valor) && esCobertura) {
+                    estado.ganados.increment();
+                }
+            } else if (intentos.fallidos.incrementAndGet() >= intentos.lanzados.get()) {
+                // Solo se propaga el error cuando no queda otro intento en curso
+                resultado.completeExceptionally(error);
+            }
+        });
+    }
+
+    private <T> T esperar(String dependencia, CompletableFuture<T> resultado) {
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Llamada a " + dependencia + " interrumpida", e);
+        } catch (ExecutionException e) {
+            throw desenvolver(e);
+        }
+    }
+
+    private static RuntimeException desenvolver(ExecutionException e) {
+        Throwable causa = e.getCause();
+        while (causa instanceof CompletionException && causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        if (causa instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (causa instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(causa);
+    }
+
+    private EstadoDependencia crearEstado(String dependencia) {
+        EstadoDependencia estado = new EstadoDependencia(
+                Counter.builder("cuentas.hedging.disparados")
+                        .description("Segundos intentos lanzados por superar el percentil de latencia")
+                        .tag("dependencia", dependencia)
+                        .register(registry),
+                Counter.builder("cuentas.hedging.ganados")
+                        .description("Segundos intentos que respondieron antes que el primario")
+                        .tag("dependencia", dependencia)
+                        .register(registry),
+                Counter.builder("cuentas.hedging.omitidos")
+                        .description("Hedges no lanzados por agotar el presupuesto")
+                        .tag("dependencia", dependencia)
+                        .register(registry));
+        Gauge.builder("cuentas.hedging.umbral", estado, e -> e.umbralNanos / 1_000_000.0)
+                .description("Umbral de hedging vigente en milisegundos")
+                .tag("dependencia", dependencia)
+                .register(registry);
+        return estado;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private static final class Intentos {
+        private final AtomicInteger lanzados = new AtomicInteger();
+        private final AtomicInteger fallidos = new AtomicInteger();
+    }
+
+    private final class EstadoDependencia {
+        private final VentanaLatencias latencias = new VentanaLatencias(ventana);
+        private final AtomicLong credito = new AtomicLong();
+        private final Counter disparados;
+        private final Counter ganados;
+        private final Counter omitidos;
+        private volatile long umbralNanos;
+
+        private EstadoDependencia(Counter disparados, Counter ganados, Counter omitidos) {
+            this.disparados = disparados;
+            this.ganados = ganados;
+            this.omitidos = omitidos;
+        }
+
+        void acreditar() {
+            credito.getAndUpdate(c -> Math.min(creditoMaximo, c + creditoPorSolicitud));
+        }
+
+        boolean consumirPresupuesto() {
+            long actual;
+            do {
+                actual = credito.get();
+                if (actual < ESCALA_PRESUPUESTO) {
+                    return false;
+                }
+            } while (!credito.compareAndSet(actual, actual - ESCALA_PRESUPUESTO));
+            return true;
+        }
+
+        void registrarLatencia(long nanos) {
+            long n = latencias.registrar(nanos);
+            // Recalcular el percentil cada 32 muestras mantiene el costo amortizado bajo
+            if (n >= MUESTRAS_MINIMAS && ((n - 1) & 31) == 0) {
+                umbralNanos = Math.max(retrasoMinimoNanos, latencias.percentil(percentil));
+            }
+        }
+    }
+}
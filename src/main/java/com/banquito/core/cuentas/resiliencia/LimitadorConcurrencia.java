@@ -0,0 +1,172 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite adaptativo de peticiones concurrentes (algoritmo de gradiente).
+ * Por cada ventana de tiempo compara la latencia media con una media de largo
+ * plazo: si la reciente crece (BD o broker lentos, peticiones esperando en
+ * cola) el límite baja en proporción; si se mantiene, el límite sube de a
+ * poco. Las lecturas pueden usar todo el límite y las escrituras solo una
+ * fracción, para que las consultas sigan respondiendo cuando las escrituras
+ * se acumulan.
+ */
+@Component
+@Slf4j
+public class LimitadorConcurrencia {
+
+    private final boolean habilitado;
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final double tolerancia;
+    private final double suavizado;
+    private final double fraccionEscrituras;
+    private final long ventanaNanos;
+    private final int muestrasMinimas;
+    private final double factorLargo;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private volatile double limite;
+
+    // Estado de la ventana y media de largo plazo, protegidos por el monitor
+    private long inicioVentana = System.nanoTime();
+    private long sumaLatencias;
+    private int muestras;
+    private int maxConcurrentes;
+    private double latenciaLarga;
+
+    private final Counter descartadasLectura;
+    private final Counter descartadasEscritura;
+
+    public LimitadorConcurrencia(
+            MeterRegistry registry,
+            @Value("${concurrencia.habilitado:true}") boolean habilitado,
+            @Value("${concurrencia.limite-inicial:50}") int limiteInicial,
+            @Value("${concurrencia.limite-minimo:8}") int limiteMinimo,
+            @Value("${concurrencia.limite-maximo:400}") int limiteMaximo,
+            @Value("${concurrencia.tolerancia:1.5}") double tolerancia,
+            @Value("${concurrencia.suavizado:0.2}") double suavizado,
+            @Value("${concurrencia.fraccion-escrituras:0.8}") double fraccionEscrituras,
+            @Value("${concurrencia.ventana-ms:250}") long ventanaMs,
+            @Value("${concurrencia.muestras-minimas:10}") int muestrasMinimas,
+            @Value("${concurrencia.ventanas-largo-plazo:600}") int ventanasLargoPlazo) {
+        this.habilitado = habilitado;
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.tolerancia = tolerancia;
+        this.suavizado = suavizado;
+        this.fraccionEscrituras = fraccionEscrituras;
+        this.ventanaNanos = ventanaMs * 1_000_000L;
+        this.muestrasMinimas = muestrasMinimas;
+        this.factorLargo = 2.0 / (ventanasLargoPlazo + 1);
+        this.limite = Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial));
+
+        Gauge.builder("cuentas.concurrencia.limite", this, LimitadorConcurrencia::getLimite)
+                .description("Límite adaptativo de peticiones concurrentes")
+                .register(registry);
+        Gauge.builder("cuentas.concurrencia.en-curso", enCurso, AtomicInteger::get)
+                .description("Peticiones en curso contadas por el límite de concurrencia")
+                .register(registry);
+        this.descartadasLectura = contador(registry, "lectura");
+        this.descartadasEscritura = contador(registry, "escritura");
+    }
+
+    /** Reserva un lugar para la petición; false si hay que descartarla. */
+    public boolean adquirir(boolean escritura) {
+        if (!habilitado) {
+            return true;
+        }
+        int tope = (int) (escritura ? limite * fraccionEscrituras : limite);
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= Math.max(1, tope)) {
+                (escritura ? descartadasEscritura : descartadasLectura).increment();
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera el lugar y, si la latencia es representativa, ajusta el límite.
+     * Las peticiones que pasan a modo asíncrono (SSE) no aportan muestra.
+     */
+    public void liberar(long latenciaNanos, boolean muestra) {
+        if (!habilitado) {
+            return;
+        }
+        int concurrentes = enCurso.getAndDecrement();
+        if (muestra && latenciaNanos > 0) {
+            registrar(latenciaNanos, concurrentes);
+        }
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public int getEnCurso() {
+        return enCurso.get();
+    }
+
+    private synchronized void registrar(long latenciaNanos, int concurrentes) {
+        sumaLatencias += latenciaNanos;
+        muestras++;
+        maxConcurrentes = Math.max(maxConcurrentes, concurrentes);
+        long ahora = System.nanoTime();
+        if (ahora - inicioVentana < ventanaNanos || muestras < muestrasMinimas) {
+            return;
+        }
+        ajustar((double) sumaLatencias / muestras, maxConcurrentes);
+        inicioVentana = ahora;
+        sumaLatencias = 0;
+        muestras = 0;
+        maxConcurrentes = 0;
+    }
+
+    // Paquete para las pruebas: aplica el gradiente de una ventana ya cerrada
+    void ajustar(double latenciaCorta, int concurrentes) {
+        if (latenciaLarga == 0) {
+            latenciaLarga = latenciaCorta;
+            return;
+        }
+        latenciaLarga += factorLargo * (latenciaCorta - latenciaLarga);
+
+        // Tras una degradación larga la media de largo plazo queda alta y el
+        // límite tardaría en recuperarse: se la acerca más rápido a la reciente
+        if (latenciaLarga / latenciaCorta > 2) {
+            latenciaLarga *= 0.95;
+        }
+        // Con poca carga la latencia no dice nada sobre la capacidad
+        if (concurrentes < limite / 2) {
+            return;
+        }
+
+        double gradiente = Math.max(0.5, Math.min(1.0, tolerancia * latenciaLarga / latenciaCorta));
+        double actual = limite;
+        double nuevo = actual * gradiente + Math.sqrt(actual);
+        nuevo = actual * (1 - suavizado) + nuevo * suavizado;
+        nuevo = Math.max(limiteMinimo, Math.min(limiteMaximo, nuevo));
+        if ((int) nuevo != (int) actual) {
+            log.debug("Límite de concurrencia {} -> {} (latencia corta {} µs, larga {} µs)",
+                    (int) actual, (int) nuevo, (long) latenciaCorta / 1_000, (long) latenciaLarga / 1_000);
+        }
+        limite = nuevo;
+    }
+
+    private static Counter contador(MeterRegistry registry, String tipo) {
+        return Counter.builder("cuentas.concurrencia.descartadas")
+                .description("Peticiones descartadas con 503 por el límite de concurrencia")
+                .tag("tipo", tipo)
+                .register(registry);
+    }
+}
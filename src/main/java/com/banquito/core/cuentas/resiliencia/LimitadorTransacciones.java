@@ -0,0 +1,190 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import com.banquito.core.cuentas.config.LimitesTransaccionesPropiedades;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.LimiteExcedidoExcepcion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de tasa por cuenta origen y por cliente de la API, con cubetas GCRA:
+ * cada clave guarda solo su instante teórico de llegada (TAT) en un AtomicLong
+ * y admitir una petición es un compareAndSet, sin bloqueos ni hilos de recarga.
+ * Una cubeta cuyo TAT ya pasó equivale a una cubeta llena, así que expulsarla
+ * no cambia ninguna decisión; eso permite acotar el mapa sin perder límites.
+ * Un cliente null (petición sin usuario ni cabecera de cliente) solo se limita
+ * por cuenta.
+ */
+@Component
+@Slf4j
+public class LimitadorTransacciones {
+
+    private static final String CUENTA = "cuenta";
+    private static final String CLIENTE = "cliente";
+
+    private final boolean habilitado;
+    private final String cabeceraCliente;
+    private final Regla[] porCuenta;
+    private final Regla[] porCliente;
+
+    public LimitadorTransacciones(LimitesTransaccionesPropiedades propiedades, MeterRegistry registry) {
+        this.habilitado = propiedades.isHabilitado();
+        String cabecera = propiedades.getCabeceraCliente();
+        this.cabeceraCliente = cabecera == null || cabecera.isBlank() ? null : cabecera.trim();
+        TipoTransaccionEnum[] tipos = TipoTransaccionEnum.values();
+        this.porCuenta = new Regla[tipos.length];
+        this.porCliente = new Regla[tipos.length];
+        for (TipoTransaccionEnum tipo : tipos) {
+            porCuenta[tipo.ordinal()] = Regla.crear(propiedades.getCuenta().get(tipo), propiedades.getMaxClaves(),
+                    contador(registry, CUENTA, tipo));
+            porCliente[tipo.ordinal()] = Regla.crear(propiedades.getCliente().get(tipo), propiedades.getMaxClaves(),
+                    contador(registry, CLIENTE, tipo));
+        }
+    }
+
+    /**
+     * Consume un permiso de la cuenta y otro del cliente, o lanza LimiteExcedidoExcepcion
+     * sin consumir ninguno: si el cliente rechaza, el permiso de la cuenta se devuelve.
+     */
+    public void verificar(TipoTransaccionEnum tipo, String numeroCuenta, String cliente) {
+        if (!habilitado) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        Regla cuenta = porCuenta[tipo.ordinal()];
+        comprobar(cuenta, numeroCuenta, ahora, CUENTA, tipo);
+        try {
+            comprobar(porCliente[tipo.ordinal()], cliente, ahora, CLIENTE, tipo);
+        } catch (LimiteExcedidoExcepcion e) {
+            if (cuenta != null && numeroCuenta != null) {
+                cuenta.devolver(numeroCuenta);
+            }
+            throw e;
+        }
+    }
+
+    /** Cabecera de confianza con el id del cliente, o null si no se configuró. */
+    public String getCabeceraCliente() {
+        return cabeceraCliente;
+    }
+
+    @Scheduled(fixedDelayString = "${limites.transacciones.expulsion-ms:30000}")
+    public void expulsarOciosas() {
+        long ahora = System.nanoTime();
+        for (int i = 0; i < porCuenta.length; i++) {
+            if (porCuenta[i] != null) {
+                porCuenta[i].expulsarOciosas(ahora);
+            }
+            if (porCliente[i] != null) {
+                porCliente[i].expulsarOciosas(ahora);
+            }
+        }
+    }
+
+    private static void comprobar(Regla regla, String clave, long ahora, String dimension, TipoTransaccionEnum tipo) {
+        if (regla == null || clave == null) {
+            return;
+        }
+        long espera = regla.adquirir(clave, ahora);
+        if (espera > 0) {
+            regla.rechazos.increment();
+            long segundos = Math.max(1, (espera + 999_999_999L) / 1_000_000_000L);
+            throw new LimiteExcedidoExcepcion("Limite",
+                    "Demasiadas transacciones " + tipo + " para " + dimension + " " + clave
+                            + ". Reintente en " + segundos + " s", segundos);
+        }
+    }
+
+    private static Counter contador(MeterRegistry registry, String dimension, TipoTransaccionEnum tipo) {
+        return Counter.builder("cuentas.transacciones.limitadas")
+                .description("Transacciones rechazadas por límite de tasa")
+                .tag("dimension", dimension)
+                .tag("tipo", tipo.name())
+                .register(registry);
+    }
+
+    /** Límite de un tipo y dimensión con sus cubetas. */
+    static final class Regla {
+        private final long intervaloNanos;
+        private final long toleranciaNanos;
+        private final int maxClaves;
+        private final Counter rechazos;
+        private final Map<String, AtomicLong> cubetas = new ConcurrentHashMap<>();
+        private final AtomicBoolean expulsando = new AtomicBoolean();
+
+        Regla(double tasa, int rafaga, int maxClaves, Counter rechazos) {
+            this.intervaloNanos = Math.max(1L, Math.round(1_000_000_000.0 / tasa));
+            this.toleranciaNanos = intervaloNanos * Math.max(1, rafaga);
+            this.maxClaves = maxClaves;
+            this.rechazos = rechazos;
+        }
+
+        static Regla crear(LimitesTransaccionesPropiedades.Limite limite, int maxClaves, Counter rechazos) {
+            return limite != null && limite.getTasa() > 0
+                    ? new Regla(limite.getTasa(), limite.getRafaga(), maxClaves, rechazos)
+                    : null;
+        }
+
+        /** Devuelve 0 si se admite la petición o los nanosegundos que faltan para que se admita. */
+        long adquirir(String clave, long ahora) {
+            AtomicLong tat = cubetas.get(clave);
+            if (tat == null) {
+                if (cubetas.size() >= maxClaves && !hacerEspacio(ahora)) {
+                    // Sin espacio ni cubetas ociosas: se admite antes que rechazar tráfico legítimo
+                    return 0;
+                }
+                long inicial = ahora;
+                tat = cubetas.computeIfAbsent(clave, k -> new AtomicLong(inicial));
+            }
+            boolean relojActualizado = false;
+            while (true) {
+                long actual = tat.get();
+                long siguiente = Math.max(actual, ahora) + intervaloNanos;
+                long exceso = siguiente - ahora - toleranciaNanos;
+                if (exceso > 0) {
+                    if (relojActualizado) {
+                        return exceso;
+                    }
+                    // El hilo pudo quedar en pausa tras leer el reloj: se confirma con una lectura nueva
+                    ahora = System.nanoTime();
+                    relojActualizado = true;
+                    continue;
+                }
+                if (tat.compareAndSet(actual, siguiente)) {
+                    return 0;
+                }
+            }
+        }
+
+        /** Deshace un adquirir admitido: el TAT retrocede un intervalo. */
+        void devolver(String clave) {
+            AtomicLong tat = cubetas.get(clave);
+            if (tat != null) {
+                tat.addAndGet(-intervaloNanos);
+            }
+        }
+
+        private boolean hacerEspacio(long ahora) {
+            if (expulsando.compareAndSet(false, true)) {
+                try {
+                    expulsarOciosas(ahora);
+                } finally {
+                    expulsando.set(false);
+                }
+            }
+            return cubetas.size() < maxClaves;
+        }
+
+        void expulsarOciosas(long ahora) {
+            cubetas.values().removeIf(tat -> tat.get() <= ahora);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ventana circular con las últimas latencias de una dependencia. La escriben los
+ * hilos que completan llamadas sin candado: cada muestra toma su ranura con un
+ * contador atómico y se publica con AtomicLongArray, así que ninguna se pierde ni
+ * se lee a medias.
+ */
+final class VentanaLatencias {
+
+    private final AtomicLongArray latencias;
+    private final AtomicLong registradas = new AtomicLong();
+
+    VentanaLatencias(int tamano) {
+        this.latencias = new AtomicLongArray(Math.max(1, tamano));
+    }
+
+    /** Registra la muestra y devuelve cuántas se registraron desde el inicio, incluida esta. */
+    long registrar(long nanos) {
+        long n = registradas.getAndIncrement();
+        latencias.set((int) (n % latencias.length()), nanos);
+        return n + 1;
+    }
+
+    long registradas() {
+        return registradas.get();
+    }
+
+    /**
+     * Percentil de las muestras de la ventana, 0 si no hay. Una ranura ya tomada
+     * por otro hilo pero todavía sin escribir vale 0 y no se cuenta.
+     */
+    long percentil(double percentil) {
+        int muestras = (int) Math.min(registradas.get(), latencias.length());
+        long[] copia = new long[muestras];
+        int validas = 0;
+        for (int i = 0; i < muestras; i++) {
+            long latencia = latencias.get(i);
+            if (latencia > 0) {
+                copia[validas++] = latencia;
+            }
+        }
+        if (validas == 0) {
+            return 0;
+        }
+        Arrays.sort(copia, 0, validas);
+        int indice = (int) Math.min(validas - 1, Math.ceil(percentil * validas) - 1);
+        return copia[Math.max(indice, 0)];
+    }
+}
@@ -0,0 +1,41 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+
+/**
+ * Dónde guarda el modelo de lectura los saldos por número de cuenta. La
+ * política (TTL, recarga desde la BD, orden por versión) vive en
+ * SaldosCuentasServicio; el almacén solo guarda y devuelve.
+ */
+public interface AlmacenSaldos {
+
+    /** Saldo guardado y el instante (epoch ms) en que se confirmó; null si no está. */
+    EntradaSaldo leer(String numeroCuenta);
+
+    /**
+     * Guarda el saldo salvo que el almacén ya tenga una versión posterior;
+     * devuelve el vigente. Si no hay lugar para una cuenta nueva la descarta y
+     * devuelve el mismo saldo.
+     */
+    SaldoCuentaDTO guardar(SaldoCuentaDTO saldo, long confirmadoMs);
+
+    long tamano();
+
+    /** true si los saldos sobreviven a un reinicio. */
+    default boolean persistente() {
+        return false;
+    }
+
+    /** Cuentas que el almacén ya tenía al abrirse (solo persistentes). */
+    default long recuperadas() {
+        return 0;
+    }
+
+    record EntradaSaldo(SaldoCuentaDTO saldo, long confirmadoMs) {
+    }
+
+    static boolean esAnterior(SaldoCuentaDTO candidato, SaldoCuentaDTO actual) {
+        return candidato.getVersion() != null && actual.getVersion() != null
+                && candidato.getVersion() < actual.getVersion();
+    }
+}
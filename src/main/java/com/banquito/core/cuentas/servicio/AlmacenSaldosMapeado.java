@@ -0,0 +1,357 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Almacén fuera del heap sobre un archivo mapeado en memoria: una tabla hash de
+ * direccionamiento abierto (sondeo lineal) con el número de cuenta de 10 dígitos
+ * como clave long. Cada cuenta ocupa una ranura fija de 64 bytes; el estado
+ * vive en el archivo y no en objetos, así que no pesa en el GC y sobrevive al
+ * reinicio. El sistema operativo decide qué páginas quedan en RAM.
+ * <p>
+ * Concurrencia sin bloqueos en la lectura: cada ranura tiene un contador de
+ * secuencia (seqlock). El escritor lo pone impar, escribe y lo vuelve par; el
+ * lector reintenta si lo vio impar o cambió mientras leía. Las claves se
+ * reclaman con CAS y nunca se borran.
+ * <p>
+ * Números que no son exactamente 10 dígitos no se guardan (leer devuelve null
+ * y el servicio va a la BD). Las altas se rechazan al superar el factor de
+ * carga, igual que el máximo del almacén en memoria.
+ */
+@Slf4j
+public class AlmacenSaldosMapeado implements AlmacenSaldos, Closeable {
+
+    private static final long MAGICO = 0x4241_4E51_5341_4C44L; // "BANQSALD"
+    private static final long FORMATO = 2;
+    private static final int CABECERA = 4096;
+    private static final int RANURA = 64;
+    /** 2^24 ranuras de 64 bytes: 1 GiB, el máximo de un MappedByteBuffer. */
+    private static final int BITS_SEGMENTO = 24;
+
+    // Cabecera
+    private static final int H_MAGICO = 0;
+    private static final int H_FORMATO = 8;
+    private static final int H_CAPACIDAD = 16;
+    private static final int H_CUENTAS = 24;
+    private static final int H_LIMPIO = 32;
+
+    // Ranura
+    private static final int CLAVE = 0;
+    private static final int SECUENCIA = 8;
+    private static final int DISPONIBLE = 16;
+    private static final int CONTABLE = 24;
+    private static final int VERSION = 32;
+    private static final int FECHA = 40;
+    private static final int CONFIRMADO = 48;
+    /** Estado (ordinal + 1) en los 8 bits bajos y producto (idCuenta + 1) en los 32 altos. */
+    private static final int ESTADO = 56;
+
+    private static final long NULO = Long.MIN_VALUE;
+    private static final VarHandle LARGO = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final EstadoCuentaClienteEnum[] ESTADOS = EstadoCuentaClienteEnum.values();
+
+    private final Path archivo;
+    private final FileChannel canal;
+    private final MappedByteBuffer cabecera;
+    private final MappedByteBuffer[] segmentos;
+    private final long capacidad;
+    private final long mascara;
+    private final int bitsSegmento;
+    private final long mascaraSegmento;
+    private final long maxCuentas;
+    private final long recuperadas;
+
+    /**
+     * Abre el archivo o lo crea con lugar para cuentasMaximas a factorCarga. Un
+     * archivo de otro formato, orden de bytes o capacidad se descarta y se crea
+     * vacío (el servicio lo vuelve a cargar desde la BD).
+     */
+    public AlmacenSaldosMapeado(Path archivo, long cuentasMaximas, double factorCarga) throws IOException {
+        this.archivo = archivo;
+        this.capacidad = Long.highestOneBit(Math.max(2, (long) Math.ceil(cuentasMaximas / factorCarga)) * 2 - 1);
+        this.mascara = capacidad - 1;
+        this.maxCuentas = (long) (capacidad * factorCarga);
+        this.bitsSegmento = Math.min(BITS_SEGMENTO, Long.numberOfTrailingZeros(capacidad));
+        this.mascaraSegmento = (1L << bitsSegmento) - 1;
+
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        this.canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long largo = CABECERA + capacidad * RANURA;
+        boolean existente = canal.size() >= CABECERA && compatible();
+        if (!existente) {
+            if (canal.size() > 0) {
+                log.warn("Almacén de saldos {} con otro formato o capacidad; se crea vacío", archivo);
+            }
+            canal.truncate(0);
+        }
+        if (canal.size() < largo) {
+            // Archivo disperso: solo ocupan disco las páginas escritas
+            canal.write(ByteBuffer.allocate(1), largo - 1);
+        }
+
+        this.cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, CABECERA);
+        int cantidad = (int) (capacidad >>> bitsSegmento);
+        this.segmentos = new MappedByteBuffer[cantidad];
+        long bytesSegmento = (long) RANURA << bitsSegmento;
+        for (int i = 0; i < cantidad; i++) {
+            segmentos[i] = canal.map(FileChannel.MapMode.READ_WRITE, CABECERA + i * bytesSegmento, bytesSegmento);
+        }
+
+        if (existente) {
+            if ((long) LARGO.getVolatile(cabecera, H_LIMPIO) != 1) {
+                reparar();
+            }
+        } else {
+            LARGO.set(cabecera, H_FORMATO, FORMATO);
+            LARGO.set(cabecera, H_CAPACIDAD, capacidad);
+            LARGO.set(cabecera, H_CUENTAS, 0L);
+            LARGO.setVolatile(cabecera, H_MAGICO, MAGICO);
+        }
+        this.recuperadas = tamano();
+        // Se marca "sucio" mientras esté abierto; close() lo vuelve a marcar limpio
+        LARGO.setVolatile(cabecera, H_LIMPIO, 0L);
+        cabecera.force();
+        log.info("Almacén de saldos {}: {} ranuras ({} MB), {} cuentas recuperadas",
+                archivo, capacidad, largo >> 20, recuperadas);
+    }
+
+    @Override
+    public EntradaSaldo leer(String numeroCuenta) {
+        long clave = clave(numeroCuenta);
+        if (clave < 0) {
+            return null;
+        }
+        long i = mezclar(clave) & mascara;
+        for (long intentos = 0; intentos < capacidad; intentos++, i = (i + 1) & mascara) {
+            MappedByteBuffer segmento = segmentos[(int) (i >>> bitsSegmento)];
+            int base = (int) ((i & mascaraSegmento) * RANURA);
+            long actual = (long) LARGO.getAcquire(segmento, base + CLAVE);
+            if (actual == 0) {
+                return null;
+            }
+            if (actual == clave) {
+                return leerRanura(segmento, base, numeroCuenta);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SaldoCuentaDTO guardar(SaldoCuentaDTO saldo, long confirmadoMs) {
+        long clave = clave(saldo.getNumeroCuenta());
+        if (clave < 0) {
+            return saldo;
+        }
+        long i = mezclar(clave) & mascara;
+        for (long intentos = 0; intentos < capacidad; ) {
+            MappedByteBuffer segmento = segmentos[(int) (i >>> bitsSegmento)];
+            int base = (int) ((i & mascaraSegmento) * RANURA);
+            long actual = (long) LARGO.getAcquire(segmento, base + CLAVE);
+            if (actual == 0) {
+                if (tamano() >= maxCuentas) {
+                    return saldo;
+                }
+                if (!LARGO.compareAndSet(segmento, base + CLAVE, 0L, clave)) {
+                    // Otro hilo reclamó la ranura; se vuelve a mirar la misma
+                    continue;
+                }
+                LARGO.getAndAdd(cabecera, H_CUENTAS, 1L);
+                return escribir(segmento, base, saldo, confirmadoMs);
+            }
+            if (actual == clave) {
+                return escribir(segmento, base, saldo, confirmadoMs);
+            }
+            intentos++;
+            i = (i + 1) & mascara;
+        }
+        return saldo;
+    }
+
+    @Override
+    public long tamano() {
+        return (long) LARGO.getVolatile(cabecera, H_CUENTAS);
+    }
+
+    @Override
+    public boolean persistente() {
+        return true;
+    }
+
+    @Override
+    public long recuperadas() {
+        return recuperadas;
+    }
+
+    /** Tamaño del archivo mapeado. */
+    public long bytes() {
+        return CABECERA + capacidad * RANURA;
+    }
+
+    /** Baja las páginas modificadas a disco y marca el archivo como cerrado limpio. */
+    @Override
+    public void close() {
+        for (MappedByteBuffer segmento : segmentos) {
+            segmento.force();
+        }
+        LARGO.setVolatile(cabecera, H_LIMPIO, 1L);
+        cabecera.force();
+        try {
+            canal.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el almacén de saldos {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    private EntradaSaldo leerRanura(MappedByteBuffer segmento, int base, String numeroCuenta) {
+        while (true) {
+            long secuencia = (long) LARGO.getAcquire(segmento, base + SECUENCIA);
+            if (secuencia == 0) {
+                // Clave reclamada pero todavía sin datos
+                return null;
+            }
+            if ((secuencia & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long disponible = (long) LARGO.get(segmento, base + DISPONIBLE);
+            long contable = (long) LARGO.get(segmento, base + CONTABLE);
+            long version = (long) LARGO.get(segmento, base + VERSION);
+            long fecha = (long) LARGO.get(segmento, base + FECHA);
+            long confirmado = (long) LARGO.get(segmento, base + CONFIRMADO);
+            long estado = (long) LARGO.get(segmento, base + ESTADO);
+            VarHandle.acquireFence();
+            if ((long) LARGO.get(segmento, base + SECUENCIA) == secuencia) {
+                return new EntradaSaldo(
+                        saldo(numeroCuenta, disponible, contable, version, fecha, estado), confirmado);
+            }
+        }
+    }
+
+    private SaldoCuentaDTO escribir(MappedByteBuffer segmento, int base, SaldoCuentaDTO saldo, long confirmadoMs) {
+        long secuencia;
+        while (true) {
+            secuencia = (long) LARGO.getVolatile(segmento, base + SECUENCIA);
+            if ((secuencia & 1) == 0 && LARGO.compareAndSet(segmento, base + SECUENCIA, secuencia, secuencia + 1)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        if (secuencia != 0) {
+            long version = (long) LARGO.get(segmento, base + VERSION);
+            if (saldo.getVersion() != null && version != NULO && saldo.getVersion() < version) {
+                SaldoCuentaDTO vigente = saldo(saldo.getNumeroCuenta(),
+                        (long) LARGO.get(segmento, base + DISPONIBLE),
+                        (long) LARGO.get(segmento, base + CONTABLE),
+                        version,
+                        (long) LARGO.get(segmento, base + FECHA),
+                        (long) LARGO.get(segmento, base + ESTADO));
+                // Sin cambios: se devuelve la misma secuencia par
+                LARGO.setRelease(segmento, base + SECUENCIA, secuencia);
+                return vigente;
+            }
+        }
+        LARGO.set(segmento, base + DISPONIBLE, saldo.getSaldoDisponibleCentavos());
+        LARGO.set(segmento, base + CONTABLE, saldo.getSaldoContableCentavos());
+        LARGO.set(segmento, base + VERSION, saldo.getVersion() == null ? NULO : saldo.getVersion());
+        LARGO.set(segmento, base + FECHA,
+                saldo.getFechaActualizacion() == null ? NULO : saldo.getFechaActualizacion().toEpochMilli());
+        LARGO.set(segmento, base + CONFIRMADO, confirmadoMs);
+        LARGO.set(segmento, base + ESTADO, (saldo.getEstado() == null ? 0L : saldo.getEstado().ordinal() + 1L)
+                | (saldo.getIdCuenta() == null ? 0L : (saldo.getIdCuenta() + 1L) << 32));
+        LARGO.setRelease(segmento, base + SECUENCIA, secuencia + 2);
+        return saldo;
+    }
+
+    private static SaldoCuentaDTO saldo(String numeroCuenta, long disponible, long contable, long version,
+                                        long fecha, long estado) {
+        return SaldoCuentaDTO.builder()
+                .numeroCuenta(numeroCuenta)
+                .saldoDisponibleCentavos(disponible)
+                .saldoContableCentavos(contable)
+                .version(version == NULO ? null : version)
+                .fechaActualizacion(fecha == NULO ? null : Instant.ofEpochMilli(fecha))
+                .estado((estado & 0xFF) == 0 ? null : ESTADOS[(int) (estado & 0xFF) - 1])
+                .idCuenta((estado >>> 32) == 0 ? null : (int) ((estado >>> 32) - 1))
+                .build();
+    }
+
+    private boolean compatible() throws IOException {
+        ByteBuffer leida = ByteBuffer.allocate(CABECERA).order(ByteOrder.nativeOrder());
+        canal.read(leida, 0);
+        return leida.getLong(H_MAGICO) == MAGICO
+                && leida.getLong(H_FORMATO) == FORMATO
+                && leida.getLong(H_CAPACIDAD) == capacidad;
+    }
+
+    /**
+     * Tras una caída (archivo no cerrado limpio) una ranura puede haber quedado
+     * a medio escribir con la secuencia impar. Se cierra la secuencia y se marca
+     * como no confirmada, así la primera lectura la recarga de la BD. El
+     * contador de cuentas se recalcula desde las claves.
+     */
+    private void reparar() {
+        long inicio = System.nanoTime();
+        long reparadas = 0;
+        long cuentas = 0;
+        for (long i = 0; i < capacidad; i++) {
+            MappedByteBuffer segmento = segmentos[(int) (i >>> bitsSegmento)];
+            int base = (int) ((i & mascaraSegmento) * RANURA);
+            if ((long) LARGO.get(segmento, base + CLAVE) != 0) {
+                cuentas++;
+            }
+            long secuencia = (long) LARGO.get(segmento, base + SECUENCIA);
+            if ((secuencia & 1) != 0) {
+                LARGO.set(segmento, base + CONFIRMADO, 0L);
+                LARGO.set(segmento, base + SECUENCIA, secuencia + 1);
+                reparadas++;
+            }
+        }
+        LARGO.set(cabecera, H_CUENTAS, cuentas);
+        log.warn("Almacén de saldos {} no se cerró limpio: {} ranuras reparadas en {} ms",
+                archivo, reparadas, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /** Número de 10 dígitos + 1 (el 0 marca ranura vacía); -1 si no es válido. */
+    static long clave(String numeroCuenta) {
+        if (numeroCuenta == null || numeroCuenta.length() != 10) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = numeroCuenta.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor + 1;
+    }
+
+    // Mezcla final de MurmurHash3: números consecutivos quedan dispersos en la tabla
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
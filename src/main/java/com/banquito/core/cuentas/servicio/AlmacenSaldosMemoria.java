@@ -0,0 +1,38 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Almacén en el heap (ConcurrentHashMap) con un máximo de cuentas; se pierde al reiniciar. */
+public class AlmacenSaldosMemoria implements AlmacenSaldos {
+
+    private final Map<String, EntradaSaldo> modelo = new ConcurrentHashMap<>();
+    private final int maxCuentas;
+
+    public AlmacenSaldosMemoria(int maxCuentas) {
+        this.maxCuentas = maxCuentas;
+    }
+
+    @Override
+    public EntradaSaldo leer(String numeroCuenta) {
+        return modelo.get(numeroCuenta);
+    }
+
+    @Override
+    public SaldoCuentaDTO guardar(SaldoCuentaDTO saldo, long confirmadoMs) {
+        EntradaSaldo nueva = new EntradaSaldo(saldo, confirmadoMs);
+        if (modelo.size() >= maxCuentas && !modelo.containsKey(saldo.getNumeroCuenta())) {
+            return saldo;
+        }
+        return modelo.merge(saldo.getNumeroCuenta(), nueva,
+                (actual, candidata) -> AlmacenSaldos.esAnterior(candidata.saldo(), actual.saldo()) ? actual : candidata)
+                .saldo();
+    }
+
+    @Override
+    public long tamano() {
+        return modelo.size();
+    }
+}
@@ -0,0 +1,105 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TasaInteresDTO;
+import com.banquito.core.cuentas.enums.BaseCalculoTasaEnum;
+import com.banquito.core.cuentas.enums.FrecuenciaEnum;
+import com.banquito.core.cuentas.enums.MetodoCalculoTasaEnum;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Cálculo del interés diario de una tasa. Se arma una vez por tasa al inicio del
+ * devengo (factor diario ya dividido) y se usa desde varios hilos: es inmutable.
+ * <ul>
+ * <li>Base 30/360 (30E/360): cada mes cuenta 30 días; el día 31 devenga 0 y el
+ * último día de febrero completa los 30 del mes.</li>
+ * <li>Base 31/365: días reales sobre 365.</li>
+ * <li>SALDO_DIARIO devenga sobre el saldo del día; SALDO_PROMEDIO sobre el
+ * promedio de los saldos diarios del período de capitalización en curso.</li>
+ * </ul>
+ */
+public final class CalculoInteres {
+
+    public static final int ESCALA_INTERES = 6;
+    private static final int ESCALA_FACTOR = 20;
+
+    private final String idTasa;
+    private final BigDecimal tasa;
+    private final BaseCalculoTasaEnum base;
+    private final MetodoCalculoTasaEnum metodo;
+    private final FrecuenciaEnum frecuencia;
+    private final BigDecimal factorDiario;
+
+    public CalculoInteres(TasaInteresDTO tasa) {
+        if (tasa == null || tasa.getTasa() == null || tasa.getBaseCalculo() == null
+                || tasa.getMetodoCalculo() == null || tasa.getFrecuenciaCapitalizacion() == null) {
+            throw new IllegalArgumentException("Tasa de interés incompleta para devengar: " + tasa);
+        }
+        this.idTasa = tasa.getId();
+        this.tasa = tasa.getTasa();
+        this.base = tasa.getBaseCalculo();
+        this.metodo = tasa.getMetodoCalculo();
+        this.frecuencia = tasa.getFrecuenciaCapitalizacion();
+        int divisor = base == BaseCalculoTasaEnum.BASE_30_360 ? 360 : 365;
+        this.factorDiario = tasa.getTasa().divide(BigDecimal.valueOf(100L * divisor), ESCALA_FACTOR, RoundingMode.HALF_EVEN);
+    }
+
+    public String getIdTasa() {
+        return idTasa;
+    }
+
+    public BigDecimal getTasa() {
+        return tasa;
+    }
+
+    /** Días que devenga la fecha (desde el día anterior hasta ella) según la base. */
+    public int dias(LocalDate fecha) {
+        if (base == BaseCalculoTasaEnum.BASE_31_365) {
+            return 1;
+        }
+        LocalDate anterior = fecha.minusDays(1);
+        int d1 = Math.min(anterior.getDayOfMonth(), 30);
+        int d2 = Math.min(fecha.getDayOfMonth(), 30);
+        return 360 * (fecha.getYear() - anterior.getYear())
+                + 30 * (fecha.getMonthValue() - anterior.getMonthValue())
+                + (d2 - d1);
+    }
+
+    /** true si la fecha abre un período de capitalización (el promedio vuelve a empezar). */
+    public boolean iniciaPeriodo(LocalDate fecha) {
+        return switch (frecuencia) {
+            case DIARIA -> true;
+            case MENSUAL -> fecha.getDayOfMonth() == 1;
+            case SEMESTRAL -> fecha.getDayOfMonth() == 1 && (fecha.getMonthValue() == 1 || fecha.getMonthValue() == 7);
+            case ANUAL -> fecha.getDayOfYear() == 1;
+        };
+    }
+
+    /**
+     * Interés del día con 6 decimales. acumuladoCentavos y diasPeriodo incluyen
+     * ya el saldo del día. Un saldo (o promedio) no positivo no devenga.
+     */
+    public BigDecimal interes(long saldoCentavos, long acumuladoCentavos, int diasPeriodo, int dias) {
+        BigDecimal baseCalculo;
+        if (metodo == MetodoCalculoTasaEnum.SALDO_PROMEDIO) {
+            if (acumuladoCentavos <= 0 || diasPeriodo <= 0) {
+                return BigDecimal.ZERO.setScale(ESCALA_INTERES);
+            }
+            baseCalculo = BigDecimal.valueOf(acumuladoCentavos, 2)
+                    .divide(BigDecimal.valueOf(diasPeriodo), ESCALA_FACTOR, RoundingMode.HALF_EVEN);
+        } else {
+            if (saldoCentavos <= 0) {
+                return BigDecimal.ZERO.setScale(ESCALA_INTERES);
+            }
+            baseCalculo = BigDecimal.valueOf(saldoCentavos, 2);
+        }
+        if (dias <= 0) {
+            return BigDecimal.ZERO.setScale(ESCALA_INTERES);
+        }
+        return baseCalculo.multiply(factorDiario)
+                .multiply(BigDecimal.valueOf(dias))
+                .setScale(ESCALA_INTERES, RoundingMode.HALF_EVEN);
+    }
+}
@@ -0,0 +1,219 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.modelo.CuentasClientes;
+import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calentamiento antes de aceptar tráfico. Corre como ApplicationRunner, así que
+ * Spring publica la disponibilidad ACCEPTING_TRAFFIC (y /health responde OK)
+ * recién cuando termina: abre las conexiones del pool de BD y la del broker,
+ * precarga los catálogos remotos y ejecuta validaciones sintéticas hasta que el
+ * tiempo de compilación del JIT por lote se estabiliza.
+ * <p>
+ * Las validaciones sintéticas usan su propio TransaccionesServicio con métricas
+ * en un registro local: ejercitan el mismo código sin sumar rechazos a los
+ * contadores de producción.
+ */
+@Service
+@Slf4j
+public class CalentamientoServicio implements ApplicationRunner {
+
+    private static final String NUMERO_SINTETICO = "0000000000";
+
+    private final DataSource dataSource;
+    private final JmsTemplate jmsTemplate;
+    private final CuentaServicio cuentaServicio;
+    private final SaldosCuentasServicio saldos;
+    private final ComisionesServicio comisiones;
+    private final CuentasClientesRepositorio cliRepo;
+    private final MeterRegistry registry;
+
+    private final boolean habilitado;
+    private final int conexionesBd;
+    private final int lote;
+    private final long umbralCompilacionMs;
+    private final int lotesEstables;
+    private final long maxNanos;
+
+    public CalentamientoServicio(
+            DataSource dataSource,
+            JmsTemplate jmsTemplate,
+            CuentaServicio cuentaServicio,
+            SaldosCuentasServicio saldos,
+            ComisionesServicio comisiones,
+            CuentasClientesRepositorio cliRepo,
+            MeterRegistry registry,
+            @Value("${calentamiento.habilitado:true}") boolean habilitado,
+            @Value("${calentamiento.conexiones-bd:5}") int conexionesBd,
+            @Value("${calentamiento.lote:500}") int lote,
+            @Value("${calentamiento.umbral-compilacion-ms:10}") long umbralCompilacionMs,
+            @Value("${calentamiento.lotes-estables:3}") int lotesEstables,
+            @Value("${calentamiento.max-segundos:30}") long maxSegundos) {
+        this.dataSource = dataSource;
+        this.jmsTemplate = jmsTemplate;
+        this.cuentaServicio = cuentaServicio;
+        this.saldos = saldos;
+        this.comisiones = comisiones;
+        this.cliRepo = cliRepo;
+        this.registry = registry;
+        this.habilitado = habilitado;
+        this.conexionesBd = conexionesBd;
+        this.lote = lote;
+        this.umbralCompilacionMs = umbralCompilacionMs;
+        this.lotesEstables = lotesEstables;
+        this.maxNanos = TimeUnit.SECONDS.toNanos(maxSegundos);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!habilitado) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        log.info("Calentamiento: inicio (la instancia no acepta tráfico hasta terminar)");
+        etapa("bd", this::abrirConexionesBd);
+        etapa("broker", this::abrirConexionBroker);
+        etapa("catalogos", () -> "precargados " + cuentaServicio.precargarCatalogos());
+        etapa("jit", this::validacionesSinteticas);
+        long total = System.nanoTime() - inicio;
+        registrar("total", total);
+        log.info("Calentamiento: terminado en {} ms", TimeUnit.NANOSECONDS.toMillis(total));
+    }
+
+    private String abrirConexionesBd() throws Exception {
+        int objetivo = conexionesBd;
+        if (dataSource instanceof HikariDataSource hikari) {
+            objetivo = Math.min(Math.max(objetivo, hikari.getMinimumIdle()), hikari.getMaximumPoolSize());
+        }
+        // Se piden todas a la vez para que el pool las cree y queden ociosas, no solo una
+        List<Connection> conexiones = new ArrayList<>(objetivo);
+        try {
+            for (int i = 0; i < objetivo; i++) {
+                Connection conexion = dataSource.getConnection();
+                conexiones.add(conexion);
+                conexion.isValid(2);
+            }
+        } finally {
+            for (Connection conexion : conexiones) {
+                conexion.close();
+            }
+        }
+        return conexiones.size() + " conexiones";
+    }
+
+    private String abrirConexionBroker() {
+        // Abre la conexión compartida del productor y deja una sesión en su caché
+        jmsTemplate.execute((SessionCallback<Object>) (Session session) -> null);
+        return "conexión abierta";
+    }
+
+    private String validacionesSinteticas() {
+        MetricasTransacciones metricasLocales = new MetricasTransacciones(new SimpleMeterRegistry());
+        TransaccionesServicio servicio = new TransaccionesServicio(
+                saldos, new ReglasTransaccion(metricasLocales, comisiones), metricasLocales);
+        List<TransaccionesSolicitudDTO> solicitudes = solicitudesSinteticas();
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean medible = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long limite = System.nanoTime() + maxNanos;
+        long compilacionAnterior = medible ? jit.getTotalCompilationTime() : 0;
+        int lotes = 0;
+        int estables = 0;
+        while (System.nanoTime() < limite && estables < lotesEstables) {
+            for (int i = 0; i < lote; i++) {
+                try {
+                    servicio.validarTransaccion(solicitudes.get(i % solicitudes.size()));
+                } catch (RuntimeException e) {
+                    // Los rechazos también son parte del camino que se quiere compilar
+                }
+            }
+            lotes++;
+            if (!medible) {
+                // Sin medición del JIT se ejecuta un número fijo de lotes
+                estables = lotes >= 20 ? lotesEstables : 0;
+                continue;
+            }
+            long compilacion = jit.getTotalCompilationTime();
+            estables = compilacion - compilacionAnterior <= umbralCompilacionMs ? estables + 1 : 0;
+            compilacionAnterior = compilacion;
+        }
+        return lotes * lote + " validaciones" + (estables >= lotesEstables ? "" : " (tiempo máximo alcanzado)");
+    }
+
+    private List<TransaccionesSolicitudDTO> solicitudesSinteticas() {
+        List<String> cuentas = new ArrayList<>(cliRepo.findAll(PageRequest.of(0, 10))
+                .map(CuentasClientes::getNumeroCuenta)
+                .getContent());
+        if (cuentas.isEmpty()) {
+            cuentas.add(NUMERO_SINTETICO);
+        }
+        List<TransaccionesSolicitudDTO> solicitudes = new ArrayList<>();
+        for (int i = 0; i < cuentas.size(); i++) {
+            String origen = cuentas.get(i);
+            String destino = cuentas.size() > 1 ? cuentas.get((i + 1) % cuentas.size()) : NUMERO_SINTETICO;
+            for (TipoTransaccionEnum tipo : List.of(TipoTransaccionEnum.DEPOSITO, TipoTransaccionEnum.RETIRO,
+                    TipoTransaccionEnum.TRANSFERENCIA)) {
+                solicitudes.add(TransaccionesSolicitudDTO.builder()
+                        .numeroCuentaOrigen(origen)
+                        .numeroCuentaDestino(tipo == TipoTransaccionEnum.TRANSFERENCIA ? destino : null)
+                        .tipoTransaccion(tipo)
+                        .monto(BigDecimal.ONE)
+                        .build());
+            }
+        }
+        return solicitudes;
+    }
+
+    private void etapa(String nombre, Etapa etapa) {
+        long inicio = System.nanoTime();
+        String detalle;
+        try {
+            detalle = etapa.ejecutar();
+        } catch (Exception e) {
+            // Una dependencia caída no debe impedir el arranque; las sondas lo reflejarán
+            detalle = "falló: " + e.getMessage();
+            log.warn("Calentamiento: etapa {} falló: {}", nombre, e.getMessage());
+        }
+        long duracion = System.nanoTime() - inicio;
+        registrar(nombre, duracion);
+        log.info("Calentamiento: {} en {} ms ({})", nombre, TimeUnit.NANOSECONDS.toMillis(duracion), detalle);
+    }
+
+    private void registrar(String etapa, long duracionNanos) {
+        Timer.builder("cuentas.arranque.calentamiento")
+                .description("Duración del calentamiento previo a aceptar tráfico")
+                .tag("etapa", etapa)
+                .register(registry)
+                .record(duracionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @FunctionalInterface
+    private interface Etapa {
+        String ejecutar() throws Exception;
+    }
+}
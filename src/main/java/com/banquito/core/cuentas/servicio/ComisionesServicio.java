@@ -0,0 +1,108 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.enums.BaseCalculoComisionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.servicio.TablaComisiones.ReglaComision;
+import com.banquito.core.cuentas.servicio.TablaComisiones.ReglaDescartada;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la TablaComisiones vigente. Se compila al arrancar (antes de aceptar
+ * tráfico) desde comisiones_transacciones y se reemplaza entera, de forma
+ * atómica, cuando la tabla cambia: el camino de validación solo lee la
+ * referencia, sin llamadas remotas ni consultas.
+ * <p>
+ * El refresco compara una huella barata de la tabla (filas, suma de versiones y
+ * última modificación) y solo recompila si cambió. Si la lectura falla se sigue
+ * con la tabla anterior.
+ * <p>
+ * Una regla que no se puede compilar (o que otra del mismo producto y tipo
+ * reemplaza) no detiene la compilación, pero no pasa en silencio: se registra un
+ * error por regla con su motivo cada vez que se compila y el gauge
+ * cuentas.comisiones.descartadas queda distinto de 0 hasta que se corrija.
+ */
+@Service
+@Slf4j
+public class ComisionesServicio implements ApplicationRunner {
+
+    private static final String SQL_REGLAS =
+            "SELECT id_cuenta, tipo_transaccion, base_calculo, valor, monto_minimo, monto_maximo "
+                    + "FROM account.comisiones_transacciones "
+                    + "WHERE tipo_comision = 'TRANSACCION' AND estado = 'ACTIVO' ORDER BY id_comision";
+    private static final String SQL_HUELLA =
+            "SELECT COUNT(*), COALESCE(SUM(version), 0), MAX(fecha_modificacion) FROM account.comisiones_transacciones";
+
+    private final JdbcTemplate jdbc;
+    private final AtomicReference<TablaComisiones> tabla = new AtomicReference<>(TablaComisiones.VACIA);
+    private volatile String huella;
+
+    public ComisionesServicio(DataSource dataSource, MeterRegistry registry) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        Gauge.builder("cuentas.comisiones.reglas", this, s -> s.tabla().reglas())
+                .description("Reglas de comisión por transacción compiladas")
+                .register(registry);
+        Gauge.builder("cuentas.comisiones.descartadas", this, s -> s.tabla().descartadas().size())
+                .description("Reglas de comisión leídas que no se aplican (inválidas o reemplazadas)")
+                .register(registry);
+    }
+
+    /** Tabla vigente; se puede guardar la referencia mientras dure una validación. */
+    public TablaComisiones tabla() {
+        return tabla.get();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        refrescar();
+    }
+
+    @Scheduled(fixedDelayString = "${comisiones.refresco-ms:30000}",
+            initialDelayString = "${comisiones.refresco-ms:30000}")
+    public void refrescar() {
+        try {
+            String actual = jdbc.queryForObject(SQL_HUELLA,
+                    (fila, i) -> fila.getLong(1) + ":" + fila.getLong(2) + ":" + fila.getTimestamp(3));
+            if (Objects.equals(actual, huella)) {
+                return;
+            }
+            List<ReglaComision> reglas = jdbc.query(SQL_REGLAS, (fila, i) -> new ReglaComision(
+                    fila.getObject(1, Integer.class),
+                    valor(TipoTransaccionEnum.class, fila.getString(2)),
+                    valor(BaseCalculoComisionEnum.class, fila.getString(3)),
+                    fila.getBigDecimal(4),
+                    fila.getBigDecimal(5),
+                    fila.getBigDecimal(6)));
+            TablaComisiones compilada = TablaComisiones.compilar(reglas);
+            tabla.set(compilada);
+            huella = actual;
+            for (ReglaDescartada descartada : compilada.descartadas()) {
+                log.error("Regla de comisión no aplicada {}: {}", descartada.regla(), descartada.motivo());
+            }
+            log.info("Tabla de comisiones compilada: {} reglas ({} descartadas)",
+                    compilada.reglas(), compilada.descartadas().size());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo refrescar la tabla de comisiones (se mantiene la anterior): {}", e.getMessage());
+        }
+    }
+
+    /** Un valor desconocido queda null y la regla se descarta al compilar, sin perder las demás. */
+    private static <E extends Enum<E>> E valor(Class<E> tipo, String nombre) {
+        try {
+            return nombre == null ? null : Enum.valueOf(tipo, nombre);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.producer.TransaccionesProducer;
+import com.banquito.core.cuentas.resiliencia.ArriendoTareas;
+import com.banquito.core.cuentas.servicio.EstadoTransaccionServicio.DepositoPorReenviar;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completa las transferencias enviadas a medias: el retiro se publicó pero el
+ * depósito no. La transacción queda PENDIENTE con deposito_por_reenviar (y la
+ * descripción del depósito) en su fila y el depósito se reintenta cada
+ * reintento-ms, hasta max-intentos. Si entretanto el MS2 rechaza el retiro la
+ * transferencia queda RECHAZADO y el depósito ya no se envía.
+ * <p>
+ * Los pendientes se leen de la BD en cada ronda, así que un reinicio no los
+ * pierde: cualquier instancia los retoma. Solo la que tiene el arriendo
+ * "compensacion-transferencias" (ArriendoTareas) reenvía, para que dos
+ * instancias no publiquen el mismo depósito; si muere, otra lo toma cuando
+ * expira. Si se agotan los intentos, la transacción queda PENDIENTE con el
+ * motivo en su mensaje y se registra un error para completarla a mano.
+ * <p>
+ * Un depósito publicado cuya marca no se alcanzó a quitar (caída entre ambos
+ * pasos) se vuelve a publicar con el mismo transaccionId: el MS2 tiene que
+ * descartar el duplicado.
+ */
+@Service
+@Slf4j
+public class CompensacionTransferenciasServicio {
+
+    static final String TAREA = "compensacion-transferencias";
+
+    private final TransaccionesProducer producer;
+    private final EstadoTransaccionServicio estados;
+    private final ArriendoTareas arriendos;
+    private final int maxIntentos;
+    private final Map<String, Integer> intentos = new ConcurrentHashMap<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+
+    public CompensacionTransferenciasServicio(
+            TransaccionesProducer producer,
+            EstadoTransaccionServicio estados,
+            ArriendoTareas arriendos,
+            MeterRegistry registry,
+            @Value("${transferencias.compensacion.max-intentos:60}") int maxIntentos) {
+        this.producer = producer;
+        this.estados = estados;
+        this.arriendos = arriendos;
+        this.maxIntentos = Math.max(1, maxIntentos);
+        Gauge.builder("cuentas.transferencias.depositos.pendientes", pendientes, AtomicInteger::get)
+                .description("Depósitos de transferencias enviadas a medias, pendientes de reenvío")
+                .register(registry);
+    }
+
+    /** Marca la transferencia PENDIENTE con el depósito por reenviar. */
+    public void programar(String transaccionId, TransaccionesSolicitudDTO deposito, String motivo) {
+        estados.registrarEnvioParcial(transaccionId, deposito,
+                "Depósito de la transferencia pendiente de reenvío: " + motivo);
+    }
+
+    @Scheduled(fixedDelayString = "${transferencias.compensacion.reintento-ms:5000}")
+    public void reintentar() {
+        List<DepositoPorReenviar> porReenviar = estados.depositosPorReenviar();
+        pendientes.set(porReenviar.size());
+        if (porReenviar.isEmpty()) {
+            intentos.clear();
+            return;
+        }
+        if (!arriendos.tomar(TAREA)) {
+            // Otra instancia está reenviando; si toma el arriendo más tarde, empieza de cero
+            intentos.clear();
+            return;
+        }
+        for (DepositoPorReenviar pendiente : porReenviar) {
+            String transaccionId = pendiente.transaccionId();
+            if (pendiente.estado() == EstadoEspecificoTransaccionEnum.RECHAZADO) {
+                log.info("Transferencia {} rechazada por el MS2; no se reenvía su depósito", transaccionId);
+                terminar(transaccionId, null);
+                continue;
+            }
+            try {
+                producer.enviarDeposito(pendiente.deposito(), transaccionId);
+                log.info("Depósito de la transferencia {} reenviado (intento {})",
+                        transaccionId, intentos.getOrDefault(transaccionId, 0) + 1);
+                terminar(transaccionId, "Depósito de la transferencia reenviado");
+            } catch (RuntimeException e) {
+                int hechos = intentos.merge(transaccionId, 1, Integer::sum);
+                if (hechos >= maxIntentos) {
+                    log.error("Depósito de la transferencia {} sin enviar tras {} intentos; queda PENDIENTE para "
+                            + "completarla a mano: {}", transaccionId, hechos, e.getMessage());
+                    terminar(transaccionId, "Depósito sin enviar tras " + hechos + " intentos: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void terminar(String transaccionId, String mensaje) {
+        intentos.remove(transaccionId);
+        estados.registrarDepositoReenviado(transaccionId, mensaje);
+    }
+}
@@ -0,0 +1,367 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.enums.MotivoDescuadreEnum;
+import com.banquito.core.cuentas.resiliencia.ArriendoTareas;
+import com.banquito.core.cuentas.util.Centavos;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conciliación de cierre de día de saldo contable contra saldo disponible.
+ * La posición esperada de cada cuenta-cliente es disponible = contable menos los
+ * débitos en vuelo (retiros, transferencias, pagos y cobros de comisión ENVIADO
+ * o PENDIENTE en estado_transacciones con la cuenta como origen), que son lo
+ * único que puede estar retenido. estado_transacciones es común a todas las
+ * instancias, así que cuenta los envíos de cualquiera. Cada cuenta que no
+ * cuadre va a un reporte CSV con los dos saldos, la retención esperada y el
+ * motivo.
+ * <p>
+ * Corre en una sola instancia: la que toma el arriendo "conciliacion-saldos"
+ * (ArriendoTareas), que se renueva en cada tramo. El reporte queda en el
+ * directorio de esa instancia.
+ * <p>
+ * cuentas_clientes se parte en rangos de id que recorren conciliacion.paralelismo
+ * hilos, cada uno con su propia conexión. Hay varios rangos por hilo para que los
+ * rangos densos no dejen hilos ociosos. Dentro de un rango se lee por tramos
+ * (keyset) con un cursor en una transacción de solo lectura que dura un tramo:
+ * ninguna transacción larga retiene versiones viejas de filas en PostgreSQL. Las
+ * cuentas que no cuadran se escriben al reporte al terminar cada tramo, sin
+ * acumularlas en memoria.
+ * <p>
+ * Los débitos en vuelo se leen una vez al empezar. Si uno se completa mientras se
+ * concilia, su cuenta puede aparecer descuadrada: el reporte es un punto de
+ * partida para revisar, no un asiento.
+ */
+@Service
+@Slf4j
+public class ConciliacionSaldosServicio {
+
+    private static final String SQL_RANGO =
+            "SELECT MIN(id_cuenta_cliente), MAX(id_cuenta_cliente) FROM account.cuentas_clientes";
+    private static final String SQL_PENDIENTES =
+            "SELECT numero_cuenta_origen, SUM(monto) FROM account.estado_transacciones "
+                    + "WHERE estado IN ('ENVIADO', 'PENDIENTE') AND tipo_transaccion <> 'DEPOSITO' "
+                    + "GROUP BY numero_cuenta_origen";
+    private static final String SQL_TRAMO =
+            "SELECT id_cuenta_cliente, numero_cuenta, saldo_contable, saldo_disponible "
+                    + "FROM account.cuentas_clientes WHERE id_cuenta_cliente > ? AND id_cuenta_cliente <= ? "
+                    + "ORDER BY id_cuenta_cliente LIMIT ?";
+    static final String TAREA = "conciliacion-saldos";
+    private static final String CABECERA =
+            "id_cuenta_cliente,numero_cuenta,saldo_contable,saldo_disponible,debitos_pendientes,"
+                    + "disponible_esperado,diferencia,motivo";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate lectura;
+    private final ArriendoTareas arriendos;
+    private final boolean habilitado;
+    private final ZoneId zona;
+    private final Path directorio;
+    private final int paralelismo;
+    private final int particionesPorHilo;
+    private final int tamanoTramo;
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    private final Counter filasConciliadas;
+    private final Counter descuadres;
+    private final Timer duracionParticion;
+    private volatile double filasPorSegundo;
+
+    public ConciliacionSaldosServicio(
+            DataSource dataSource,
+            PlatformTransactionManager transacciones,
+            ArriendoTareas arriendos,
+            MeterRegistry registry,
+            @Value("${conciliacion.habilitado:false}") boolean habilitado,
+            @Value("${conciliacion.zona:America/Guayaquil}") String zona,
+            @Value("${conciliacion.directorio:./datos/conciliacion}") String directorio,
+            @Value("${conciliacion.paralelismo:4}") int paralelismo,
+            @Value("${conciliacion.particiones-por-hilo:4}") int particionesPorHilo,
+            @Value("${conciliacion.tramo:10000}") int tamanoTramo,
+            @Value("${conciliacion.fetch-size:1000}") int fetchSize) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        this.lectura = new TransactionTemplate(transacciones);
+        this.lectura.setReadOnly(true);
+        this.arriendos = arriendos;
+        this.habilitado = habilitado;
+        this.zona = ZoneId.of(zona);
+        this.directorio = Path.of(directorio);
+        this.paralelismo = Math.max(1, paralelismo);
+        this.particionesPorHilo = Math.max(1, particionesPorHilo);
+        this.tamanoTramo = tamanoTramo;
+        if (dataSource instanceof HikariDataSource hikari && this.paralelismo >= hikari.getMaximumPoolSize()) {
+            log.warn("conciliacion.paralelismo={} ocupa todo el pool de conexiones ({}): la conciliación "
+                    + "competirá con las peticiones", this.paralelismo, hikari.getMaximumPoolSize());
+        }
+
+        this.filasConciliadas = Counter.builder("cuentas.conciliacion.filas")
+                .description("Cuentas-cliente conciliadas")
+                .register(registry);
+        this.descuadres = Counter.builder("cuentas.conciliacion.descuadres")
+                .description("Cuentas-cliente cuyo saldo disponible no cuadra con el contable")
+                .register(registry);
+        this.duracionParticion = Timer.builder("cuentas.conciliacion.particion")
+                .description("Recorrido de un rango de id de la conciliación")
+                .register(registry);
+        Gauge.builder("cuentas.conciliacion.filas.segundo", this, s -> s.filasPorSegundo)
+                .description("Filas por segundo de la última conciliación")
+                .register(registry);
+    }
+
+    /** Resultado de una conciliación: filas revisadas, descuadres y el reporte escrito. */
+    public record ResumenConciliacion(LocalDate fecha, long filas, long descuadres, int particiones,
+                                      long milisegundos, double filasPorSegundo, Path reporte) {
+    }
+
+    @Scheduled(cron = "${conciliacion.cron:0 0 1 * * *}", zone = "${conciliacion.zona:America/Guayaquil}")
+    public void conciliarDiaAnterior() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            conciliar(LocalDate.now(zona).minusDays(1));
+        } catch (RuntimeException e) {
+            log.error("Conciliación de saldos fallida: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Concilia todas las cuentas-cliente y escribe conciliacion-fecha.csv, si esta
+     * instancia toma el arriendo (si no, devuelve null). El reporte se escribe como
+     * .parcial y se renombra al terminar: si falla, el reporte de una ejecución
+     * anterior de la misma fecha queda intacto.
+     */
+    public ResumenConciliacion conciliar(LocalDate fecha) {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una conciliación de saldos en curso en esta instancia");
+        }
+        try {
+            if (!arriendos.tomar(TAREA)) {
+                log.info("Conciliación de saldos {}: la ejecuta otra instancia", fecha);
+                return null;
+            }
+            try {
+                return conciliarParticiones(fecha);
+            } finally {
+                arriendos.liberar(TAREA);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el reporte de conciliación", e);
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    private ResumenConciliacion conciliarParticiones(LocalDate fecha) throws IOException {
+        long inicio = System.nanoTime();
+        Map<String, Long> pendientes = leerPendientes();
+        long[] rango = jdbc.query(SQL_RANGO, fila -> {
+            fila.next();
+            return fila.getObject(1) == null ? null : new long[] { fila.getLong(1), fila.getLong(2) };
+        });
+        List<long[]> particiones = rango == null ? List.of() : particionar(rango[0], rango[1]);
+
+        Files.createDirectories(directorio);
+        Path reporte = directorio.resolve("conciliacion-" + fecha + ".csv");
+        Path parcial = directorio.resolve("conciliacion-" + fecha + ".csv.parcial");
+        AtomicLong filas = new AtomicLong();
+        AtomicLong descuadradas = new AtomicLong();
+        try (Reporte salida = new Reporte(parcial)) {
+            ejecutar(particiones, pendientes, salida, filas, descuadradas);
+        }
+        Files.move(parcial, reporte, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long milisegundos = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        double ritmo = filas.get() * 1000.0 / milisegundos;
+        filasPorSegundo = ritmo;
+        log.info("Conciliación de saldos {}: {} cuentas, {} descuadres, {} rangos en {} ms ({} filas/s) -> {}",
+                fecha, filas.get(), descuadradas.get(), particiones.size(), milisegundos, Math.round(ritmo), reporte);
+        return new ResumenConciliacion(fecha, filas.get(), descuadradas.get(), particiones.size(), milisegundos,
+                ritmo, reporte);
+    }
+
+    private Map<String, Long> leerPendientes() {
+        Map<String, Long> pendientes = new HashMap<>();
+        jdbc.query(SQL_PENDIENTES, fila -> {
+            // La suma puede superar NUMERIC(15,2); se lee sin el límite de Centavos
+            pendientes.put(fila.getString(1), fila.getBigDecimal(2).movePointRight(2).longValueExact());
+        });
+        return pendientes;
+    }
+
+    /** Rangos (desde, hasta] de igual ancho que cubren [minimo, maximo]. */
+    private List<long[]> particionar(long minimo, long maximo) {
+        long total = maximo - minimo + 1;
+        long cantidad = Math.min(total, (long) paralelismo * particionesPorHilo);
+        long ancho = (total + cantidad - 1) / cantidad;
+        List<long[]> particiones = new ArrayList<>();
+        for (long desde = minimo - 1; desde < maximo; desde += ancho) {
+            particiones.add(new long[] { desde, Math.min(maximo, desde + ancho) });
+        }
+        return particiones;
+    }
+
+    private void ejecutar(List<long[]> particiones, Map<String, Long> pendientes, Reporte salida,
+                          AtomicLong filas, AtomicLong descuadradas) throws IOException {
+        try (ExecutorService hilos = Executors.newFixedThreadPool(paralelismo,
+                Thread.ofPlatform().name("conciliacion-saldos-", 0).daemon().factory())) {
+            List<Future<?>> tareas = new ArrayList<>(particiones.size());
+            for (long[] particion : particiones) {
+                tareas.add(hilos.submit(() -> {
+                    long inicioParticion = System.nanoTime();
+                    recorrer(particion[0], particion[1], pendientes, salida, filas, descuadradas);
+                    duracionParticion.record(System.nanoTime() - inicioParticion, TimeUnit.NANOSECONDS);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> tarea : tareas) {
+                    tarea.get();
+                }
+            } catch (ExecutionException e) {
+                hilos.shutdownNow();
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                hilos.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Conciliación de saldos interrumpida", e);
+            }
+        }
+    }
+
+    /**
+     * Recorre un rango por tramos; cada tramo es una transacción de solo lectura
+     * corta y al terminarlo se renueva el arriendo.
+     */
+    private void recorrer(long desde, long hasta, Map<String, Long> pendientes, Reporte salida,
+                          AtomicLong filas, AtomicLong descuadradas) {
+        long ultimo = desde;
+        while (ultimo < hasta && !Thread.currentThread().isInterrupted()) {
+            Tramo tramo = new Tramo();
+            long desdeTramo = ultimo;
+            lectura.executeWithoutResult(estado -> jdbc.query(SQL_TRAMO, fila -> {
+                tramo.cantidad++;
+                tramo.ultimoId = fila.getLong(1);
+                String numero = fila.getString(2);
+                long contable = Centavos.de(fila.getBigDecimal(3));
+                long disponible = Centavos.de(fila.getBigDecimal(4));
+                long pendiente = pendientes.getOrDefault(numero, 0L);
+                long esperado = contable - pendiente;
+                if (disponible != esperado) {
+                    tramo.descuadres++;
+                    linea(tramo.lineas, tramo.ultimoId, numero, contable, disponible, pendiente, esperado);
+                }
+            }, desdeTramo, hasta, tamanoTramo));
+            if (!tramo.lineas.isEmpty()) {
+                salida.escribir(tramo.lineas);
+            }
+            filas.addAndGet(tramo.cantidad);
+            descuadradas.addAndGet(tramo.descuadres);
+            filasConciliadas.increment(tramo.cantidad);
+            descuadres.increment(tramo.descuadres);
+            if (!arriendos.renovar(TAREA)) {
+                throw new IllegalStateException("El arriendo de la conciliación pasó a otra instancia");
+            }
+            if (tramo.cantidad < tamanoTramo) {
+                return;
+            }
+            ultimo = tramo.ultimoId;
+        }
+    }
+
+    private static void linea(StringBuilder lineas, long id, String numero, long contable, long disponible,
+                              long pendiente, long esperado) {
+        MotivoDescuadreEnum motivo;
+        if (disponible > contable) {
+            motivo = MotivoDescuadreEnum.DISPONIBLE_MAYOR_CONTABLE;
+        } else if (disponible < esperado) {
+            motivo = MotivoDescuadreEnum.RETENCION_SIN_PENDIENTE;
+        } else {
+            motivo = MotivoDescuadreEnum.PENDIENTE_SIN_RETENCION;
+        }
+        lineas.append(id).append(',').append(numero)
+                .append(',').append(Centavos.texto(contable))
+                .append(',').append(Centavos.texto(disponible))
+                .append(',').append(texto(pendiente))
+                .append(',').append(texto(esperado))
+                .append(',').append(texto(disponible - esperado))
+                .append(',').append(motivo.getValor())
+                .append('\n');
+    }
+
+    /** Como Centavos.texto, pero las diferencias pueden salir del rango de NUMERIC(15,2). */
+    private static String texto(long centavos) {
+        return BigDecimal.valueOf(centavos, 2).toPlainString();
+    }
+
+    private static final class Tramo {
+        int cantidad;
+        int descuadres;
+        long ultimoId;
+        final StringBuilder lineas = new StringBuilder();
+    }
+
+    /** CSV compartido por los hilos; cada tramo se escribe entero de una vez. */
+    private static final class Reporte implements AutoCloseable {
+        private final BufferedWriter escritor;
+
+        Reporte(Path archivo) throws IOException {
+            this.escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8);
+            escritor.write(CABECERA);
+            escritor.write('\n');
+        }
+
+        synchronized void escribir(CharSequence lineas) {
+            try {
+                escritor.append(lineas);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            escritor.close();
+        }
+    }
+}
@@ -11,23 +11,32 @@ import com.banquito.core.cuentas.excepcion.ActualizarEntidadExcepcion;
 import com.banquito.core.cuentas.excepcion.CrearEntidadExcepcion;
 import com.banquito.core.cuentas.excepcion.EliminarEntidadExcepcion;
 import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
+import com.banquito.core.cuentas.excepcion.PrecondicionFallidaExcepcion;
 import com.banquito.core.cuentas.mapper.CuentaMapper;
 import com.banquito.core.cuentas.modelo.Cuentas;
 import com.banquito.core.cuentas.repositorio.CuentasRepositorio;
+import com.banquito.core.cuentas.resiliencia.HedgingEjecutor;
 
 import feign.FeignException;
 
 import com.banquito.core.cuentas.enums.EstadoGeneralCuentasEnum;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.util.List;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -36,32 +45,72 @@ public class CuentaServicio {
     private final CuentasRepositorio cuentasRepo;
     private final TipoCuentaCliente tipoCuentaCliente;
     private final TasaInteresCliente tasaInteresCliente;
+    private final HedgingEjecutor hedging;
+    private final long ttlCatalogosNanos;
+    private final EntityManager entityManager;
+    private final TransactionTemplate lectura;
+    private final int paginaListado;
+
+    // Catálogos remotos (tipos de cuenta y tasas) cambian poco: se guardan por un TTL
+    private final Map<String, Catalogo<TipoCuentaDTO>> tiposCuenta = new ConcurrentHashMap<>();
+    private final Map<String, Catalogo<TasaInteresRespuestaDTO_IdOnly>> tasasInteres = new ConcurrentHashMap<>();
 
     public CuentaServicio(
             CuentasRepositorio cuentasRepo,
             TipoCuentaCliente tipoCuentaCliente,
-            TasaInteresCliente tasaInteresCliente) {
+            TasaInteresCliente tasaInteresCliente,
+            HedgingEjecutor hedging,
+            @Value("${catalogos.ttl-ms:300000}") long ttlCatalogosMs,
+            EntityManager entityManager,
+            PlatformTransactionManager transacciones,
+            @Value("${cuentas.listado.pagina:500}") int paginaListado) {
         this.cuentasRepo = cuentasRepo;
         this.tipoCuentaCliente = tipoCuentaCliente;
         this.tasaInteresCliente = tasaInteresCliente;
+        this.hedging = hedging;
+        this.ttlCatalogosNanos = ttlCatalogosMs * 1_000_000L;
+        this.entityManager = entityManager;
+        this.lectura = new TransactionTemplate(transacciones);
+        this.lectura.setReadOnly(true);
+        this.paginaListado = Math.max(1, paginaListado);
     }
 
-    @Transactional(readOnly = true)
-    public List<CuentaRespuestaDTO> listarTodas() {
-        List<Cuentas> cuentas = cuentasRepo.findAll();
-        List<CuentaRespuestaDTO> resultado = new ArrayList<>();
-
-        for (Cuentas cuenta : cuentas) {
-            try {
-                TipoCuentaDTO tipo = tipoCuentaCliente.obtenerPorId(cuenta.getTipoCuentaId());
-                TasaInteresRespuestaDTO_IdOnly tasa = tasaInteresCliente.obtenerPorId(cuenta.getTasaInteresId());
-                resultado.add(CuentaMapper.toDto(cuenta, tipo, tasa));
-            } catch (Exception e) {
-                log.warn("Cuenta ID={} omitida por error al cargar referencias remotas: {}", cuenta.getId(),
-                        e.getMessage());
+    /**
+     * Entrega las cuentas una por una para escribir el listado en streaming. Se leen
+     * por páginas de id creciente (keyset), cada una en su propia transacción corta:
+     * ni las llamadas a los catálogos remotos ni la escritura a un cliente lento
+     * retienen un cursor, una transacción o una conexión del pool. Las entidades se
+     * desprenden del contexto de persistencia al leerlas, así la memoria no crece con
+     * el número de cuentas.
+     */
+    public void recorrerTodas(Consumer<CuentaRespuestaDTO> destino) {
+        Integer desde = 0;
+        while (true) {
+            Integer ultimo = desde;
+            List<Cuentas> pagina = lectura.execute(estado -> {
+                List<Cuentas> cuentas = cuentasRepo.findPaginaDesde(ultimo, Limit.of(paginaListado));
+                cuentas.forEach(entityManager::detach);
+                return cuentas;
+            });
+            for (Cuentas cuenta : pagina) {
+                CuentaRespuestaDTO dto;
+                try {
+                    TipoCuentaDTO tipo = obtenerTipoCuenta(cuenta.getTipoCuentaId());
+                    TasaInteresRespuestaDTO_IdOnly tasa = obtenerTasaInteres(cuenta.getTasaInteresId());
+                    dto = CuentaMapper.toDto(cuenta, tipo, tasa);
+                } catch (Exception e) {
+                    log.warn("Cuenta ID={} omitida por error al cargar referencias remotas: {}", cuenta.getId(),
+                            e.getMessage());
+                    continue;
+                }
+                // Un error al escribir (cliente desconectado) corta el recorrido
+                destino.accept(dto);
+            }
+            if (pagina.size() < paginaListado) {
+                return;
             }
+            desde = pagina.get(pagina.size() - 1).getId();
         }
-        return resultado;
     }
 
     @Transactional
@@ -117,7 +166,7 @@ public class CuentaServicio {
         // 3) Validar existencia remota de Tipo de Cuenta
         TipoCuentaDTO tipoDto;
         try {
-            tipoDto = tipoCuentaCliente.obtenerPorId(dto.getIdTipoCuenta());
+            tipoDto = obtenerTipoCuenta(dto.getIdTipoCuenta());
         } catch (FeignException.NotFound nf) {
             log.error("TipoCuenta no existe ID={}", dto.getIdTipoCuenta());
             throw new CrearEntidadExcepcion("Cuentas",
@@ -131,7 +180,7 @@ public class CuentaServicio {
         // 4) Validar existencia remota de Tasa de Interés
         TasaInteresRespuestaDTO_IdOnly tasaDto;
         try {
-            tasaDto = tasaInteresCliente.obtenerPorId(dto.getIdTasaInteres());
+            tasaDto = obtenerTasaInteres(dto.getIdTasaInteres());
         } catch (FeignException.NotFound nf) {
             log.error("TasaInteres no existe ID={}", dto.getIdTasaInteres());
             throw new CrearEntidadExcepcion("Cuentas",
@@ -156,7 +205,7 @@ public class CuentaServicio {
 
         TipoCuentaDTO tipoDto;
         try {
-            tipoDto = tipoCuentaCliente.obtenerPorId(e.getTipoCuentaId());
+            tipoDto = obtenerTipoCuenta(e.getTipoCuentaId());
         } catch (Exception ex) {
             log.error("Error cargando TipoCuenta para ID={}: {}", id, ex.getMessage());
             throw new EntidadNoEncontradaExcepcion("Cuentas",
@@ -165,7 +214,7 @@ public class CuentaServicio {
 
         TasaInteresRespuestaDTO_IdOnly tasaDto;
         try {
-            tasaDto = tasaInteresCliente.obtenerPorId(e.getTasaInteresId());
+            tasaDto = obtenerTasaInteres(e.getTasaInteresId());
         } catch (Exception ex) {
             log.error("Error cargando TasaInteres para ID={}: {}", id, ex.getMessage());
             throw new EntidadNoEncontradaExcepcion("Cuentas",
@@ -175,14 +224,30 @@ public class CuentaServicio {
         return CuentaMapper.toDto(e, tipoDto, tasaDto);
     }
 
+    /** Versión actual de la cuenta sin cargar la entidad ni los catálogos remotos (ETag). */
+    @Transactional(readOnly = true)
+    public Long version(Integer id) {
+        return cuentasRepo.findVersionById(id)
+                .orElseThrow(() -> new EntidadNoEncontradaExcepcion("Cuentas",
+                        "No existe cuenta con ID=" + id));
+    }
+
+    /**
+     * Actualiza la cuenta. Con versionEsperada (If-Match) se rechaza si la cuenta
+     * cambió desde que el cliente la leyó.
+     */
     @Transactional
-    public CuentaRespuestaDTO actualizar(Integer id, CuentaSolicitudDTO dto) {
+    public CuentaRespuestaDTO actualizar(Integer id, CuentaSolicitudDTO dto, Long versionEsperada) {
         Cuentas e = cuentasRepo.findById(id)
                 .orElseThrow(() -> {
                     log.warn("Intento de actualizar Cuenta inexistente ID={}", id);
                     return new EntidadNoEncontradaExcepcion("Cuentas",
                             "No existe cuenta con ID=" + id);
                 });
+        if (versionEsperada != null && !versionEsperada.equals(e.getVersion())) {
+            throw new PrecondicionFallidaExcepcion("Cuentas",
+                    "La cuenta ID=" + id + " cambió: versión actual " + e.getVersion() + ", esperada " + versionEsperada);
+        }
 
         // Aplicar cambios y versionar
         e.setTipoCuentaId(dto.getIdTipoCuenta());
@@ -206,7 +271,7 @@ public class CuentaServicio {
         // enriquecer datos remotos
         TipoCuentaDTO tipoDto;
         try {
-            tipoDto = tipoCuentaCliente.obtenerPorId(updated.getTipoCuentaId());
+            tipoDto = obtenerTipoCuenta(updated.getTipoCuentaId());
         } catch (Exception ex) {
             log.error("Error cargando TipoCuenta tras actualizar ID={}: {}", id, ex.getMessage());
             throw new ActualizarEntidadExcepcion("Cuentas",
@@ -215,7 +280,7 @@ public class CuentaServicio {
 
         TasaInteresRespuestaDTO_IdOnly tasaDto;
         try {
-            tasaDto = tasaInteresCliente.obtenerPorId(updated.getTasaInteresId());
+            tasaDto = obtenerTasaInteres(updated.getTasaInteresId());
         } catch (Exception ex) {
             log.error("Error cargando TasaInteres tras actualizar ID={}: {}", id, ex.getMessage());
             throw new ActualizarEntidadExcepcion("Cuentas",
@@ -249,10 +314,59 @@ public class CuentaServicio {
         }
     }
 
+    /**
+     * Carga en memoria los tipos de cuenta y tasas usados por las cuentas existentes.
+     * Un catálogo que no responde se omite; se consultará en la primera petición.
+     */
+    public int precargarCatalogos() {
+        int cargados = 0;
+        for (String id : cuentasRepo.findDistinctTipoCuentaIds()) {
+            cargados += precargar("TipoCuenta", id, () -> obtenerTipoCuenta(id));
+        }
+        for (String id : cuentasRepo.findDistinctTasaInteresIds()) {
+            cargados += precargar("TasaInteres", id, () -> obtenerTasaInteres(id));
+        }
+        return cargados;
+    }
+
+    private int precargar(String catalogo, String id, Supplier<?> carga) {
+        try {
+            return carga.get() != null ? 1 : 0;
+        } catch (Exception e) {
+            log.warn("No se pudo precargar {} ID={}: {}", catalogo, id, e.getMessage());
+            return 0;
+        }
+    }
+
+    private TipoCuentaDTO obtenerTipoCuenta(String id) {
+        return enCache(tiposCuenta, id,
+                () -> hedging.ejecutar("tipo-cuenta-cliente", () -> tipoCuentaCliente.obtenerPorId(id)));
+    }
+
+    private TasaInteresRespuestaDTO_IdOnly obtenerTasaInteres(String id) {
+        return enCache(tasasInteres, id,
+                () -> hedging.ejecutar("tasa-interes-cliente", () -> tasaInteresCliente.obtenerPorId(id)));
+    }
+
+    private <T> T enCache(Map<String, Catalogo<T>> cache, String id, Supplier<T> carga) {
+        Catalogo<T> actual = cache.get(id);
+        if (actual != null && System.nanoTime() - actual.cargado() < ttlCatalogosNanos) {
+            return actual.valor();
+        }
+        T valor = carga.get();
+        if (valor != null) {
+            cache.put(id, new Catalogo<>(valor, System.nanoTime()));
+        }
+        return valor;
+    }
+
     private String generarCodigoCuenta(String idTipoCuenta) {
         String prefijo = idTipoCuenta.substring(0, Math.min(3, idTipoCuenta.length())).toUpperCase();
         String random = String.format("%06d", new Random().nextInt(1_000_000));
         return prefijo + "-" + random;
     }
 
+    private record Catalogo<T>(T valor, long cargado) {
+    }
+
 }
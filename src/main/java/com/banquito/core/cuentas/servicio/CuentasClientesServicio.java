@@ -1,13 +1,16 @@
 package com.banquito.core.cuentas.servicio;
 
 import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.evento.NumeroCuentaRegistradoEvento;
 import com.banquito.core.cuentas.excepcion.ActualizarEntidadExcepcion;
 import com.banquito.core.cuentas.excepcion.CrearEntidadExcepcion;
 import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
+import com.banquito.core.cuentas.excepcion.PrecondicionFallidaExcepcion;
 import com.banquito.core.cuentas.modelo.Cuentas;
 import com.banquito.core.cuentas.modelo.CuentasClientes;
 import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
 import com.banquito.core.cuentas.repositorio.CuentasRepositorio;
+import com.banquito.core.cuentas.resiliencia.HedgingEjecutor;
 
 import com.banquito.core.cuentas.cliente.ClientesClient;
 import com.banquito.core.cuentas.dto.external.ClienteDTO;
@@ -17,14 +20,18 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.Random;
+import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -33,18 +40,35 @@ public class CuentasClientesServicio {
     private final CuentasClientesRepositorio cuentasClientesRepositorio;
     private final CuentasRepositorio cuentasRepositorio;
     private final ClientesClient clientesClient; // << Inyección
+    private final HedgingEjecutor hedging;
+    private final FiltroNumerosCuentaServicio filtroNumeros;
+    private final SaldosCuentasServicio saldos;
+    private final ApplicationEventPublisher eventos;
 
     public CuentasClientesServicio(CuentasClientesRepositorio cuentasClientesRepositorio,
             CuentasRepositorio cuentasRepositorio,
-            ClientesClient clientesClient) { // << Constructor
+            ClientesClient clientesClient,
+            HedgingEjecutor hedging,
+            FiltroNumerosCuentaServicio filtroNumeros,
+            SaldosCuentasServicio saldos,
+            ApplicationEventPublisher eventos) { // << Constructor
         this.cuentasClientesRepositorio = cuentasClientesRepositorio;
         this.cuentasRepositorio = cuentasRepositorio;
         this.clientesClient = clientesClient;
+        this.hedging = hedging;
+        this.filtroNumeros = filtroNumeros;
+        this.saldos = saldos;
+        this.eventos = eventos;
     }
 
+    /**
+     * Cuentas del cliente con su cuenta maestra, en una sola consulta. Son pocas: el
+     * listado se escribe con la transacción ya cerrada, así un cliente lento no
+     * retiene un cursor ni una conexión del pool.
+     */
     @Transactional(readOnly = true)
-    public List<CuentasClientes> listarPorIdCliente(String idCliente) {
-        return cuentasClientesRepositorio.findByIdCliente(idCliente);
+    public List<CuentasClientes> buscarPorIdCliente(String idCliente) {
+        return cuentasClientesRepositorio.findConCuentaByIdCliente(idCliente);
     }
 
     @Transactional(readOnly = true)
@@ -59,13 +83,28 @@ public class CuentasClientesServicio {
 
     public CuentasClientes buscarPorNumeroCuenta(String numeroCuenta) {
         log.debug("Iniciando búsqueda de CuentasClientes por número de cuenta: {}", numeroCuenta);
-        CuentasClientes cuentaCliente = cuentasClientesRepositorio.findByNumeroCuenta(numeroCuenta)
+        CuentasClientes cuentaCliente = buscarNumero(numeroCuenta, cuentasClientesRepositorio::findByNumeroCuenta)
                 .orElseThrow(() -> new EntidadNoEncontradaExcepcion("CuentasClientes",
                         "Cuenta Cliente con número " + numeroCuenta + " no encontrada."));
         log.debug("Cuenta Cliente encontrada con número: {}", numeroCuenta);
         return cuentaCliente;
     }
 
+    /** Versiones de la cuenta-cliente y de su cuenta maestra sin cargar la entidad (ETag). */
+    @Transactional(readOnly = true)
+    public CuentasClientesRepositorio.Versiones versionesPorId(Integer id) {
+        return cuentasClientesRepositorio.findVersionesById(id)
+                .orElseThrow(() -> new EntidadNoEncontradaExcepcion("CuentasClientes",
+                        "Cuenta Cliente con ID " + id + " no encontrada."));
+    }
+
+    @Transactional(readOnly = true)
+    public CuentasClientesRepositorio.Versiones versionesPorNumeroCuenta(String numeroCuenta) {
+        return buscarNumero(numeroCuenta, cuentasClientesRepositorio::findVersionesByNumeroCuenta)
+                .orElseThrow(() -> new EntidadNoEncontradaExcepcion("CuentasClientes",
+                        "Cuenta Cliente con número " + numeroCuenta + " no encontrada."));
+    }
+
     public CuentasClientes buscarPorIdClienteAndNumeroCuenta(String idCliente, String numeroCuenta) {
         log.debug("Iniciando búsqueda de CuentasClientes por ID Cliente: {} y Número de Cuenta: {}", idCliente,
                 numeroCuenta);
@@ -114,6 +153,7 @@ public class CuentasClientesServicio {
 
         try {
             CuentasClientes nuevaCuentaCliente = cuentasClientesRepositorio.save(cuentaCliente);
+            registrarAlConfirmar(nuevaCuentaCliente);
             log.info("CuentasClientes creada exitosamente con ID: {} y número de cuenta: {}",
                     nuevaCuentaCliente.getId(), nuevaCuentaCliente.getNumeroCuenta());
             return nuevaCuentaCliente;
@@ -126,11 +166,12 @@ public class CuentasClientesServicio {
     }
 
     @Transactional
-    public CuentasClientes actualizarCuentasClientes(Integer id, CuentasClientes cuentaCliente) {
+    public CuentasClientes actualizarCuentasClientes(Integer id, CuentasClientes cuentaCliente, Long versionEsperada) {
         log.info("Intentando actualizar CuentasClientes con ID: {}", id);
         CuentasClientes cuentaClienteExistente = cuentasClientesRepositorio.findById(id)
                 .orElseThrow(() -> new EntidadNoEncontradaExcepcion("CuentasClientes",
                         "Cuenta Cliente con ID " + id + " no encontrada para actualizar."));
+        validarVersion(cuentaClienteExistente, versionEsperada);
 
         // 1. Validar la nueva cuenta maestra (Cuentas) si se proporciona
         if (cuentaCliente.getIdCuenta() != null && cuentaCliente.getIdCuenta().getId() != null) {
@@ -172,6 +213,7 @@ public class CuentasClientesServicio {
 
         try {
             CuentasClientes cuentaClienteActualizada = cuentasClientesRepositorio.save(cuentaClienteExistente);
+            registrarAlConfirmar(cuentaClienteActualizada);
             log.info("CuentasClientes con ID {} actualizada exitosamente.", cuentaClienteActualizada.getId());
             return cuentaClienteActualizada;
         } catch (Exception e) {
@@ -182,11 +224,12 @@ public class CuentasClientesServicio {
     }
 
     @Transactional
-    public CuentasClientes desactivarCuentasClientes(Integer id) {
+    public CuentasClientes desactivarCuentasClientes(Integer id, Long versionEsperada) {
         log.info("Intentando desactivar CuentasClientes con ID: {}", id);
         CuentasClientes cuentaClienteExistente = cuentasClientesRepositorio.findById(id)
                 .orElseThrow(() -> new EntidadNoEncontradaExcepcion("CuentasClientes",
                         "Cuenta Cliente con ID " + id + " no encontrada para desactivar."));
+        validarVersion(cuentaClienteExistente, versionEsperada);
 
         if (cuentaClienteExistente.getEstado() == EstadoCuentaClienteEnum.INACTIVO) {
             log.warn("CuentasClientes con ID {} ya se encuentra INACTIVA.", id);
@@ -196,6 +239,7 @@ public class CuentasClientesServicio {
         cuentaClienteExistente.setEstado(EstadoCuentaClienteEnum.INACTIVO);
         try {
             CuentasClientes cuentaClienteDesactivada = cuentasClientesRepositorio.save(cuentaClienteExistente);
+            registrarSaldoAlConfirmar(cuentaClienteDesactivada);
             log.info("CuentasClientes con ID {} desactivada exitosamente.", cuentaClienteDesactivada.getId());
             return cuentaClienteDesactivada;
         } catch (Exception e) {
@@ -206,11 +250,12 @@ public class CuentasClientesServicio {
     }
 
     @Transactional
-    public CuentasClientes activarCuentasClientes(Integer id) {
+    public CuentasClientes activarCuentasClientes(Integer id, Long versionEsperada) {
         log.info("Intentando activar CuentasClientes con ID: {}", id);
         CuentasClientes cuentaClienteExistente = cuentasClientesRepositorio.findById(id)
                 .orElseThrow(() -> new EntidadNoEncontradaExcepcion("CuentasClientes",
                         "Cuenta Cliente con ID " + id + " no encontrada para activar."));
+        validarVersion(cuentaClienteExistente, versionEsperada);
 
         if (cuentaClienteExistente.getEstado() == EstadoCuentaClienteEnum.ACTIVO) {
             log.warn("CuentasClientes con ID {} ya se encuentra ACTIVA.", id);
@@ -220,6 +265,7 @@ public class CuentasClientesServicio {
         cuentaClienteExistente.setEstado(EstadoCuentaClienteEnum.ACTIVO);
         try {
             CuentasClientes cuentaClienteActivada = cuentasClientesRepositorio.save(cuentaClienteExistente);
+            registrarSaldoAlConfirmar(cuentaClienteActivada);
             log.info("CuentasClientes con ID {} activada exitosamente.", cuentaClienteActivada.getId());
             return cuentaClienteActivada;
         } catch (Exception e) {
@@ -229,11 +275,49 @@ public class CuentasClientesServicio {
         }
     }
 
+    /**
+     * Actualiza el modelo de saldos cuando la transacción confirma: la @Version
+     * se incrementa al hacer flush y un rollback no debe quedar en el modelo.
+     */
+    private void registrarSaldoAlConfirmar(CuentasClientes cuentaCliente) {
+        alConfirmar(() -> saldos.registrar(cuentaCliente));
+    }
+
+    /** Alta o posible cambio de número: además del saldo, el número va al filtro de todas las instancias. */
+    private void registrarAlConfirmar(CuentasClientes cuentaCliente) {
+        alConfirmar(() -> {
+            saldos.registrar(cuentaCliente);
+            eventos.publishEvent(new NumeroCuentaRegistradoEvento(cuentaCliente.getNumeroCuenta()));
+        });
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    // If-Match: la cuenta-cliente no debe haber cambiado desde que el cliente la leyó
+    private void validarVersion(CuentasClientes cuentaCliente, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(cuentaCliente.getVersion())) {
+            throw new PrecondicionFallidaExcepcion("CuentasClientes",
+                    "Cuenta Cliente con ID " + cuentaCliente.getId() + " cambió: versión actual "
+                            + cuentaCliente.getVersion() + ", esperada " + versionEsperada);
+        }
+    }
+
     private void validarClienteExistente(String numeroIdentificacion) {
         log.debug("Validando existencia de cliente con cédula: {}", numeroIdentificacion);
         try {
-            ResponseEntity<List<ClienteDTO>> resp = clientesClient.findByTipoYNumeroIdentificacion("CEDULA",
-                    numeroIdentificacion);
+            ResponseEntity<List<ClienteDTO>> resp = hedging.ejecutar("clientes-service",
+                    () -> clientesClient.findByTipoYNumeroIdentificacion("CEDULA", numeroIdentificacion));
 
             List<ClienteDTO> clientes = resp.getBody();
 
@@ -251,6 +335,11 @@ public class CuentasClientesServicio {
         }
     }
 
+    // Un número que el filtro descarta no llega a la BD
+    private <T> Optional<T> buscarNumero(String numeroCuenta, Function<String, Optional<T>> consulta) {
+        return filtroNumeros.puedeExistir(numeroCuenta) ? consulta.apply(numeroCuenta) : Optional.empty();
+    }
+
     private String generarNumeroCuentaUnico() {
         Random random = new Random();
         String numero;
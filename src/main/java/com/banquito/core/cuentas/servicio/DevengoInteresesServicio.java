@@ -0,0 +1,567 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.cliente.TasaInteresCliente;
+import com.banquito.core.cuentas.dto.TasaInteresDTO;
+import com.banquito.core.cuentas.enums.EstadoDevengoEnum;
+import com.banquito.core.cuentas.resiliencia.ArriendoTareas;
+import com.banquito.core.cuentas.resiliencia.HedgingEjecutor;
+import com.banquito.core.cuentas.util.Centavos;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Devengo diario de intereses de las cuentas-cliente activas. Cada noche devenga
+ * el día anterior en una sola instancia: la que toma el arriendo
+ * "devengo-intereses" (ArriendoTareas) y lo renueva en cada lote. El cron se
+ * repite durante la madrugada para retomar una ejecución cortada.
+ * <p>
+ * Recorre los saldos de cierre de la fecha por lotes ordenados por id (keyset, sin OFFSET) junto
+ * con la tasa de su cuenta maestra y el devengo del día anterior (para
+ * SALDO_PROMEDIO). Mientras un lote se calcula y escribe, el siguiente ya se está
+ * leyendo. Cada tasa se consulta al servicio de configuración una sola vez por
+ * ejecución. El cálculo se reparte en un ForkJoinPool propio y el resultado se
+ * escribe con un INSERT por lotes de JDBC, en la misma transacción que avanza el
+ * punto de control y renueva el arriendo: tras una caída el devengo sigue desde
+ * el último lote confirmado, y una instancia que perdió el arriendo no escribe.
+ * <p>
+ * Una tasa que el servicio de configuración devuelve incompleta o no encuentra
+ * no detiene el devengo: las cuentas de los productos que la usan se omiten, se
+ * suman en la columna omitidas del control y al final se informa un error por
+ * tasa con la cantidad de cuentas, para completarlas a mano. Un fallo de red o
+ * del servicio sí lo detiene, y la siguiente ejecución retoma.
+ * <p>
+ * Se devenga sobre el saldo de cierre de la fecha (saldos_cierre), no sobre el
+ * saldo contable al ejecutar, que ya tiene los movimientos de la madrugada. A la
+ * medianoche una instancia (arriendo "saldos-cierre") copia el saldo contable de
+ * las cuentas activas con un solo INSERT ... SELECT, que ve la BD en un mismo
+ * instante. Si esa copia no corre dentro de la tolerancia tras la medianoche no
+ * se toma (ya incluiría movimientos del día siguiente) y la fecha no se devenga:
+ * se informa como error para completarla a mano. Una fecha anterior que quedó a
+ * medias se retoma, en orden, mientras conserve sus saldos de cierre.
+ */
+@Service
+@Slf4j
+public class DevengoInteresesServicio {
+
+    private static final String SQL_LOTE =
+            "SELECT s.id_cuenta_cliente, s.saldo_contable, c.id_tasa_interes, d.saldo_acumulado, d.dias_periodo "
+                    + "FROM account.saldos_cierre s "
+                    + "JOIN account.cuentas_clientes cc ON cc.id_cuenta_cliente = s.id_cuenta_cliente "
+                    + "JOIN account.cuentas c ON c.id_cuenta = cc.id_cuenta "
+                    + "LEFT JOIN account.intereses_devengados d "
+                    + "ON d.id_cuenta_cliente = s.id_cuenta_cliente AND d.fecha = ? "
+                    + "WHERE s.fecha = ? AND s.id_cuenta_cliente > ? "
+                    + "ORDER BY s.id_cuenta_cliente LIMIT ?";
+    private static final String SQL_INSERTAR =
+            "INSERT INTO account.intereses_devengados (id_cuenta_cliente, fecha, id_tasa_interes, saldo, tasa, "
+                    + "dias, interes, saldo_acumulado, dias_periodo) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_CONTROL =
+            "SELECT estado, ultimo_id_cuenta_cliente, filas FROM account.devengo_intereses_control WHERE fecha = ?";
+    private static final String SQL_CREAR_CONTROL =
+            "INSERT INTO account.devengo_intereses_control (fecha, estado, ultimo_id_cuenta_cliente, filas, omitidas, "
+                    + "fecha_inicio, fecha_actualizacion) VALUES (?, 'EN_CURSO', 0, 0, 0, ?, ?)";
+    private static final String SQL_AVANZAR =
+            "UPDATE account.devengo_intereses_control SET ultimo_id_cuenta_cliente = ?, filas = filas + ?, "
+                    + "omitidas = COALESCE(omitidas, 0) + ?, fecha_actualizacion = ? "
+                    + "WHERE fecha = ? AND ultimo_id_cuenta_cliente = ? AND estado = 'EN_CURSO'";
+    private static final String SQL_COMPLETAR =
+            "UPDATE account.devengo_intereses_control SET estado = 'COMPLETADO', fecha_fin = ?, "
+                    + "fecha_actualizacion = ? WHERE fecha = ? AND estado = 'EN_CURSO'";
+    private static final String SQL_HAY_CIERRE =
+            "SELECT COUNT(*) FROM (SELECT 1 FROM account.saldos_cierre WHERE fecha = ? LIMIT 1) s";
+    private static final String SQL_COPIAR_CIERRE =
+            "INSERT INTO account.saldos_cierre (fecha, id_cuenta_cliente, saldo_contable) "
+                    + "SELECT ?, id_cuenta_cliente, saldo_contable FROM account.cuentas_clientes WHERE estado = 'ACTIVO'";
+    private static final String SQL_PURGAR_CIERRE =
+            "DELETE FROM account.saldos_cierre WHERE fecha < ?";
+    private static final String SQL_PENDIENTES =
+            "SELECT fecha FROM account.devengo_intereses_control WHERE estado = 'EN_CURSO' AND fecha < ? ORDER BY fecha";
+
+    static final String TAREA = "devengo-intereses";
+    static final String TAREA_CIERRE = "saldos-cierre";
+
+    /** Clave de las cuentas cuya cuenta maestra no tiene id_tasa_interes. */
+    private static final String SIN_TASA = "(sin tasa)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate escritura;
+    private final ArriendoTareas arriendos;
+    private final TasaInteresCliente tasaInteresCliente;
+    private final HedgingEjecutor hedging;
+    private final ForkJoinPool calculo;
+    private final boolean habilitado;
+    private final ZoneId zona;
+    private final int tamanoLote;
+    private final int umbralTarea;
+    private final long toleranciaCierreMs;
+    private final int retencionCierreDias;
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    private final MeterRegistry registry;
+    private final Counter filasDevengadas;
+    private final Timer duracionLote;
+    private volatile double filasPorSegundo;
+
+    public DevengoInteresesServicio(
+            DataSource dataSource,
+            PlatformTransactionManager transacciones,
+            TasaInteresCliente tasaInteresCliente,
+            HedgingEjecutor hedging,
+            ArriendoTareas arriendos,
+            MeterRegistry registry,
+            @Value("${intereses.devengo.habilitado:false}") boolean habilitado,
+            @Value("${intereses.devengo.zona:America/Guayaquil}") String zona,
+            @Value("${intereses.devengo.lote:5000}") int tamanoLote,
+            @Value("${intereses.devengo.umbral-tarea:1024}") int umbralTarea,
+            @Value("${intereses.devengo.paralelismo:0}") int paralelismo,
+            @Value("${intereses.devengo.cierre.tolerancia-ms:300000}") long toleranciaCierreMs,
+            @Value("${intereses.devengo.cierre.retencion-dias:7}") int retencionCierreDias) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.escritura = new TransactionTemplate(transacciones);
+        this.tasaInteresCliente = tasaInteresCliente;
+        this.hedging = hedging;
+        this.arriendos = arriendos;
+        this.habilitado = habilitado;
+        this.zona = ZoneId.of(zona);
+        this.tamanoLote = tamanoLote;
+        this.umbralTarea = Math.max(1, umbralTarea);
+        this.toleranciaCierreMs = toleranciaCierreMs;
+        this.retencionCierreDias = Math.max(1, retencionCierreDias);
+        this.calculo = new ForkJoinPool(
+                paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread hilo = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    hilo.setName("devengo-intereses-" + hilo.getPoolIndex());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, null, false);
+
+        this.registry = registry;
+        this.filasDevengadas = Counter.builder("cuentas.intereses.devengo.filas")
+                .description("Cuentas con interés devengado")
+                .register(registry);
+        this.duracionLote = Timer.builder("cuentas.intereses.devengo.lote")
+                .description("Cálculo y escritura de un lote del devengo de intereses")
+                .register(registry);
+        Gauge.builder("cuentas.intereses.devengo.filas.segundo", this, s -> s.filasPorSegundo)
+                .description("Filas por segundo del último devengo completo")
+                .register(registry);
+    }
+
+    /**
+     * Resultado de devengar una fecha: filas escritas en esta ejecución, su ritmo y
+     * las cuentas omitidas por tasa inutilizable (id de tasa a cantidad).
+     */
+    public record ResumenDevengo(LocalDate fecha, long filas, long milisegundos, double filasPorSegundo,
+                                 Map<String, Long> omitidas) {
+
+        static ResumenDevengo vacio(LocalDate fecha) {
+            return new ResumenDevengo(fecha, 0, 0, 0, Map.of());
+        }
+    }
+
+    @Scheduled(cron = "${intereses.devengo.cierre.cron:0 0 0 * * *}", zone = "${intereses.devengo.zona:America/Guayaquil}")
+    public void registrarSaldosCierre() {
+        if (!habilitado) {
+            return;
+        }
+        ZonedDateTime ahora = ZonedDateTime.now(zona);
+        LocalDate fecha = ahora.toLocalDate().minusDays(1);
+        long retrasoMs = Duration.between(ahora.toLocalDate().atStartOfDay(zona), ahora).toMillis();
+        if (retrasoMs > toleranciaCierreMs) {
+            log.error("Saldos de cierre {} no tomados: la tarea corrió {} ms después de la medianoche y el saldo "
+                    + "contable ya tiene movimientos del día siguiente. El devengo de esa fecha queda pendiente "
+                    + "para completarlo a mano", fecha, retrasoMs);
+            return;
+        }
+        try {
+            registrarSaldosCierre(fecha);
+        } catch (RuntimeException e) {
+            log.error("Saldos de cierre {} no tomados: {}", fecha, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copia el saldo contable de las cuentas activas como saldo de cierre de la
+     * fecha, si aún no se copió y esta instancia toma el arriendo, y borra los de
+     * fechas fuera de la retención. Devuelve las cuentas copiadas.
+     */
+    int registrarSaldosCierre(LocalDate fecha) {
+        if (hayCierre(fecha) || !arriendos.tomar(TAREA_CIERRE)) {
+            return 0;
+        }
+        try {
+            int copiadas = escritura.execute(estado -> hayCierre(fecha) ? 0 : jdbc.update(SQL_COPIAR_CIERRE, fecha));
+            int purgadas = jdbc.update(SQL_PURGAR_CIERRE, fecha.minusDays(retencionCierreDias - 1));
+            log.info("Saldos de cierre {}: {} cuentas ({} filas anteriores purgadas)", fecha, copiadas, purgadas);
+            return copiadas;
+        } finally {
+            arriendos.liberar(TAREA_CIERRE);
+        }
+    }
+
+    @Scheduled(cron = "${intereses.devengo.cron:0 30 0-5 * * *}", zone = "${intereses.devengo.zona:America/Guayaquil}")
+    public void devengarDiaAnterior() {
+        if (!habilitado) {
+            return;
+        }
+        LocalDate ayer = LocalDate.now(zona).minusDays(1);
+        try {
+            // En orden: el devengo de una fecha usa el del día previo para SALDO_PROMEDIO
+            for (LocalDate pendiente : jdbc.queryForList(SQL_PENDIENTES, LocalDate.class, ayer)) {
+                if (hayCierre(pendiente)) {
+                    devengar(pendiente);
+                } else {
+                    log.error("Devengo de intereses {} quedó a medias y ya no tiene saldos de cierre; "
+                            + "completarlo a mano", pendiente);
+                }
+            }
+            devengar(ayer);
+        } catch (RuntimeException e) {
+            log.error("Devengo de intereses interrumpido; se retomará desde el último lote confirmado: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Devenga una fecha (a más tardar el día anterior) desde su punto de control,
+     * sobre sus saldos de cierre, si esta instancia toma el arriendo. Una fecha ya
+     * completada no se vuelve a devengar. Si una tasa no responde, falla una
+     * escritura o se pierde el arriendo, se detiene con el punto de control en el
+     * último lote confirmado.
+     */
+    public ResumenDevengo devengar(LocalDate fecha) {
+        if (fecha.isAfter(LocalDate.now(zona).minusDays(1))) {
+            throw new IllegalArgumentException("Solo se devengan días cerrados; " + fecha + " aún no cierra");
+        }
+        if (!hayCierre(fecha)) {
+            throw new IllegalStateException("Devengo de intereses " + fecha + ": no hay saldos de cierre de esa "
+                    + "fecha; completarlo a mano");
+        }
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un devengo de intereses en curso en esta instancia");
+        }
+        try {
+            if (!arriendos.tomar(TAREA)) {
+                log.info("Devengo de intereses {}: lo ejecuta otra instancia", fecha);
+                return ResumenDevengo.vacio(fecha);
+            }
+            try {
+                return devengarDesdeControl(fecha);
+            } finally {
+                arriendos.liberar(TAREA);
+            }
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        calculo.shutdownNow();
+    }
+
+    private ResumenDevengo devengarDesdeControl(LocalDate fecha) {
+        Control control = leerOCrearControl(fecha);
+        if (control.estado() == EstadoDevengoEnum.COMPLETADO) {
+            log.info("Devengo de intereses {}: ya completado ({} filas)", fecha, control.filas());
+            return ResumenDevengo.vacio(fecha);
+        }
+        if (control.ultimoId() > 0) {
+            log.info("Devengo de intereses {}: se retoma después de la cuenta-cliente {} ({} filas ya escritas)",
+                    fecha, control.ultimoId(), control.filas());
+        }
+
+        long inicio = System.nanoTime();
+        Map<String, TasaResuelta> tasas = new ConcurrentHashMap<>();
+        Map<String, Long> omitidas = new TreeMap<>();
+        int ultimoId = control.ultimoId();
+        long filas = 0;
+        CompletableFuture<Lote> siguiente = leerLoteAsync(fecha, ultimoId, tasas);
+        while (true) {
+            Lote lote = esperar(siguiente);
+            if (lote.leidas == 0) {
+                break;
+            }
+            // El siguiente lote se lee mientras este se calcula y escribe
+            siguiente = leerLoteAsync(fecha, lote.ultimoId, tasas);
+            long inicioLote = System.nanoTime();
+            calculo.invoke(new Calculo(lote, fecha, 0, lote.cantidad, umbralTarea));
+            ultimoId = escribir(fecha, ultimoId, lote);
+            filas += lote.cantidad;
+            filasDevengadas.increment(lote.cantidad);
+            lote.omitidas.forEach((idTasa, cantidad) -> omitidas.merge(idTasa, cantidad, Long::sum));
+            duracionLote.record(System.nanoTime() - inicioLote, TimeUnit.NANOSECONDS);
+        }
+
+        Timestamp ahora = Timestamp.from(Instant.now());
+        jdbc.update(SQL_COMPLETAR, ahora, ahora, fecha);
+        long milisegundos = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        double ritmo = filas * 1000.0 / milisegundos;
+        filasPorSegundo = ritmo;
+        log.info("Devengo de intereses {}: {} cuentas en {} ms ({} filas/s, {} tasas)",
+                fecha, filas, milisegundos, Math.round(ritmo), tasas.size());
+        informarOmitidas(fecha, omitidas, tasas);
+        return new ResumenDevengo(fecha, filas, milisegundos, ritmo, omitidas);
+    }
+
+    private void informarOmitidas(LocalDate fecha, Map<String, Long> omitidas, Map<String, TasaResuelta> tasas) {
+        omitidas.forEach((idTasa, cantidad) -> {
+            TasaResuelta tasa = tasas.get(idTasa);
+            log.error("Devengo de intereses {}: {} cuentas de productos con la tasa {} quedaron sin devengar ({}). "
+                            + "Completarlas a mano", fecha, cantidad, idTasa,
+                    tasa == null ? "tasa no resuelta en esta ejecución" : tasa.motivo());
+            Counter.builder("cuentas.intereses.devengo.omitidas")
+                    .description("Cuentas sin devengar porque la tasa de su producto no se pudo usar")
+                    .tag("tasa", idTasa)
+                    .register(registry)
+                    .increment(cantidad);
+        });
+    }
+
+    private Control leerOCrearControl(LocalDate fecha) {
+        Control control = leerControl(fecha);
+        if (control != null) {
+            return control;
+        }
+        try {
+            Timestamp ahora = Timestamp.from(Instant.now());
+            jdbc.update(SQL_CREAR_CONTROL, fecha, ahora, ahora);
+        } catch (DuplicateKeyException e) {
+            // Otra instancia lo creó al mismo tiempo; el avance con CAS evita escribir dos veces
+            log.debug("Control de devengo {} creado por otra instancia", fecha);
+        }
+        return leerControl(fecha);
+    }
+
+    private Control leerControl(LocalDate fecha) {
+        List<Control> controles = jdbc.query(SQL_CONTROL, (fila, i) -> new Control(
+                EstadoDevengoEnum.valueOf(fila.getString(1)), fila.getInt(2), fila.getLong(3)), fecha);
+        return controles.isEmpty() ? null : controles.get(0);
+    }
+
+    private boolean hayCierre(LocalDate fecha) {
+        return jdbc.queryForObject(SQL_HAY_CIERRE, Long.class, fecha) > 0;
+    }
+
+    private CompletableFuture<Lote> leerLoteAsync(LocalDate fecha, int desdeId, Map<String, TasaResuelta> tasas) {
+        return CompletableFuture.supplyAsync(() -> leerLote(fecha, desdeId, tasas),
+                tarea -> Thread.ofVirtual().name("devengo-intereses-lectura").start(tarea));
+    }
+
+    private Lote leerLote(LocalDate fecha, int desdeId, Map<String, TasaResuelta> tasas) {
+        Lote lote = new Lote(tamanoLote);
+        jdbc.query(SQL_LOTE, fila -> {
+            lote.leidas++;
+            lote.ultimoId = fila.getInt(1);
+            String idTasa = Objects.requireNonNullElse(fila.getString(3), SIN_TASA);
+            TasaResuelta tasa = tasas.computeIfAbsent(idTasa, this::resolverTasa);
+            if (tasa.calculo() == null) {
+                lote.omitidas.merge(idTasa, 1L, Long::sum);
+                return;
+            }
+            int i = lote.cantidad++;
+            lote.ids[i] = lote.ultimoId;
+            lote.saldos[i] = Centavos.de(fila.getBigDecimal(2));
+            lote.calculos[i] = tasa.calculo();
+            BigDecimal acumulado = fila.getBigDecimal(4);
+            // La suma del período puede superar NUMERIC(15,2); se lee sin el límite de Centavos
+            lote.acumuladosPrevios[i] = acumulado == null ? 0 : acumulado.movePointRight(2).longValueExact();
+            lote.diasPrevios[i] = fila.getInt(5);
+        }, fecha.minusDays(1), fecha, desdeId, tamanoLote);
+        return lote;
+    }
+
+    /**
+     * Una tasa incompleta o inexistente se devuelve con su motivo y sus cuentas se
+     * omiten; cualquier otro error (red, servicio caído) se propaga y detiene el devengo.
+     */
+    private TasaResuelta resolverTasa(String idTasa) {
+        if (SIN_TASA.equals(idTasa)) {
+            return new TasaResuelta(null, "la cuenta maestra no tiene tasa");
+        }
+        try {
+            TasaInteresDTO tasa = hedging.ejecutar("tasa-interes-cliente",
+                    () -> tasaInteresCliente.obtenerDetallePorId(idTasa));
+            return new TasaResuelta(new CalculoInteres(tasa), null);
+        } catch (IllegalArgumentException | FeignException.NotFound e) {
+            return new TasaResuelta(null, e.getMessage());
+        }
+    }
+
+    /**
+     * Inserta el lote, avanza el punto de control y renueva el arriendo en una
+     * transacción. El avance exige que el control siga donde se leyó y la
+     * renovación que el arriendo siga siendo de esta instancia: si no, se revierte
+     * el lote y el devengo se detiene.
+     */
+    private int escribir(LocalDate fecha, int desdeId, Lote lote) {
+        int hastaId = lote.ultimoId;
+        long omitidasLote = lote.leidas - lote.cantidad;
+        escritura.executeWithoutResult(estado -> {
+            if (lote.cantidad > 0) {
+                insertar(fecha, lote);
+            }
+            int avanzados = jdbc.update(SQL_AVANZAR, hastaId, lote.cantidad, omitidasLote,
+                    Timestamp.from(Instant.now()), fecha, desdeId);
+            if (avanzados != 1) {
+                throw new IllegalStateException("El control del devengo " + fecha
+                        + " cambió durante el lote (otra instancia lo está procesando)");
+            }
+            if (!arriendos.renovar(TAREA)) {
+                throw new IllegalStateException("El arriendo del devengo " + fecha + " pasó a otra instancia");
+            }
+        });
+        return hastaId;
+    }
+
+    private void insertar(LocalDate fecha, Lote lote) {
+        jdbc.batchUpdate(SQL_INSERTAR, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CalculoInteres calculoTasa = lote.calculos[i];
+                ps.setInt(1, lote.ids[i]);
+                ps.setObject(2, fecha);
+                ps.setString(3, calculoTasa.getIdTasa());
+                ps.setBigDecimal(4, Centavos.aBigDecimal(lote.saldos[i]));
+                ps.setBigDecimal(5, calculoTasa.getTasa());
+                ps.setInt(6, lote.dias[i]);
+                ps.setBigDecimal(7, lote.intereses[i]);
+                ps.setBigDecimal(8, Centavos.aBigDecimal(lote.acumulados[i]));
+                ps.setInt(9, lote.diasPeriodo[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lote.cantidad;
+            }
+        });
+    }
+
+    private static Lote esperar(CompletableFuture<Lote> lote) {
+        try {
+            return lote.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private record Control(EstadoDevengoEnum estado, int ultimoId, long filas) {
+    }
+
+    /** Tasa lista para calcular, o el motivo por el que las cuentas que la usan no se devengan. */
+    private record TasaResuelta(CalculoInteres calculo, String motivo) {
+    }
+
+    /**
+     * Columnas de un lote en arreglos: la lectura los llena y el cálculo escribe los
+     * resultados. Las cuentas omitidas no ocupan posición, solo cuentan en leidas y
+     * en omitidas; ultimoId es el último id leído, omitido o no.
+     */
+    private static final class Lote {
+        int leidas;
+        int ultimoId;
+        int cantidad;
+        final Map<String, Long> omitidas = new HashMap<>();
+        final int[] ids;
+        final long[] saldos;
+        final CalculoInteres[] calculos;
+        final long[] acumuladosPrevios;
+        final int[] diasPrevios;
+        final int[] dias;
+        final BigDecimal[] intereses;
+        final long[] acumulados;
+        final int[] diasPeriodo;
+
+        Lote(int capacidad) {
+            ids = new int[capacidad];
+            saldos = new long[capacidad];
+            calculos = new CalculoInteres[capacidad];
+            acumuladosPrevios = new long[capacidad];
+            diasPrevios = new int[capacidad];
+            dias = new int[capacidad];
+            intereses = new BigDecimal[capacidad];
+            acumulados = new long[capacidad];
+            diasPeriodo = new int[capacidad];
+        }
+    }
+
+    /** Parte el lote a la mitad hasta el umbral y calcula cada tramo en un hilo del pool. */
+    private static final class Calculo extends RecursiveAction {
+        private final Lote lote;
+        private final LocalDate fecha;
+        private final int desde;
+        private final int hasta;
+        private final int umbral;
+
+        Calculo(Lote lote, LocalDate fecha, int desde, int hasta, int umbral) {
+            this.lote = lote;
+            this.fecha = fecha;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.umbral = umbral;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > umbral) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new Calculo(lote, fecha, desde, medio, umbral),
+                        new Calculo(lote, fecha, medio, hasta, umbral));
+                return;
+            }
+            for (int i = desde; i < hasta; i++) {
+                CalculoInteres calculoTasa = lote.calculos[i];
+                // Sin devengo del día anterior, o al abrir un período, el promedio empieza de nuevo.
+                // Un saldo negativo no devenga ni baja el promedio
+                boolean continua = lote.diasPrevios[i] > 0 && !calculoTasa.iniciaPeriodo(fecha);
+                long saldo = Math.max(lote.saldos[i], 0);
+                lote.acumulados[i] = continua ? Math.addExact(lote.acumuladosPrevios[i], saldo) : saldo;
+                lote.diasPeriodo[i] = continua ? lote.diasPrevios[i] + 1 : 1;
+                lote.dias[i] = calculoTasa.dias(fecha);
+                lote.intereses[i] = calculoTasa.interes(lote.saldos[i], lote.acumulados[i], lote.diasPeriodo[i],
+                        lote.dias[i]);
+            }
+        }
+    }
+}
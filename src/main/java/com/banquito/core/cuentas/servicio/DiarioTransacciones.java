@@ -0,0 +1,530 @@
+package com.banquito.core.cuentas.servicio;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de solo agregado sobre archivos de segmento mapeados en memoria
+ * (diario-NNNNNNNNNNNN.seg, de tamaño fijo). Agregar es copiar el registro al
+ * segmento actual bajo un candado: no hay llamada al sistema en la escritura. El
+ * siguiente segmento se crea y se pre-toca en segundo plano, así que rotar
+ * tampoco espera al disco.
+ * <p>
+ * Confirmación en grupo: un hilo propio baja a disco (msync) lo escrito desde la
+ * última vez cada intervaloSincronizacion, o antes si alguien espera. Lo
+ * agregado sobrevive a una caída del proceso apenas se copia (queda en la caché
+ * de páginas); esperarSincronizacion lo garantiza también ante una caída de la
+ * máquina, a costa de esperar el siguiente msync compartido.
+ * <p>
+ * Cada registro es: largo (4 bytes), CRC32C de secuencia y contenido (4),
+ * secuencia (8) y el contenido de RegistroDiario. Al abrir se recorren los
+ * segmentos y se corta en el primer registro incompleto, con CRC inválido o
+ * fuera de secuencia. Ese recorrido también reconstruye el índice por cuenta:
+ * por cada número de cuenta, las posiciones (segmento << 32 | desplazamiento)
+ * de sus registros en orden de escritura.
+ * <p>
+ * Se conservan los últimos maxSegmentos segmentos; al rotar se borra el más
+ * viejo y sus posiciones se depuran del índice en segundo plano.
+ */
+@Slf4j
+public class DiarioTransacciones implements Closeable {
+
+    private static final int MAGICO = 0x4258_444A; // "BXDJ"
+    private static final int FORMATO = 1;
+    static final int CABECERA = 64;
+    private static final int CABECERA_REGISTRO = 16;
+    private static final int PAGINA = 4096;
+    private static final String PREFIJO = "diario-";
+    private static final String EXTENSION = ".seg";
+    private static final long ESPERA_REINTENTO_SEGMENTO_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final int maxSegmentos;
+    private final long intervaloSincronizacionNanos;
+
+    private final ReentrantLock escritura = new ReentrantLock();
+    private final Condition sincronizado = escritura.newCondition();
+    private final ConcurrentSkipListMap<Long, Segmento> segmentos = new ConcurrentSkipListMap<>();
+    private final Map<String, Posiciones> indice = new ConcurrentHashMap<>();
+    private final CRC32C crc = new CRC32C();
+    private final Thread sincronizador;
+
+    // Protegidos por escritura
+    private Segmento actual;
+    private CompletableFuture<Segmento> siguiente;
+    private long proximoIntentoSegmento;
+    private long ultimaSecuencia;
+    private long secuenciaSincronizada;
+    private volatile boolean cerrado;
+
+    private volatile long sincronizaciones;
+
+    /** Abre (o crea) el diario en el directorio y recupera lo que tenía. */
+    public DiarioTransacciones(Path directorio, int tamanoSegmento, int maxSegmentos,
+                               long intervaloSincronizacionMs) throws IOException {
+        if (tamanoSegmento < CABECERA + PAGINA) {
+            throw new IllegalArgumentException("Segmento del diario demasiado pequeño: " + tamanoSegmento);
+        }
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.maxSegmentos = Math.max(2, maxSegmentos);
+        this.intervaloSincronizacionNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, intervaloSincronizacionMs));
+        Files.createDirectories(directorio);
+
+        recuperar();
+        if (actual == null) {
+            actual = crearSegmento(1);
+            segmentos.put(actual.numero, actual);
+        }
+        secuenciaSincronizada = ultimaSecuencia;
+        proximoIntentoSegmento = System.nanoTime();
+        siguiente = prepararSiguiente(actual.numero + 1);
+        this.sincronizador = Thread.ofPlatform().daemon().name("diario-sincronizacion").start(this::sincronizar);
+        log.info("Diario de transacciones {}: {} segmentos, última secuencia {}, {} cuentas indexadas",
+                directorio, segmentos.size(), ultimaSecuencia, indice.size());
+    }
+
+    /**
+     * Agrega el registro indexado en las cuentas dadas y devuelve su secuencia.
+     * Con esperarSincronizacion no vuelve hasta que el registro está en disco.
+     */
+    public long agregar(RegistroDiario registro, boolean esperarSincronizacion, String... cuentas) {
+        byte[] contenido = registro.codificar();
+        int largo = CABECERA_REGISTRO + contenido.length;
+        if (largo > tamanoSegmento - CABECERA - 4) {
+            throw new IllegalArgumentException("Registro de " + largo + " bytes no cabe en un segmento del diario");
+        }
+        long secuencia;
+        escritura.lock();
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("Diario de transacciones cerrado");
+            }
+            // Se deja lugar para el 0 que marca el final del segmento
+            if (actual.posicion + largo > tamanoSegmento - 4) {
+                rotar();
+            }
+            secuencia = ultimaSecuencia + 1;
+            int posicion = actual.posicion;
+            MappedByteBuffer mapa = actual.mapa;
+            mapa.putLong(posicion + 8, secuencia);
+            mapa.put(posicion + CABECERA_REGISTRO, contenido);
+            mapa.putInt(posicion + 4, crc(secuencia, contenido));
+            // El largo va al final: un registro a medio copiar se lee como fin del segmento
+            mapa.putInt(posicion, contenido.length);
+            actual.posicion = posicion + largo;
+            ultimaSecuencia = secuencia;
+            long ubicacion = actual.numero << 32 | posicion;
+            for (String cuenta : cuentas) {
+                if (cuenta != null) {
+                    indexar(cuenta, ubicacion);
+                }
+            }
+            if (esperarSincronizacion) {
+                esperarSincronizacion(secuencia);
+            }
+        } finally {
+            escritura.unlock();
+        }
+        return secuencia;
+    }
+
+    /** Los últimos registros (hasta limite) indexados en la cuenta, del más nuevo al más viejo. */
+    public List<RegistroDiario> ultimos(String numeroCuenta, int limite) {
+        Posiciones posiciones = indice.get(numeroCuenta);
+        if (posiciones == null || limite <= 0) {
+            return List.of();
+        }
+        long[] ubicaciones = posiciones.ultimas(limite);
+        List<RegistroDiario> registros = new ArrayList<>(ubicaciones.length);
+        for (int i = ubicaciones.length - 1; i >= 0; i--) {
+            Segmento segmento = segmentos.get(ubicaciones[i] >>> 32);
+            if (segmento == null) {
+                // Segmento ya borrado por retención: lo que sigue es aún más viejo
+                break;
+            }
+            registros.add(leer(segmento.mapa, (int) ubicaciones[i]));
+        }
+        return registros;
+    }
+
+    /** Recorre en orden de escritura los registros con secuencia desde la indicada. */
+    public void recorrer(long desdeSecuencia, Consumer<RegistroDiario> consumidor) {
+        for (Tramo tramo : escritos(Long.MIN_VALUE)) {
+            MappedByteBuffer mapa = tramo.segmento().mapa;
+            for (int posicion = CABECERA; posicion < tramo.hasta(); ) {
+                if (mapa.getLong(posicion + 8) >= desdeSecuencia) {
+                    consumidor.accept(leer(mapa, posicion));
+                }
+                posicion += CABECERA_REGISTRO + mapa.getInt(posicion);
+            }
+        }
+    }
+
+    /**
+     * Segmentos desde el número indicado con la posición hasta donde hay registros
+     * completos. Tomado con el candado: lo anterior a esa posición ya no cambia.
+     */
+    private List<Tramo> escritos(long desdeNumero) {
+        escritura.lock();
+        try {
+            List<Tramo> tramos = new ArrayList<>();
+            for (Segmento segmento : segmentos.tailMap(desdeNumero, true).values()) {
+                tramos.add(new Tramo(segmento, segmento.posicion));
+            }
+            return tramos;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    public long ultimaSecuencia() {
+        escritura.lock();
+        try {
+            return ultimaSecuencia;
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    public int cantidadSegmentos() {
+        return segmentos.size();
+    }
+
+    public long bytes() {
+        return (long) segmentos.size() * tamanoSegmento;
+    }
+
+    public int cuentasIndexadas() {
+        return indice.size();
+    }
+
+    public long sincronizaciones() {
+        return sincronizaciones;
+    }
+
+    @Override
+    public void close() throws IOException {
+        escritura.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+        } finally {
+            escritura.unlock();
+        }
+        LockSupport.unpark(sincronizador);
+        try {
+            sincronizador.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segmento segmento : segmentos.values()) {
+            segmento.mapa.force();
+            segmento.canal.close();
+        }
+        Segmento preparado = siguiente.isCompletedExceptionally() ? null : siguiente.getNow(null);
+        if (preparado != null) {
+            // Nunca se escribió: se borra para no dejar un segmento vacío suelto
+            preparado.canal.close();
+            Files.deleteIfExists(preparado.archivo);
+        }
+        log.info("Diario de transacciones cerrado en la secuencia {}", ultimaSecuencia);
+    }
+
+    private void esperarSincronizacion(long secuencia) {
+        // Adelanta la ronda; quienes lleguen mientras corre el msync esperan la siguiente
+        LockSupport.unpark(sincronizador);
+        while (secuenciaSincronizada < secuencia && !cerrado) {
+            sincronizado.awaitUninterruptibly();
+        }
+    }
+
+    private void indexar(String cuenta, long ubicacion) {
+        indice.compute(cuenta, (clave, posiciones) -> {
+            Posiciones destino = posiciones != null ? posiciones : new Posiciones();
+            destino.agregar(ubicacion);
+            return destino;
+        });
+    }
+
+    /**
+     * Cierra el segmento actual y pasa al preparado en segundo plano; borra el más
+     * viejo si sobra. Si la preparación falló (disco lleno, por ejemplo), se lanza
+     * otra en segundo plano a lo sumo una vez por segundo y, mientras tanto, agregar
+     * falla sin esperar: el segmento actual sigue lleno y no se pierde nada escrito.
+     */
+    private void rotar() {
+        Segmento preparado;
+        try {
+            preparado = siguiente.join();
+        } catch (CompletionException e) {
+            long ahora = System.nanoTime();
+            if (ahora - proximoIntentoSegmento >= 0) {
+                proximoIntentoSegmento = ahora + ESPERA_REINTENTO_SEGMENTO_NANOS;
+                log.error("No se pudo preparar el segmento {} del diario, se reintenta: {}",
+                        actual.numero + 1, e.getCause().getMessage());
+                siguiente = prepararSiguiente(actual.numero + 1);
+            }
+            throw new IllegalStateException("Diario de transacciones sin segmento disponible", e.getCause());
+        }
+        actual.mapa.putInt(actual.posicion, 0);
+        actual = preparado;
+        segmentos.put(actual.numero, actual);
+        siguiente = prepararSiguiente(actual.numero + 1);
+        while (segmentos.size() > maxSegmentos) {
+            Segmento viejo = segmentos.pollFirstEntry().getValue();
+            long primero = segmentos.firstKey();
+            Thread.ofVirtual().name("diario-retencion").start(() -> retirar(viejo, primero));
+        }
+    }
+
+    private void retirar(Segmento viejo, long primerSegmento) {
+        try {
+            // El MappedByteBuffer sigue siendo válido para un lector que lo tenga; Linux libera el archivo al final
+            viejo.canal.close();
+            Files.deleteIfExists(viejo.archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el segmento {} del diario: {}", viejo.archivo, e.getMessage());
+        }
+        long limite = primerSegmento << 32;
+        for (String cuenta : indice.keySet()) {
+            indice.computeIfPresent(cuenta, (clave, posiciones) -> posiciones.descartarAntesDe(limite) ? null : posiciones);
+        }
+        log.info("Segmento {} del diario retirado por retención", viejo.archivo.getFileName());
+    }
+
+    /**
+     * Hilo de confirmación en grupo: en cada ronda un msync por segmento con
+     * escrituras nuevas, solo del tramo escrito desde la ronda anterior.
+     */
+    private void sincronizar() {
+        long desdeNumero = 0;
+        int desdePosicion = 0;
+        while (true) {
+            LockSupport.parkNanos(intervaloSincronizacionNanos);
+            long hasta;
+            boolean fin;
+            escritura.lock();
+            try {
+                fin = cerrado;
+                hasta = ultimaSecuencia;
+            } finally {
+                escritura.unlock();
+            }
+            if (hasta != secuenciaSincronizada) {
+                List<Tramo> tramos = escritos(desdeNumero);
+                try {
+                    for (Tramo tramo : tramos) {
+                        int desde = tramo.segmento().numero == desdeNumero ? desdePosicion : 0;
+                        tramo.segmento().mapa.force(desde, tramo.hasta() + 4 - desde);
+                    }
+                    sincronizaciones++;
+                } catch (UncheckedIOException e) {
+                    log.error("No se pudo sincronizar el diario de transacciones: {}", e.getMessage());
+                }
+                if (!tramos.isEmpty()) {
+                    Tramo ultimo = tramos.get(tramos.size() - 1);
+                    desdeNumero = ultimo.segmento().numero;
+                    desdePosicion = ultimo.hasta() & -PAGINA;
+                }
+            }
+            escritura.lock();
+            try {
+                // hasta se leyó antes de los msync: todo lo que incluía ya está en disco
+                secuenciaSincronizada = Math.max(secuenciaSincronizada, hasta);
+                sincronizado.signalAll();
+            } finally {
+                escritura.unlock();
+            }
+            if (fin) {
+                return;
+            }
+        }
+    }
+
+    private CompletableFuture<Segmento> prepararSiguiente(long numero) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return crearSegmento(numero);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo crear el segmento " + numero + " del diario", e);
+            }
+        }, tarea -> Thread.ofVirtual().name("diario-segmento").start(tarea));
+    }
+
+    private Segmento crearSegmento(long numero) throws IOException {
+        Path archivo = directorio.resolve(String.format("%s%012d%s", PREFIJO, numero, EXTENSION));
+        FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+        // Pre-toca cada página para que el disco se asigne aquí y no en la primera escritura
+        for (int pagina = 0; pagina < tamanoSegmento; pagina += PAGINA) {
+            mapa.put(pagina, (byte) 0);
+        }
+        mapa.putInt(0, MAGICO);
+        mapa.putInt(4, FORMATO);
+        mapa.putLong(8, numero);
+        return new Segmento(numero, archivo, canal, mapa, CABECERA);
+    }
+
+    /** Abre los segmentos existentes en orden y reconstruye el índice. */
+    private void recuperar() throws IOException {
+        List<Path> archivos;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            archivos = listado
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+                            && p.getFileName().toString().endsWith(EXTENSION) && Files.isRegularFile(p))
+                    .sorted()
+                    .toList();
+        }
+        for (Path archivo : archivos) {
+            FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (canal.size() != tamanoSegmento) {
+                log.warn("Segmento {} del diario con otro tamaño ({} bytes); se descarta", archivo, canal.size());
+                canal.close();
+                Files.delete(archivo);
+                continue;
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+            long numero = mapa.getLong(8);
+            if (mapa.getInt(0) != MAGICO || mapa.getInt(4) != FORMATO || (actual != null && numero <= actual.numero)) {
+                // Incluye un segmento que se estaba preparando cuando el proceso cayó
+                log.warn("Segmento {} del diario inválido o fuera de orden; se descarta", archivo);
+                canal.close();
+                Files.delete(archivo);
+                continue;
+            }
+            Segmento segmento = new Segmento(numero, archivo, canal, mapa, recorrerAlAbrir(numero, mapa));
+            segmentos.put(numero, segmento);
+            actual = segmento;
+        }
+        if (actual != null) {
+            actual.mapa.putInt(actual.posicion, 0);
+        }
+    }
+
+    private int recorrerAlAbrir(long numero, MappedByteBuffer mapa) {
+        int posicion = CABECERA;
+        while (posicion <= tamanoSegmento - 4 - CABECERA_REGISTRO) {
+            int largo = mapa.getInt(posicion);
+            if (largo <= 0 || posicion + CABECERA_REGISTRO + largo > tamanoSegmento - 4) {
+                break;
+            }
+            long secuencia = mapa.getLong(posicion + 8);
+            byte[] contenido = new byte[largo];
+            mapa.get(posicion + CABECERA_REGISTRO, contenido);
+            if ((ultimaSecuencia != 0 && secuencia != ultimaSecuencia + 1)
+                    || mapa.getInt(posicion + 4) != crc(secuencia, contenido)) {
+                log.warn("Diario truncado en el segmento {} posición {} (registro incompleto o inválido)",
+                        numero, posicion);
+                break;
+            }
+            RegistroDiario registro = RegistroDiario.decodificar(secuencia, ByteBuffer.wrap(contenido));
+            long ubicacion = numero << 32 | posicion;
+            indexar(registro.numeroCuentaOrigen(), ubicacion);
+            if (registro.numeroCuentaDestino() != null) {
+                indexar(registro.numeroCuentaDestino(), ubicacion);
+            }
+            ultimaSecuencia = secuencia;
+            posicion += CABECERA_REGISTRO + largo;
+        }
+        return posicion;
+    }
+
+    private RegistroDiario leer(MappedByteBuffer mapa, int posicion) {
+        int largo = mapa.getInt(posicion);
+        long secuencia = mapa.getLong(posicion + 8);
+        byte[] contenido = new byte[largo];
+        mapa.get(posicion + CABECERA_REGISTRO, contenido);
+        return RegistroDiario.decodificar(secuencia, ByteBuffer.wrap(contenido));
+    }
+
+    private int crc(long secuencia, byte[] contenido) {
+        // Solo se calcula con el candado de escritura tomado o en la recuperación (un solo hilo)
+        crc.reset();
+        for (int i = 56; i >= 0; i -= 8) {
+            crc.update((int) (secuencia >>> i));
+        }
+        crc.update(contenido);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segmento {
+        final long numero;
+        final Path archivo;
+        final FileChannel canal;
+        final MappedByteBuffer mapa;
+        int posicion;
+
+        Segmento(long numero, Path archivo, FileChannel canal, MappedByteBuffer mapa, int posicion) {
+            this.numero = numero;
+            this.archivo = archivo;
+            this.canal = canal;
+            this.mapa = mapa;
+            this.posicion = posicion;
+        }
+    }
+
+    private record Tramo(Segmento segmento, int hasta) {
+    }
+
+    /** Ubicaciones de una cuenta en orden de escritura; se modifican dentro de compute del índice. */
+    private static final class Posiciones {
+        private long[] ubicaciones = new long[4];
+        private int inicio;
+        private int fin;
+
+        synchronized void agregar(long ubicacion) {
+            if (fin == ubicaciones.length) {
+                int vivas = fin - inicio;
+                long[] nuevas = vivas * 2 > ubicaciones.length ? new long[ubicaciones.length * 2] : ubicaciones;
+                System.arraycopy(ubicaciones, inicio, nuevas, 0, vivas);
+                ubicaciones = nuevas;
+                inicio = 0;
+                fin = vivas;
+            }
+            ubicaciones[fin++] = ubicacion;
+        }
+
+        synchronized long[] ultimas(int limite) {
+            int desde = Math.max(inicio, fin - limite);
+            return Arrays.copyOfRange(ubicaciones, desde, fin);
+        }
+
+        /** Descarta las ubicaciones menores al límite; true si no queda ninguna. */
+        synchronized boolean descartarAntesDe(long limite) {
+            while (inicio < fin && ubicaciones[inicio] < limite) {
+                inicio++;
+            }
+            return inicio == fin;
+        }
+    }
+}
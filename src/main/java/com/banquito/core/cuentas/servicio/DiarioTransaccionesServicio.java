@@ -0,0 +1,186 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.MovimientoCuentaDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
+import com.banquito.core.cuentas.util.Centavos;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Registro local de lo que esta instancia aceptó y encoló: cada solicitud se
+ * agrega al DiarioTransacciones antes de publicarse, y si la publicación falla
+ * se agrega su anulación. Alimenta la reproducción de envíos y el endpoint de
+ * actuator /actuator/diario/{numeroCuenta} (DiarioTransaccionesEndpoint).
+ * <p>
+ * Cada instancia tiene su propio diario en su disco: los movimientos son solo
+ * los que recibió esta instancia, no el historial de la cuenta. Por eso la
+ * consulta no está en la API pública sino en actuator, y el diario viene
+ * apagado (diario.habilitado=false).
+ */
+@Service
+@Slf4j
+public class DiarioTransaccionesServicio {
+
+    public static final String ESCRITURA = "cuentas.diario.escritura";
+
+    private final DiarioTransacciones diario;
+    private final boolean esperarSincronizacion;
+    private final Timer escritura;
+
+    public DiarioTransaccionesServicio(
+            MeterRegistry registry,
+            @Value("${diario.habilitado:false}") boolean habilitado,
+            @Value("${diario.directorio:./datos/diario}") String directorio,
+            @Value("${diario.tamano-segmento-mb:64}") int tamanoSegmentoMb,
+            @Value("${diario.max-segmentos:16}") int maxSegmentos,
+            @Value("${diario.sincronizacion-ms:5}") long sincronizacionMs,
+            @Value("${diario.esperar-sincronizacion:false}") boolean esperarSincronizacion) {
+        this.esperarSincronizacion = esperarSincronizacion;
+        this.escritura = Timer.builder(ESCRITURA)
+                .description("Escritura de una transacción en el diario antes de publicarla")
+                .register(registry);
+        if (!habilitado) {
+            this.diario = null;
+            return;
+        }
+        try {
+            this.diario = new DiarioTransacciones(Path.of(directorio), tamanoSegmentoMb << 20, maxSegmentos,
+                    sincronizacionMs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de transacciones en " + directorio, e);
+        }
+        Gauge.builder("cuentas.diario.bytes", diario, DiarioTransacciones::bytes)
+                .description("Tamaño de los segmentos del diario de transacciones")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cuentas.diario.secuencia", diario, DiarioTransacciones::ultimaSecuencia)
+                .description("Última secuencia escrita en el diario de transacciones")
+                .register(registry);
+        Gauge.builder("cuentas.diario.cuentas", diario, DiarioTransacciones::cuentasIndexadas)
+                .description("Cuentas con movimientos en el índice del diario")
+                .register(registry);
+        FunctionCounter.builder("cuentas.diario.sincronizaciones", diario, DiarioTransacciones::sincronizaciones)
+                .description("Rondas de confirmación en grupo (msync) del diario")
+                .register(registry);
+    }
+
+    public boolean habilitado() {
+        return diario != null;
+    }
+
+    /** Agrega la solicitud aceptada; se llama antes de publicarla en la cola. */
+    public void registrar(String transaccionId, TransaccionesSolicitudDTO dto) {
+        agregar(RegistroDiario.aceptada(transaccionId, dto, System.currentTimeMillis()));
+    }
+
+    /** Agrega la anulación de una solicitud cuya publicación falló. */
+    public void anular(String transaccionId, TransaccionesSolicitudDTO dto) {
+        try {
+            agregar(RegistroDiario.anulada(transaccionId, dto, System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            // No debe tapar el error de la publicación
+            log.error("No se pudo anular en el diario la transacción {}: {}", transaccionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Últimos movimientos de la cuenta, del más nuevo al más viejo, sin los
+     * anulados. Se piden más al diario si las anulaciones dejaron la página corta.
+     */
+    public List<MovimientoCuentaDTO> movimientos(String numeroCuenta, int limite) {
+        if (diario == null) {
+            throw new EntidadNoEncontradaExcepcion("Diario", "El diario de transacciones no está habilitado");
+        }
+        int pedidos = limite;
+        while (true) {
+            List<RegistroDiario> registros = diario.ultimos(numeroCuenta, pedidos);
+            Set<String> anuladas = new HashSet<>();
+            List<MovimientoCuentaDTO> movimientos = new ArrayList<>(Math.min(limite, registros.size()));
+            for (RegistroDiario registro : registros) {
+                if (registro.anulacion()) {
+                    anuladas.add(registro.transaccionId());
+                } else if (!anuladas.contains(registro.transaccionId()) && movimientos.size() < limite) {
+                    movimientos.add(toDTO(registro));
+                }
+            }
+            if (movimientos.size() == limite || registros.size() < pedidos) {
+                return movimientos;
+            }
+            pedidos = Math.multiplyExact(pedidos, 2);
+        }
+    }
+
+    /**
+     * Recorre en orden las solicitudes aceptadas desde la secuencia indicada,
+     * saltando las que se anularon (en cualquier punto posterior del diario).
+     */
+    public void recorrerAceptadas(long desdeSecuencia, Consumer<RegistroDiario> consumidor) {
+        if (diario == null) {
+            throw new IllegalStateException("El diario de transacciones no está habilitado");
+        }
+        Set<String> anuladas = new HashSet<>();
+        diario.recorrer(desdeSecuencia, registro -> {
+            if (registro.anulacion()) {
+                anuladas.add(registro.transaccionId());
+            }
+        });
+        diario.recorrer(desdeSecuencia, registro -> {
+            if (!registro.anulacion() && !anuladas.contains(registro.transaccionId())) {
+                consumidor.accept(registro);
+            }
+        });
+    }
+
+    @PreDestroy
+    void cerrar() throws IOException {
+        if (diario != null) {
+            diario.close();
+        }
+    }
+
+    private void agregar(RegistroDiario registro) {
+        if (diario == null) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            diario.agregar(registro, esperarSincronizacion,
+                    registro.numeroCuentaOrigen(), registro.numeroCuentaDestino());
+        } finally {
+            escritura.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static MovimientoCuentaDTO toDTO(RegistroDiario registro) {
+        return MovimientoCuentaDTO.builder()
+                .secuencia(registro.secuencia())
+                .transaccionId(registro.transaccionId())
+                .tipoTransaccion(registro.tipoTransaccion())
+                .numeroCuentaOrigen(registro.numeroCuentaOrigen())
+                .numeroCuentaDestino(registro.numeroCuentaDestino())
+                .monto(Centavos.aBigDecimal(registro.montoCentavos()))
+                .comision(registro.comisionCentavos() != RegistroDiario.SIN_COMISION
+                        ? Centavos.aBigDecimal(registro.comisionCentavos()) : null)
+                .descripcion(registro.descripcion())
+                .fecha(Instant.ofEpochMilli(registro.fechaMs()))
+                .build();
+    }
+}
@@ -0,0 +1,337 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.EstadoTransaccionDTO;
+import com.banquito.core.cuentas.dto.ResultadoTransaccionDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.evento.EstadoTransaccionActualizadoEvento;
+import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
+import com.banquito.core.cuentas.modelo.EstadoTransaccion;
+import com.banquito.core.cuentas.repositorio.EstadoTransaccionRepositorio;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado de las transacciones enviadas a cola: ENVIADO al aceptar la petición,
+ * PENDIENTE cuando una transferencia tiene una de sus dos operaciones procesada
+ * (o solo se pudo publicar el retiro y el depósito se está reenviando),
+ * y COMPLETADO o RECHAZADO según los resultados del MS2.
+ * <p>
+ * Los resultados se cuentan por operación (tipoTransaccion del resultado): un
+ * resultado repetido de la misma operación, por ejemplo un RETIRO reentregado,
+ * no cuenta como la otra pata de la transferencia.
+ * <p>
+ * Postgres es la fuente de verdad; delante hay una caché acotada (expulsión FIFO)
+ * para que las consultas no toquen la BD. Los estados finales no cambian y se
+ * sirven siempre de memoria; los intermedios se recargan pasado un TTL corto
+ * porque el resultado puede haberlo consumido otra instancia.
+ */
+@Service
+@Slf4j
+public class EstadoTransaccionServicio {
+
+    private final EstadoTransaccionRepositorio repositorio;
+    private final ApplicationEventPublisher eventos;
+    private final int maxMemoria;
+    private final long ttlIntermedioNanos;
+
+    private final Map<String, Entrada> memoria = new ConcurrentHashMap<>();
+    private final Queue<String> ordenIngreso = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tamano = new AtomicInteger();
+
+    public EstadoTransaccionServicio(
+            EstadoTransaccionRepositorio repositorio,
+            ApplicationEventPublisher eventos,
+            @Value("${transacciones.estado.max-memoria:100000}") int maxMemoria,
+            @Value("${transacciones.estado.ttl-intermedio-ms:500}") long ttlIntermedioMs) {
+        this.repositorio = repositorio;
+        this.eventos = eventos;
+        this.maxMemoria = maxMemoria;
+        this.ttlIntermedioNanos = ttlIntermedioMs * 1_000_000L;
+    }
+
+    public void registrarEnvio(String transaccionId, TransaccionesSolicitudDTO dto) {
+        Instant ahora = Instant.now();
+        EstadoTransaccion estado = new EstadoTransaccion(transaccionId);
+        estado.setTipoTransaccion(dto.getTipoTransaccion());
+        estado.setNumeroCuentaOrigen(dto.getNumeroCuentaOrigen());
+        estado.setNumeroCuentaDestino(dto.getNumeroCuentaDestino());
+        estado.setMonto(dto.getMonto());
+        estado.setEstado(EstadoEspecificoTransaccionEnum.ENVIADO);
+        estado.setOperacionesPendientes(operaciones(dto.getTipoTransaccion()).size());
+        estado.setOperacionesConfirmadas("");
+        estado.setFechaCreacion(ahora);
+        estado.setFechaActualizacion(ahora);
+        recordar(toDTO(repositorio.save(estado)), true);
+    }
+
+    public void registrarFalloEnvio(String transaccionId, String mensaje) {
+        repositorio.findById(transaccionId).ifPresent(estado -> {
+            estado.setEstado(EstadoEspecificoTransaccionEnum.RECHAZADO);
+            estado.setOperacionesPendientes(0);
+            estado.setDepositoPorReenviar(false);
+            estado.setMensaje(recortar(mensaje));
+            estado.setFechaActualizacion(Instant.now());
+            actualizado(toDTO(repositorio.save(estado)));
+        });
+    }
+
+    /**
+     * Transferencia con el retiro publicado y el depósito sin publicar: queda
+     * PENDIENTE (no RECHAZADO) para que el resultado del retiro se siga aplicando
+     * mientras se reenvía el depósito. La marca deposito_por_reenviar es la que
+     * recorre CompensacionTransferenciasServicio, así que sobrevive a un reinicio.
+     */
+    public void registrarEnvioParcial(String transaccionId, TransaccionesSolicitudDTO deposito, String mensaje) {
+        repositorio.findById(transaccionId).filter(estado -> !esFinal(estado.getEstado())).ifPresent(estado -> {
+            estado.setEstado(EstadoEspecificoTransaccionEnum.PENDIENTE);
+            estado.setDepositoPorReenviar(true);
+            estado.setDescripcionDeposito(recortar(deposito.getDescripcion(), 200));
+            estado.setMensaje(recortar(mensaje));
+            estado.setFechaActualizacion(Instant.now());
+            actualizado(toDTO(repositorio.save(estado)));
+        });
+    }
+
+    /** Transferencias cuyo depósito falta publicar, las más antiguas primero (hasta 100). */
+    public List<DepositoPorReenviar> depositosPorReenviar() {
+        return repositorio.findTop100ByDepositoPorReenviarTrueOrderByFechaActualizacionAsc().stream()
+                .map(estado -> new DepositoPorReenviar(estado.getId(), estado.getEstado(),
+                        TransaccionesSolicitudDTO.builder()
+                                .numeroCuentaOrigen(estado.getNumeroCuentaDestino())
+                                .tipoTransaccion(TipoTransaccionEnum.DEPOSITO)
+                                .monto(estado.getMonto())
+                                .descripcion(estado.getDescripcionDeposito())
+                                .build()))
+                .toList();
+    }
+
+    /**
+     * Quita la marca de depósito por reenviar: se publicó, la transferencia se
+     * rechazó o se agotaron los intentos. Compite con los resultados del MS2 por
+     * la misma fila, así que ante un conflicto de versión se relee y se reintenta.
+     */
+    public void registrarDepositoReenviado(String transaccionId, String mensaje) {
+        for (int intento = 1; ; intento++) {
+            try {
+                repositorio.findById(transaccionId)
+                        .filter(estado -> Boolean.TRUE.equals(estado.getDepositoPorReenviar()))
+                        .ifPresent(estado -> {
+                            estado.setDepositoPorReenviar(false);
+                            if (mensaje != null && !esFinal(estado.getEstado())) {
+                                estado.setMensaje(recortar(mensaje));
+                            }
+                            estado.setFechaActualizacion(Instant.now());
+                            actualizado(toDTO(repositorio.save(estado)));
+                        });
+                return;
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (intento >= 3) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica el resultado de una operación. Una transferencia se completa cuando
+     * llegan los resultados COMPLETADO de sus dos operaciones distintas (RETIRO y
+     * DEPOSITO) y se rechaza con la primera rechazada; los resultados repetidos de
+     * una operación ya confirmada y los que llegan después de un estado final se
+     * ignoran.
+     */
+    public void registrarResultado(ResultadoTransaccionDTO resultado) {
+        EstadoEspecificoTransaccionEnum recibido = mapearEstado(resultado.getEstado());
+        if (recibido == null) {
+            log.warn("Resultado con estado desconocido {} para transacción {}",
+                    resultado.getEstado(), resultado.getTransaccionId());
+            return;
+        }
+        EstadoTransaccion estado = repositorio.findById(resultado.getTransaccionId()).orElse(null);
+        if (estado == null) {
+            log.warn("Resultado para transacción no registrada: {}", resultado.getTransaccionId());
+            return;
+        }
+        if (esFinal(estado.getEstado())) {
+            log.debug("Transacción {} ya en estado final {}, se ignora resultado {}",
+                    estado.getId(), estado.getEstado(), recibido);
+            return;
+        }
+
+        TipoTransaccionEnum operacion = operacion(estado.getTipoTransaccion(), resultado.getTipoTransaccion());
+        if (operacion == null) {
+            log.warn("Resultado de operación {} no corresponde a la transacción {} ({}), se ignora",
+                    resultado.getTipoTransaccion(), estado.getId(), estado.getTipoTransaccion());
+            return;
+        }
+
+        if (recibido == EstadoEspecificoTransaccionEnum.RECHAZADO) {
+            estado.setEstado(EstadoEspecificoTransaccionEnum.RECHAZADO);
+            estado.setOperacionesPendientes(0);
+            estado.setDepositoPorReenviar(false);
+        } else if (estado.getOperacionesConfirmadas() == null) {
+            // Fila registrada antes de guardar las operaciones confirmadas: se sigue con el contador
+            int pendientes = Math.max(0, estado.getOperacionesPendientes() - 1);
+            estado.setOperacionesPendientes(pendientes);
+            estado.setEstado(pendientes == 0
+                    ? EstadoEspecificoTransaccionEnum.COMPLETADO
+                    : EstadoEspecificoTransaccionEnum.PENDIENTE);
+        } else {
+            Set<TipoTransaccionEnum> confirmadas = leerOperaciones(estado.getOperacionesConfirmadas());
+            if (!confirmadas.add(operacion)) {
+                log.debug("Resultado repetido de {} para transacción {}, se ignora", operacion, estado.getId());
+                return;
+            }
+            Set<TipoTransaccionEnum> faltantes = operaciones(estado.getTipoTransaccion());
+            faltantes.removeAll(confirmadas);
+            estado.setOperacionesConfirmadas(escribirOperaciones(confirmadas));
+            estado.setOperacionesPendientes(faltantes.size());
+            estado.setEstado(faltantes.isEmpty()
+                    ? EstadoEspecificoTransaccionEnum.COMPLETADO
+                    : EstadoEspecificoTransaccionEnum.PENDIENTE);
+            if (operacion == TipoTransaccionEnum.DEPOSITO) {
+                estado.setDepositoPorReenviar(false);
+            }
+        }
+        estado.setMensaje(recortar(resultado.getMensaje()));
+        estado.setFechaActualizacion(Instant.now());
+        actualizado(toDTO(repositorio.save(estado)));
+        log.debug("Transacción {} -> {}", estado.getId(), estado.getEstado());
+    }
+
+    public EstadoTransaccionDTO consultar(String transaccionId) {
+        Entrada entrada = memoria.get(transaccionId);
+        if (entrada != null && (esFinal(entrada.estado().getEstado())
+                || System.nanoTime() - entrada.cargado() < ttlIntermedioNanos)) {
+            return entrada.estado();
+        }
+        EstadoTransaccionDTO estado = repositorio.findById(transaccionId)
+                .map(this::toDTO)
+                .orElseThrow(() -> new EntidadNoEncontradaExcepcion("EstadoTransaccion",
+                        "No existe la transacción con id: " + transaccionId));
+        // Si no estaba en memoria no se pisa un resultado aplicado mientras se leía la BD
+        recordar(estado, entrada != null && !esFinal(entrada.estado().getEstado()));
+        return estado;
+    }
+
+    private void actualizado(EstadoTransaccionDTO estado) {
+        recordar(estado, true);
+        eventos.publishEvent(new EstadoTransaccionActualizadoEvento(estado));
+    }
+
+    private void recordar(EstadoTransaccionDTO estado, boolean reemplazar) {
+        Entrada nueva = new Entrada(estado, System.nanoTime());
+        Entrada anterior = reemplazar
+                ? memoria.put(estado.getTransaccionId(), nueva)
+                : memoria.putIfAbsent(estado.getTransaccionId(), nueva);
+        if (anterior != null) {
+            return;
+        }
+        ordenIngreso.add(estado.getTransaccionId());
+        if (tamano.incrementAndGet() > maxMemoria) {
+            String masAntigua = ordenIngreso.poll();
+            if (masAntigua != null && memoria.remove(masAntigua) != null) {
+                tamano.decrementAndGet();
+            }
+        }
+    }
+
+    private static EstadoEspecificoTransaccionEnum mapearEstado(String estado) {
+        if (estado == null) {
+            return null;
+        }
+        return switch (estado.toUpperCase()) {
+            case "COMPLETADO", "PROCESADO" -> EstadoEspecificoTransaccionEnum.COMPLETADO;
+            case "RECHAZADO" -> EstadoEspecificoTransaccionEnum.RECHAZADO;
+            default -> null;
+        };
+    }
+
+    /** Operaciones que publica cada tipo de transacción. */
+    private static Set<TipoTransaccionEnum> operaciones(TipoTransaccionEnum tipo) {
+        return tipo == TipoTransaccionEnum.TRANSFERENCIA
+                ? EnumSet.of(TipoTransaccionEnum.RETIRO, TipoTransaccionEnum.DEPOSITO)
+                : EnumSet.of(tipo);
+    }
+
+    /**
+     * Operación a la que corresponde un resultado. En depósitos y retiros el MS2
+     * puede omitir tipoTransaccion; en una transferencia es la única forma de
+     * distinguir las dos patas, así que sin él (o con otro tipo) se devuelve null.
+     */
+    private static TipoTransaccionEnum operacion(TipoTransaccionEnum tipo, String tipoResultado) {
+        Set<TipoTransaccionEnum> operaciones = operaciones(tipo);
+        if (tipoResultado == null || tipoResultado.isBlank()) {
+            return operaciones.size() == 1 ? tipo : null;
+        }
+        for (TipoTransaccionEnum operacion : operaciones) {
+            if (operacion.name().equalsIgnoreCase(tipoResultado.trim())) {
+                return operacion;
+            }
+        }
+        return null;
+    }
+
+    private static Set<TipoTransaccionEnum> leerOperaciones(String operaciones) {
+        Set<TipoTransaccionEnum> leidas = EnumSet.noneOf(TipoTransaccionEnum.class);
+        for (String operacion : operaciones.split(",")) {
+            if (!operacion.isBlank()) {
+                leidas.add(TipoTransaccionEnum.valueOf(operacion.trim()));
+            }
+        }
+        return leidas;
+    }
+
+    private static String escribirOperaciones(Set<TipoTransaccionEnum> operaciones) {
+        return String.join(",", operaciones.stream().map(TipoTransaccionEnum::name).toList());
+    }
+
+    private static boolean esFinal(EstadoEspecificoTransaccionEnum estado) {
+        return estado == EstadoEspecificoTransaccionEnum.COMPLETADO
+                || estado == EstadoEspecificoTransaccionEnum.RECHAZADO;
+    }
+
+    private static String recortar(String mensaje) {
+        return recortar(mensaje, 250);
+    }
+
+    private static String recortar(String texto, int maximo) {
+        return texto != null && texto.length() > maximo ? texto.substring(0, maximo) : texto;
+    }
+
+    private EstadoTransaccionDTO toDTO(EstadoTransaccion estado) {
+        return EstadoTransaccionDTO.builder()
+                .transaccionId(estado.getId())
+                .tipoTransaccion(estado.getTipoTransaccion())
+                .numeroCuentaOrigen(estado.getNumeroCuentaOrigen())
+                .numeroCuentaDestino(estado.getNumeroCuentaDestino())
+                .monto(estado.getMonto())
+                .estado(estado.getEstado())
+                .mensaje(estado.getMensaje())
+                .fechaCreacion(estado.getFechaCreacion())
+                .fechaActualizacion(estado.getFechaActualizacion())
+                .build();
+    }
+
+    private record Entrada(EstadoTransaccionDTO estado, long cargado) {
+    }
+
+    /** Depósito de una transferencia enviada a medias, rearmado desde su fila. */
+    public record DepositoPorReenviar(String transaccionId, EstadoEspecificoTransaccionEnum estado,
+                                      TransaccionesSolicitudDTO deposito) {
+    }
+}
@@ -0,0 +1,282 @@
+package com.banquito.core.cuentas.servicio;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom con todos los numero_cuenta existentes. Responde "no existe"
+ * sin ir a la BD para números mal escritos o enumerados; un "puede existir" sí
+ * se confirma con la consulta normal. Nunca da falsos negativos para cuentas ya
+ * vistas, solo falsos positivos a la tasa configurada.
+ * <p>
+ * Se carga al arrancar (antes de aceptar tráfico) leyendo solo la columna. Las
+ * cuentas creadas o renumeradas en cualquier instancia llegan por el tópico
+ * colas.cuentas.numeros (NumerosCuentaListener) al confirmarse. Si ese mensaje se
+ * pierde (broker caído), el refresco incremental por id recoge las altas y la
+ * reconstrucción completa cada reconstruccion-ms los numero_cuenta cambiados
+ * (la fila conserva su id); solo en ese caso una cuenta de otra instancia puede
+ * responder "no encontrada" hasta entonces. Si la carga falla, o el filtro está
+ * deshabilitado, todo número "puede existir".
+ */
+@Service
+@Slf4j
+public class FiltroNumerosCuentaServicio implements ApplicationRunner {
+
+    private static final String SQL_CONTAR = "SELECT COUNT(*) FROM account.cuentas_clientes";
+    private static final String SQL_DESDE_ID =
+            "SELECT id_cuenta_cliente, numero_cuenta FROM account.cuentas_clientes WHERE id_cuenta_cliente > ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate lectura;
+    private final boolean habilitado;
+    private final long capacidadMinima;
+    private final double falsosPositivos;
+    private final int ventanaIds;
+
+    private volatile Bloom bloom;
+    private volatile long ultimoId;
+    private final Counter rechazos;
+
+    public FiltroNumerosCuentaServicio(
+            DataSource dataSource,
+            PlatformTransactionManager transacciones,
+            MeterRegistry registry,
+            @Value("${filtro-cuentas.habilitado:true}") boolean habilitado,
+            @Value("${filtro-cuentas.capacidad:1000000}") long capacidadMinima,
+            @Value("${filtro-cuentas.falsos-positivos:0.01}") double falsosPositivos,
+            @Value("${filtro-cuentas.ventana-ids:1000}") int ventanaIds,
+            @Value("${filtro-cuentas.fetch-size:5000}") int fetchSize) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        // PostgreSQL solo usa cursor (fetch size) dentro de una transacción
+        this.lectura = new TransactionTemplate(transacciones);
+        this.lectura.setReadOnly(true);
+        this.habilitado = habilitado;
+        this.capacidadMinima = capacidadMinima;
+        this.falsosPositivos = falsosPositivos;
+        this.ventanaIds = ventanaIds;
+
+        this.rechazos = Counter.builder("cuentas.filtro.numeros.rechazos")
+                .description("Números de cuenta rechazados por el filtro sin consultar la BD")
+                .register(registry);
+        Gauge.builder("cuentas.filtro.numeros.bytes", this, f -> f.bloom == null ? 0 : f.bloom.bytes())
+                .description("Memoria del filtro de números de cuenta")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cuentas.filtro.numeros.elementos", this, f -> f.bloom == null ? 0 : f.bloom.elementos())
+                .description("Números de cuenta cargados en el filtro")
+                .register(registry);
+        Gauge.builder("cuentas.filtro.numeros.falsos.positivos", this,
+                        f -> f.bloom == null ? Double.NaN : f.bloom.tasaEstimada())
+                .description("Tasa de falsos positivos estimada con los elementos actuales")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            // Sin filtro todas las búsquedas van a la BD, como antes
+            log.warn("Filtro de números de cuenta no disponible: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * false solo si el número con seguridad no existe (o no existía en la última
+     * carga o refresco); en ese caso se cuenta como rechazo.
+     */
+    public boolean puedeExistir(String numeroCuenta) {
+        Bloom actual = bloom;
+        if (actual == null || numeroCuenta == null || actual.contiene(numeroCuenta)) {
+            return true;
+        }
+        rechazos.increment();
+        return false;
+    }
+
+    /** Registra una cuenta creada o renumerada, en esta instancia o recibida del tópico. */
+    public void agregar(String numeroCuenta) {
+        Bloom actual = bloom;
+        if (actual != null && numeroCuenta != null) {
+            actual.agregar(numeroCuenta);
+        }
+    }
+
+    /**
+     * Agrega las cuentas con id mayor al último visto. Relee una ventana de ids
+     * hacia atrás: un id asignado antes pero confirmado después del último
+     * refresco no se pierde. Si el filtro superó su capacidad se reconstruye con
+     * el doble, para no degradar la tasa de falsos positivos.
+     */
+    @Scheduled(fixedDelayString = "${filtro-cuentas.refresco-ms:5000}",
+            initialDelayString = "${filtro-cuentas.refresco-ms:5000}")
+    public synchronized void refrescar() {
+        Bloom actual = bloom;
+        if (actual == null) {
+            return;
+        }
+        try {
+            if (actual.elementos() > actual.capacidad) {
+                reconstruir();
+                return;
+            }
+            long desde = Math.max(0, ultimoId - ventanaIds);
+            ultimoId = Math.max(ultimoId, cargar(actual, desde));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo refrescar el filtro de números de cuenta: {}", e.getMessage());
+        }
+    }
+
+    /** Reconstrucción completa: recoge los numero_cuenta cambiados que el refresco por id no ve. */
+    @Scheduled(fixedDelayString = "${filtro-cuentas.reconstruccion-ms:300000}",
+            initialDelayString = "${filtro-cuentas.reconstruccion-ms:300000}")
+    public synchronized void reconstruirPeriodico() {
+        if (bloom == null) {
+            return;
+        }
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            // Se sigue con el filtro anterior y su refresco por id
+            log.warn("No se pudo reconstruir el filtro de números de cuenta: {}", e.getMessage());
+        }
+    }
+
+    private void reconstruir() {
+        long inicio = System.nanoTime();
+        Long existentes = jdbc.queryForObject(SQL_CONTAR, Long.class);
+        long capacidad = Math.max(capacidadMinima, 2 * (existentes == null ? 0 : existentes));
+        Bloom nuevo = new Bloom(capacidad, falsosPositivos);
+        long maximo = cargar(nuevo, 0);
+        bloom = nuevo;
+        // Lo agregado al filtro anterior mientras se cargaba el nuevo se recupera releyendo la ventana
+        ultimoId = Math.max(maximo, cargar(nuevo, Math.max(0, maximo - ventanaIds)));
+        log.info("Filtro de números de cuenta: {} cuentas, {} KB, {} funciones hash, en {} ms",
+                nuevo.elementos(), nuevo.bytes() / 1024, nuevo.funciones,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    /** Recorre las cuentas con id mayor a desdeId y devuelve el id máximo visto. */
+    private long cargar(Bloom destino, long desdeId) {
+        Long maximo = lectura.execute(estado -> {
+            long[] max = { desdeId };
+            jdbc.query(SQL_DESDE_ID, fila -> {
+                max[0] = Math.max(max[0], fila.getLong(1));
+                String numero = fila.getString(2);
+                if (numero != null) {
+                    destino.agregar(numero);
+                }
+            }, desdeId);
+            return max[0];
+        });
+        return maximo == null ? desdeId : maximo;
+    }
+
+    /**
+     * Arreglo de bits con k posiciones por clave (doble hash de Kirsch-Mitzenmacher
+     * sobre un hash de 64 bits). Los bits se activan con CAS, así las altas
+     * concurrentes no se pisan y las lecturas no bloquean.
+     */
+    static final class Bloom {
+        final long capacidad;
+        final int funciones;
+        private final long bits;
+        private final AtomicLongArray palabras;
+        private final AtomicLong elementos = new AtomicLong();
+
+        Bloom(long capacidad, double falsosPositivos) {
+            double ln2 = Math.log(2);
+            long m = (long) Math.ceil(-capacidad * Math.log(falsosPositivos) / (ln2 * ln2));
+            int palabrasNecesarias = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+            this.capacidad = capacidad;
+            this.bits = palabrasNecesarias * 64L;
+            this.funciones = Math.max(1, (int) Math.round((double) bits / capacidad * ln2));
+            this.palabras = new AtomicLongArray(palabrasNecesarias);
+        }
+
+        void agregar(String clave) {
+            long h1 = hash(clave);
+            long h2 = mezclar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+            boolean nuevo = false;
+            for (int i = 0; i < funciones; i++) {
+                long posicion = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+                int palabra = (int) (posicion >>> 6);
+                long mascara = 1L << posicion;
+                long actual = palabras.get(palabra);
+                while ((actual & mascara) == 0) {
+                    if (palabras.compareAndSet(palabra, actual, actual | mascara)) {
+                        nuevo = true;
+                        break;
+                    }
+                    actual = palabras.get(palabra);
+                }
+            }
+            // Una clave que no activó ningún bit ya estaba (o es un falso positivo)
+            if (nuevo) {
+                elementos.incrementAndGet();
+            }
+        }
+
+        boolean contiene(String clave) {
+            long h1 = hash(clave);
+            long h2 = mezclar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < funciones; i++) {
+                long posicion = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+                if ((palabras.get((int) (posicion >>> 6)) & (1L << posicion)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long elementos() {
+            return elementos.get();
+        }
+
+        long bytes() {
+            return bits / 8;
+        }
+
+        double tasaEstimada() {
+            return Math.pow(1 - Math.exp(-funciones * (double) elementos() / bits), funciones);
+        }
+
+        // FNV-1a de 64 bits sobre los caracteres y mezcla final de MurmurHash3
+        private static long hash(String clave) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < clave.length(); i++) {
+                h ^= clave.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mezclar(h);
+        }
+
+        private static long mezclar(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
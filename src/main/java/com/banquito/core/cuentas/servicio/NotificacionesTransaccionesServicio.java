@@ -0,0 +1,203 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.EstadoTransaccionDTO;
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.AccesoDenegadoExcepcion;
+import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
+import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suscripciones SSE a resultados de transacciones, por transaccionId o por
+ * número de cuenta. Los emisores usan el soporte asíncrono del servlet, así que
+ * una suscripción ociosa no ocupa hilo; solo se escribe al notificar y en el
+ * latido periódico que detecta clientes desconectados.
+ * <p>
+ * Suscribirse a una cuenta exige un usuario autenticado que sea su cliente
+ * (idCliente de la cuenta igual al nombre del usuario); sin autenticación la
+ * suscripción por cuenta se rechaza. Un transaccionId es un UUID aleatorio que
+ * solo recibe quien envió la transacción, y como en la consulta de estado
+ * basta con conocerlo.
+ */
+@Service
+@Slf4j
+public class NotificacionesTransaccionesServicio {
+
+    private static final String EVENTO = "transaccion";
+
+    private final EstadoTransaccionServicio estados;
+    private final CuentasClientesRepositorio cuentas;
+    private final long timeoutMs;
+
+    private final Set<Suscripcion> suscripciones = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Suscripcion>> porTransaccion = new ConcurrentHashMap<>();
+    private final Map<String, Set<Suscripcion>> porCuenta = new ConcurrentHashMap<>();
+
+    public NotificacionesTransaccionesServicio(
+            EstadoTransaccionServicio estados,
+            CuentasClientesRepositorio cuentas,
+            MeterRegistry registry,
+            @Value("${notificaciones.sse.timeout-ms:1800000}") long timeoutMs) {
+        this.estados = estados;
+        this.cuentas = cuentas;
+        this.timeoutMs = timeoutMs;
+        Gauge.builder("cuentas.notificaciones.suscripciones", suscripciones, Set::size)
+                .description("Suscripciones SSE abiertas en esta instancia")
+                .register(registry);
+    }
+
+    public SseEmitter suscribir(List<String> transaccionIds, String numeroCuenta, Principal usuario) {
+        if (numeroCuenta != null) {
+            autorizarCuenta(numeroCuenta, usuario);
+        }
+        SseEmitter emisor = new SseEmitter(timeoutMs);
+        Suscripcion suscripcion = new Suscripcion(emisor, transaccionIds, numeroCuenta);
+        emisor.onCompletion(() -> remover(suscripcion));
+        emisor.onTimeout(() -> remover(suscripcion));
+        emisor.onError(e -> remover(suscripcion));
+
+        suscripciones.add(suscripcion);
+        for (String transaccionId : transaccionIds) {
+            porTransaccion.computeIfAbsent(transaccionId, k -> ConcurrentHashMap.newKeySet()).add(suscripcion);
+        }
+        if (numeroCuenta != null) {
+            porCuenta.computeIfAbsent(numeroCuenta, k -> ConcurrentHashMap.newKeySet()).add(suscripcion);
+        }
+
+        // El resultado pudo llegar antes de suscribirse: se envía el estado final ya conocido
+        for (String transaccionId : transaccionIds) {
+            EstadoTransaccionDTO estado = estadoActual(transaccionId);
+            if (estado != null && esFinal(estado)) {
+                notificar(estado);
+            }
+        }
+        return emisor;
+    }
+
+    public void notificar(EstadoTransaccionDTO estado) {
+        // Una suscripción puede coincidir por transacción y por cuenta: se notifica una sola vez
+        Set<Suscripcion> destinatarios = new HashSet<>();
+        agregar(destinatarios, porTransaccion.get(estado.getTransaccionId()));
+        agregar(destinatarios, porCuenta.get(estado.getNumeroCuentaOrigen()));
+        if (estado.getNumeroCuentaDestino() != null) {
+            agregar(destinatarios, porCuenta.get(estado.getNumeroCuentaDestino()));
+        }
+        enviar(destinatarios, estado);
+    }
+
+    @Scheduled(fixedDelayString = "${notificaciones.sse.latido-ms:15000}")
+    public void latido() {
+        for (Suscripcion suscripcion : suscripciones) {
+            try {
+                suscripcion.emisor.send(SseEmitter.event().comment("latido"));
+            } catch (IOException | IllegalStateException e) {
+                suscripcion.emisor.completeWithError(e);
+                remover(suscripcion);
+            }
+        }
+    }
+
+    private void autorizarCuenta(String numeroCuenta, Principal usuario) {
+        if (usuario == null) {
+            throw new AccesoDenegadoExcepcion("Suscripcion",
+                    "Suscribirse a una cuenta requiere un usuario autenticado");
+        }
+        if (cuentas.findByIdClienteAndNumeroCuenta(usuario.getName(), numeroCuenta).isEmpty()) {
+            throw new AccesoDenegadoExcepcion("Suscripcion",
+                    "La cuenta " + numeroCuenta + " no pertenece al usuario");
+        }
+    }
+
+    private static void agregar(Set<Suscripcion> destinatarios, Set<Suscripcion> suscritas) {
+        if (suscritas != null) {
+            destinatarios.addAll(suscritas);
+        }
+    }
+
+    private void enviar(Set<Suscripcion> destinatarios, EstadoTransaccionDTO estado) {
+        for (Suscripcion suscripcion : destinatarios) {
+            try {
+                suscripcion.emisor.send(SseEmitter.event()
+                        .name(EVENTO)
+                        .id(estado.getTransaccionId())
+                        .data(estado, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Suscripción cerrada al notificar {}: {}", estado.getTransaccionId(), e.getMessage());
+                suscripcion.emisor.completeWithError(e);
+                remover(suscripcion);
+                continue;
+            }
+            if (esFinal(estado) && suscripcion.resolver(estado.getTransaccionId())) {
+                // Solo esperaba transacciones concretas y ya llegaron todas
+                suscripcion.emisor.complete();
+            }
+        }
+    }
+
+    private void remover(Suscripcion suscripcion) {
+        if (!suscripciones.remove(suscripcion)) {
+            return;
+        }
+        for (String transaccionId : suscripcion.transaccionIds) {
+            quitar(porTransaccion, transaccionId, suscripcion);
+        }
+        if (suscripcion.numeroCuenta != null) {
+            quitar(porCuenta, suscripcion.numeroCuenta, suscripcion);
+        }
+    }
+
+    private static void quitar(Map<String, Set<Suscripcion>> indice, String clave, Suscripcion suscripcion) {
+        indice.computeIfPresent(clave, (k, conjunto) -> {
+            conjunto.remove(suscripcion);
+            return conjunto.isEmpty() ? null : conjunto;
+        });
+    }
+
+    private EstadoTransaccionDTO estadoActual(String transaccionId) {
+        try {
+            return estados.consultar(transaccionId);
+        } catch (EntidadNoEncontradaExcepcion e) {
+            return null;
+        }
+    }
+
+    private static boolean esFinal(EstadoTransaccionDTO estado) {
+        return estado.getEstado() == EstadoEspecificoTransaccionEnum.COMPLETADO
+                || estado.getEstado() == EstadoEspecificoTransaccionEnum.RECHAZADO;
+    }
+
+    private static final class Suscripcion {
+        private final SseEmitter emisor;
+        private final List<String> transaccionIds;
+        private final String numeroCuenta;
+        private final Set<String> pendientes;
+
+        private Suscripcion(SseEmitter emisor, List<String> transaccionIds, String numeroCuenta) {
+            this.emisor = emisor;
+            this.transaccionIds = transaccionIds;
+            this.numeroCuenta = numeroCuenta;
+            this.pendientes = ConcurrentHashMap.newKeySet();
+            this.pendientes.addAll(transaccionIds);
+        }
+
+        /** Marca la transacción como resuelta; true si la suscripción ya no espera nada más. */
+        private boolean resolver(String transaccionId) {
+            return pendientes.remove(transaccionId) && pendientes.isEmpty() && numeroCuenta == null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.util.Centavos;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Entrada del diario de transacciones: una solicitud aceptada y encolada, o la
+ * anulación de una cuyo envío a la cola falló. La secuencia la asigna el diario
+ * al escribir (0 antes de escribirla).
+ * <p>
+ * Formato binario: indicadores (1 byte), ordinal del tipo (1), fecha en ms (8),
+ * monto y comisión en centavos (8 + 8, comisión -1 si no hubo) y cuatro textos
+ * UTF-8 con su largo en 2 bytes (-1 para null): transaccionId, cuenta origen,
+ * cuenta destino y descripción.
+ */
+public record RegistroDiario(long secuencia, long fechaMs, String transaccionId, TipoTransaccionEnum tipoTransaccion,
+                             String numeroCuentaOrigen, String numeroCuentaDestino, long montoCentavos,
+                             long comisionCentavos, String descripcion, boolean anulacion) {
+
+    static final long SIN_COMISION = -1;
+
+    private static final TipoTransaccionEnum[] TIPOS = TipoTransaccionEnum.values();
+    private static final byte ANULACION = 1;
+    private static final int FIJO = 1 + 1 + 8 + 8 + 8;
+
+    public static RegistroDiario aceptada(String transaccionId, TransaccionesSolicitudDTO dto, long fechaMs) {
+        return new RegistroDiario(0, fechaMs, transaccionId, dto.getTipoTransaccion(), dto.getNumeroCuentaOrigen(),
+                dto.getNumeroCuentaDestino(), Centavos.de(dto.getMonto()),
+                dto.getComision() != null ? Centavos.de(dto.getComision()) : SIN_COMISION,
+                dto.getDescripcion(), false);
+    }
+
+    /** Anula la entrada del mismo transaccionId; se indexa en las mismas cuentas. */
+    public static RegistroDiario anulada(String transaccionId, TransaccionesSolicitudDTO dto, long fechaMs) {
+        return new RegistroDiario(0, fechaMs, transaccionId, dto.getTipoTransaccion(), dto.getNumeroCuentaOrigen(),
+                dto.getNumeroCuentaDestino(), Centavos.de(dto.getMonto()), SIN_COMISION, null, true);
+    }
+
+    /** La solicitud tal como se envió a la cola, para reproducirla. */
+    public TransaccionesSolicitudDTO solicitud() {
+        return TransaccionesSolicitudDTO.builder()
+                .tipoTransaccion(tipoTransaccion)
+                .numeroCuentaOrigen(numeroCuentaOrigen)
+                .numeroCuentaDestino(numeroCuentaDestino)
+                .monto(Centavos.aBigDecimal(montoCentavos))
+                .comision(comisionCentavos != SIN_COMISION ? Centavos.aBigDecimal(comisionCentavos) : null)
+                .descripcion(descripcion)
+                .build();
+    }
+
+    RegistroDiario conSecuencia(long secuencia) {
+        return new RegistroDiario(secuencia, fechaMs, transaccionId, tipoTransaccion, numeroCuentaOrigen,
+                numeroCuentaDestino, montoCentavos, comisionCentavos, descripcion, anulacion);
+    }
+
+    byte[] codificar() {
+        byte[] id = bytes(transaccionId);
+        byte[] origen = bytes(numeroCuentaOrigen);
+        byte[] destino = bytes(numeroCuentaDestino);
+        byte[] texto = bytes(descripcion);
+        ByteBuffer salida = ByteBuffer.allocate(FIJO + largo(id) + largo(origen) + largo(destino) + largo(texto));
+        salida.put(anulacion ? ANULACION : 0)
+                .put((byte) tipoTransaccion.ordinal())
+                .putLong(fechaMs)
+                .putLong(montoCentavos)
+                .putLong(comisionCentavos);
+        texto(salida, id);
+        texto(salida, origen);
+        texto(salida, destino);
+        texto(salida, texto);
+        return salida.array();
+    }
+
+    static RegistroDiario decodificar(long secuencia, ByteBuffer entrada) {
+        byte indicadores = entrada.get();
+        TipoTransaccionEnum tipo = TIPOS[entrada.get()];
+        long fecha = entrada.getLong();
+        long monto = entrada.getLong();
+        long comision = entrada.getLong();
+        return new RegistroDiario(secuencia, fecha, texto(entrada), tipo, texto(entrada), texto(entrada), monto,
+                comision, texto(entrada), (indicadores & ANULACION) != 0);
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int largo(byte[] texto) {
+        return 2 + (texto == null ? 0 : texto.length);
+    }
+
+    private static void texto(ByteBuffer salida, byte[] texto) {
+        if (texto == null) {
+            salida.putShort((short) -1);
+            return;
+        }
+        if (texto.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Texto de " + texto.length + " bytes no cabe en el diario");
+        }
+        salida.putShort((short) texto.length).put(texto);
+    }
+
+    private static String texto(ByteBuffer entrada) {
+        short largo = entrada.getShort();
+        if (largo < 0) {
+            return null;
+        }
+        String texto = new String(entrada.array(), entrada.arrayOffset() + entrada.position(), largo,
+                StandardCharsets.UTF_8);
+        entrada.position(entrada.position() + largo);
+        return texto;
+    }
+}
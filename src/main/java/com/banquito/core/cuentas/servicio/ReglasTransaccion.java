@@ -0,0 +1,139 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.enums.MotivoRechazoEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.CuentaNoEncontradaExcepcion;
+import com.banquito.core.cuentas.excepcion.RechazoTransaccionExcepcion;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.util.Centavos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Reglas de negocio de MS1 para aceptar una transacción, sin I/O ni
+ * dependencias del transporte: reciben la solicitud y las cuentas ya
+ * resueltas. Quien las use (servlet, hilos virtuales u otro adaptador) solo
+ * decide cómo obtener las cuentas. Las comisiones salen de la TablaComisiones
+ * vigente, ya compilada en memoria.
+ */
+@Component
+public class ReglasTransaccion {
+
+    private final MetricasTransacciones metricas;
+    private final Supplier<TablaComisiones> comisiones;
+
+    @Autowired
+    public ReglasTransaccion(MetricasTransacciones metricas, ComisionesServicio comisiones) {
+        this(metricas, comisiones::tabla);
+    }
+
+    public ReglasTransaccion(MetricasTransacciones metricas, Supplier<TablaComisiones> comisiones) {
+        this.metricas = metricas;
+        this.comisiones = comisiones;
+    }
+
+    /**
+     * Prevalidación sin estado: todo lo que se puede rechazar mirando solo la
+     * solicitud. Va antes de resolver las cuentas, así una solicitud inválida no
+     * consulta el modelo de saldos ni la BD. Devuelve el monto en centavos, que
+     * se pasa tal cual a validarCuentas.
+     */
+    public long validarSolicitud(TransaccionesSolicitudDTO dto) {
+        // Validar monto positivo y representable en centavos
+        if (dto.getMonto() == null || dto.getMonto().signum() <= 0) {
+            throw rechazo(dto, MotivoRechazoEnum.MONTO_INVALIDO, "Monto",
+                    "El monto debe ser mayor que cero. Monto recibido: " + dto.getMonto());
+        }
+        long monto = montoCentavos(dto);
+        switch (dto.getTipoTransaccion()) {
+            case DEPOSITO, RETIRO:
+                return monto;
+            case TRANSFERENCIA:
+                break;
+            default:
+                throw rechazo(dto, MotivoRechazoEnum.TIPO_INVALIDO,
+                        "Transacciones", "Tipo de transacción inválido: " + dto.getTipoTransaccion());
+        }
+        // Validar que se proporcionó cuenta destino
+        if (dto.getNumeroCuentaDestino() == null || dto.getNumeroCuentaDestino().trim().isEmpty()) {
+            throw rechazo(dto, MotivoRechazoEnum.CUENTA_DESTINO_REQUERIDA, "Transferencia",
+                    "Para transferencias es obligatorio especificar el número de cuenta destino");
+        }
+        // Validar cuentas diferentes
+        if (dto.getNumeroCuentaOrigen().equals(dto.getNumeroCuentaDestino())) {
+            throw rechazo(dto, MotivoRechazoEnum.MISMA_CUENTA, "Transferencia",
+                    "La cuenta origen y destino no pueden ser la misma");
+        }
+        return monto;
+    }
+
+    /** Indica si la transacción necesita consultar también la cuenta destino. */
+    public boolean requiereDestino(TransaccionesSolicitudDTO dto) {
+        return dto.getTipoTransaccion() == TipoTransaccionEnum.TRANSFERENCIA;
+    }
+
+    /**
+     * Validaciones sobre las cuentas resueltas; destino solo aplica a
+     * transferencias. A retiros y transferencias se les calcula la comisión
+     * del producto de la cuenta origen y se exige saldo para monto más
+     * comisión. Devuelve la comisión en centavos (0 en depósitos o sin regla).
+     * Supone que la solicitud ya pasó validarSolicitud y recibe el monto en
+     * centavos que esta devolvió.
+     */
+    public long validarCuentas(TransaccionesSolicitudDTO dto, long monto, SaldoCuentaDTO origen,
+            SaldoCuentaDTO destino) {
+        validarActiva(dto, origen);
+        if (requiereDestino(dto)) {
+            validarActiva(dto, destino);
+        }
+        if (dto.getTipoTransaccion() == TipoTransaccionEnum.DEPOSITO) {
+            return 0;
+        }
+
+        // Validar saldo suficiente para monto más comisión
+        long comision = comisiones.get().comision(origen.getIdCuenta(), dto.getTipoTransaccion(), monto);
+        if (origen.getSaldoDisponibleCentavos() - monto < comision) {
+            throw rechazo(dto, MotivoRechazoEnum.SALDO_INSUFICIENTE, "Saldo",
+                    "Saldo insuficiente en cuenta " + (requiereDestino(dto) ? "origen " : "")
+                            + dto.getNumeroCuentaOrigen() +
+                            ". Saldo disponible: $" + Centavos.texto(origen.getSaldoDisponibleCentavos()) +
+                            ", Monto solicitado: $" + dto.getMonto() +
+                            (comision > 0 ? ", Comisión: $" + Centavos.texto(comision) : ""));
+        }
+        return comision;
+    }
+
+    /** Monto de la solicitud en centavos; NUMERIC(15,2) no admite más de 2 decimales. */
+    private long montoCentavos(TransaccionesSolicitudDTO dto) {
+        try {
+            return Centavos.de(dto.getMonto());
+        } catch (ArithmeticException e) {
+            throw rechazo(dto, MotivoRechazoEnum.MONTO_INVALIDO, "Monto",
+                    "El monto debe tener como máximo 2 decimales y 13 enteros. Monto recibido: " + dto.getMonto());
+        }
+    }
+
+    public CuentaNoEncontradaExcepcion cuentaNoEncontrada(TransaccionesSolicitudDTO dto, String numeroCuenta) {
+        metricas.registrarRechazo(dto.getTipoTransaccion(), MotivoRechazoEnum.CUENTA_NO_ENCONTRADA);
+        return new CuentaNoEncontradaExcepcion(numeroCuenta);
+    }
+
+    private void validarActiva(TransaccionesSolicitudDTO dto, SaldoCuentaDTO cc) {
+        if (cc.getEstado() != EstadoCuentaClienteEnum.ACTIVO) {
+            throw rechazo(dto, MotivoRechazoEnum.CUENTA_INACTIVA,
+                    "Cuenta",
+                    "La cuenta " + cc.getNumeroCuenta() + " no está activa. Estado actual: " + cc.getEstado());
+        }
+    }
+
+    private RechazoTransaccionExcepcion rechazo(TransaccionesSolicitudDTO dto, MotivoRechazoEnum motivo,
+            String entidad, String mensaje) {
+        metricas.registrarRechazo(dto.getTipoTransaccion(), motivo);
+        return new RechazoTransaccionExcepcion(motivo, entidad, mensaje);
+    }
+}
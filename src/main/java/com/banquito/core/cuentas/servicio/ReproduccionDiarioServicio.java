@@ -0,0 +1,127 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.EstadoTransaccionDTO;
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.EntidadNoEncontradaExcepcion;
+import com.banquito.core.cuentas.producer.TransaccionesProducer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reproduce envíos desde el diario de transacciones, por ejemplo tras perder
+ * mensajes en el broker. Solo corre si la aplicación arranca con alguna opción
+ * --diario.reproducir.*:
+ * <ul>
+ * <li>desde-secuencia / desde / hasta: secuencia inicial y rango de fechas (ISO-8601)</li>
+ * <li>cuenta: solo las transacciones con esa cuenta como origen o destino</li>
+ * <li>incluir-finales: también las que ya están COMPLETADO o RECHAZADO</li>
+ * <li>simular: solo cuenta y registra lo que se enviaría</li>
+ * </ul>
+ * Cada solicitud se publica con su transaccionId original (JMSCorrelationID),
+ * para que el MS2 pueda reconocer los duplicados. Las anuladas no se reproducen.
+ */
+@Service
+@Slf4j
+public class ReproduccionDiarioServicio implements ApplicationRunner {
+
+    private static final String PREFIJO = "diario.reproducir.";
+
+    private final DiarioTransaccionesServicio diario;
+    private final TransaccionesProducer producer;
+    private final EstadoTransaccionServicio estados;
+
+    public ReproduccionDiarioServicio(DiarioTransaccionesServicio diario, TransaccionesProducer producer,
+                                      EstadoTransaccionServicio estados) {
+        this.diario = diario;
+        this.producer = producer;
+        this.estados = estados;
+    }
+
+    /** Filtros de una reproducción; los null no filtran. */
+    public record Filtro(long desdeSecuencia, Instant desde, Instant hasta, String cuenta,
+                         boolean incluirFinales, boolean simular) {
+    }
+
+    /** Resultado de una reproducción: enviadas, saltadas por estado final y fallidas. */
+    public record ResumenReproduccion(long enviadas, long finales, long fallidas) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.getOptionNames().stream().noneMatch(opcion -> opcion.startsWith(PREFIJO))) {
+            return;
+        }
+        Filtro filtro = new Filtro(
+                opcion(args, "desde-secuencia") != null ? Long.parseLong(opcion(args, "desde-secuencia")) : 1,
+                opcion(args, "desde") != null ? Instant.parse(opcion(args, "desde")) : null,
+                opcion(args, "hasta") != null ? Instant.parse(opcion(args, "hasta")) : null,
+                opcion(args, "cuenta"),
+                args.containsOption(PREFIJO + "incluir-finales"),
+                args.containsOption(PREFIJO + "simular"));
+        log.info("Reproducción del diario solicitada: {}", filtro);
+        ResumenReproduccion resumen = reproducir(filtro);
+        log.info("Reproducción del diario {}: {} enviadas, {} en estado final sin reenviar, {} fallidas",
+                filtro.simular() ? "(simulada)" : "terminada", resumen.enviadas(), resumen.finales(),
+                resumen.fallidas());
+    }
+
+    public ResumenReproduccion reproducir(Filtro filtro) {
+        long[] cuentas = new long[3];
+        diario.recorrerAceptadas(filtro.desdeSecuencia(), registro -> {
+            if (!aplica(filtro, registro)) {
+                return;
+            }
+            if (!filtro.incluirFinales() && esFinal(registro.transaccionId())) {
+                cuentas[1]++;
+                return;
+            }
+            if (filtro.simular()) {
+                log.info("Se reenviaría {} #{} {} {} por {}", registro.transaccionId(), registro.secuencia(),
+                        registro.tipoTransaccion(), registro.numeroCuentaOrigen(), registro.montoCentavos());
+                cuentas[0]++;
+                return;
+            }
+            try {
+                producer.enviarTransaccion(registro.solicitud(), registro.transaccionId());
+                cuentas[0]++;
+            } catch (RuntimeException e) {
+                log.error("No se pudo reenviar {} (secuencia {}): {}", registro.transaccionId(),
+                        registro.secuencia(), e.getMessage());
+                cuentas[2]++;
+            }
+        });
+        return new ResumenReproduccion(cuentas[0], cuentas[1], cuentas[2]);
+    }
+
+    private static boolean aplica(Filtro filtro, RegistroDiario registro) {
+        if (filtro.desde() != null && registro.fechaMs() < filtro.desde().toEpochMilli()) {
+            return false;
+        }
+        if (filtro.hasta() != null && registro.fechaMs() >= filtro.hasta().toEpochMilli()) {
+            return false;
+        }
+        return filtro.cuenta() == null || filtro.cuenta().equals(registro.numeroCuentaOrigen())
+                || filtro.cuenta().equals(registro.numeroCuentaDestino());
+    }
+
+    private boolean esFinal(String transaccionId) {
+        try {
+            EstadoTransaccionDTO estado = estados.consultar(transaccionId);
+            return estado.getEstado() == EstadoEspecificoTransaccionEnum.COMPLETADO
+                    || estado.getEstado() == EstadoEspecificoTransaccionEnum.RECHAZADO;
+        } catch (EntidadNoEncontradaExcepcion e) {
+            // Sin estado registrado: se reenvía; el resultado del MS2 se ignorará con una advertencia
+            return false;
+        }
+    }
+
+    private static String opcion(ApplicationArguments args, String nombre) {
+        List<String> valores = args.getOptionValues(PREFIJO + nombre);
+        return valores == null || valores.isEmpty() ? null : valores.get(0);
+    }
+}
@@ -0,0 +1,219 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.EventoSaldoCuentaDTO;
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.modelo.CuentasClientes;
+import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
+import com.banquito.core.cuentas.servicio.AlmacenSaldos.EntradaSaldo;
+import com.banquito.core.cuentas.util.Centavos;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modelo de lectura de saldos y estado por número de cuenta, alimentado por los
+ * eventos de saldo del MS2 y por las escrituras de CuentasClientesServicio. Las
+ * lecturas se sirven del almacén (AlmacenSaldos, en heap o mapeado a archivo);
+ * si la cuenta no está o su entrada supera el TTL (no llegaron eventos) se
+ * recarga de la BD. Cada entrada lleva la @Version de cuentas_clientes y un
+ * evento solo se aplica si no es más antiguo que lo ya conocido, así los
+ * duplicados y desórdenes de la cola no retroceden el saldo. Un número que no
+ * está en el modelo pasa antes por el filtro de números de cuenta: si con
+ * seguridad no existe no se consulta.
+ * <p>
+ * Con un almacén persistente vacío se cargan todas las cuentas antes de
+ * aceptar tráfico, leyendo la tabla en streaming. Si el archivo ya traía
+ * cuentas la instancia arranca con ellas y las resincroniza en segundo plano;
+ * mientras tanto rige el mismo TTL: una entrada vencida se recarga de la BD.
+ * <p>
+ * La cuenta que se debita (retiros y transferencias) usa un TTL mucho más corto
+ * (ttl-debito-ms, 0 para leer siempre de la BD): un saldo de hace 30 s puede
+ * aceptar un retiro que el MS2 ya no puede cubrir.
+ */
+@Service
+@Slf4j
+public class SaldosCuentasServicio implements ApplicationRunner {
+
+    private static final String SQL_SALDOS =
+            "SELECT numero_cuenta, saldo_disponible, saldo_contable, estado, version, id_cuenta "
+                    + "FROM account.cuentas_clientes";
+
+    private final CuentasClientesRepositorio cliRepo;
+    private final FiltroNumerosCuentaServicio filtro;
+    private final AlmacenSaldos almacen;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate lectura;
+    private final long ttlMs;
+    private final long ttlDebitoMs;
+
+    private final Timer retraso;
+    private final Counter aplicados;
+    private final Counter obsoletos;
+
+    public SaldosCuentasServicio(
+            CuentasClientesRepositorio cliRepo,
+            FiltroNumerosCuentaServicio filtro,
+            AlmacenSaldos almacen,
+            DataSource dataSource,
+            PlatformTransactionManager transacciones,
+            MeterRegistry registry,
+            @Value("${saldos.modelo.ttl-ms:30000}") long ttlMs,
+            @Value("${saldos.modelo.ttl-debito-ms:1000}") long ttlDebitoMs,
+            @Value("${saldos.modelo.fetch-size:5000}") int fetchSize) {
+        this.cliRepo = cliRepo;
+        this.filtro = filtro;
+        this.almacen = almacen;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        // PostgreSQL solo usa cursor (fetch size) dentro de una transacción
+        this.lectura = new TransactionTemplate(transacciones);
+        this.lectura.setReadOnly(true);
+        this.ttlMs = ttlMs;
+        this.ttlDebitoMs = Math.min(ttlMs, ttlDebitoMs);
+        this.retraso = Timer.builder("cuentas.saldos.eventos.retraso")
+                .description("Tiempo entre el evento de saldo en el MS2 y su aplicación en el modelo")
+                .register(registry);
+        this.aplicados = Counter.builder("cuentas.saldos.eventos")
+                .tag("resultado", "aplicado")
+                .register(registry);
+        this.obsoletos = Counter.builder("cuentas.saldos.eventos")
+                .tag("resultado", "obsoleto")
+                .register(registry);
+        Gauge.builder("cuentas.saldos.modelo.cuentas", almacen, AlmacenSaldos::tamano)
+                .description("Cuentas presentes en el modelo de lectura de saldos")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!almacen.persistente()) {
+            return;
+        }
+        if (almacen.recuperadas() == 0) {
+            cargarSaldos("carga inicial");
+            return;
+        }
+        Thread.ofPlatform().daemon().name("saldos-resincronizacion").start(() -> cargarSaldos("resincronización"));
+    }
+
+    public Optional<SaldoCuentaDTO> obtener(String numeroCuenta) {
+        return obtener(numeroCuenta, ttlMs);
+    }
+
+    /** Saldo de la cuenta que se va a debitar, con el TTL corto de ttl-debito-ms. */
+    public Optional<SaldoCuentaDTO> obtenerParaDebito(String numeroCuenta) {
+        return obtener(numeroCuenta, ttlDebitoMs);
+    }
+
+    private Optional<SaldoCuentaDTO> obtener(String numeroCuenta, long maxAntiguedadMs) {
+        EntradaSaldo entrada = almacen.leer(numeroCuenta);
+        // confirmadoMs 0: ranura reparada tras una caída, siempre se recarga
+        if (entrada != null && entrada.confirmadoMs() > 0
+                && System.currentTimeMillis() - entrada.confirmadoMs() < maxAntiguedadMs) {
+            return Optional.of(entrada.saldo());
+        }
+        if (entrada == null && !filtro.puedeExistir(numeroCuenta)) {
+            return Optional.empty();
+        }
+        log.debug("Saldo de {} no disponible en el modelo, consultando BD", numeroCuenta);
+        return cliRepo.findByNumeroCuenta(numeroCuenta)
+                .map(cc -> almacen.guardar(toDTO(cc), System.currentTimeMillis()));
+    }
+
+    /** Registra el estado de una cuenta recién confirmado en la BD por este servicio. */
+    public void registrar(CuentasClientes cc) {
+        almacen.guardar(toDTO(cc), System.currentTimeMillis());
+    }
+
+    public void aplicar(EventoSaldoCuentaDTO evento, Instant fechaEvento) {
+        EntradaSaldo actual = almacen.leer(evento.getNumeroCuenta());
+        if (actual == null) {
+            // El evento no trae el producto de la cuenta (lo necesitan las comisiones); la próxima lectura irá a la BD
+            log.debug("Evento de saldo para {} que no está en el modelo", evento.getNumeroCuenta());
+            return;
+        }
+        SaldoCuentaDTO nuevo = SaldoCuentaDTO.builder()
+                .numeroCuenta(evento.getNumeroCuenta())
+                .saldoDisponibleCentavos(evento.getSaldoDisponibleCentavos() != null
+                        ? evento.getSaldoDisponibleCentavos() : actual.saldo().getSaldoDisponibleCentavos())
+                .saldoContableCentavos(evento.getSaldoContableCentavos() != null
+                        ? evento.getSaldoContableCentavos() : actual.saldo().getSaldoContableCentavos())
+                // Los eventos de solo saldo pueden no traer el estado
+                .estado(evento.getEstado() != null ? evento.getEstado() : actual.saldo().getEstado())
+                .idCuenta(actual.saldo().getIdCuenta())
+                .version(evento.getVersion())
+                .fechaActualizacion(fechaEvento)
+                .build();
+        if (almacen.guardar(nuevo, System.currentTimeMillis()) == nuevo) {
+            aplicados.increment();
+        } else {
+            obsoletos.increment();
+            log.debug("Evento de saldo obsoleto para {} (versión {})", evento.getNumeroCuenta(), evento.getVersion());
+        }
+        retraso.record(Duration.between(fechaEvento, Instant.now()));
+    }
+
+    /**
+     * Recorre cuentas_clientes con un cursor y guarda cada saldo en el almacén.
+     * Un evento que llegue durante la carga con una versión posterior no se pisa.
+     */
+    private void cargarSaldos(String motivo) {
+        long inicio = System.nanoTime();
+        try {
+            Long cargadas = lectura.execute(estado -> {
+                long[] total = { 0 };
+                jdbc.query(SQL_SALDOS, fila -> {
+                    String numero = fila.getString(1);
+                    if (numero == null) {
+                        return;
+                    }
+                    Instant ahora = Instant.now();
+                    almacen.guardar(SaldoCuentaDTO.builder()
+                            .numeroCuenta(numero)
+                            .saldoDisponibleCentavos(Centavos.de(fila.getBigDecimal(2)))
+                            .saldoContableCentavos(Centavos.de(fila.getBigDecimal(3)))
+                            .estado(EstadoCuentaClienteEnum.valueOf(fila.getString(4)))
+                            .version(fila.getLong(5))
+                            .idCuenta(fila.getObject(6, Integer.class))
+                            .fechaActualizacion(ahora)
+                            .build(), ahora.toEpochMilli());
+                    total[0]++;
+                });
+                return total[0];
+            });
+            log.info("Modelo de saldos, {}: {} cuentas en {} ms", motivo, cargadas,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (RuntimeException e) {
+            // Sin carga las lecturas recargan de la BD cuenta por cuenta, como antes
+            log.warn("Modelo de saldos, {} falló: {}", motivo, e.getMessage());
+        }
+    }
+
+    private SaldoCuentaDTO toDTO(CuentasClientes cc) {
+        return SaldoCuentaDTO.builder()
+                .numeroCuenta(cc.getNumeroCuenta())
+                .saldoDisponibleCentavos(Centavos.de(cc.getSaldoDisponible()))
+                .saldoContableCentavos(Centavos.de(cc.getSaldoContable()))
+                .estado(cc.getEstado())
+                .idCuenta(cc.getIdCuenta() != null ? cc.getIdCuenta().getId() : null)
+                .version(cc.getVersion())
+                .fechaActualizacion(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.EstadoDependenciaDTO;
+import com.banquito.core.cuentas.enums.EstadoDependenciaEnum;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sondas de las dependencias (PostgreSQL, broker y servicios Feign) ejecutadas en
+ * segundo plano cada salud.intervalo-ms. Los endpoints de salud leen el último
+ * resultado en memoria, así que un balanceador consultando cada pocos segundos no
+ * genera consultas ni conexiones.
+ * <p>
+ * Cada sonda corre en su propio hilo con un tiempo máximo; una sonda colgada se
+ * reporta como no disponible y no se vuelve a lanzar hasta que termine. Solo la BD
+ * y el broker son críticas: un servicio Feign caído degrada algunas operaciones
+ * pero no debe sacar la instancia del balanceador.
+ */
+@Service
+@Slf4j
+public class SaludDependenciasServicio {
+
+    private final List<Sonda> sondas = new ArrayList<>();
+    private final ExecutorService ejecutor;
+    private final long timeoutMs;
+
+    public SaludDependenciasServicio(
+            DataSource dataSource,
+            ConnectionFactory connectionFactory,
+            MeterRegistry registry,
+            @Value("${salud.timeout-ms:2000}") long timeoutMs,
+            @Value("${salud.feign.ruta:/health}") String rutaFeign,
+            @Value("${cuentas.configuracion.url}") String urlConfiguracion,
+            @Value("${clientes.service.url}") String urlClientes,
+            @Value("${general.service.url}") String urlGeneral) {
+        this.timeoutMs = timeoutMs;
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs)));
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+
+        sondas.add(new Sonda("bd", true, () -> {
+            jdbc.queryForObject("SELECT 1", Integer.class);
+            return "SELECT 1";
+        }));
+        sondas.add(new Sonda("broker", true, () -> {
+            // Conexión nueva (no la compartida del productor) para comprobar que el broker acepta clientes
+            try (Connection conexion = connectionFactory.createConnection()) {
+                conexion.start();
+            }
+            return "conexión aceptada";
+        }));
+        sondas.add(new Sonda("configuracion", false, () -> http(http, urlConfiguracion + rutaFeign)));
+        sondas.add(new Sonda("clientes", false, () -> http(http, urlClientes + rutaFeign)));
+        sondas.add(new Sonda("general", false, () -> http(http, urlGeneral + rutaFeign)));
+
+        this.ejecutor = Executors.newFixedThreadPool(sondas.size(),
+                Thread.ofPlatform().daemon().name("salud-sonda-", 0).factory());
+        for (Sonda sonda : sondas) {
+            sonda.registrarMetricas(registry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${salud.intervalo-ms:10000}")
+    public void verificar() {
+        for (Sonda sonda : sondas) {
+            sonda.lanzar();
+        }
+    }
+
+    /** Último resultado de cada sonda, en el orden en que se registraron. */
+    public List<EstadoDependenciaDTO> estados() {
+        List<EstadoDependenciaDTO> estados = new ArrayList<>(sondas.size());
+        for (Sonda sonda : sondas) {
+            estados.add(sonda.ultimo);
+        }
+        return estados;
+    }
+
+    /**
+     * Indica si ninguna dependencia crítica está caída. Una sonda que todavía no
+     * terminó (DESCONOCIDO) no cuenta como caída.
+     */
+    public boolean criticasDisponibles() {
+        for (Sonda sonda : sondas) {
+            if (sonda.critica && sonda.ultimo.getEstado() == EstadoDependenciaEnum.NO_DISPONIBLE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    private String http(HttpClient http, String url) throws Exception {
+        HttpResponse<Void> respuesta = http.send(HttpRequest.newBuilder(URI.create(url))
+                        .timeout(Duration.ofMillis(timeoutMs))
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        // Cualquier respuesta por debajo de 500 indica que el servicio atiende
+        if (respuesta.statusCode() >= 500) {
+            throw new IllegalStateException("HTTP " + respuesta.statusCode());
+        }
+        return "HTTP " + respuesta.statusCode();
+    }
+
+    @FunctionalInterface
+    private interface Verificacion {
+        String ejecutar() throws Exception;
+    }
+
+    private final class Sonda {
+        private final String nombre;
+        private final boolean critica;
+        private final Verificacion verificacion;
+        private final AtomicBoolean enCurso = new AtomicBoolean();
+        private volatile EstadoDependenciaDTO ultimo;
+        private Timer disponible;
+        private Timer noDisponible;
+
+        Sonda(String nombre, boolean critica, Verificacion verificacion) {
+            this.nombre = nombre;
+            this.critica = critica;
+            this.verificacion = verificacion;
+            this.ultimo = EstadoDependenciaDTO.builder()
+                    .dependencia(nombre)
+                    .critica(critica)
+                    .estado(EstadoDependenciaEnum.DESCONOCIDO)
+                    .build();
+        }
+
+        void registrarMetricas(MeterRegistry registry) {
+            disponible = timer(registry, "ok");
+            noDisponible = timer(registry, "fallo");
+            Gauge.builder("cuentas.salud.disponible", this, s -> switch (s.ultimo.getEstado()) {
+                        case DISPONIBLE -> 1;
+                        case NO_DISPONIBLE -> 0;
+                        case DESCONOCIDO -> Double.NaN;
+                    })
+                    .description("1 si la última sonda de la dependencia respondió, 0 si falló")
+                    .tag("dependencia", nombre)
+                    .register(registry);
+        }
+
+        private Timer timer(MeterRegistry registry, String resultado) {
+            return Timer.builder("cuentas.salud.sonda")
+                    .description("Latencia de las sondas de dependencias")
+                    .tag("dependencia", nombre)
+                    .tag("resultado", resultado)
+                    .register(registry);
+        }
+
+        void lanzar() {
+            if (!enCurso.compareAndSet(false, true)) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return verificacion.ejecutar();
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        } finally {
+                            enCurso.set(false);
+                        }
+                    }, ejecutor)
+                    .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((detalle, error) -> registrar(System.nanoTime() - inicio, detalle, error));
+        }
+
+        private void registrar(long duracionNanos, String detalle, Throwable error) {
+            boolean ok = error == null;
+            (ok ? disponible : noDisponible).record(duracionNanos, TimeUnit.NANOSECONDS);
+            if (!ok) {
+                Throwable causa = error.getCause() != null ? error.getCause() : error;
+                detalle = causa instanceof TimeoutException ? "sin respuesta en " + timeoutMs + " ms"
+                        : causa.getMessage() != null ? causa.getMessage() : causa.getClass().getSimpleName();
+                if (ultimo.getEstado() != EstadoDependenciaEnum.NO_DISPONIBLE) {
+                    log.warn("Dependencia {} no disponible: {}", nombre, detalle);
+                }
+            } else if (ultimo.getEstado() == EstadoDependenciaEnum.NO_DISPONIBLE) {
+                log.info("Dependencia {} disponible nuevamente", nombre);
+            }
+            ultimo = EstadoDependenciaDTO.builder()
+                    .dependencia(nombre)
+                    .critica(critica)
+                    .estado(ok ? EstadoDependenciaEnum.DISPONIBLE : EstadoDependenciaEnum.NO_DISPONIBLE)
+                    .latenciaMs(TimeUnit.NANOSECONDS.toMillis(duracionNanos))
+                    .detalle(detalle)
+                    .verificado(Instant.now())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.enums.BaseCalculoComisionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.util.Centavos;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reglas de comisión por transacción compiladas en arreglos planos, inmutables
+ * una vez construidas. La celda de una regla es producto x tipo de transacción:
+ * la fila 0 tiene las reglas generales y la fila idCuenta + 1 las del producto.
+ * Calcular una comisión es leer una o dos celdas y hacer aritmética sobre
+ * centavos, sin mapas ni BigDecimal.
+ * <p>
+ * Los porcentajes se guardan con 4 decimales (1.2500 % = 12 500) y la comisión
+ * se redondea al centavo (mitad hacia arriba). Mínimo y máximo solo aplican a
+ * PORCENTAJE.
+ */
+public final class TablaComisiones {
+
+    /** Sin reglas: ninguna transacción cobra comisión. */
+    public static final TablaComisiones VACIA = compilar(List.of());
+
+    /** Productos con id mayor no caben en la tabla (los ids de cuentas son un catálogo corto). */
+    static final int MAX_ID_PRODUCTO = 1 << 16;
+
+    private static final int TIPOS = TipoTransaccionEnum.values().length;
+    private static final byte SIN_REGLA = 0;
+    private static final byte FIJO = 1;
+    private static final byte PORCENTAJE = 2;
+    private static final long ESCALA_PORCENTAJE = 1_000_000L;
+    private static final long SIN_LIMITE = -1;
+
+    private final byte[] bases;
+    private final long[] valores;
+    private final long[] minimos;
+    private final long[] maximos;
+    private final ReglaComision[] origenes;
+    private final int productos;
+    private final int reglas;
+    private final List<ReglaDescartada> descartadas = new ArrayList<>();
+
+    /** Regla ya leída de la BD; idCuenta null aplica a todos los productos. */
+    public record ReglaComision(Integer idCuenta, TipoTransaccionEnum tipoTransaccion,
+                                BaseCalculoComisionEnum baseCalculo, BigDecimal valor,
+                                BigDecimal montoMinimo, BigDecimal montoMaximo) {
+    }
+
+    /** Regla que no quedó en la tabla y por qué: la transacción cobra otra comisión o ninguna. */
+    public record ReglaDescartada(ReglaComision regla, String motivo) {
+    }
+
+    private TablaComisiones(int productos, int reglas) {
+        int celdas = (productos + 1) * TIPOS;
+        this.bases = new byte[celdas];
+        this.valores = new long[celdas];
+        this.minimos = new long[celdas];
+        this.maximos = new long[celdas];
+        this.origenes = new ReglaComision[celdas];
+        this.productos = productos;
+        this.reglas = reglas;
+    }
+
+    /**
+     * Arma la tabla. Una regla inválida (valor negativo, más decimales de los
+     * admitidos, producto fuera de rango) no entra, y si dos reglas caen en la
+     * misma celda queda la última; ambas quedan en descartadas() con su motivo
+     * para que quien compila las informe.
+     */
+    public static TablaComisiones compilar(List<ReglaComision> reglas) {
+        int maxProducto = -1;
+        for (ReglaComision regla : reglas) {
+            if (regla.idCuenta() != null && regla.idCuenta() >= 0 && regla.idCuenta() < MAX_ID_PRODUCTO) {
+                maxProducto = Math.max(maxProducto, regla.idCuenta());
+            }
+        }
+        TablaComisiones tabla = new TablaComisiones(maxProducto + 1, reglas.size());
+        for (ReglaComision regla : reglas) {
+            try {
+                tabla.agregar(regla);
+            } catch (ArithmeticException | IllegalArgumentException e) {
+                tabla.descartadas.add(new ReglaDescartada(regla, e.getMessage()));
+            }
+        }
+        return tabla;
+    }
+
+    /** Comisión en centavos de una transacción del producto; 0 si no hay regla. */
+    public long comision(Integer idCuenta, TipoTransaccionEnum tipo, long montoCentavos) {
+        int celda = tipo.ordinal();
+        if (idCuenta != null && idCuenta >= 0 && idCuenta < productos) {
+            int propia = (idCuenta + 1) * TIPOS + celda;
+            if (bases[propia] != SIN_REGLA) {
+                celda = propia;
+            }
+        }
+        return switch (bases[celda]) {
+            case FIJO -> valores[celda];
+            case PORCENTAJE -> acotar(celda, porcentaje(montoCentavos, valores[celda]));
+            default -> 0;
+        };
+    }
+
+    /** Reglas aplicadas (las leídas menos las descartadas). */
+    public int reglas() {
+        return reglas - descartadas.size();
+    }
+
+    /** Reglas leídas que no se aplican, en el orden en que se descartaron. */
+    public List<ReglaDescartada> descartadas() {
+        return List.copyOf(descartadas);
+    }
+
+    private void agregar(ReglaComision regla) {
+        if (regla.tipoTransaccion() == null || regla.baseCalculo() == null || regla.valor() == null
+                || regla.valor().signum() < 0) {
+            throw new IllegalArgumentException("regla incompleta o con valor negativo");
+        }
+        int fila = 0;
+        if (regla.idCuenta() != null) {
+            if (regla.idCuenta() < 0 || regla.idCuenta() >= MAX_ID_PRODUCTO) {
+                throw new IllegalArgumentException("id de producto fuera de rango");
+            }
+            fila = regla.idCuenta() + 1;
+        }
+        int celda = fila * TIPOS + regla.tipoTransaccion().ordinal();
+        // Se convierte todo antes de tocar la celda: una regla inválida no pisa a la anterior
+        byte base;
+        long valor;
+        long minimo = SIN_LIMITE;
+        long maximo = SIN_LIMITE;
+        if (regla.baseCalculo() == BaseCalculoComisionEnum.FIJO) {
+            base = FIJO;
+            valor = Centavos.de(regla.valor());
+        } else {
+            base = PORCENTAJE;
+            valor = regla.valor().movePointRight(4).longValueExact();
+            minimo = regla.montoMinimo() == null ? SIN_LIMITE : Centavos.de(regla.montoMinimo());
+            maximo = regla.montoMaximo() == null ? SIN_LIMITE : Centavos.de(regla.montoMaximo());
+        }
+        if (origenes[celda] != null) {
+            descartadas.add(new ReglaDescartada(origenes[celda], "reemplazada por otra regla del mismo producto y tipo"));
+        }
+        bases[celda] = base;
+        valores[celda] = valor;
+        minimos[celda] = minimo;
+        maximos[celda] = maximo;
+        origenes[celda] = regla;
+    }
+
+    private long acotar(int celda, long comision) {
+        if (minimos[celda] != SIN_LIMITE && comision < minimos[celda]) {
+            comision = minimos[celda];
+        }
+        if (maximos[celda] != SIN_LIMITE && comision > maximos[celda]) {
+            comision = maximos[celda];
+        }
+        return comision;
+    }
+
+    /** monto * porcentaje / 1 000 000 redondeado; con montos enormes se recurre a BigDecimal. */
+    private static long porcentaje(long montoCentavos, long porcentaje) {
+        long producto = montoCentavos * porcentaje;
+        if (Math.multiplyHigh(montoCentavos, porcentaje) == (producto >> 63) && producto >= 0
+                && producto <= Long.MAX_VALUE - ESCALA_PORCENTAJE / 2) {
+            return (producto + ESCALA_PORCENTAJE / 2) / ESCALA_PORCENTAJE;
+        }
+        return BigDecimal.valueOf(montoCentavos)
+                .multiply(BigDecimal.valueOf(porcentaje))
+                .divide(BigDecimal.valueOf(ESCALA_PORCENTAJE), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+}
@@ -0,0 +1,163 @@
+package com.banquito.core.cuentas.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Montos en centavos como long. Los saldos son NUMERIC(15,2), así que caben
+ * exactos y sin redondeo; dentro del servicio (reglas, modelo de saldos,
+ * eventos de la cola) se comparan como primitivos en lugar de BigDecimal.
+ * <p>
+ * La conversión solo ocurre en los bordes (API, JPA, JSON) y es exacta: un
+ * monto con más de 2 decimales o fuera de NUMERIC(15,2) lanza
+ * ArithmeticException en lugar de truncarse. Las operaciones aritméticas
+ * fallan igual ante desbordamiento.
+ */
+public final class Centavos {
+
+    /** 9 999 999 999 999.99, el máximo de NUMERIC(15,2). */
+    public static final long MAXIMO = 999_999_999_999_999L;
+
+    private Centavos() {
+    }
+
+    public static long de(BigDecimal monto) {
+        return enRango(monto.movePointRight(2).longValueExact());
+    }
+
+    public static BigDecimal aBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    public static long sumar(long a, long b) {
+        return enRango(Math.addExact(a, b));
+    }
+
+    public static long restar(long a, long b) {
+        return enRango(Math.subtractExact(a, b));
+    }
+
+    /** Texto con 2 decimales (1000 -> "10.00"), para mensajes. */
+    public static String texto(long centavos) {
+        return aBigDecimal(centavos).toPlainString();
+    }
+
+    /**
+     * Lee el monto del texto decimal sin crear BigDecimal ("125.5", "-3",
+     * "10.50"). Con exponente se recurre a BigDecimal para no reimplementarlo.
+     */
+    public static long parsear(char[] texto, int desde, int largo) {
+        int i = desde;
+        int fin = desde + largo;
+        boolean negativo = i < fin && texto[i] == '-';
+        if (negativo || (i < fin && texto[i] == '+')) {
+            i++;
+        }
+        long valor = 0;
+        int digitos = 0;
+        int decimales = -1;
+        for (; i < fin; i++) {
+            char c = texto[i];
+            if (c >= '0' && c <= '9') {
+                if (decimales >= 0 && ++decimales > 2) {
+                    if (c != '0' && !tieneExponente(texto, i, fin)) {
+                        throw new ArithmeticException("Monto con más de 2 decimales: " + new String(texto, desde, largo));
+                    }
+                    continue;
+                }
+                valor = Math.addExact(Math.multiplyExact(valor, 10), c - '0');
+                digitos++;
+            } else if (c == '.' && decimales < 0) {
+                decimales = 0;
+            } else if (c == 'e' || c == 'E') {
+                return de(new BigDecimal(texto, desde, largo));
+            } else {
+                throw new NumberFormatException("Monto inválido: " + new String(texto, desde, largo));
+            }
+        }
+        if (digitos == 0) {
+            throw new NumberFormatException("Monto inválido: " + new String(texto, desde, largo));
+        }
+        for (int d = Math.max(decimales, 0); d < 2; d++) {
+            valor = Math.multiplyExact(valor, 10);
+        }
+        return enRango(negativo ? -valor : valor);
+    }
+
+    private static boolean tieneExponente(char[] texto, int desde, int fin) {
+        for (int i = desde; i < fin; i++) {
+            if (texto[i] == 'e' || texto[i] == 'E') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long enRango(long centavos) {
+        if (centavos > MAXIMO || centavos < -MAXIMO) {
+            throw new ArithmeticException("Monto fuera de NUMERIC(15,2): " + centavos + " centavos");
+        }
+        return centavos;
+    }
+
+    /** Lee un número (o texto numérico) JSON directamente a centavos. */
+    public static final class Deserializador extends StdDeserializer<Long> {
+
+        public Deserializador() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            try {
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    return enRango(Math.multiplyExact(p.getLongValue(), 100));
+                }
+                if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+                    return parsear(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+                }
+            } catch (ArithmeticException | NumberFormatException e) {
+                return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(), e.getMessage());
+            }
+            return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+    }
+
+    /** Escribe los centavos como número JSON con 2 decimales (100050 -> 1000.50). */
+    public static final class Serializador extends StdSerializer<Long> {
+
+        public Serializador() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long centavos, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            long valor = centavos;
+            char[] texto = new char[21];
+            int i = texto.length;
+            long absoluto = Math.abs(valor);
+            texto[--i] = (char) ('0' + absoluto % 10);
+            absoluto /= 10;
+            texto[--i] = (char) ('0' + absoluto % 10);
+            absoluto /= 10;
+            texto[--i] = '.';
+            do {
+                texto[--i] = (char) ('0' + absoluto % 10);
+                absoluto /= 10;
+            } while (absoluto > 0);
+            if (valor < 0) {
+                texto[--i] = '-';
+            }
+            gen.writeNumber(texto, i, texto.length - i);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.banquito.core.cuentas.config;
+
+import com.banquito.core.cuentas.config.DiarioTransaccionesEndpoint.MovimientosInstancia;
+import com.banquito.core.cuentas.dto.MovimientoCuentaDTO;
+import com.banquito.core.cuentas.servicio.DiarioTransaccionesServicio;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DiarioTransaccionesEndpointTest {
+
+    private static final String CUENTA = "1234567890";
+
+    private final DiarioTransaccionesServicio diario = mock(DiarioTransaccionesServicio.class);
+    private final DiarioTransaccionesEndpoint endpoint = new DiarioTransaccionesEndpoint(diario);
+
+    @Test
+    void conElDiarioApagadoRespondeNull() {
+        when(diario.habilitado()).thenReturn(false);
+
+        assertNull(endpoint.movimientos(CUENTA, null));
+        verify(diario, never()).movimientos(anyString(), anyInt());
+    }
+
+    @Test
+    void devuelveLosMovimientosConLaInstanciaYAcotaElLimite() {
+        List<MovimientoCuentaDTO> movimientos = List.of(MovimientoCuentaDTO.builder()
+                .secuencia(1).transaccionId("tx-1").numeroCuentaOrigen(CUENTA).build());
+        when(diario.habilitado()).thenReturn(true);
+        when(diario.movimientos(anyString(), anyInt())).thenReturn(movimientos);
+
+        MovimientosInstancia respuesta = endpoint.movimientos(CUENTA, null);
+        assertNotNull(respuesta.instancia());
+        assertEquals(CUENTA, respuesta.numeroCuenta());
+        assertEquals(movimientos, respuesta.movimientos());
+        verify(diario).movimientos(CUENTA, DiarioTransaccionesEndpoint.LIMITE_DEFECTO);
+
+        endpoint.movimientos(CUENTA, 10_000);
+        verify(diario).movimientos(CUENTA, DiarioTransaccionesEndpoint.LIMITE_MAXIMO);
+        endpoint.movimientos(CUENTA, 0);
+        verify(diario).movimientos(CUENTA, 1);
+    }
+}
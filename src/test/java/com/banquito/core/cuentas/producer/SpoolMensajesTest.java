@@ -0,0 +1,249 @@
+package com.banquito.core.cuentas.producer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpoolMensajesTest {
+
+    private static final long SEGMENTO = 64 * 1024;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void guardaLeeYConfirmaEnOrden() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            guardar(spool, "tx-1", "1111111111");
+            guardar(spool, "tx-2", "2222222222");
+            guardar(spool, "tx-3", "1111111111");
+            assertEquals(3, spool.profundidad());
+            assertEquals(2, spool.cuentasPendientes());
+
+            List<MensajeSpool> lote = spool.leer(10);
+            assertEquals(List.of("tx-1", "tx-2", "tx-3"), ids(lote));
+            assertEquals(List.of(1L, 2L, 3L), lote.stream().map(MensajeSpool::secuencia).toList());
+            assertArrayEquals(cuerpo("tx-2"), lote.get(1).cuerpo());
+            assertEquals("cola.prueba", lote.get(1).cola());
+
+            spool.confirmar();
+            // Sin confirmar el resto, el siguiente leer devuelve los mismos para reintentarlos en orden
+            assertEquals(List.of("tx-2", "tx-3"), ids(spool.leer(10)));
+            spool.confirmar();
+            spool.confirmar();
+            assertEquals(0, spool.profundidad());
+            assertEquals(0, spool.cuentasPendientes());
+            assertEquals(3, spool.reenviados());
+            assertTrue(spool.leer(10).isEmpty());
+        }
+    }
+
+    @Test
+    void reservaSoloSiLaCuentaTienePendientes() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            assertFalse(spool.reservar("1111111111", true));
+            guardar(spool, "tx-1", "1111111111");
+            assertTrue(spool.reservar("1111111111", true));
+            spool.liberar("1111111111");
+            assertFalse(spool.reservar("2222222222", true));
+        }
+    }
+
+    @Test
+    void alReabrirRecuperaLoPendienteDespuesDelCursor() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            for (int i = 1; i <= 5; i++) {
+                guardar(spool, "tx-" + i, i % 2 == 0 ? "2222222222" : "1111111111");
+            }
+            spool.leer(10);
+            spool.confirmar();
+            spool.confirmar();
+            spool.guardarCursor();
+            // Confirmado pero sin guardar el cursor: tras la caída se vuelve a reenviar
+            spool.confirmar();
+        }
+
+        try (SpoolMensajes spool = abrir(8)) {
+            assertEquals(3, spool.profundidad());
+            assertEquals(2, spool.cuentasPendientes());
+            assertTrue(spool.reservar("2222222222", true));
+            spool.liberar("2222222222");
+            assertEquals(List.of("tx-3", "tx-4", "tx-5"), ids(spool.leer(10)));
+            assertEquals(6, guardar(spool, "tx-6", "1111111111"));
+        }
+    }
+
+    @Test
+    void registroCortadoSeDescartaYElSpoolSigue() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            guardar(spool, "tx-1", "1111111111");
+            guardar(spool, "tx-2", "1111111111");
+        }
+        Path segmento = directorio.resolve("spool-000000000001.dat");
+        long sano = Files.size(segmento);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // Cabecera de un registro de 200 bytes del que solo llegaron 10
+            canal.write(ByteBuffer.allocate(26).putInt(200).putInt(0).putLong(3).put(new byte[10]).flip());
+        }
+
+        try (SpoolMensajes spool = abrir(8)) {
+            assertEquals(sano, Files.size(segmento));
+            assertEquals(2, spool.profundidad());
+            assertEquals(3, guardar(spool, "tx-3", "1111111111"));
+            assertEquals(List.of("tx-1", "tx-2", "tx-3"), ids(spool.leer(10)));
+        }
+    }
+
+    @Test
+    void registroConCrcInvalidoCortaElSpoolAhi() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            guardar(spool, "tx-1", "1111111111");
+            guardar(spool, "tx-2", "1111111111");
+            guardar(spool, "tx-3", "1111111111");
+        }
+        Path segmento = directorio.resolve("spool-000000000001.dat");
+        byte[] contenido = Files.readAllBytes(segmento);
+        // Cabecera del segmento (16) + primer registro (16 + contenido): se altera un byte del segundo
+        int segundo = 16 + 16 + ByteBuffer.wrap(contenido, 16, 4).getInt();
+        contenido[segundo + 20] ^= 0x5A;
+        Files.write(segmento, contenido);
+
+        try (SpoolMensajes spool = abrir(8)) {
+            assertEquals(1, spool.profundidad());
+            assertEquals(List.of("tx-1"), ids(spool.leer(10)));
+            assertEquals(2, guardar(spool, "tx-2b", "1111111111"));
+        }
+    }
+
+    @Test
+    void cursorInvalidoReenviaTodoLoQueQueda() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            guardar(spool, "tx-1", "1111111111");
+            guardar(spool, "tx-2", "1111111111");
+            spool.leer(10);
+            spool.confirmar();
+            spool.guardarCursor();
+        }
+        Path cursor = directorio.resolve("spool.cursor");
+        byte[] contenido = Files.readAllBytes(cursor);
+        contenido[8] ^= 0x01;
+        Files.write(cursor, contenido);
+
+        try (SpoolMensajes spool = abrir(8)) {
+            assertEquals(2, spool.profundidad());
+            assertEquals(List.of("tx-1", "tx-2"), ids(spool.leer(10)));
+        }
+    }
+
+    @Test
+    void rotaSegmentosYBorraLosYaReenviados() throws Exception {
+        try (SpoolMensajes spool = abrir(8)) {
+            for (int i = 1; i <= 20; i++) {
+                guardar(spool, "tx-" + i, "1111111111", 10_000);
+            }
+            assertTrue(segmentos() >= 3);
+            assertEquals(20, spool.leer(100).size());
+            for (int i = 0; i < 20; i++) {
+                spool.confirmar();
+            }
+            // El borrado espera a que una ronda de fsync pase al segmento actual
+            guardar(spool, "tx-21", "1111111111");
+            spool.guardarCursor();
+            assertEquals(1, segmentos());
+            assertEquals(List.of("tx-21"), ids(spool.leer(10)));
+        }
+    }
+
+    @Test
+    void rechazaGuardarConTodosLosSegmentosPendientes() throws Exception {
+        try (SpoolMensajes spool = abrir(2)) {
+            IllegalStateException lleno = assertThrows(IllegalStateException.class, () -> {
+                for (int i = 1; i <= 100; i++) {
+                    guardar(spool, "tx-" + i, "1111111111", 10_000);
+                }
+            });
+            assertTrue(lleno.getMessage().startsWith("Spool lleno"));
+            assertEquals(2, segmentos());
+        }
+    }
+
+    @Test
+    void guardarVuelveConElMensajeSincronizadoYAgrupaLosFsync() throws Exception {
+        int hilos = 8;
+        int porHilo = 50;
+        try (SpoolMensajes spool = abrir(8);
+             ExecutorService ejecutor = Executors.newFixedThreadPool(hilos)) {
+            guardar(spool, "tx-0", "1111111111");
+            // Al volver guardar ya hubo fsync y el lector lo ve
+            assertTrue(spool.sincronizaciones() >= 1);
+            assertEquals(List.of("tx-0"), ids(spool.leer(10)));
+            spool.confirmar();
+
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                String cuenta = String.format("%010d", h);
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        guardar(spool, cuenta + "-" + i, cuenta);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            assertEquals(1 + hilos * porHilo, spool.guardados());
+            assertEquals(hilos * porHilo, spool.profundidad());
+            assertTrue(spool.sincronizaciones() < spool.guardados(),
+                    "fsync compartidos: " + spool.sincronizaciones() + " para " + spool.guardados() + " mensajes");
+            assertEquals(hilos * porHilo, spool.leer(1000).size());
+        }
+    }
+
+    private SpoolMensajes abrir(int maxSegmentos) throws Exception {
+        return new SpoolMensajes(directorio, SEGMENTO, maxSegmentos);
+    }
+
+    private long segmentos() throws Exception {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(p -> p.getFileName().toString().startsWith("spool-")).count();
+        }
+    }
+
+    private static long guardar(SpoolMensajes spool, String transaccionId, String cuenta) {
+        return guardar(spool, transaccionId, cuenta, 0);
+    }
+
+    private static long guardar(SpoolMensajes spool, String transaccionId, String cuenta, int relleno) {
+        byte[] cuerpo = relleno > 0 ? new byte[relleno] : cuerpo(transaccionId);
+        spool.reservar(cuenta, false);
+        return spool.guardar(new MensajeSpool(0, System.currentTimeMillis(), "cola.prueba", transaccionId, cuenta,
+                cuerpo));
+    }
+
+    private static byte[] cuerpo(String transaccionId) {
+        return ("{\"transaccionId\":\"" + transaccionId + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> ids(List<MensajeSpool> mensajes) {
+        return mensajes.stream().map(MensajeSpool::transaccionId).toList();
+    }
+}
@@ -0,0 +1,201 @@
+package com.banquito.core.cuentas.producer;
+
+import com.banquito.core.cuentas.config.ActiveMQConfig;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.resiliencia.CircuitoBroker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.apache.activemq.command.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
+import org.springframework.jms.support.converter.MessageType;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spool contra un broker ActiveMQ embebido (vm://) que se detiene a mitad de la
+ * carga y vuelve a arrancar. Un plugin del broker anota cada mensaje que acepta:
+ * sin almacén persistente en el classpath, la cola no sobrevive al reinicio, pero
+ * lo aceptado es lo que el MS2 habría recibido.
+ */
+class SpoolTransaccionesIntegracionTest {
+
+    private static final String BROKER = "spool-integracion";
+    private static final String COLA = "transacciones.deposito";
+    private static final int CUENTAS = 4;
+    private static final int POR_CUENTA = 150;
+
+    @TempDir
+    Path directorio;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /** transaccionId de cada mensaje que aceptó el broker, en orden de llegada. */
+    private final List<String> aceptados = Collections.synchronizedList(new ArrayList<>());
+    private BrokerService broker;
+    private CachingConnectionFactory conexiones;
+    private SpoolTransacciones spool;
+    private TransaccionesProducer producer;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        broker = iniciarBroker();
+        // Como ActiveMQConfig: conexión compartida que se rehace tras un error
+        conexiones = new CachingConnectionFactory(new ActiveMQConnectionFactory("vm://" + BROKER + "?create=false"));
+        conexiones.setReconnectOnException(true);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        converter.setTargetType(MessageType.TEXT);
+        converter.setTypeIdPropertyName(ActiveMQConfig.PROPIEDAD_TIPO);
+        JmsTemplate jmsTemplate = new JmsTemplate(conexiones);
+        jmsTemplate.setMessageConverter(converter);
+
+        CircuitoBroker circuito = new CircuitoBroker(registry, 3, 100);
+        spool = new SpoolTransacciones(jmsTemplate, circuito, objectMapper, registry, true,
+                directorio.toString(), 1, 8, 0, 50, 50);
+        producer = new TransaccionesProducer(jmsTemplate, COLA, "transacciones.retiro",
+                new MetricasTransacciones(registry), spool, circuito);
+        spool.run(null);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        spool.cerrar();
+        conexiones.destroy();
+        detenerBroker();
+    }
+
+    @Test
+    void conElBrokerDetenidoAMitadDeLaCargaNoSePierdeNadaYCadaCuentaConservaSuOrden() throws Exception {
+        int total = CUENTAS * POR_CUENTA;
+        AtomicInteger enviados = new AtomicInteger();
+        CountDownLatch tercio = new CountDownLatch(1);
+        CountDownLatch detenido = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(CUENTAS);
+        List<Future<?>> envios = new ArrayList<>();
+        for (int c = 0; c < CUENTAS; c++) {
+            String cuenta = cuenta(c);
+            envios.add(hilos.submit(() -> {
+                for (int i = 0; i < POR_CUENTA; i++) {
+                    // El último tercio de cada cuenta sale con el broker ya detenido
+                    if (i == 2 * POR_CUENTA / 3) {
+                        detenido.await();
+                    }
+                    producer.enviarDeposito(deposito(cuenta), id(cuenta, i));
+                    if (enviados.incrementAndGet() == total / 3) {
+                        tercio.countDown();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // La caída llega con envíos en curso
+        assertTrue(tercio.await(30, TimeUnit.SECONDS));
+        detenerBroker();
+        detenido.countDown();
+        for (Future<?> envio : envios) {
+            envio.get(30, TimeUnit.SECONDS);
+        }
+        hilos.shutdown();
+        assertTrue(guardados() >= CUENTAS * (POR_CUENTA - 2 * POR_CUENTA / 3),
+                "Lo enviado con el broker detenido debe quedar en el spool");
+
+        broker = iniciarBroker();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (registry.get("cuentas.spool.profundidad").gauge().value() > 0) {
+            assertTrue(System.nanoTime() < limite, "El spool no se vació tras volver el broker");
+            Thread.sleep(20);
+        }
+
+        // Al menos una vez: un envío cortado por la caída pudo llegar al broker y también reenviarse
+        List<String> llegadas = List.copyOf(aceptados);
+        assertTrue(llegadas.size() >= total);
+        for (int c = 0; c < CUENTAS; c++) {
+            String cuenta = cuenta(c);
+            List<String> esperados = new ArrayList<>();
+            for (int i = 0; i < POR_CUENTA; i++) {
+                esperados.add(id(cuenta, i));
+            }
+            // Primera llegada de cada id, en el orden en que la cuenta los envió
+            Set<String> primeras = new LinkedHashSet<>();
+            llegadas.stream().filter(id -> id.startsWith(cuenta)).forEach(primeras::add);
+            assertEquals(esperados, List.copyOf(primeras), "Cuenta " + cuenta);
+        }
+        // Todo lo guardado se reenvió
+        assertEquals(guardados(), registry.get("cuentas.spool.reenviados").functionCounter().count());
+    }
+
+    private double guardados() {
+        return registry.get("cuentas.spool.guardados").counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private BrokerService iniciarBroker() throws Exception {
+        BrokerService servicio = new BrokerService();
+        servicio.setBrokerName(BROKER);
+        servicio.setPersistent(false);
+        servicio.setUseJmx(false);
+        servicio.setUseShutdownHook(false);
+        servicio.setAdvisorySupport(false);
+        servicio.setPlugins(new BrokerPlugin[]{siguiente -> new BrokerFilter(siguiente) {
+            @Override
+            public void send(ProducerBrokerExchange intercambio, Message mensaje) throws Exception {
+                super.send(intercambio, mensaje);
+                aceptados.add((String) mensaje.getProperty(TransaccionesProducer.PROPIEDAD_TRANSACCION_ID));
+            }
+        }});
+        servicio.start();
+        servicio.waitUntilStarted();
+        return servicio;
+    }
+
+    private void detenerBroker() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    private static String cuenta(int indice) {
+        return String.format("%010d", indice + 1);
+    }
+
+    private static String id(String cuenta, int indice) {
+        return cuenta + "-" + String.format("%04d", indice);
+    }
+
+    private static TransaccionesSolicitudDTO deposito(String cuenta) {
+        return TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen(cuenta)
+                .tipoTransaccion(TipoTransaccionEnum.DEPOSITO)
+                .monto(new BigDecimal("25.00"))
+                .descripcion("Depósito de prueba")
+                .build();
+    }
+}
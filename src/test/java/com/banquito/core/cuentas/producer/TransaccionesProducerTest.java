@@ -0,0 +1,137 @@
+package com.banquito.core.cuentas.producer;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.metricas.MetricasTransacciones;
+import com.banquito.core.cuentas.resiliencia.CircuitoBroker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TransaccionesProducerTest {
+
+    private static final String COLA = "transacciones.deposito";
+    private static final String CUENTA_LENTA = "1111111111";
+    private static final String OTRA_CUENTA = "2222222222";
+
+    @TempDir
+    Path directorio;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+    private SpoolTransacciones spool;
+    private TransaccionesProducer producer;
+
+    @BeforeEach
+    void preparar() {
+        CircuitoBroker circuito = new CircuitoBroker(registry, 3, 2000);
+        spool = new SpoolTransacciones(jmsTemplate, circuito, new ObjectMapper().findAndRegisterModules(), registry,
+                true, directorio.toString(), 1, 8, 200, 100, 1000);
+        producer = new TransaccionesProducer(jmsTemplate, COLA, "transacciones.retiro",
+                new MetricasTransacciones(registry), spool, circuito);
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        spool.cerrar();
+    }
+
+    @Test
+    void unEnvioDirectoEnCursoRetieneALosSiguientesDeLaMismaCuenta() throws Exception {
+        assertNotSame(spool.turno(CUENTA_LENTA), spool.turno(OTRA_CUENTA));
+        CountDownLatch enviando = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        doAnswer(invocacion -> {
+            TransaccionesSolicitudDTO dto = invocacion.getArgument(1);
+            if (CUENTA_LENTA.equals(dto.getNumeroCuentaOrigen())) {
+                enviando.countDown();
+                soltar.await();
+                throw new UncategorizedJmsException("broker caído");
+            }
+            return null;
+        }).when(jmsTemplate).convertAndSend(eq(COLA), any(Object.class), any(MessagePostProcessor.class));
+
+        CompletableFuture<Void> primero = CompletableFuture.runAsync(
+                () -> producer.enviarDeposito(deposito(CUENTA_LENTA), "tx-1"));
+        assertTrue(enviando.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> segundo = CompletableFuture.runAsync(
+                () -> producer.enviarDeposito(deposito(CUENTA_LENTA), "tx-2"));
+        // Otra cuenta publica directo aunque la primera esté esperando al broker
+        producer.enviarDeposito(deposito(OTRA_CUENTA), "tx-3");
+        Thread.sleep(200);
+        assertFalse(segundo.isDone(), "El segundo envío de la cuenta no debe decidir mientras el primero sigue");
+
+        soltar.countDown();
+        primero.get(5, TimeUnit.SECONDS);
+        segundo.get(5, TimeUnit.SECONDS);
+
+        // El primero falló y quedó en el spool; el segundo va detrás de él sin intentar el envío directo
+        verify(jmsTemplate, times(1)).convertAndSend(eq(COLA),
+                argThat((Object dto) -> CUENTA_LENTA.equals(((TransaccionesSolicitudDTO) dto).getNumeroCuentaOrigen())),
+                any(MessagePostProcessor.class));
+        assertEquals(1.0, guardados("FALLO_ENVIO"));
+        assertEquals(1.0, guardados("ORDEN_CUENTA"));
+        assertEquals(2.0, registry.get("cuentas.spool.profundidad").gauge().value());
+    }
+
+    @Test
+    void laComisionNoViajaEnElMensajeYSeCobraConUnRetiroAparte() throws Exception {
+        TransaccionesSolicitudDTO transferencia = TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen(CUENTA_LENTA)
+                .numeroCuentaDestino(OTRA_CUENTA)
+                .tipoTransaccion(TipoTransaccionEnum.TRANSFERENCIA)
+                .monto(new BigDecimal("25.00"))
+                .comision(new BigDecimal("0.35"))
+                .build();
+
+        String json = new ObjectMapper().writeValueAsString(transferencia);
+        assertFalse(json.contains("comision"), json);
+
+        String idComision = TransaccionesProducer.idComision("tx-1");
+        assertEquals(36, idComision.length());
+        assertEquals(idComision, TransaccionesProducer.idComision("tx-1"));
+        TransaccionesSolicitudDTO cargo = TransaccionesProducer.cargoComision(transferencia, "tx-1");
+        assertEquals(CUENTA_LENTA, cargo.getNumeroCuentaOrigen());
+        assertEquals(TipoTransaccionEnum.RETIRO, cargo.getTipoTransaccion());
+        assertEquals(new BigDecimal("0.35"), cargo.getMonto());
+        assertEquals("COMISION TRANSFERENCIA tx-1", cargo.getDescripcion());
+    }
+
+    private double guardados(String motivo) {
+        return registry.get("cuentas.spool.guardados").tag("motivo", motivo).counter().count();
+    }
+
+    private static TransaccionesSolicitudDTO deposito(String cuenta) {
+        return TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen(cuenta)
+                .tipoTransaccion(TipoTransaccionEnum.DEPOSITO)
+                .monto(new BigDecimal("25.00"))
+                .descripcion("Depósito de prueba")
+                .build();
+    }
+}
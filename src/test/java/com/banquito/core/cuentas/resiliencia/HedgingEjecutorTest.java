@@ -0,0 +1,118 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingEjecutorTest {
+
+    @Test
+    void ventanaCalculaElPercentilDeLasUltimasMuestras() {
+        VentanaLatencias ventana = new VentanaLatencias(256);
+        assertEquals(0, ventana.percentil(0.95));
+
+        for (long i = 1; i <= 256; i++) {
+            ventana.registrar(i);
+        }
+        assertEquals(244, ventana.percentil(0.95));
+        assertEquals(256, ventana.percentil(1.0));
+
+        // Las 100 siguientes reemplazan a las más viejas
+        for (int i = 0; i < 100; i++) {
+            ventana.registrar(1_000);
+        }
+        assertEquals(1_000, ventana.percentil(0.95));
+        assertEquals(356, ventana.registradas());
+    }
+
+    @Test
+    void ventanaNoPierdeMuestrasConVariosHilos() throws Exception {
+        VentanaLatencias ventana = new VentanaLatencias(256);
+        int hilos = 8;
+        int porHilo = 20_000;
+        try (ExecutorService ejecutor = Executors.newFixedThreadPool(hilos)) {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                long valor = h + 1;
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        ventana.registrar(valor);
+                        if (i % 1_000 == 0) {
+                            long p = ventana.percentil(0.5);
+                            assertTrue(p >= 1 && p <= hilos, "percentil fuera de rango: " + p);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        }
+        assertEquals((long) hilos * porHilo, ventana.registradas());
+        // Toda ranura tiene una muestra real: el mínimo es un valor escrito, nunca un 0 o un valor roto
+        long minimo = ventana.percentil(0.0);
+        long maximo = ventana.percentil(1.0);
+        assertTrue(minimo >= 1 && maximo <= hilos, minimo + ".." + maximo);
+    }
+
+    @Test
+    void deshabilitadoLlamaDirectoEnElMismoHilo() {
+        HedgingEjecutor hedging = new HedgingEjecutor(new SimpleMeterRegistry(), false, 0.05, 0.95, 256, 5);
+        Thread llamador = Thread.currentThread();
+
+        assertEquals(llamador, hedging.ejecutar("dep", Thread::currentThread));
+        hedging.cerrar();
+    }
+
+    @Test
+    void elSegundoIntentoGanaCuandoElPrimeroSuperaElPercentil() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HedgingEjecutor hedging = new HedgingEjecutor(registry, true, 1.0, 0.95, 64, 5);
+        try {
+            for (int i = 0; i < 64; i++) {
+                assertEquals("rapido", hedging.ejecutar("dep", () -> "rapido"));
+            }
+            AtomicInteger intentos = new AtomicInteger();
+            long inicio = System.nanoTime();
+            String resultado = hedging.ejecutar("dep", () -> {
+                if (intentos.incrementAndGet() == 1) {
+                    dormir(2_000);
+                    return "lento";
+                }
+                return "cobertura";
+            });
+            long milisegundos = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+            assertEquals("cobertura", resultado);
+            assertTrue(milisegundos < 1_000, "esperó al primer intento: " + milisegundos + " ms");
+            assertEquals(1.0, registry.get("cuentas.hedging.disparados").counter().count());
+            // ganados se incrementa en el hilo del intento justo después de completar el resultado
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (registry.get("cuentas.hedging.ganados").counter().count() < 1.0 && System.nanoTime() < limite) {
+                dormir(5);
+            }
+            assertEquals(1.0, registry.get("cuentas.hedging.ganados").counter().count());
+        } finally {
+            hedging.cerrar();
+        }
+    }
+
+    private static void dormir(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorConcurrenciaTest {
+
+    private static final double MS = 1_000_000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // Suavizado 1 y tolerancia 1.5 en todas: el límite nuevo es límite * gradiente + raíz(límite)
+
+    @Test
+    void conLatenciaEstableElLimiteSubeEnLaRaiz() {
+        LimitadorConcurrencia limitador = limitador(16, 4, 100);
+
+        // La primera ventana solo fija la media de largo plazo
+        limitador.ajustar(MS, 16);
+        assertEquals(16, limitador.getLimite());
+
+        limitador.ajustar(MS, 16);
+        assertEquals(20, limitador.getLimite());
+    }
+
+    @Test
+    void conLatenciaMayorElLimiteBajaEnProporcion() {
+        LimitadorConcurrencia limitador = limitador(100, 4, 400);
+        limitador.ajustar(MS, 100);
+
+        // Media larga ~1.0033 ms frente a 2 ms: gradiente 1.5 * 1.0033 / 2 = 0.7525
+        limitador.ajustar(2 * MS, 100);
+
+        assertEquals(85, limitador.getLimite());
+    }
+
+    @Test
+    void elGradienteNoBajaDeLaMitad() {
+        LimitadorConcurrencia limitador = limitador(100, 4, 400);
+        limitador.ajustar(MS, 100);
+
+        limitador.ajustar(10 * MS, 100);
+
+        assertEquals(60, limitador.getLimite());
+    }
+
+    @Test
+    void elLimiteQuedaEntreElMinimoYElMaximo() {
+        LimitadorConcurrencia bajando = limitador(10, 8, 100);
+        bajando.ajustar(MS, 10);
+        for (int i = 0; i < 20; i++) {
+            bajando.ajustar(1_000 * MS, 10);
+        }
+        assertEquals(8, bajando.getLimite());
+
+        LimitadorConcurrencia subiendo = limitador(50, 4, 60);
+        subiendo.ajustar(MS, 50);
+        for (int i = 0; i < 20; i++) {
+            subiendo.ajustar(MS, 60);
+        }
+        assertEquals(60, subiendo.getLimite());
+    }
+
+    @Test
+    void conPocaCargaNoAjusta() {
+        LimitadorConcurrencia limitador = limitador(16, 4, 100);
+        limitador.ajustar(MS, 16);
+
+        limitador.ajustar(10 * MS, 7);
+
+        assertEquals(16, limitador.getLimite());
+    }
+
+    @Test
+    void lasEscriturasUsanSoloSuFraccionDelLimite() {
+        LimitadorConcurrencia limitador = limitador(10, 4, 100);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limitador.adquirir(true));
+        }
+        assertFalse(limitador.adquirir(true));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limitador.adquirir(false));
+        }
+        assertFalse(limitador.adquirir(false));
+
+        assertEquals(1.0, registry.get("cuentas.concurrencia.descartadas").tag("tipo", "escritura").counter().count());
+        assertEquals(1.0, registry.get("cuentas.concurrencia.descartadas").tag("tipo", "lectura").counter().count());
+    }
+
+    @Test
+    void liberarCierraLaVentanaYAjusta() {
+        LimitadorConcurrencia limitador = limitador(10, 4, 100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limitador.adquirir(false));
+        }
+
+        // Ventana de 0 ms y una muestra mínima: cada liberación con muestra cierra una ventana.
+        // 10 en curso fija la media; 9 y 8 suben el límite (10 -> 13.2 -> 16.8); con 7 ya es poca carga
+        for (int i = 0; i < 10; i++) {
+            limitador.liberar((long) MS, true);
+        }
+
+        assertEquals(16, limitador.getLimite());
+        assertEquals(0, limitador.getEnCurso());
+    }
+
+    private LimitadorConcurrencia limitador(int inicial, int minimo, int maximo) {
+        return new LimitadorConcurrencia(registry, true, inicial, minimo, maximo, 1.5, 1.0, 0.5, 0, 1, 600);
+    }
+}
@@ -0,0 +1,149 @@
+package com.banquito.core.cuentas.resiliencia;
+
+import com.banquito.core.cuentas.config.LimitesTransaccionesPropiedades;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.excepcion.LimiteExcedidoExcepcion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorTransaccionesTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    // Los instantes parten del reloj real: un rechazo se confirma releyendo System.nanoTime()
+
+    @Test
+    void admiteLaRafagaCompletaYRechazaLaSiguiente() {
+        LimitadorTransacciones.Regla regla = regla(1, 3);
+        long ahora = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, regla.adquirir("0001", ahora));
+        }
+        long espera = regla.adquirir("0001", ahora);
+
+        assertTrue(espera > 0 && espera <= SEGUNDO, "espera " + espera);
+    }
+
+    @Test
+    void recargaUnPermisoPorIntervalo() {
+        LimitadorTransacciones.Regla regla = regla(2, 2);
+        long ahora = System.nanoTime();
+        assertEquals(0, regla.adquirir("0001", ahora));
+        assertEquals(0, regla.adquirir("0001", ahora));
+        assertTrue(regla.adquirir("0001", ahora) > 0);
+
+        // Medio segundo después hay exactamente un permiso nuevo
+        long despues = ahora + SEGUNDO / 2;
+        assertEquals(0, regla.adquirir("0001", despues));
+        assertTrue(regla.adquirir("0001", despues) > 0);
+
+        // Tras un período ocioso largo la cubeta vuelve a estar llena, sin acumular más que la ráfaga
+        long ocioso = ahora + 60 * SEGUNDO;
+        assertEquals(0, regla.adquirir("0001", ocioso));
+        assertEquals(0, regla.adquirir("0001", ocioso));
+        assertTrue(regla.adquirir("0001", ocioso) > 0);
+    }
+
+    @Test
+    void lasClavesNoCompartenCubeta() {
+        LimitadorTransacciones.Regla regla = regla(1, 1);
+        long ahora = System.nanoTime();
+
+        assertEquals(0, regla.adquirir("0001", ahora));
+        assertTrue(regla.adquirir("0001", ahora) > 0);
+        assertEquals(0, regla.adquirir("0002", ahora));
+    }
+
+    @Test
+    void devolverRestituyeElPermiso() {
+        LimitadorTransacciones.Regla regla = regla(1, 1);
+        long ahora = System.nanoTime();
+        assertEquals(0, regla.adquirir("0001", ahora));
+
+        regla.devolver("0001");
+
+        assertEquals(0, regla.adquirir("0001", ahora));
+    }
+
+    @Test
+    void rechazoDelClienteNoConsumeElPermisoDeLaCuenta() {
+        LimitesTransaccionesPropiedades propiedades = habilitadas();
+        propiedades.getCuenta().put(TipoTransaccionEnum.RETIRO, limite(1, 1));
+        propiedades.getCliente().put(TipoTransaccionEnum.RETIRO, limite(1, 1));
+        LimitadorTransacciones limitador = new LimitadorTransacciones(propiedades, new SimpleMeterRegistry());
+
+        limitador.verificar(TipoTransaccionEnum.RETIRO, "0001", "cliente:app-1");
+        LimiteExcedidoExcepcion rechazo = assertThrows(LimiteExcedidoExcepcion.class,
+                () -> limitador.verificar(TipoTransaccionEnum.RETIRO, "0002", "cliente:app-1"));
+        assertEquals(1, rechazo.getReintentarSegundos());
+
+        // La cuenta 0002 conserva su único permiso para otro cliente
+        assertDoesNotThrow(() -> limitador.verificar(TipoTransaccionEnum.RETIRO, "0002", "cliente:app-2"));
+    }
+
+    @Test
+    void rechazoDeLaCuentaNoConsumeElPermisoDelCliente() {
+        LimitesTransaccionesPropiedades propiedades = habilitadas();
+        propiedades.getCuenta().put(TipoTransaccionEnum.RETIRO, limite(1, 1));
+        propiedades.getCliente().put(TipoTransaccionEnum.RETIRO, limite(1, 2));
+        LimitadorTransacciones limitador = new LimitadorTransacciones(propiedades, new SimpleMeterRegistry());
+
+        limitador.verificar(TipoTransaccionEnum.RETIRO, "0001", "cliente:app-1");
+        assertThrows(LimiteExcedidoExcepcion.class,
+                () -> limitador.verificar(TipoTransaccionEnum.RETIRO, "0001", "cliente:app-1"));
+
+        assertDoesNotThrow(() -> limitador.verificar(TipoTransaccionEnum.RETIRO, "0002", "cliente:app-1"));
+    }
+
+    @Test
+    void deshabilitadoNoLimita() {
+        LimitesTransaccionesPropiedades propiedades = new LimitesTransaccionesPropiedades();
+        propiedades.setHabilitado(false);
+        propiedades.getCuenta().put(TipoTransaccionEnum.RETIRO, limite(1, 1));
+        LimitadorTransacciones limitador = new LimitadorTransacciones(propiedades, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 10; i++) {
+            limitador.verificar(TipoTransaccionEnum.RETIRO, "0001", "cliente:app-1");
+        }
+    }
+
+    @Test
+    void sinClienteIdentificadoSoloLimitaLaCuenta() {
+        LimitesTransaccionesPropiedades propiedades = habilitadas();
+        propiedades.getCuenta().put(TipoTransaccionEnum.RETIRO, limite(1, 1));
+        propiedades.getCliente().put(TipoTransaccionEnum.RETIRO, limite(1, 1));
+        LimitadorTransacciones limitador = new LimitadorTransacciones(propiedades, new SimpleMeterRegistry());
+
+        // Peticiones anónimas de cuentas distintas no comparten la cubeta de un cliente
+        limitador.verificar(TipoTransaccionEnum.RETIRO, "0001", null);
+        assertDoesNotThrow(() -> limitador.verificar(TipoTransaccionEnum.RETIRO, "0002", null));
+        assertThrows(LimiteExcedidoExcepcion.class,
+                () -> limitador.verificar(TipoTransaccionEnum.RETIRO, "0001", null));
+    }
+
+    private static LimitesTransaccionesPropiedades habilitadas() {
+        LimitesTransaccionesPropiedades propiedades = new LimitesTransaccionesPropiedades();
+        propiedades.setHabilitado(true);
+        return propiedades;
+    }
+
+    private static LimitadorTransacciones.Regla regla(double tasa, int rafaga) {
+        return new LimitadorTransacciones.Regla(tasa, rafaga, 1000, Counter.builder("prueba").register(new SimpleMeterRegistry()));
+    }
+
+    private static LimitesTransaccionesPropiedades.Limite limite(double tasa, int rafaga) {
+        LimitesTransaccionesPropiedades.Limite limite = new LimitesTransaccionesPropiedades.Limite();
+        limite.setTasa(tasa);
+        limite.setRafaga(rafaga);
+        return limite;
+    }
+}
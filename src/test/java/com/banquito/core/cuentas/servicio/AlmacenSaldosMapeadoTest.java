@@ -0,0 +1,256 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.servicio.AlmacenSaldos.EntradaSaldo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlmacenSaldosMapeadoTest {
+
+    // Diseño del archivo (ver AlmacenSaldosMapeado): cabecera de 4 KiB y ranuras de 64 bytes
+    private static final int CABECERA = 4096;
+    private static final int RANURA = 64;
+    private static final int SECUENCIA = 8;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void guardaYLeeTodosLosCampos() throws Exception {
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            Instant fecha = Instant.ofEpochMilli(1_700_000_000_123L);
+            almacen.guardar(SaldoCuentaDTO.builder()
+                    .numeroCuenta("0000000001")
+                    .saldoDisponibleCentavos(150)
+                    .saldoContableCentavos(-25)
+                    .version(7L)
+                    .estado(EstadoCuentaClienteEnum.BLOQUEADO)
+                    .idCuenta(0)
+                    .fechaActualizacion(fecha)
+                    .build(), 42);
+            almacen.guardar(SaldoCuentaDTO.builder().numeroCuenta("0000000002").build(), 43);
+
+            EntradaSaldo uno = almacen.leer("0000000001");
+            assertEquals(42, uno.confirmadoMs());
+            assertEquals(150, uno.saldo().getSaldoDisponibleCentavos());
+            assertEquals(-25, uno.saldo().getSaldoContableCentavos());
+            assertEquals(7L, uno.saldo().getVersion());
+            assertEquals(EstadoCuentaClienteEnum.BLOQUEADO, uno.saldo().getEstado());
+            assertEquals(0, uno.saldo().getIdCuenta());
+            assertEquals(fecha, uno.saldo().getFechaActualizacion());
+
+            SaldoCuentaDTO dos = almacen.leer("0000000002").saldo();
+            assertNull(dos.getVersion());
+            assertNull(dos.getEstado());
+            assertNull(dos.getIdCuenta());
+            assertNull(dos.getFechaActualizacion());
+            assertEquals(2, almacen.tamano());
+        }
+    }
+
+    @Test
+    void unaVersionAnteriorNoPisaLaVigente() throws Exception {
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            almacen.guardar(saldo("0000000001", 500, 5L), 1);
+
+            SaldoCuentaDTO vigente = almacen.guardar(saldo("0000000001", 100, 4L), 2);
+
+            assertEquals(500, vigente.getSaldoDisponibleCentavos());
+            assertEquals(500, almacen.leer("0000000001").saldo().getSaldoDisponibleCentavos());
+            assertEquals(1, almacen.leer("0000000001").confirmadoMs());
+        }
+    }
+
+    @Test
+    void numerosQueNoSonDeDiezDigitosNoSeGuardan() throws Exception {
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            SaldoCuentaDTO corto = saldo("123", 1, 1L);
+
+            assertSame(corto, almacen.guardar(corto, 1));
+            almacen.guardar(saldo("12345678a0", 1, 1L), 1);
+
+            assertNull(almacen.leer("123"));
+            assertNull(almacen.leer("12345678a0"));
+            assertEquals(0, almacen.tamano());
+        }
+    }
+
+    @Test
+    void lasLecturasConcurrentesNuncaVenUnaRanuraAMedioEscribir() throws Exception {
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            almacen.guardar(saldo("0000000001", 0, 0L), 1);
+            AtomicBoolean fin = new AtomicBoolean();
+            AtomicReference<String> error = new AtomicReference<>();
+            long[] lecturas = new long[3];
+
+            Thread escritor = Thread.ofPlatform().start(() -> {
+                // Cada escritura deja disponible == contable == version == confirmado
+                for (long v = 1; !fin.get(); v++) {
+                    almacen.guardar(SaldoCuentaDTO.builder()
+                            .numeroCuenta("0000000001")
+                            .saldoDisponibleCentavos(v)
+                            .saldoContableCentavos(v)
+                            .version(v)
+                            .build(), v);
+                }
+            });
+            List<Thread> lectores = new ArrayList<>();
+            for (int t = 0; t < lecturas.length; t++) {
+                int indice = t;
+                lectores.add(Thread.ofPlatform().start(() -> {
+                    long anterior = 0;
+                    while (!fin.get()) {
+                        EntradaSaldo entrada = almacen.leer("0000000001");
+                        SaldoCuentaDTO s = entrada.saldo();
+                        long v = s.getSaldoDisponibleCentavos();
+                        if (s.getSaldoContableCentavos() != v || s.getVersion() != v || entrada.confirmadoMs() != v) {
+                            error.compareAndSet(null, "lectura mezclada: " + s + " confirmado " + entrada.confirmadoMs());
+                        }
+                        if (v < anterior) {
+                            error.compareAndSet(null, "la versión retrocedió de " + anterior + " a " + v);
+                        }
+                        anterior = v;
+                        lecturas[indice]++;
+                    }
+                }));
+            }
+            Thread.sleep(300);
+            fin.set(true);
+            escritor.join();
+            for (Thread lector : lectores) {
+                lector.join();
+            }
+
+            assertNull(error.get(), error.get());
+            for (long n : lecturas) {
+                assertTrue(n > 0);
+            }
+        }
+    }
+
+    @Test
+    void recuperaLasCuentasTrasUnCierreLimpio() throws Exception {
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            for (int i = 0; i < 100; i++) {
+                almacen.guardar(saldo(numero(i), i * 100L, (long) i), 1000 + i);
+            }
+        }
+
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            assertEquals(100, almacen.recuperadas());
+            assertEquals(100, almacen.tamano());
+            for (int i = 0; i < 100; i++) {
+                EntradaSaldo entrada = almacen.leer(numero(i));
+                assertEquals(i * 100L, entrada.saldo().getSaldoDisponibleCentavos());
+                assertEquals(1000 + i, entrada.confirmadoMs());
+            }
+        }
+    }
+
+    @Test
+    void trasUnaCaidaLaRanuraAMedioEscribirQuedaSinConfirmar() throws Exception {
+        // La instancia "caída" nunca se cierra: el archivo queda marcado sucio
+        AlmacenSaldosMapeado caido = abrir(1000);
+        for (int i = 0; i < 10; i++) {
+            caido.guardar(saldo(numero(i), 100, 1L), 500);
+        }
+        ponerSecuenciaImpar(AlmacenSaldosMapeado.clave(numero(3)));
+
+        try (AlmacenSaldosMapeado almacen = abrir(1000)) {
+            assertEquals(10, almacen.recuperadas());
+            // Confirmado en 0: el servicio la recarga de la BD
+            assertEquals(0, almacen.leer(numero(3)).confirmadoMs());
+            assertEquals(500, almacen.leer(numero(4)).confirmadoMs());
+            // La ranura reparada vuelve a aceptar escrituras
+            almacen.guardar(saldo(numero(3), 700, 2L), 900);
+            assertEquals(700, almacen.leer(numero(3)).saldo().getSaldoDisponibleCentavos());
+        }
+    }
+
+    @Test
+    void llenoRechazaAltasPeroActualizaLasExistentes() throws Exception {
+        try (AlmacenSaldosMapeado almacen = new AlmacenSaldosMapeado(directorio.resolve("saldos.dat"), 4, 0.5)) {
+            for (int i = 0; i < 10; i++) {
+                almacen.guardar(saldo(numero(i), 1, 1L), 1);
+            }
+            assertEquals(4, almacen.tamano());
+            assertNull(almacen.leer(numero(9)));
+
+            almacen.guardar(saldo(numero(0), 2, 2L), 2);
+            assertEquals(2, almacen.leer(numero(0)).saldo().getSaldoDisponibleCentavos());
+        }
+    }
+
+    @Test
+    void otraCapacidadDescartaElArchivoYLoCreaVacio() throws Exception {
+        try (AlmacenSaldosMapeado almacen = abrir(100)) {
+            for (int i = 0; i < 50; i++) {
+                almacen.guardar(saldo(numero(i), 1, 1L), 1);
+            }
+        }
+
+        try (AlmacenSaldosMapeado almacen = abrir(10_000)) {
+            assertEquals(0, almacen.recuperadas());
+            assertNull(almacen.leer(numero(0)));
+            for (int i = 0; i < 5_000; i++) {
+                almacen.guardar(saldo(numero(i), i, 1L), 1);
+            }
+            assertEquals(5_000, almacen.tamano());
+            assertEquals(4_999, almacen.leer(numero(4_999)).saldo().getSaldoDisponibleCentavos());
+        }
+    }
+
+    private AlmacenSaldosMapeado abrir(long cuentas) throws Exception {
+        return new AlmacenSaldosMapeado(directorio.resolve("saldos.dat"), cuentas, 0.75);
+    }
+
+    /** Deja la ranura de la clave como si la escritura se hubiera cortado a la mitad. */
+    private void ponerSecuenciaImpar(long clave) throws Exception {
+        try (FileChannel canal = FileChannel.open(directorio.resolve("saldos.dat"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer ranura = ByteBuffer.allocate(RANURA).order(ByteOrder.nativeOrder());
+            for (long posicion = CABECERA; posicion < canal.size(); posicion += RANURA) {
+                ranura.clear();
+                canal.read(ranura, posicion);
+                if (ranura.getLong(0) == clave) {
+                    ranura.clear();
+                    ranura.putLong(0, ranura.getLong(SECUENCIA) | 1);
+                    canal.write(ranura.limit(8), posicion + SECUENCIA);
+                    return;
+                }
+            }
+        }
+        throw new AssertionError("clave no encontrada en el archivo");
+    }
+
+    private static SaldoCuentaDTO saldo(String numero, long disponible, Long version) {
+        return SaldoCuentaDTO.builder()
+                .numeroCuenta(numero)
+                .saldoDisponibleCentavos(disponible)
+                .saldoContableCentavos(disponible)
+                .estado(EstadoCuentaClienteEnum.ACTIVO)
+                .version(version)
+                .build();
+    }
+
+    private static String numero(int i) {
+        return String.format("%010d", 2_000_000_000L + i);
+    }
+}
@@ -0,0 +1,174 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TasaInteresDTO;
+import com.banquito.core.cuentas.enums.BaseCalculoTasaEnum;
+import com.banquito.core.cuentas.enums.FrecuenciaEnum;
+import com.banquito.core.cuentas.enums.MetodoCalculoTasaEnum;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalculoInteresTest {
+
+    @Test
+    void base30_360ElDia31NoDevenga() {
+        CalculoInteres calculo = calculo("3.6", BaseCalculoTasaEnum.BASE_30_360, MetodoCalculoTasaEnum.SALDO_DIARIO,
+                FrecuenciaEnum.MENSUAL);
+
+        assertEquals(1, calculo.dias(LocalDate.of(2025, 1, 30)));
+        assertEquals(0, calculo.dias(LocalDate.of(2025, 1, 31)));
+        assertEquals(1, calculo.dias(LocalDate.of(2025, 2, 1)));
+        assertEquals(1, calculo.dias(LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    void base30_360FebreroCompletaTreintaDiasAlPasarAMarzo() {
+        CalculoInteres calculo = calculo("3.6", BaseCalculoTasaEnum.BASE_30_360, MetodoCalculoTasaEnum.SALDO_DIARIO,
+                FrecuenciaEnum.MENSUAL);
+
+        assertEquals(3, calculo.dias(LocalDate.of(2025, 3, 1)));
+        assertEquals(2, calculo.dias(LocalDate.of(2024, 3, 1)));
+        assertEquals(30, diasDelMes(calculo, 2025, 2));
+        assertEquals(30, diasDelMes(calculo, 2024, 2));
+        assertEquals(30, diasDelMes(calculo, 2025, 1));
+        assertEquals(30, diasDelMes(calculo, 2025, 4));
+    }
+
+    @Test
+    void base31_365DevengaCadaDia() {
+        CalculoInteres calculo = calculo("3.65", BaseCalculoTasaEnum.BASE_31_365, MetodoCalculoTasaEnum.SALDO_DIARIO,
+                FrecuenciaEnum.MENSUAL);
+
+        assertEquals(1, calculo.dias(LocalDate.of(2025, 1, 31)));
+        assertEquals(1, calculo.dias(LocalDate.of(2025, 3, 1)));
+        assertEquals(31, diasDelMes(calculo, 2025, 1));
+        assertEquals(28, diasDelMes(calculo, 2025, 2));
+    }
+
+    @Test
+    void saldoDiarioDevengaTasaSobreBaseConSeisDecimales() {
+        CalculoInteres base365 = calculo("3.65", BaseCalculoTasaEnum.BASE_31_365,
+                MetodoCalculoTasaEnum.SALDO_DIARIO, FrecuenciaEnum.MENSUAL);
+        CalculoInteres base360 = calculo("3.6", BaseCalculoTasaEnum.BASE_30_360,
+                MetodoCalculoTasaEnum.SALDO_DIARIO, FrecuenciaEnum.MENSUAL);
+
+        assertEquals(new BigDecimal("0.100000"), base365.interes(100000, 100000, 1, 1));
+        assertEquals(new BigDecimal("0.100000"), base360.interes(100000, 100000, 1, 1));
+        assertEquals(new BigDecimal("0.300000"), base360.interes(100000, 100000, 1, 3));
+        assertEquals(new BigDecimal("0.000001"), base365.interes(1, 1, 1, 1));
+    }
+
+    @Test
+    void redondeaAlParMasCercano() {
+        // Factor diario 1.825 / 100 / 365 = 0.00005: cada centavo devenga 0.0000005
+        CalculoInteres calculo = calculo("1.825", BaseCalculoTasaEnum.BASE_31_365,
+                MetodoCalculoTasaEnum.SALDO_DIARIO, FrecuenciaEnum.MENSUAL);
+
+        assertEquals(new BigDecimal("0.000000"), calculo.interes(1, 1, 1, 1));
+        assertEquals(new BigDecimal("0.000002"), calculo.interes(3, 3, 1, 1));
+        assertEquals(new BigDecimal("0.000002"), calculo.interes(5, 5, 1, 1));
+        assertEquals(new BigDecimal("0.000004"), calculo.interes(7, 7, 1, 1));
+    }
+
+    @Test
+    void tasaConDivisionInexactaNoPierdePrecisionAntesDeRedondear() {
+        // 5 / 100 / 365 no es exacto; 1.000.000,00 * 0.05 / 365 = 136.986301369...
+        CalculoInteres calculo = calculo("5", BaseCalculoTasaEnum.BASE_31_365,
+                MetodoCalculoTasaEnum.SALDO_DIARIO, FrecuenciaEnum.MENSUAL);
+
+        assertEquals(new BigDecimal("136.986301"), calculo.interes(100_000_000L, 100_000_000L, 1, 1));
+    }
+
+    @Test
+    void saldoPromedioUsaElAcumuladoDelPeriodo() {
+        CalculoInteres calculo = calculo("3.65", BaseCalculoTasaEnum.BASE_31_365,
+                MetodoCalculoTasaEnum.SALDO_PROMEDIO, FrecuenciaEnum.MENSUAL);
+
+        // Saldos de 500, 1000 y 1500: promedio 1000 aunque el saldo del día sea 1500
+        assertEquals(new BigDecimal("0.100000"), calculo.interes(150000, 300000, 3, 1));
+        // Promedio 1000/3 = 333.33...: se redondea solo al final
+        assertEquals(new BigDecimal("0.033333"), calculo.interes(0, 100000, 3, 1));
+    }
+
+    @Test
+    void saldoNoPositivoODiaSinDiasNoDevenga() {
+        CalculoInteres diario = calculo("3.65", BaseCalculoTasaEnum.BASE_31_365,
+                MetodoCalculoTasaEnum.SALDO_DIARIO, FrecuenciaEnum.MENSUAL);
+        CalculoInteres promedio = calculo("3.65", BaseCalculoTasaEnum.BASE_31_365,
+                MetodoCalculoTasaEnum.SALDO_PROMEDIO, FrecuenciaEnum.MENSUAL);
+
+        assertEquals(new BigDecimal("0.000000"), diario.interes(-100000, 0, 1, 1));
+        assertEquals(new BigDecimal("0.000000"), diario.interes(0, 0, 1, 1));
+        assertEquals(new BigDecimal("0.000000"), diario.interes(100000, 100000, 1, 0));
+        assertEquals(new BigDecimal("0.000000"), promedio.interes(100000, 0, 1, 1));
+        assertEquals(new BigDecimal("0.000000"), promedio.interes(100000, 100000, 0, 1));
+    }
+
+    @Test
+    void iniciaPeriodoSegunLaFrecuencia() {
+        LocalDate primeroDeEnero = LocalDate.of(2025, 1, 1);
+        LocalDate primeroDeJulio = LocalDate.of(2025, 7, 1);
+        LocalDate primeroDeMarzo = LocalDate.of(2025, 3, 1);
+        LocalDate quinceDeMarzo = LocalDate.of(2025, 3, 15);
+
+        CalculoInteres diaria = calculo(FrecuenciaEnum.DIARIA);
+        assertTrue(diaria.iniciaPeriodo(quinceDeMarzo));
+
+        CalculoInteres mensual = calculo(FrecuenciaEnum.MENSUAL);
+        assertTrue(mensual.iniciaPeriodo(primeroDeMarzo));
+        assertFalse(mensual.iniciaPeriodo(quinceDeMarzo));
+
+        CalculoInteres semestral = calculo(FrecuenciaEnum.SEMESTRAL);
+        assertTrue(semestral.iniciaPeriodo(primeroDeEnero));
+        assertTrue(semestral.iniciaPeriodo(primeroDeJulio));
+        assertFalse(semestral.iniciaPeriodo(primeroDeMarzo));
+
+        CalculoInteres anual = calculo(FrecuenciaEnum.ANUAL);
+        assertTrue(anual.iniciaPeriodo(primeroDeEnero));
+        assertFalse(anual.iniciaPeriodo(primeroDeJulio));
+    }
+
+    @Test
+    void tasaIncompletaSeRechaza() {
+        TasaInteresDTO sinBase = TasaInteresDTO.builder()
+                .id("T1")
+                .tasa(new BigDecimal("3.6"))
+                .metodoCalculo(MetodoCalculoTasaEnum.SALDO_DIARIO)
+                .frecuenciaCapitalizacion(FrecuenciaEnum.MENSUAL)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> new CalculoInteres(sinBase));
+        assertThrows(IllegalArgumentException.class, () -> new CalculoInteres(null));
+    }
+
+    private static int diasDelMes(CalculoInteres calculo, int anio, int mes) {
+        LocalDate desde = LocalDate.of(anio, mes, 1);
+        LocalDate hasta = desde.plusMonths(1);
+        int dias = 0;
+        for (LocalDate fecha = desde.plusDays(1); !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            dias += calculo.dias(fecha);
+        }
+        return dias;
+    }
+
+    private static CalculoInteres calculo(FrecuenciaEnum frecuencia) {
+        return calculo("3.6", BaseCalculoTasaEnum.BASE_30_360, MetodoCalculoTasaEnum.SALDO_PROMEDIO, frecuencia);
+    }
+
+    private static CalculoInteres calculo(String tasa, BaseCalculoTasaEnum base, MetodoCalculoTasaEnum metodo,
+                                          FrecuenciaEnum frecuencia) {
+        return new CalculoInteres(TasaInteresDTO.builder()
+                .id("T1")
+                .tasa(new BigDecimal(tasa))
+                .baseCalculo(base)
+                .metodoCalculo(metodo)
+                .frecuenciaCapitalizacion(frecuencia)
+                .build());
+    }
+}
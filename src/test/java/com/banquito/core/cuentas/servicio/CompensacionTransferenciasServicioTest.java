@@ -0,0 +1,142 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.producer.TransaccionesProducer;
+import com.banquito.core.cuentas.resiliencia.ArriendoTareas;
+import com.banquito.core.cuentas.servicio.EstadoTransaccionServicio.DepositoPorReenviar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CompensacionTransferenciasServicioTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TransaccionesProducer producer = mock(TransaccionesProducer.class);
+    private final EstadoTransaccionServicio estados = mock(EstadoTransaccionServicio.class);
+    private final ArriendoTareas arriendos = mock(ArriendoTareas.class);
+    private CompensacionTransferenciasServicio compensacion;
+
+    @BeforeEach
+    void preparar() {
+        when(arriendos.tomar(CompensacionTransferenciasServicio.TAREA)).thenReturn(true);
+        compensacion = new CompensacionTransferenciasServicio(producer, estados, arriendos, registry, 3);
+    }
+
+    @Test
+    void reintentaHastaPublicarElDepositoYQuitaLaMarca() {
+        DepositoPorReenviar pendiente = pendiente("tx-1", EstadoEspecificoTransaccionEnum.PENDIENTE);
+        when(estados.depositosPorReenviar()).thenReturn(List.of(pendiente));
+        doThrow(new RuntimeException("broker caído"))
+                .doNothing()
+                .when(producer).enviarDeposito(pendiente.deposito(), "tx-1");
+
+        compensacion.reintentar();
+        verify(estados, never()).registrarDepositoReenviado(any(), any());
+        assertEquals(1.0, registry.get("cuentas.transferencias.depositos.pendientes").gauge().value());
+
+        compensacion.reintentar();
+        verify(producer, times(2)).enviarDeposito(pendiente.deposito(), "tx-1");
+        verify(estados).registrarDepositoReenviado(eq("tx-1"), startsWith("Depósito de la transferencia reenviado"));
+    }
+
+    @Test
+    void losPendientesSalenDeLaBdYSobrevivenAUnReinicio() {
+        DepositoPorReenviar pendiente = pendiente("tx-1", EstadoEspecificoTransaccionEnum.PENDIENTE);
+        when(estados.depositosPorReenviar()).thenReturn(List.of(pendiente));
+
+        // Instancia nueva que nunca vio la transferencia: la primera ronda la retoma
+        CompensacionTransferenciasServicio tras = new CompensacionTransferenciasServicio(producer, estados,
+                arriendos, new SimpleMeterRegistry(), 3);
+        tras.reintentar();
+
+        verify(producer).enviarDeposito(pendiente.deposito(), "tx-1");
+        verify(estados).registrarDepositoReenviado(eq("tx-1"), any());
+    }
+
+    @Test
+    void transferenciaRechazadaNoReenviaElDeposito() {
+        when(estados.depositosPorReenviar()).thenReturn(
+                List.of(pendiente("tx-1", EstadoEspecificoTransaccionEnum.RECHAZADO)));
+
+        compensacion.reintentar();
+
+        verifyNoInteractions(producer);
+        verify(estados).registrarDepositoReenviado("tx-1", null);
+    }
+
+    @Test
+    void alAgotarLosIntentosQuitaLaMarcaConElMotivo() {
+        DepositoPorReenviar pendiente = pendiente("tx-1", EstadoEspecificoTransaccionEnum.PENDIENTE);
+        when(estados.depositosPorReenviar()).thenReturn(List.of(pendiente));
+        doThrow(new RuntimeException("broker caído")).when(producer).enviarDeposito(any(), eq("tx-1"));
+
+        compensacion.reintentar();
+        compensacion.reintentar();
+        verify(estados, never()).registrarDepositoReenviado(any(), any());
+
+        compensacion.reintentar();
+        verify(estados).registrarDepositoReenviado(eq("tx-1"), startsWith("Depósito sin enviar tras 3 intentos"));
+    }
+
+    @Test
+    void sinElArriendoNoReenvia() {
+        when(estados.depositosPorReenviar()).thenReturn(
+                List.of(pendiente("tx-1", EstadoEspecificoTransaccionEnum.PENDIENTE)));
+        when(arriendos.tomar(CompensacionTransferenciasServicio.TAREA)).thenReturn(false);
+
+        compensacion.reintentar();
+
+        verifyNoInteractions(producer);
+        verify(estados, never()).registrarDepositoReenviado(any(), any());
+    }
+
+    @Test
+    void sinPendientesNiSiquieraTomaElArriendo() {
+        when(estados.depositosPorReenviar()).thenReturn(List.of());
+
+        compensacion.reintentar();
+
+        verifyNoInteractions(arriendos, producer);
+    }
+
+    @Test
+    void programarMarcaLaTransferenciaConSuDeposito() {
+        TransaccionesSolicitudDTO deposito = deposito();
+        doNothing().when(estados).registrarEnvioParcial(any(), any(), any());
+
+        compensacion.programar("tx-1", deposito, "broker caído");
+
+        verify(estados).registrarEnvioParcial(eq("tx-1"), eq(deposito), startsWith("Depósito de la transferencia"));
+    }
+
+    private static DepositoPorReenviar pendiente(String transaccionId, EstadoEspecificoTransaccionEnum estado) {
+        return new DepositoPorReenviar(transaccionId, estado, deposito());
+    }
+
+    private static TransaccionesSolicitudDTO deposito() {
+        return TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen("2222222222")
+                .tipoTransaccion(TipoTransaccionEnum.DEPOSITO)
+                .monto(new BigDecimal("25.00"))
+                .descripcion("TRANSFERENCIA DE 1111111111 - Pago")
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.resiliencia.ArriendoTareas;
+import com.banquito.core.cuentas.servicio.ConciliacionSaldosServicio.ResumenConciliacion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conciliación contra H2 en modo PostgreSQL, con tramos de 2 filas en 2 hilos para
+ * recorrer varios rangos y tramos.
+ */
+class ConciliacionSaldosIntegracionTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2026, 10, 18);
+
+    @TempDir
+    Path directorio;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void preparar() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE SCHEMA account");
+        jdbc.execute("CREATE TABLE account.cuentas_clientes (id_cuenta_cliente INT PRIMARY KEY, "
+                + "numero_cuenta VARCHAR(10), saldo_contable NUMERIC(15,2), saldo_disponible NUMERIC(15,2))");
+        jdbc.execute("CREATE TABLE account.estado_transacciones (id_transaccion VARCHAR(36) PRIMARY KEY, "
+                + "tipo_transaccion VARCHAR(15), numero_cuenta_origen VARCHAR(10), monto NUMERIC(15,2), "
+                + "estado VARCHAR(15))");
+        jdbc.execute("CREATE TABLE account.arriendos_tareas (nombre VARCHAR(50) PRIMARY KEY, "
+                + "propietario VARCHAR(100) NOT NULL, expira TIMESTAMP NOT NULL, fecha_actualizacion TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void apagar() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    void lasRetencionesDeDebitosEnVueloCuadranYElRestoSeReporta() throws Exception {
+        // Cuadrada sin movimientos
+        cuenta(1, "0000000001", "100.00", "100.00");
+        // Retiro y cobro de comisión en cola: disponible = contable - 25.35
+        cuenta(2, "0000000002", "100.00", "74.65");
+        transaccion("RETIRO", "0000000002", "25.00", "ENVIADO");
+        transaccion("RETIRO", "0000000002", "0.35", "PENDIENTE");
+        // Depósitos en cola y transacciones terminadas no retienen
+        cuenta(3, "0000000003", "50.00", "50.00");
+        transaccion("DEPOSITO", "0000000003", "10.00", "ENVIADO");
+        transaccion("TRANSFERENCIA", "0000000003", "10.00", "COMPLETADO");
+        // Retenido sin nada en vuelo
+        cuenta(4, "0000000004", "80.00", "60.00");
+        // En vuelo sin retención
+        cuenta(5, "0000000005", "80.00", "80.00");
+        transaccion("TRANSFERENCIA", "0000000005", "15.00", "ENVIADO");
+        // Disponible mayor que contable
+        cuenta(6, "0000000006", "10.00", "12.00");
+        cuenta(7, "0000000007", "0.00", "0.00");
+
+        ResumenConciliacion resumen = conciliacion(new ArriendoTareas(dataSource, 600_000)).conciliar(FECHA);
+
+        assertEquals(7, resumen.filas());
+        assertEquals(3, resumen.descuadres());
+        List<String> lineas = Files.readAllLines(resumen.reporte());
+        assertEquals("id_cuenta_cliente,numero_cuenta,saldo_contable,saldo_disponible,debitos_pendientes,"
+                + "disponible_esperado,diferencia,motivo", lineas.get(0));
+        assertEquals(List.of(
+                        "4,0000000004,80.00,60.00,0.00,80.00,-20.00,RETENCION_SIN_PENDIENTE",
+                        "5,0000000005,80.00,80.00,15.00,65.00,15.00,PENDIENTE_SIN_RETENCION",
+                        "6,0000000006,10.00,12.00,0.00,10.00,2.00,DISPONIBLE_MAYOR_CONTABLE"),
+                lineas.subList(1, lineas.size()).stream().sorted().toList());
+        assertTrue(Files.notExists(directorio.resolve("conciliacion-" + FECHA + ".csv.parcial")));
+    }
+
+    @Test
+    void conElArriendoEnOtraInstanciaNoConcilia() {
+        cuenta(1, "0000000001", "100.00", "90.00");
+        assertTrue(new ArriendoTareas(dataSource, 600_000).tomar(ConciliacionSaldosServicio.TAREA));
+
+        assertNull(conciliacion(new ArriendoTareas(dataSource, 600_000)).conciliar(FECHA));
+        assertTrue(Files.notExists(directorio.resolve("conciliacion-" + FECHA + ".csv")));
+    }
+
+    private ConciliacionSaldosServicio conciliacion(ArriendoTareas arriendos) {
+        return new ConciliacionSaldosServicio(dataSource, new DataSourceTransactionManager(dataSource), arriendos,
+                new SimpleMeterRegistry(), true, "America/Guayaquil", directorio.toString(), 2, 2, 2, 10);
+    }
+
+    private void cuenta(int id, String numero, String contable, String disponible) {
+        jdbc.update("INSERT INTO account.cuentas_clientes VALUES (?, ?, ?, ?)", id, numero,
+                new BigDecimal(contable), new BigDecimal(disponible));
+    }
+
+    private void transaccion(String tipo, String origen, String monto, String estado) {
+        jdbc.update("INSERT INTO account.estado_transacciones VALUES (?, ?, ?, ?, ?)",
+                UUID.randomUUID().toString(), tipo, origen, new BigDecimal(monto), estado);
+    }
+}
@@ -0,0 +1,243 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.cliente.TasaInteresCliente;
+import com.banquito.core.cuentas.dto.TasaInteresDTO;
+import com.banquito.core.cuentas.enums.BaseCalculoTasaEnum;
+import com.banquito.core.cuentas.enums.FrecuenciaEnum;
+import com.banquito.core.cuentas.enums.MetodoCalculoTasaEnum;
+import com.banquito.core.cuentas.resiliencia.ArriendoTareas;
+import com.banquito.core.cuentas.resiliencia.HedgingEjecutor;
+import com.banquito.core.cuentas.servicio.DevengoInteresesServicio.ResumenDevengo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Devengo contra H2 en modo PostgreSQL: INSERT por lotes, punto de control y
+ * arriendo con el SQL real. Lotes de 3 sobre 7 cuentas: las 1-3 usan la tasa T1
+ * y las 4-7 la T2. Los saldos de cierre de ayer se copian antes de cada prueba.
+ */
+class DevengoInteresesIntegracionTest {
+
+    private static final String ZONA = "America/Guayaquil";
+    private static final LocalDate AYER = LocalDate.now(ZoneId.of(ZONA)).minusDays(1);
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private final TasaInteresCliente tasas = mock(TasaInteresCliente.class);
+    private HedgingEjecutor hedging;
+
+    @BeforeEach
+    void preparar() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE SCHEMA account");
+        jdbc.execute("CREATE TABLE account.cuentas (id_cuenta INT PRIMARY KEY, id_tasa_interes VARCHAR(10))");
+        jdbc.execute("CREATE TABLE account.cuentas_clientes (id_cuenta_cliente INT PRIMARY KEY, id_cuenta INT, "
+                + "estado VARCHAR(15), saldo_contable NUMERIC(15,2))");
+        jdbc.execute("CREATE TABLE account.intereses_devengados (id_interes_devengado SERIAL PRIMARY KEY, "
+                + "id_cuenta_cliente INT NOT NULL, fecha DATE NOT NULL, id_tasa_interes VARCHAR(10) NOT NULL, "
+                + "saldo NUMERIC(15,2) NOT NULL, tasa NUMERIC(9,4) NOT NULL, dias INT NOT NULL, "
+                + "interes NUMERIC(19,6) NOT NULL, saldo_acumulado NUMERIC(21,2) NOT NULL, dias_periodo INT NOT NULL, "
+                + "CONSTRAINT uk_intereses_devengados_cuenta_fecha UNIQUE (id_cuenta_cliente, fecha))");
+        jdbc.execute("CREATE TABLE account.devengo_intereses_control (fecha DATE PRIMARY KEY, estado VARCHAR(15) NOT NULL, "
+                + "ultimo_id_cuenta_cliente INT NOT NULL, filas BIGINT NOT NULL, omitidas BIGINT, "
+                + "fecha_inicio TIMESTAMP NOT NULL, fecha_actualizacion TIMESTAMP NOT NULL, fecha_fin TIMESTAMP)");
+        jdbc.execute("CREATE TABLE account.saldos_cierre (fecha DATE NOT NULL, id_cuenta_cliente INT NOT NULL, "
+                + "saldo_contable NUMERIC(15,2) NOT NULL, PRIMARY KEY (fecha, id_cuenta_cliente))");
+        jdbc.execute("CREATE TABLE account.arriendos_tareas (nombre VARCHAR(50) PRIMARY KEY, "
+                + "propietario VARCHAR(100) NOT NULL, expira TIMESTAMP NOT NULL, fecha_actualizacion TIMESTAMP NOT NULL)");
+
+        jdbc.update("INSERT INTO account.cuentas VALUES (1, 'T1'), (2, 'T2')");
+        for (int id = 1; id <= 7; id++) {
+            jdbc.update("INSERT INTO account.cuentas_clientes VALUES (?, ?, 'ACTIVO', ?)",
+                    id, id <= 3 ? 1 : 2, new BigDecimal("3650.00"));
+        }
+        when(tasas.obtenerDetallePorId("T1")).thenReturn(tasa("T1", "3.65"));
+        when(tasas.obtenerDetallePorId("T2")).thenReturn(tasa("T2", "7.30"));
+        hedging = new HedgingEjecutor(new SimpleMeterRegistry(), false, 0.05, 0.95, 256, 5);
+        assertEquals(7, devengo(new ArriendoTareas(dataSource, 600_000)).registrarSaldosCierre(AYER));
+    }
+
+    @AfterEach
+    void apagar() {
+        jdbc.execute("SHUTDOWN");
+        hedging.cerrar();
+    }
+
+    @Test
+    void devengaTodasLasCuentasPorLotesYCompletaElControl() {
+        DevengoInteresesServicio devengo = devengo(new ArriendoTareas(dataSource, 600_000));
+
+        ResumenDevengo resumen = devengo.devengar(AYER);
+
+        assertEquals(7, resumen.filas());
+        assertEquals(7, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+        // 3650 al 3.65 % base 365: 0.365 diarios; al 7.30 %, 0.73
+        assertEquals(0, new BigDecimal("0.365").compareTo(interes(1)));
+        assertEquals(0, new BigDecimal("0.73").compareTo(interes(7)));
+        assertEquals("COMPLETADO", control("estado"));
+        assertEquals(7, ((Number) control("ultimo_id_cuenta_cliente")).intValue());
+        assertEquals(7L, ((Number) control("filas")).longValue());
+
+        // Una fecha completada no se vuelve a devengar
+        assertEquals(0, devengo.devengar(AYER).filas());
+        assertEquals(7, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+    }
+
+    @Test
+    void trasUnFalloRetomaDesdeElUltimoLoteConfirmado() {
+        when(tasas.obtenerDetallePorId("T2"))
+                .thenThrow(new IllegalStateException("configuración caída"))
+                .thenReturn(tasa("T2", "7.30"));
+        DevengoInteresesServicio devengo = devengo(new ArriendoTareas(dataSource, 600_000));
+
+        assertThrows(IllegalStateException.class, () -> devengo.devengar(AYER));
+        assertEquals(3, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+        assertEquals("EN_CURSO", control("estado"));
+        assertEquals(3, ((Number) control("ultimo_id_cuenta_cliente")).intValue());
+
+        ResumenDevengo resumen = devengo.devengar(AYER);
+
+        assertEquals(4, resumen.filas());
+        assertEquals(7, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+        assertEquals("COMPLETADO", control("estado"));
+    }
+
+    @Test
+    void siPierdeElArriendoRevierteElLoteYSeDetiene() {
+        ArriendoTareas arriendos = spy(new ArriendoTareas(dataSource, 600_000));
+        doCallRealMethod().doReturn(false).when(arriendos).renovar(DevengoInteresesServicio.TAREA);
+
+        assertThrows(IllegalStateException.class, () -> devengo(arriendos).devengar(AYER));
+
+        assertEquals(3, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+        assertEquals(3, ((Number) control("ultimo_id_cuenta_cliente")).intValue());
+        assertEquals(3L, ((Number) control("filas")).longValue());
+    }
+
+    @Test
+    void conElArriendoEnOtraInstanciaNoEscribe() {
+        assertEquals(true, new ArriendoTareas(dataSource, 600_000).tomar(DevengoInteresesServicio.TAREA));
+
+        ResumenDevengo resumen = devengo(new ArriendoTareas(dataSource, 600_000)).devengar(AYER);
+
+        assertEquals(0, resumen.filas());
+        assertEquals(0, contar("SELECT COUNT(*) FROM account.intereses_devengados"));
+        assertEquals(0, contar("SELECT COUNT(*) FROM account.devengo_intereses_control"));
+    }
+
+    @Test
+    void unaTasaIncompletaOmiteSusCuentasYElRestoSeDevenga() {
+        when(tasas.obtenerDetallePorId("T2")).thenReturn(tasa("T2", null));
+
+        ResumenDevengo resumen = devengo(new ArriendoTareas(dataSource, 600_000)).devengar(AYER);
+
+        assertEquals(3, resumen.filas());
+        assertEquals(Map.of("T2", 4L), resumen.omitidas());
+        assertEquals(3, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+        assertEquals("COMPLETADO", control("estado"));
+        assertEquals(7, ((Number) control("ultimo_id_cuenta_cliente")).intValue());
+        assertEquals(4L, ((Number) control("omitidas")).longValue());
+    }
+
+    @Test
+    void devengaSobreElSaldoDeCierreYNoSobreElActual() {
+        // Movimientos de la madrugada: otro saldo, una cuenta cerrada y una nueva
+        jdbc.update("UPDATE account.cuentas_clientes SET saldo_contable = 7300.00 WHERE id_cuenta_cliente = 1");
+        jdbc.update("UPDATE account.cuentas_clientes SET estado = 'INACTIVO' WHERE id_cuenta_cliente = 7");
+        jdbc.update("INSERT INTO account.cuentas_clientes VALUES (8, 1, 'ACTIVO', 3650.00)");
+
+        ResumenDevengo resumen = devengo(new ArriendoTareas(dataSource, 600_000)).devengar(AYER);
+
+        assertEquals(7, resumen.filas());
+        assertEquals(0, new BigDecimal("0.365").compareTo(interes(1)));
+        assertEquals(0, new BigDecimal("0.73").compareTo(interes(7)));
+        assertEquals(0, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE id_cuenta_cliente = 8"));
+    }
+
+    @Test
+    void sinSaldosDeCierreNoDevengaLaFecha() {
+        LocalDate anteayer = AYER.minusDays(1);
+
+        assertThrows(IllegalStateException.class,
+                () -> devengo(new ArriendoTareas(dataSource, 600_000)).devengar(anteayer));
+
+        assertEquals(0, contar("SELECT COUNT(*) FROM account.intereses_devengados"));
+        assertEquals(0, contar("SELECT COUNT(*) FROM account.devengo_intereses_control"));
+    }
+
+    @Test
+    void losSaldosDeCierreSeCopianUnaVezYSePurganFueraDeLaRetencion() {
+        jdbc.update("INSERT INTO account.saldos_cierre VALUES (?, 1, 1.00)", AYER.minusDays(8));
+        DevengoInteresesServicio devengo = devengo(new ArriendoTareas(dataSource, 600_000));
+
+        assertEquals(0, devengo.registrarSaldosCierre(AYER));
+        assertEquals(7, devengo.registrarSaldosCierre(AYER.minusDays(1)));
+
+        assertEquals(7, contar("SELECT COUNT(*) FROM account.saldos_cierre WHERE fecha = ?", AYER));
+        assertEquals(0, contar("SELECT COUNT(*) FROM account.saldos_cierre WHERE fecha = ?", AYER.minusDays(8)));
+    }
+
+    @Test
+    void retomaEnOrdenUnaFechaAnteriorQueQuedoAMedias() {
+        LocalDate anteayer = AYER.minusDays(1);
+        DevengoInteresesServicio devengo = devengo(new ArriendoTareas(dataSource, 600_000));
+        devengo.registrarSaldosCierre(anteayer);
+        jdbc.update("INSERT INTO account.devengo_intereses_control VALUES (?, 'EN_CURSO', 0, 0, 0, "
+                + "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, NULL)", anteayer);
+
+        devengo.devengarDiaAnterior();
+
+        assertEquals(7, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", anteayer));
+        assertEquals(7, contar("SELECT COUNT(*) FROM account.intereses_devengados WHERE fecha = ?", AYER));
+        assertEquals(2, contar("SELECT COUNT(*) FROM account.devengo_intereses_control WHERE estado = 'COMPLETADO'"));
+    }
+
+    private DevengoInteresesServicio devengo(ArriendoTareas arriendos) {
+        return new DevengoInteresesServicio(dataSource, new DataSourceTransactionManager(dataSource), tasas, hedging,
+                arriendos, new SimpleMeterRegistry(), true, ZONA, 3, 2, 2, 300_000, 7);
+    }
+
+    private long contar(String sql, Object... argumentos) {
+        return jdbc.queryForObject(sql, Long.class, argumentos);
+    }
+
+    private BigDecimal interes(int idCuentaCliente) {
+        return jdbc.queryForObject("SELECT interes FROM account.intereses_devengados WHERE id_cuenta_cliente = ?",
+                BigDecimal.class, idCuentaCliente);
+    }
+
+    private Object control(String columna) {
+        return jdbc.queryForObject("SELECT " + columna + " FROM account.devengo_intereses_control WHERE fecha = ?",
+                Object.class, AYER);
+    }
+
+    private static TasaInteresDTO tasa(String id, String valor) {
+        return TasaInteresDTO.builder()
+                .id(id)
+                .tasa(valor == null ? null : new BigDecimal(valor))
+                .baseCalculo(BaseCalculoTasaEnum.BASE_31_365)
+                .metodoCalculo(MetodoCalculoTasaEnum.SALDO_DIARIO)
+                .frecuenciaCapitalizacion(FrecuenciaEnum.MENSUAL)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiarioTransaccionesTest {
+
+    private static final int SEGMENTO = 8192;
+    private static final String CUENTA = "1234567890";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void rotaYRecuperaLoEscritoAlReabrir() throws Exception {
+        try (DiarioTransacciones diario = new DiarioTransacciones(directorio, SEGMENTO, 16, 1)) {
+            for (int i = 1; i <= 200; i++) {
+                diario.agregar(registro("tx-" + i), i % 10 == 0, CUENTA);
+            }
+            assertTrue(diario.cantidadSegmentos() > 1);
+        }
+
+        try (DiarioTransacciones diario = new DiarioTransacciones(directorio, SEGMENTO, 16, 1)) {
+            assertEquals(200, diario.ultimaSecuencia());
+            List<RegistroDiario> ultimos = diario.ultimos(CUENTA, 3);
+            assertEquals(List.of("tx-200", "tx-199", "tx-198"),
+                    ultimos.stream().map(RegistroDiario::transaccionId).toList());
+        }
+    }
+
+    @Test
+    void siNoSePuedePrepararElSiguienteSegmentoSeReintenta() throws Exception {
+        // Un directorio con el nombre del segmento 2 hace fallar su creación en segundo plano
+        Path bloqueo = Files.createDirectory(directorio.resolve("diario-000000000002.seg"));
+        try (DiarioTransacciones diario = new DiarioTransacciones(directorio, SEGMENTO, 16, 1)) {
+            int escritos = 0;
+            while (diario.cantidadSegmentos() == 1) {
+                try {
+                    diario.agregar(registro("tx-" + (escritos + 1)), false, CUENTA);
+                    escritos++;
+                } catch (IllegalStateException e) {
+                    break;
+                }
+            }
+            assertThrows(IllegalStateException.class, () -> diario.agregar(registro("tx-x"), false, CUENTA));
+            assertEquals(escritos, diario.ultimaSecuencia());
+
+            Files.delete(bloqueo);
+            long limite = System.nanoTime() + 10_000_000_000L;
+            while (true) {
+                try {
+                    diario.agregar(registro("tx-despues"), false, CUENTA);
+                    break;
+                } catch (IllegalStateException e) {
+                    assertTrue(System.nanoTime() < limite, "El diario no volvió a rotar");
+                    Thread.sleep(50);
+                }
+            }
+            assertEquals(2, diario.cantidadSegmentos());
+            assertEquals(escritos + 1, diario.ultimaSecuencia());
+            assertEquals("tx-despues", diario.ultimos(CUENTA, 1).get(0).transaccionId());
+        }
+    }
+
+    private static RegistroDiario registro(String transaccionId) {
+        TransaccionesSolicitudDTO dto = TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen(CUENTA)
+                .tipoTransaccion(TipoTransaccionEnum.RETIRO)
+                .monto(new BigDecimal("10.00"))
+                .descripcion("Retiro de prueba")
+                .build();
+        return RegistroDiario.aceptada(transaccionId, dto, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,184 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.ResultadoTransaccionDTO;
+import com.banquito.core.cuentas.dto.TransaccionesSolicitudDTO;
+import com.banquito.core.cuentas.enums.EstadoEspecificoTransaccionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.modelo.EstadoTransaccion;
+import com.banquito.core.cuentas.repositorio.EstadoTransaccionRepositorio;
+import com.banquito.core.cuentas.servicio.EstadoTransaccionServicio.DepositoPorReenviar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EstadoTransaccionServicioTest {
+
+    private final Map<String, EstadoTransaccion> filas = new HashMap<>();
+    private EstadoTransaccionServicio servicio;
+
+    @BeforeEach
+    void preparar() {
+        EstadoTransaccionRepositorio repositorio = mock(EstadoTransaccionRepositorio.class);
+        when(repositorio.findById(anyString())).thenAnswer(i -> Optional.ofNullable(filas.get(i.getArgument(0))));
+        when(repositorio.save(any(EstadoTransaccion.class))).thenAnswer(i -> {
+            EstadoTransaccion estado = i.getArgument(0);
+            filas.put(estado.getId(), estado);
+            return estado;
+        });
+        when(repositorio.findTop100ByDepositoPorReenviarTrueOrderByFechaActualizacionAsc()).thenAnswer(i ->
+                filas.values().stream()
+                        .filter(estado -> Boolean.TRUE.equals(estado.getDepositoPorReenviar()))
+                        .sorted(Comparator.comparing(EstadoTransaccion::getFechaActualizacion))
+                        .toList());
+        // TTL 0: cada consulta de un estado intermedio relee la fila
+        servicio = new EstadoTransaccionServicio(repositorio, mock(ApplicationEventPublisher.class), 100, 0);
+    }
+
+    @Test
+    void depositoSeCompletaConSuResultado() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.DEPOSITO));
+        assertEquals(EstadoEspecificoTransaccionEnum.ENVIADO, estado("tx-1"));
+
+        servicio.registrarResultado(resultado("tx-1", null, "PROCESADO"));
+
+        assertEquals(EstadoEspecificoTransaccionEnum.COMPLETADO, estado("tx-1"));
+        assertEquals(0, filas.get("tx-1").getOperacionesPendientes());
+    }
+
+    @Test
+    void transferenciaSeCompletaSoloConLasDosOperacionesDistintas() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+
+        servicio.registrarResultado(resultado("tx-1", "RETIRO", "COMPLETADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.PENDIENTE, estado("tx-1"));
+        assertEquals(1, filas.get("tx-1").getOperacionesPendientes());
+
+        // El mismo RETIRO reentregado no cuenta como el depósito
+        servicio.registrarResultado(resultado("tx-1", "RETIRO", "COMPLETADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.PENDIENTE, estado("tx-1"));
+        assertEquals(1, filas.get("tx-1").getOperacionesPendientes());
+
+        servicio.registrarResultado(resultado("tx-1", "deposito", "PROCESADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.COMPLETADO, estado("tx-1"));
+        assertEquals("DEPOSITO,RETIRO", filas.get("tx-1").getOperacionesConfirmadas());
+    }
+
+    @Test
+    void resultadoDeTransferenciaSinOperacionOConOtraSeIgnora() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+
+        servicio.registrarResultado(resultado("tx-1", null, "COMPLETADO"));
+        servicio.registrarResultado(resultado("tx-1", "PAGO_CHEQUE", "COMPLETADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.ENVIADO, estado("tx-1"));
+        assertEquals(2, filas.get("tx-1").getOperacionesPendientes());
+
+        servicio.registrarEnvio("tx-2", solicitud(TipoTransaccionEnum.RETIRO));
+        servicio.registrarResultado(resultado("tx-2", "DEPOSITO", "COMPLETADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.ENVIADO, estado("tx-2"));
+    }
+
+    @Test
+    void rechazoDeUnaOperacionRechazaLaTransferenciaYLosResultadosPosterioresSeIgnoran() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+        servicio.registrarResultado(resultado("tx-1", "RETIRO", "RECHAZADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.RECHAZADO, estado("tx-1"));
+
+        servicio.registrarResultado(resultado("tx-1", "DEPOSITO", "COMPLETADO"));
+        servicio.registrarResultado(resultado("tx-1", "RETIRO", "COMPLETADO"));
+        assertEquals(EstadoEspecificoTransaccionEnum.RECHAZADO, estado("tx-1"));
+    }
+
+    @Test
+    void filaAnteriorSinOperacionesConfirmadasSigueConElContador() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+        filas.get("tx-1").setOperacionesConfirmadas(null);
+        filas.get("tx-1").setOperacionesPendientes(1);
+        filas.get("tx-1").setEstado(EstadoEspecificoTransaccionEnum.PENDIENTE);
+
+        servicio.registrarResultado(resultado("tx-1", "DEPOSITO", "COMPLETADO"));
+
+        assertEquals(EstadoEspecificoTransaccionEnum.COMPLETADO, estado("tx-1"));
+    }
+
+    @Test
+    void envioParcialQuedaPorReenviarHastaQueSeMarcaReenviado() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+        servicio.registrarEnvioParcial("tx-1", deposito(), "broker caído");
+
+        assertEquals(EstadoEspecificoTransaccionEnum.PENDIENTE, estado("tx-1"));
+        List<DepositoPorReenviar> pendientes = servicio.depositosPorReenviar();
+        assertEquals(1, pendientes.size());
+        TransaccionesSolicitudDTO deposito = pendientes.get(0).deposito();
+        assertEquals("2222222222", deposito.getNumeroCuentaOrigen());
+        assertEquals(TipoTransaccionEnum.DEPOSITO, deposito.getTipoTransaccion());
+        assertEquals(new BigDecimal("25.00"), deposito.getMonto());
+        assertEquals("TRANSFERENCIA DE 1111111111 - Pago", deposito.getDescripcion());
+
+        servicio.registrarDepositoReenviado("tx-1", "Depósito reenviado");
+
+        assertTrue(servicio.depositosPorReenviar().isEmpty());
+        assertEquals(EstadoEspecificoTransaccionEnum.PENDIENTE, estado("tx-1"));
+        assertEquals("Depósito reenviado", filas.get("tx-1").getMensaje());
+    }
+
+    @Test
+    void resultadoDelDepositoORechazoQuitanLaMarcaDeReenvio() {
+        servicio.registrarEnvio("tx-1", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+        servicio.registrarEnvioParcial("tx-1", deposito(), "broker caído");
+        servicio.registrarResultado(resultado("tx-1", "DEPOSITO", "COMPLETADO"));
+        assertFalse(filas.get("tx-1").getDepositoPorReenviar());
+
+        servicio.registrarEnvio("tx-2", solicitud(TipoTransaccionEnum.TRANSFERENCIA));
+        servicio.registrarEnvioParcial("tx-2", deposito(), "broker caído");
+        servicio.registrarResultado(resultado("tx-2", "RETIRO", "RECHAZADO"));
+        assertFalse(filas.get("tx-2").getDepositoPorReenviar());
+
+        assertTrue(servicio.depositosPorReenviar().isEmpty());
+    }
+
+    private EstadoEspecificoTransaccionEnum estado(String transaccionId) {
+        return servicio.consultar(transaccionId).getEstado();
+    }
+
+    private static TransaccionesSolicitudDTO solicitud(TipoTransaccionEnum tipo) {
+        return TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen("1111111111")
+                .numeroCuentaDestino(tipo == TipoTransaccionEnum.TRANSFERENCIA ? "2222222222" : null)
+                .tipoTransaccion(tipo)
+                .monto(new BigDecimal("25.00"))
+                .descripcion("Pago")
+                .build();
+    }
+
+    private static TransaccionesSolicitudDTO deposito() {
+        return TransaccionesSolicitudDTO.builder()
+                .numeroCuentaOrigen("2222222222")
+                .tipoTransaccion(TipoTransaccionEnum.DEPOSITO)
+                .monto(new BigDecimal("25.00"))
+                .descripcion("TRANSFERENCIA DE 1111111111 - Pago")
+                .build();
+    }
+
+    private static ResultadoTransaccionDTO resultado(String transaccionId, String tipo, String estado) {
+        ResultadoTransaccionDTO resultado = new ResultadoTransaccionDTO();
+        resultado.setTransaccionId(transaccionId);
+        resultado.setTipoTransaccion(tipo);
+        resultado.setEstado(estado);
+        return resultado;
+    }
+}
@@ -0,0 +1,184 @@
+package com.banquito.core.cuentas.servicio;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FiltroNumerosCuentaServicioTest {
+
+    /** id_cuenta_cliente -> numero_cuenta, lo que devuelve account.cuentas_clientes. */
+    private final TreeMap<Long, String> tabla = new TreeMap<>();
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void preparar() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void bloomSinFalsosNegativosYConLaTasaConfigurada() {
+        FiltroNumerosCuentaServicio.Bloom bloom = new FiltroNumerosCuentaServicio.Bloom(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            bloom.agregar(numero(i));
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(bloom.contiene(numero(i)), numero(i));
+        }
+        int falsos = 0;
+        for (int i = 50_000; i < 150_000; i++) {
+            if (bloom.contiene(numero(i))) {
+                falsos++;
+            }
+        }
+        double tasa = falsos / 100_000.0;
+        assertTrue(tasa < 0.02, "tasa de falsos positivos " + tasa);
+        assertTrue(bloom.elementos() > 49_000 && bloom.elementos() <= 50_000);
+    }
+
+    @Test
+    void cargaInicialYRefrescoIncrementalNoDanFalsosNegativos() {
+        agregarFilas(0, 100);
+        FiltroNumerosCuentaServicio filtro = filtro(1000, 1000);
+        filtro.run(null);
+        agregarFilas(100, 200);
+
+        filtro.refrescar();
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(filtro.puedeExistir(numero(i)), numero(i));
+        }
+    }
+
+    @Test
+    void superadaLaCapacidadSeReconstruyeConElDoble() {
+        agregarFilas(0, 10);
+        FiltroNumerosCuentaServicio filtro = filtro(16, 1000);
+        filtro.run(null);
+        double bytesIniciales = bytes();
+
+        agregarFilas(10, 100);
+        filtro.refrescar();   // carga las nuevas: el filtro queda por encima de su capacidad
+        assertEquals(bytesIniciales, bytes());
+        filtro.refrescar();   // reconstruye para 2 x 100 cuentas
+
+        assertTrue(bytes() >= bytesIniciales * 10, bytesIniciales + " -> " + bytes());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filtro.puedeExistir(numero(i)), numero(i));
+        }
+    }
+
+    @Test
+    void laReconstruccionPeriodicaRecogeNumerosCambiados() {
+        agregarFilas(0, 50);
+        FiltroNumerosCuentaServicio filtro = filtro(1000, 0);
+        filtro.run(null);
+        // Otra instancia renumera una cuenta existente: su id no cambia
+        tabla.put(7L, "7777777777");
+
+        filtro.refrescar();
+        assertFalse(filtro.puedeExistir("7777777777"));
+
+        filtro.reconstruirPeriodico();
+        assertTrue(filtro.puedeExistir("7777777777"));
+    }
+
+    @Test
+    void sinCargaTodoNumeroPuedeExistir() {
+        FiltroNumerosCuentaServicio filtro = filtro(1000, 1000);
+
+        assertTrue(filtro.puedeExistir("0000000001"));
+        filtro.reconstruirPeriodico();
+        assertTrue(filtro.puedeExistir("0000000001"));
+    }
+
+    private FiltroNumerosCuentaServicio filtro(long capacidad, int ventanaIds) {
+        return new FiltroNumerosCuentaServicio(baseDeDatos(), mock(PlatformTransactionManager.class), registry,
+                true, capacidad, 0.01, ventanaIds, 100);
+    }
+
+    private double bytes() {
+        return registry.get("cuentas.filtro.numeros.bytes").gauge().value();
+    }
+
+    private void agregarFilas(int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            tabla.put((long) i + 1, numero(i));
+        }
+    }
+
+    private static String numero(int i) {
+        return String.format("%010d", 1_000_000_000L + i);
+    }
+
+    /** DataSource que responde el COUNT(*) y el recorrido por id sobre la tabla en memoria. */
+    private DataSource baseDeDatos() {
+        try {
+            DataSource dataSource = mock(DataSource.class);
+            Connection conexion = mock(Connection.class);
+            when(dataSource.getConnection()).thenAnswer(i -> conexion);
+
+            Statement consulta = mock(Statement.class);
+            when(conexion.createStatement()).thenReturn(consulta);
+            when(consulta.executeQuery(anyString())).thenAnswer(i -> resultado(List.<Object[]>of(new Object[] { (long) tabla.size() })));
+
+            PreparedStatement porId = mock(PreparedStatement.class);
+            when(conexion.prepareStatement(anyString())).thenReturn(porId);
+            long[] desde = { 0 };
+            doAnswer(i -> {
+                desde[0] = ((Number) i.getArgument(1)).longValue();
+                return null;
+            }).when(porId).setObject(anyInt(), any());
+            when(porId.executeQuery()).thenAnswer(i -> {
+                List<Object[]> filas = new ArrayList<>();
+                for (Map.Entry<Long, String> fila : tabla.tailMap(desde[0], false).entrySet()) {
+                    filas.add(new Object[] { fila.getKey(), fila.getValue() });
+                }
+                return resultado(filas);
+            });
+            return dataSource;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResultSet resultado(List<Object[]> filas) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        Iterator<Object[]> iterador = filas.iterator();
+        Object[][] actual = { null };
+        when(rs.next()).thenAnswer(i -> {
+            actual[0] = iterador.hasNext() ? iterador.next() : null;
+            return actual[0] != null;
+        });
+        when(rs.getLong(1)).thenAnswer(i -> ((Number) actual[0][0]).longValue());
+        when(rs.getObject(1)).thenAnswer(i -> actual[0][0]);
+        when(rs.getString(2)).thenAnswer(i -> (String) actual[0][1]);
+        ResultSetMetaData metadatos = mock(ResultSetMetaData.class);
+        when(metadatos.getColumnCount()).thenReturn(filas.isEmpty() ? 1 : filas.get(0).length);
+        when(rs.getMetaData()).thenReturn(metadatos);
+        return rs;
+    }
+}
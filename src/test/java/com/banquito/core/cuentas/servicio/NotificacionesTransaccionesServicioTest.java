@@ -0,0 +1,74 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.excepcion.AccesoDenegadoExcepcion;
+import com.banquito.core.cuentas.modelo.CuentasClientes;
+import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class NotificacionesTransaccionesServicioTest {
+
+    private static final String CUENTA = "1111111111";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CuentasClientesRepositorio cuentas = mock(CuentasClientesRepositorio.class);
+    private NotificacionesTransaccionesServicio notificaciones;
+
+    @BeforeEach
+    void preparar() {
+        when(cuentas.findByIdClienteAndNumeroCuenta(any(), any())).thenReturn(Optional.empty());
+        when(cuentas.findByIdClienteAndNumeroCuenta("cliente-1", CUENTA)).thenReturn(Optional.of(new CuentasClientes()));
+        notificaciones = new NotificacionesTransaccionesServicio(mock(EstadoTransaccionServicio.class), cuentas,
+                registry, 60_000);
+    }
+
+    @Test
+    void suscripcionPorCuentaSinUsuarioSeRechaza() {
+        assertThrows(AccesoDenegadoExcepcion.class, () -> notificaciones.suscribir(List.of(), CUENTA, null));
+        assertEquals(0.0, suscripciones());
+    }
+
+    @Test
+    void suscripcionACuentaAjenaSeRechaza() {
+        assertThrows(AccesoDenegadoExcepcion.class,
+                () -> notificaciones.suscribir(List.of(), CUENTA, usuario("cliente-2")));
+        assertEquals(0.0, suscripciones());
+    }
+
+    @Test
+    void elClienteDeLaCuentaPuedeSuscribirse() {
+        assertNotNull(notificaciones.suscribir(List.of(), CUENTA, usuario("cliente-1")));
+        assertEquals(1.0, suscripciones());
+    }
+
+    @Test
+    void suscripcionPorTransaccionNoConsultaLaCuenta() {
+        CuentasClientesRepositorio sinUso = mock(CuentasClientesRepositorio.class);
+        NotificacionesTransaccionesServicio servicio = new NotificacionesTransaccionesServicio(
+                mock(EstadoTransaccionServicio.class), sinUso, new SimpleMeterRegistry(), 60_000);
+
+        assertNotNull(servicio.suscribir(List.of("3f2b9c1e-7a4d-4e8f-9b21-5c6d7e8f9a0b"), null, null));
+        verifyNoInteractions(sinUso);
+    }
+
+    private double suscripciones() {
+        return registry.get("cuentas.notificaciones.suscripciones").gauge().value();
+    }
+
+    private static Principal usuario(String nombre) {
+        return () -> nombre;
+    }
+}
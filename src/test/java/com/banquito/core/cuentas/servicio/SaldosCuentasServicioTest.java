@@ -0,0 +1,134 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.dto.EventoSaldoCuentaDTO;
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.banquito.core.cuentas.enums.EstadoCuentaClienteEnum;
+import com.banquito.core.cuentas.repositorio.CuentasClientesRepositorio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SaldosCuentasServicioTest {
+
+    private AlmacenSaldosMemoria almacen;
+    private CuentasClientesRepositorio cliRepo;
+    private SaldosCuentasServicio servicio;
+
+    @BeforeEach
+    void preparar() {
+        almacen = new AlmacenSaldosMemoria(100);
+        cliRepo = mock(CuentasClientesRepositorio.class);
+        servicio = new SaldosCuentasServicio(cliRepo,
+                mock(FiltroNumerosCuentaServicio.class), almacen, mock(DataSource.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 30000, 1000, 100);
+    }
+
+    @Test
+    void eventoDeCuentaQueNoEstaEnElModeloSeIgnora() {
+        servicio.aplicar(evento("0001", 5000L, 5000L, null, 3L), Instant.now());
+
+        assertNull(almacen.leer("0001"));
+        assertEquals(0, almacen.tamano());
+    }
+
+    @Test
+    void eventoSinEstadoConservaElEstadoYProductoConocidos() {
+        almacen.guardar(SaldoCuentaDTO.builder()
+                .numeroCuenta("0001")
+                .saldoDisponibleCentavos(1000)
+                .saldoContableCentavos(1000)
+                .estado(EstadoCuentaClienteEnum.ACTIVO)
+                .idCuenta(7)
+                .version(1L)
+                .build(), System.currentTimeMillis());
+
+        servicio.aplicar(evento("0001", 400L, null, null, 2L), Instant.now());
+
+        SaldoCuentaDTO saldo = almacen.leer("0001").saldo();
+        assertEquals(400, saldo.getSaldoDisponibleCentavos());
+        assertEquals(1000, saldo.getSaldoContableCentavos());
+        assertEquals(EstadoCuentaClienteEnum.ACTIVO, saldo.getEstado());
+        assertEquals(7, saldo.getIdCuenta());
+        assertEquals(2L, saldo.getVersion());
+    }
+
+    @Test
+    void eventoObsoletoNoRetrocedeElSaldo() {
+        almacen.guardar(SaldoCuentaDTO.builder()
+                .numeroCuenta("0001")
+                .saldoDisponibleCentavos(1000)
+                .saldoContableCentavos(1000)
+                .estado(EstadoCuentaClienteEnum.ACTIVO)
+                .version(5L)
+                .build(), System.currentTimeMillis());
+
+        servicio.aplicar(evento("0001", 1L, 1L, EstadoCuentaClienteEnum.INACTIVO, 4L), Instant.now());
+
+        SaldoCuentaDTO saldo = almacen.leer("0001").saldo();
+        assertEquals(1000, saldo.getSaldoDisponibleCentavos());
+        assertEquals(EstadoCuentaClienteEnum.ACTIVO, saldo.getEstado());
+    }
+
+    @Test
+    void entradaVigenteSeSirveDelModelo() {
+        almacen.guardar(saldoActivo(), System.currentTimeMillis());
+
+        assertEquals(1000, servicio.obtener("0001").orElseThrow().getSaldoDisponibleCentavos());
+        verifyNoInteractions(cliRepo);
+    }
+
+    @Test
+    void entradaVencidaSeRecargaDeLaBd() {
+        almacen.guardar(saldoActivo(), System.currentTimeMillis() - 60_000);
+        when(cliRepo.findByNumeroCuenta("0001")).thenReturn(Optional.empty());
+
+        assertTrue(servicio.obtener("0001").isEmpty());
+        verify(cliRepo).findByNumeroCuenta("0001");
+    }
+
+    @Test
+    void cuentaADebitarSeRecargaConElTtlCorto() {
+        almacen.guardar(saldoActivo(), System.currentTimeMillis() - 5_000);
+        when(cliRepo.findByNumeroCuenta("0001")).thenReturn(Optional.empty());
+
+        // Vigente para una consulta normal, vencida para un débito
+        assertEquals(1000, servicio.obtener("0001").orElseThrow().getSaldoDisponibleCentavos());
+        verifyNoInteractions(cliRepo);
+        assertTrue(servicio.obtenerParaDebito("0001").isEmpty());
+        verify(cliRepo).findByNumeroCuenta("0001");
+    }
+
+    private static SaldoCuentaDTO saldoActivo() {
+        return SaldoCuentaDTO.builder()
+                .numeroCuenta("0001")
+                .saldoDisponibleCentavos(1000)
+                .saldoContableCentavos(1000)
+                .estado(EstadoCuentaClienteEnum.ACTIVO)
+                .version(1L)
+                .build();
+    }
+
+    private static EventoSaldoCuentaDTO evento(String numero, Long disponible, Long contable,
+                                               EstadoCuentaClienteEnum estado, Long version) {
+        EventoSaldoCuentaDTO evento = new EventoSaldoCuentaDTO();
+        evento.setNumeroCuenta(numero);
+        evento.setSaldoDisponibleCentavos(disponible);
+        evento.setSaldoContableCentavos(contable);
+        evento.setEstado(estado);
+        evento.setVersion(version);
+        return evento;
+    }
+}
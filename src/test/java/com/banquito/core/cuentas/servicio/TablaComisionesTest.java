@@ -0,0 +1,103 @@
+package com.banquito.core.cuentas.servicio;
+
+import com.banquito.core.cuentas.enums.BaseCalculoComisionEnum;
+import com.banquito.core.cuentas.enums.TipoTransaccionEnum;
+import com.banquito.core.cuentas.servicio.TablaComisiones.ReglaComision;
+import com.banquito.core.cuentas.servicio.TablaComisiones.ReglaDescartada;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.banquito.core.cuentas.enums.BaseCalculoComisionEnum.FIJO;
+import static com.banquito.core.cuentas.enums.BaseCalculoComisionEnum.PORCENTAJE;
+import static com.banquito.core.cuentas.enums.TipoTransaccionEnum.DEPOSITO;
+import static com.banquito.core.cuentas.enums.TipoTransaccionEnum.RETIRO;
+import static com.banquito.core.cuentas.enums.TipoTransaccionEnum.TRANSFERENCIA;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablaComisionesTest {
+
+    @Test
+    void elPorcentajeSeRedondeaAlCentavoMitadHaciaArriba() {
+        TablaComisiones tabla = TablaComisiones.compilar(List.of(
+                regla(null, RETIRO, PORCENTAJE, "1.2500", null, null),
+                regla(null, TRANSFERENCIA, PORCENTAJE, "0.0001", null, null)));
+
+        // 1004 * 1.25 % = 12.55 centavos -> 13; 1000 * 1.25 % = 12.5 -> 13; 996 * 1.25 % = 12.45 -> 12
+        assertEquals(13, tabla.comision(null, RETIRO, 1004));
+        assertEquals(13, tabla.comision(null, RETIRO, 1000));
+        assertEquals(12, tabla.comision(null, RETIRO, 996));
+        // 0.0001 %: medio centavo se alcanza con 500 000 centavos
+        assertEquals(0, tabla.comision(null, TRANSFERENCIA, 499_999));
+        assertEquals(1, tabla.comision(null, TRANSFERENCIA, 500_000));
+    }
+
+    @Test
+    void conMontosQueDesbordanLongSeCalculaConBigDecimal() {
+        TablaComisiones tabla = TablaComisiones.compilar(List.of(
+                regla(null, RETIRO, PORCENTAJE, "100.0000", null, null),
+                regla(null, TRANSFERENCIA, PORCENTAJE, "1.0050", null, null)));
+
+        // 10^13 * 10^6 supera Long.MAX_VALUE
+        assertEquals(10_000_000_000_000L, tabla.comision(null, RETIRO, 10_000_000_000_000L));
+        assertEquals(100_500_000_000L, tabla.comision(null, TRANSFERENCIA, 10_000_000_000_000L));
+    }
+
+    @Test
+    void minimoYMaximoAcotanSoloElPorcentaje() {
+        TablaComisiones tabla = TablaComisiones.compilar(List.of(
+                regla(null, RETIRO, PORCENTAJE, "1.0000", "0.50", "2.00"),
+                regla(null, TRANSFERENCIA, FIJO, "0.35", "1.00", "0.10")));
+
+        assertEquals(50, tabla.comision(null, RETIRO, 1_000));
+        assertEquals(150, tabla.comision(null, RETIRO, 15_000));
+        assertEquals(200, tabla.comision(null, RETIRO, 50_000));
+        assertEquals(35, tabla.comision(null, TRANSFERENCIA, 1_000_000));
+    }
+
+    @Test
+    void laReglaDelProductoPrevaleceSobreLaGeneral() {
+        TablaComisiones tabla = TablaComisiones.compilar(List.of(
+                regla(7, RETIRO, FIJO, "0.10", null, null),
+                regla(null, RETIRO, FIJO, "0.50", null, null),
+                regla(null, TRANSFERENCIA, FIJO, "0.25", null, null)));
+
+        assertEquals(10, tabla.comision(7, RETIRO, 10_000));
+        // Sin regla propia para el tipo: la general
+        assertEquals(25, tabla.comision(7, TRANSFERENCIA, 10_000));
+        // Otro producto, o uno fuera de la tabla: la general
+        assertEquals(50, tabla.comision(3, RETIRO, 10_000));
+        assertEquals(50, tabla.comision(1_000, RETIRO, 10_000));
+        assertEquals(50, tabla.comision(null, RETIRO, 10_000));
+        assertEquals(0, tabla.comision(7, DEPOSITO, 10_000));
+    }
+
+    @Test
+    void lasReglasInvalidasOReemplazadasQuedanEnDescartadas() {
+        ReglaComision negativa = regla(null, RETIRO, FIJO, "-1.00", null, null);
+        ReglaComision decimales = regla(null, RETIRO, PORCENTAJE, "1.00005", null, null);
+        ReglaComision fueraDeRango = regla(TablaComisiones.MAX_ID_PRODUCTO, RETIRO, FIJO, "1.00", null, null);
+        ReglaComision anterior = regla(2, RETIRO, FIJO, "0.40", null, null);
+        ReglaComision vigente = regla(2, RETIRO, FIJO, "0.60", null, null);
+
+        TablaComisiones tabla = TablaComisiones.compilar(List.of(
+                anterior, negativa, decimales, fueraDeRango, vigente));
+
+        List<ReglaDescartada> descartadas = tabla.descartadas();
+        assertEquals(List.of(negativa, decimales, fueraDeRango, anterior),
+                descartadas.stream().map(ReglaDescartada::regla).toList());
+        assertTrue(descartadas.get(3).motivo().contains("reemplazada"));
+        assertEquals(1, tabla.reglas());
+        assertEquals(60, tabla.comision(2, RETIRO, 10_000));
+        // La regla inválida no pisó la celda general
+        assertEquals(0, tabla.comision(null, RETIRO, 10_000));
+    }
+
+    private static ReglaComision regla(Integer idCuenta, TipoTransaccionEnum tipo, BaseCalculoComisionEnum base,
+                                       String valor, String minimo, String maximo) {
+        return new ReglaComision(idCuenta, tipo, base, new BigDecimal(valor),
+                minimo == null ? null : new BigDecimal(minimo), maximo == null ? null : new BigDecimal(maximo));
+    }
+}
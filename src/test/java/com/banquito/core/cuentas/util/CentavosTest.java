@@ -0,0 +1,142 @@
+package com.banquito.core.cuentas.util;
+
+import com.banquito.core.cuentas.dto.EventoSaldoCuentaDTO;
+import com.banquito.core.cuentas.dto.SaldoCuentaDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CentavosTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void parseaHastaDosDecimales() {
+        assertEquals(12550, parsear("125.5"));
+        assertEquals(1050, parsear("10.50"));
+        assertEquals(1, parsear("0.01"));
+        assertEquals(300, parsear("3"));
+        assertEquals(500, parsear("5."));
+        assertEquals(50, parsear(".5"));
+        assertEquals(701, parsear("+7.01"));
+    }
+
+    @Test
+    void parseaNegativos() {
+        assertEquals(-300, parsear("-3"));
+        assertEquals(-50, parsear("-0.5"));
+        assertEquals(-1, parsear("-0.01"));
+        assertEquals(0, parsear("-0"));
+    }
+
+    @Test
+    void ceroFinalesDeMasNoCambianLaEscala() {
+        assertEquals(123, parsear("1.230"));
+        assertEquals(123, parsear("1.23000"));
+    }
+
+    @Test
+    void masDeDosDecimalesSignificativosNoSeTruncan() {
+        assertThrows(ArithmeticException.class, () -> parsear("1.234"));
+        assertThrows(ArithmeticException.class, () -> parsear("0.001"));
+        assertThrows(ArithmeticException.class, () -> parsear("-10.555"));
+    }
+
+    @Test
+    void conExponenteUsaLaEscalaFinal() {
+        assertEquals(15000, parsear("1.5e2"));
+        assertEquals(1, parsear("1E-2"));
+        assertEquals(1234, parsear("1.234e1"));
+        assertThrows(ArithmeticException.class, () -> parsear("1e-3"));
+    }
+
+    @Test
+    void rechazaTextoQueNoEsMonto() {
+        assertThrows(NumberFormatException.class, () -> parsear(""));
+        assertThrows(NumberFormatException.class, () -> parsear("-"));
+        assertThrows(NumberFormatException.class, () -> parsear("."));
+        assertThrows(NumberFormatException.class, () -> parsear("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> parsear("12a"));
+        assertThrows(NumberFormatException.class, () -> parsear("1 000"));
+    }
+
+    @Test
+    void respetaElRangoDeNumeric15Coma2() {
+        assertEquals(Centavos.MAXIMO, parsear("9999999999999.99"));
+        assertEquals(-Centavos.MAXIMO, parsear("-9999999999999.99"));
+        assertThrows(ArithmeticException.class, () -> parsear("10000000000000"));
+        assertThrows(ArithmeticException.class, () -> parsear("-10000000000000.00"));
+        // Desborda el long antes de llegar al control de rango
+        assertThrows(ArithmeticException.class, () -> parsear("99999999999999999999"));
+    }
+
+    @Test
+    void parseaSoloElTramoIndicado() {
+        char[] texto = "x:125.50,".toCharArray();
+
+        assertEquals(12550, Centavos.parsear(texto, 2, 6));
+    }
+
+    @Test
+    void convierteBigDecimalSinRedondear() {
+        assertEquals(150, Centavos.de(new BigDecimal("1.500")));
+        assertEquals(-1, Centavos.de(new BigDecimal("-0.01")));
+        assertEquals(100000, Centavos.de(new BigDecimal("1E+3")));
+        assertThrows(ArithmeticException.class, () -> Centavos.de(new BigDecimal("0.005")));
+        assertThrows(ArithmeticException.class, () -> Centavos.de(new BigDecimal("10000000000000")));
+        assertEquals(new BigDecimal("-12.05"), Centavos.aBigDecimal(-1205));
+        assertEquals("0.07", Centavos.texto(7));
+    }
+
+    @Test
+    void laAritmeticaFallaFueraDeRango() {
+        assertEquals(Centavos.MAXIMO, Centavos.sumar(Centavos.MAXIMO - 1, 1));
+        assertThrows(ArithmeticException.class, () -> Centavos.sumar(Centavos.MAXIMO, 1));
+        assertThrows(ArithmeticException.class, () -> Centavos.restar(-Centavos.MAXIMO, 1));
+        assertThrows(ArithmeticException.class, () -> Centavos.sumar(Long.MAX_VALUE, 1));
+    }
+
+    @Test
+    void deserializaNumerosYTextosJson() throws Exception {
+        assertEquals(1050L, evento("10.5").getSaldoDisponibleCentavos());
+        assertEquals(-200L, evento("-2").getSaldoDisponibleCentavos());
+        assertEquals(1234L, evento("\"12.34\"").getSaldoDisponibleCentavos());
+        assertEquals(Centavos.MAXIMO, evento("9999999999999.99").getSaldoDisponibleCentavos());
+    }
+
+    @Test
+    void deserializarRechazaEscalaYDesbordamiento() {
+        assertThrows(InvalidFormatException.class, () -> evento("1.234"));
+        assertThrows(InvalidFormatException.class, () -> evento("10000000000000"));
+        assertThrows(InvalidFormatException.class, () -> evento("100000000000000000"));
+        assertThrows(InvalidFormatException.class, () -> evento("\"diez\""));
+    }
+
+    @Test
+    void serializaConDosDecimales() throws Exception {
+        String json = objectMapper.writeValueAsString(SaldoCuentaDTO.builder()
+                .saldoDisponibleCentavos(-5)
+                .saldoContableCentavos(Centavos.MAXIMO)
+                .build());
+
+        assertTrue(json.contains("\"saldoDisponible\":-0.05"), json);
+        assertTrue(json.contains("\"saldoContable\":9999999999999.99"), json);
+        assertTrue(objectMapper.writeValueAsString(SaldoCuentaDTO.builder().saldoDisponibleCentavos(100050).build())
+                .contains("\"saldoDisponible\":1000.50"));
+    }
+
+    private static long parsear(String texto) {
+        return Centavos.parsear(texto.toCharArray(), 0, texto.length());
+    }
+
+    private EventoSaldoCuentaDTO evento(String saldo) throws Exception {
+        return objectMapper.readValue("{\"numeroCuenta\":\"0001\",\"saldoDisponible\":" + saldo + "}",
+                EventoSaldoCuentaDTO.class);
+    }
+}